@@ -0,0 +1,146 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.algorithm.BlockingCheckExecutor;
+import com.ratelimiter.core.algorithm.BlockingCheckRateLimiter;
+import com.ratelimiter.core.algorithm.CheckExecution;
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to complete {@code inFlight} decisions started at once, for each
+ * {@link CheckExecution} mode. {@code SIMULATED} replaces Redis with a fixed
+ * {@code latencyMicros}: a blocking check parks its thread for that long, a reactive one
+ * completes after it on a timer. {@code REDIS} runs the Fixed Window script against the
+ * Redis at {@code -Dbenchmark.redis.uri} (default {@code redis://localhost:6379}). With
+ * bounded elastic the decisions queue for its ten threads per core; with virtual threads
+ * they all wait at once, like the reactive calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecutionModeBenchmark {
+
+    public enum Backend {
+        SIMULATED, REDIS
+    }
+
+    private static final int KEYS = 1024;
+
+    @Param({"REACTIVE", "VIRTUAL_THREADS", "BOUNDED_ELASTIC"})
+    CheckExecution mode;
+
+    @Param({"10000", "50000"})
+    int inFlight;
+
+    @Param({"SIMULATED"})
+    Backend backend;
+
+    @Param({"1000"})
+    long latencyMicros;
+
+    private RateLimiter limiter;
+    private RateLimitRule rule;
+    private String[] keyNames;
+    private BlockingCheckExecutor executor;
+    private RedisClient redisClient;
+    private StatefulRedisConnection<String, String> connection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rule = Fixtures.rule("benchmark", "/api/**", AlgorithmType.FIXED_WINDOW, Long.MAX_VALUE / 2);
+        RateLimiter backendLimiter;
+        if (backend == Backend.SIMULATED) {
+            backendLimiter = new SimulatedRedis(latencyMicros);
+        } else {
+            redisClient = RedisClient.create(System.getProperty("benchmark.redis.uri", "redis://localhost:6379"));
+            connection = redisClient.connect();
+            connection.sync().flushdb();
+            RateLimiterFactory factory =
+                    new RateLimiterFactory(new RedisScriptRegistry(connection.sync(), connection.reactive()));
+            factory.preloadScripts();
+            backendLimiter = factory.getLimiter(AlgorithmType.FIXED_WINDOW);
+        }
+        if (mode == CheckExecution.REACTIVE) {
+            limiter = backendLimiter;
+        } else {
+            executor = BlockingCheckExecutor.forMode(mode, inFlight, Duration.ofSeconds(30));
+            limiter = new BlockingCheckRateLimiter(backendLimiter, executor);
+        }
+
+        keyNames = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keyNames[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+        if (connection != null) {
+            connection.close();
+            redisClient.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long decideAll() {
+        return Flux.range(0, inFlight)
+                .flatMap(i -> limiter.isAllowed(keyNames[i % KEYS], rule), inFlight)
+                .filter(RateLimitResult::allowed)
+                .count()
+                .block();
+    }
+
+    /**
+     * A Redis limiter reduced to its round trip.
+     */
+    private static final class SimulatedRedis implements RateLimiter {
+
+        private final long latencyMicros;
+
+        SimulatedRedis(long latencyMicros) {
+            this.latencyMicros = latencyMicros;
+        }
+
+        @Override
+        public RateLimitResult check(String key, RateLimitRule rule) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+            return RateLimitResult.allowed(1);
+        }
+
+        @Override
+        public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+            return check(key, rule);
+        }
+
+        @Override
+        public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
+            return Mono.delay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros)))
+                    .map(tick -> RateLimitResult.allowed(1));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.config.RuleMatchService;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.stats.HeavyHitterSketch;
+import com.ratelimiter.gateway.filter.RateLimitGlobalFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RateLimitGlobalFilter} end to end on the in-process backend, so the numbers show
+ * the filter's own cost: rule lookup, key resolution, headers and, for {@code DENY}, the
+ * 429 body. {@link #exchangeOnly} measures building the mock exchange alone and is the
+ * baseline to subtract. {@code hotKeys} adds the heavy hitter sketch, so the difference
+ * between its two values is the sketch's cost per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark {
+
+    public enum Outcome {
+        ALLOW, DENY
+    }
+
+    private static final GatewayFilterChain CHAIN = exchange -> Mono.empty();
+
+    @Param({"IP", "USER", "IP_PATH"})
+    KeyResolverType keyResolver;
+
+    @Param({"ALLOW", "DENY"})
+    Outcome outcome;
+
+    @Param({"false", "true"})
+    boolean hotKeys;
+
+    private LocalStateStore store;
+    private HeavyHitterSketch sketch;
+    private RateLimitGlobalFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long limit = outcome == Outcome.ALLOW ? Long.MAX_VALUE / 2 : 0;
+        RateLimitRule rule = Fixtures.rule("benchmark", "/api/**", AlgorithmType.FIXED_WINDOW, limit);
+        rule.setKeyResolver(keyResolver);
+        store = new LocalStateStore(System::currentTimeMillis, Duration.ofSeconds(10));
+        sketch = hotKeys ? new HeavyHitterSketch(1024, 4096, Duration.ofSeconds(10)) : null;
+        filter = new RateLimitGlobalFilter(new RuleMatchService(new Fixtures.StaticRules(List.of(rule))),
+                new RateLimiterFactory(store), new SimpleMeterRegistry(), sketch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        if (sketch != null) {
+            sketch.close();
+        }
+    }
+
+    @Benchmark
+    public MockServerWebExchange exchangeOnly() {
+        return exchange();
+    }
+
+    @Benchmark
+    public MockServerWebExchange filter() {
+        MockServerWebExchange exchange = exchange();
+        filter.filter(exchange, CHAIN).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/42/orders")
+                .header("X-Forwarded-For", "203.0.113.7, 10.0.0.1")
+                .header("X-User-Id", "user-42")
+                .build());
+    }
+}
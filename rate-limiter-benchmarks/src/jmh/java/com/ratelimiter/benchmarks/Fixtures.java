@@ -0,0 +1,57 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.config.RateLimitConfigService;
+import com.ratelimiter.core.config.RuleSet;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.util.List;
+
+/**
+ * Rules and a ZooKeeper-free rule source shared by the benchmarks.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static RateLimitRule rule(String id, String path) {
+        return rule(id, path, AlgorithmType.TOKEN_BUCKET, 1000);
+    }
+
+    /**
+     * A rule admitting {@code limit} requests per second per key, whatever the algorithm.
+     */
+    static RateLimitRule rule(String id, String path, AlgorithmType algorithm, long limit) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setPath(path);
+        rule.setAlgorithm(algorithm);
+        rule.setKeyResolver(KeyResolverType.IP);
+        rule.setMaxRequests(limit);
+        rule.setWindowSizeSeconds(1);
+        rule.setBucketCapacity(limit);
+        rule.setRefillRate(limit);
+        rule.setLeakRate(limit);
+        return rule;
+    }
+
+    /**
+     * Serves a fixed rule set without ZooKeeper.
+     */
+    static final class StaticRules extends RateLimitConfigService {
+
+        private final RuleSet rules;
+
+        StaticRules(List<RateLimitRule> rules) {
+            super(null, null);
+            this.rules = RuleSet.inListOrder(rules);
+        }
+
+        @Override
+        public RuleSet getRuleSet() {
+            return rules;
+        }
+    }
+}
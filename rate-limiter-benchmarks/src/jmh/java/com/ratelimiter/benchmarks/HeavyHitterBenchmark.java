@@ -0,0 +1,97 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.stats.HeavyHitterSketch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HeavyHitterSketch#record} alone, the per-request cost the gateway pays for hot
+ * key tracking. {@code UNIFORM} spreads requests over {@value #KEYS} keys, so most miss
+ * the candidate table and compare against its occupants; {@code SKEWED} sends half of
+ * them to {@value #HOT_KEYS} keys, which are tracked and return after one slot read.
+ * Each benchmark runs at 1, 4 and all available threads, which contend on the counters
+ * of the hot keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HeavyHitterBenchmark {
+
+    public enum Keys {
+        UNIFORM, SKEWED
+    }
+
+    static final int KEYS = 1 << 16;
+    static final int HOT_KEYS = 8;
+
+    @Param({"UNIFORM", "SKEWED"})
+    Keys keys;
+
+    @Param({"1024", "4096"})
+    int width;
+
+    private HeavyHitterSketch sketch;
+    private String[] keyNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sketch = new HeavyHitterSketch(1024, width, Duration.ofSeconds(10));
+        keyNames = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keyNames[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sketch.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        String key(String[] keyNames, Keys keys) {
+            if (keys == Keys.SKEWED && random.nextBoolean()) {
+                return keyNames[random.nextInt(HOT_KEYS)];
+            }
+            return keyNames[random.nextInt(keyNames.length)];
+        }
+
+        boolean denied() {
+            return random.nextInt(10) == 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void oneThread(Client client) {
+        sketch.record("benchmark", client.key(keyNames, keys), client.denied());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourThreads(Client client) {
+        sketch.record("benchmark", client.key(keyNames, keys), client.denied());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void allThreads(Client client) {
+        sketch.record("benchmark", client.key(keyNames, keys), client.denied());
+    }
+}
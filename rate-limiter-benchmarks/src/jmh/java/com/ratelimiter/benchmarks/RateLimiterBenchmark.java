@@ -0,0 +1,128 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One decision per operation for every algorithm, either in-process ({@code LOCAL}) or
+ * through the Lua scripts against the Redis at {@code -Dbenchmark.redis.uri}
+ * (default {@code redis://localhost:6379}). {@code SINGLE} sends every thread to one hot
+ * key, {@code SPREAD} picks among {@value #KEYS} keys, so the gap between the two is the
+ * cost of contention. Each benchmark runs at 1, 4 and all available threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimiterBenchmark {
+
+    public enum Backend {
+        LOCAL, REDIS
+    }
+
+    public enum Keys {
+        SINGLE, SPREAD
+    }
+
+    static final int KEYS = 1 << 14;
+
+    @Param({"TOKEN_BUCKET", "LEAKING_BUCKET", "FIXED_WINDOW", "SLIDING_WINDOW_LOG", "SLIDING_WINDOW_COUNTER", "GCRA",
+            "SLIDING_WINDOW_BUCKETS"})
+    AlgorithmType algorithm;
+
+    @Param({"LOCAL"})
+    Backend backend;
+
+    @Param({"SINGLE", "SPREAD"})
+    Keys keys;
+
+    private RateLimiter limiter;
+    private RateLimitRule rule;
+    private String[] keyNames;
+    private LocalStateStore store;
+    private RedisClient redisClient;
+    private StatefulRedisConnection<String, String> connection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rule = Fixtures.rule("benchmark", "/api/**", algorithm, 1000);
+        RateLimiterFactory factory;
+        if (backend == Backend.LOCAL) {
+            store = new LocalStateStore(System::currentTimeMillis, Duration.ofSeconds(10));
+            factory = new RateLimiterFactory(store);
+        } else {
+            redisClient = RedisClient.create(System.getProperty("benchmark.redis.uri", "redis://localhost:6379"));
+            connection = redisClient.connect();
+            connection.sync().flushdb();
+            factory = new RateLimiterFactory(new RedisScriptRegistry(connection.sync(), connection.reactive()));
+            factory.preloadScripts();
+        }
+        limiter = factory.getLimiter(algorithm);
+
+        int count = keys == Keys.SINGLE ? 1 : KEYS;
+        keyNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            keyNames[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+        if (connection != null) {
+            connection.close();
+            redisClient.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        String key(String[] keyNames) {
+            return keyNames.length == 1 ? keyNames[0] : keyNames[random.nextInt(keyNames.length)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RateLimitResult oneThread(Client client) {
+        return limiter.check(client.key(keyNames), rule);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimitResult fourThreads(Client client) {
+        return limiter.check(client.key(keyNames), rule);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public RateLimitResult allThreads(Client client) {
+        return limiter.check(client.key(keyNames), rule);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis-side cost of the algorithms with comparable semantics. Token Bucket keeps a hash
+ * and rewrites it plus an {@code EXPIRE} per call, GCRA keeps one integer written with
+ * {@code SET PX}. The Sliding Window Log keeps one sorted-set member per admitted request,
+ * so its footprint grows with {@code limit}, while the Sliding Window Counter and the
+ * bucketed window keep a fixed number of counters. Next to the client-side throughput,
+ * each trial prints the server's own numbers: script CPU per call ({@code usec_per_call}
+ * of {@code EVALSHA} in {@code INFO commandstats}) and memory per Redis key
+ * ({@code used_memory} growth over {@code DBSIZE}). Needs the Redis at
+ * {@code -Dbenchmark.redis.uri} (default {@code redis://localhost:6379}), which is flushed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RedisFootprintBenchmark {
+
+    @Param({"TOKEN_BUCKET", "GCRA", "SLIDING_WINDOW_LOG", "SLIDING_WINDOW_COUNTER", "SLIDING_WINDOW_BUCKETS"})
+    AlgorithmType algorithm;
+
+    @Param({"1000"})
+    long limit;
+
+    @Param({"100000"})
+    int keyCount;
+
+    private RedisClient redisClient;
+    private StatefulRedisConnection<String, String> connection;
+    private RateLimiter limiter;
+    private RateLimitRule rule;
+    private String[] keyNames;
+    private long baselineMemory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redisClient = RedisClient.create(System.getProperty("benchmark.redis.uri", "redis://localhost:6379"));
+        connection = redisClient.connect();
+        RedisCommands<String, String> commands = connection.sync();
+        commands.flushdb();
+        RateLimiterFactory factory = new RateLimiterFactory(new RedisScriptRegistry(commands, connection.reactive()));
+        factory.preloadScripts();
+        rule = Fixtures.rule("benchmark", "/api/**", algorithm, limit);
+        limiter = factory.getLimiter(algorithm);
+
+        keyNames = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keyNames[i] = "10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+        }
+        baselineMemory = info(commands, "memory", "used_memory");
+        commands.configResetstat();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RedisCommands<String, String> commands = connection.sync();
+        long keys = commands.dbsize();
+        long memory = info(commands, "memory", "used_memory") - baselineMemory;
+        String evalsha = stat(commands.info("commandstats"), "cmdstat_evalsha");
+        System.out.printf("%n%s: %d keys, %d bytes/key, evalsha %s%n",
+                algorithm, keys, keys == 0 ? 0 : memory / keys, evalsha);
+        connection.close();
+        redisClient.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        String key(String[] keyNames) {
+            return keyNames[random.nextInt(keyNames.length)];
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimitResult check(Client client) {
+        return limiter.check(client.key(keyNames), rule);
+    }
+
+    private static long info(RedisCommands<String, String> commands, String section, String field) {
+        return Long.parseLong(stat(commands.info(section), field));
+    }
+
+    private static String stat(String info, String field) {
+        for (String line : info.split("\r?\n")) {
+            if (line.startsWith(field + ":")) {
+                return line.substring(field.length() + 1).trim();
+            }
+        }
+        return "0";
+    }
+}
@@ -0,0 +1,90 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.config.RuleMatchService;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RuleMatchService#findMatchingRule} over rule sets of growing size. Each rule set
+ * has literal, {@code *} and {@code **} rules under distinct prefixes; the path shape picks
+ * which of them the requests hit, and {@code MISS} paths match nothing. With
+ * {@code distinctPaths} above the cache size, most lookups walk the trie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RuleMatchBenchmark {
+
+    public enum PathShape {
+        EXACT, SINGLE_WILDCARD, DOUBLE_WILDCARD, MISS
+    }
+
+    private static final int PATHS = 1 << 17;
+
+    @Param({"10", "100", "1000"})
+    int ruleCount;
+
+    @Param({"EXACT", "SINGLE_WILDCARD", "DOUBLE_WILDCARD", "MISS"})
+    PathShape pathShape;
+
+    @Param({"0", "10000"})
+    long cacheSize;
+
+    @Param({"64", "100000"})
+    int distinctPaths;
+
+    private RuleMatchService service;
+    private String[] paths;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<RateLimitRule> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            String pattern = switch (i % 3) {
+                case 0 -> "/api/exact" + i + "/resource";
+                case 1 -> "/api/single" + i + "/*";
+                default -> "/api/double" + i + "/**";
+            };
+            rules.add(Fixtures.rule("rule-" + i, pattern));
+        }
+        service = new RuleMatchService(new Fixtures.StaticRules(rules), cacheSize);
+
+        SplittableRandom random = new SplittableRandom(42);
+        paths = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            paths[i] = path(random);
+        }
+    }
+
+    @Benchmark
+    public Optional<RateLimitRule> findMatchingRule() {
+        String path = paths[next++ & (PATHS - 1)];
+        return service.findMatchingRule(path);
+    }
+
+    private String path(SplittableRandom random) {
+        int rule = random.nextInt(ruleCount);
+        int id = random.nextInt(distinctPaths);
+        return switch (pathShape) {
+            case EXACT -> "/api/exact" + (rule - rule % 3) + "/resource";
+            case SINGLE_WILDCARD -> "/api/single" + (rule - rule % 3 + 1) + "/" + id;
+            case DOUBLE_WILDCARD -> "/api/double" + (rule - rule % 3 + 2) + "/users/" + id + "/orders";
+            case MISS -> "/static/" + id + "/index.html";
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisScriptingCommands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side of a Redis decision: arguments, keys and reply handling, with Redis replaced
+ * by commands answering every script call with the same reply. Run with the {@code gc}
+ * profiler the build enables, {@code gc.alloc.rate.norm} is the bytes a decision allocates;
+ * {@link #replyOnly} allocates only the reply handling of the fake commands and is the
+ * baseline to subtract.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScriptCallBenchmark {
+
+    private static final List<Object> REPLY = List.of(1L, 5L, 0L);
+    private static final String[] KEYS = {"rt{benchmark}"};
+    private static final String[] ARGS = {"10", "10", "1700000000", "1"};
+
+    @Param({"TOKEN_BUCKET", "FIXED_WINDOW", "GCRA", "SLIDING_WINDOW_LOG", "SLIDING_WINDOW_BUCKETS"})
+    AlgorithmType algorithm;
+
+    private RedisScriptingCommands<String, String> commands;
+    private RateLimiter limiter;
+    private RateLimitRule rule;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        commands = (RedisScriptingCommands<String, String>) Proxy.newProxyInstance(
+                RedisScriptingCommands.class.getClassLoader(), new Class<?>[]{RedisScriptingCommands.class},
+                (proxy, method, args) -> method.getName().equals("evalsha") ? REPLY : null);
+        limiter = new RateLimiterFactory(new RedisScriptRegistry(commands, null)).getLimiter(algorithm);
+        rule = Fixtures.rule("benchmark", "/api/**", algorithm, 1000);
+    }
+
+    @Benchmark
+    public RateLimitResult check() {
+        return limiter.check("10.0.0.1", rule);
+    }
+
+    @Benchmark
+    public List<Object> replyOnly() {
+        return commands.evalsha("sha", ScriptOutputType.MULTI, KEYS, ARGS);
+    }
+}
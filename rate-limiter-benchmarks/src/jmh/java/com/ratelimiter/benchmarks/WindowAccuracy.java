@@ -0,0 +1,113 @@
+package com.ratelimiter.benchmarks;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How closely the sliding-window algorithms hold a limit over any window, not just the
+ * aligned ones. Replays the same traffic, background load at half the limit plus bursts
+ * of twice the limit, against each algorithm on a simulated clock and reports the most
+ * requests admitted in any {@value #WINDOW_SECONDS}-second window (the log never exceeds
+ * {@value #LIMIT}) and the total admitted relative to the log. The in-process limiters
+ * make the same decisions as the scripts, so no Redis is needed.
+ *
+ * <p>{@code ./gradlew :rate-limiter-benchmarks:windowAccuracy}
+ */
+public final class WindowAccuracy {
+
+    static final long LIMIT = 1000;
+    static final long WINDOW_SECONDS = 10;
+    private static final long DURATION_MILLIS = 600_000;
+
+    private WindowAccuracy() {
+    }
+
+    public static void main(String[] args) {
+        long[] arrivals = arrivals(new SplittableRandom(42));
+        long exact = 0;
+        System.out.printf("%-26s %8s %10s %14s %10s%n", "algorithm", "buckets", "admitted", "max in window", "vs log");
+        for (Variant variant : variants()) {
+            List<Long> admitted = replay(variant, arrivals);
+            if (variant.algorithm == AlgorithmType.SLIDING_WINDOW_LOG) {
+                exact = admitted.size();
+            }
+            System.out.printf("%-26s %8s %10d %14d %+9.1f%%%n", variant.algorithm.getValue(),
+                    variant.buckets == 0 ? "-" : String.valueOf(variant.buckets), admitted.size(),
+                    maxInWindow(admitted), 100.0 * (admitted.size() - exact) / exact);
+        }
+    }
+
+    private static List<Variant> variants() {
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant(AlgorithmType.SLIDING_WINDOW_LOG, 0));
+        variants.add(new Variant(AlgorithmType.SLIDING_WINDOW_COUNTER, 0));
+        for (int buckets : new int[]{1, 2, 5, 10, 20, 60}) {
+            variants.add(new Variant(AlgorithmType.SLIDING_WINDOW_BUCKETS, buckets));
+        }
+        return variants;
+    }
+
+    private static List<Long> replay(Variant variant, long[] arrivals) {
+        AtomicLong now = new AtomicLong();
+        RateLimitRule rule = Fixtures.rule("accuracy", "/**", variant.algorithm, LIMIT);
+        rule.setWindowSizeSeconds(WINDOW_SECONDS);
+        rule.setWindowBuckets(variant.buckets);
+        List<Long> admitted = new ArrayList<>();
+        try (LocalStateStore store = new LocalStateStore(now::get, Duration.ofHours(1))) {
+            RateLimiter limiter = new RateLimiterFactory(store).getLimiter(variant.algorithm);
+            for (long arrival : arrivals) {
+                now.set(arrival);
+                if (limiter.check("client", rule).allowed()) {
+                    admitted.add(arrival);
+                }
+            }
+        }
+        return admitted;
+    }
+
+    /**
+     * Background requests at half the limit's rate, plus a burst of twice the limit
+     * within 100 ms at random moments, about once per window.
+     */
+    private static long[] arrivals(SplittableRandom random) {
+        long windowMillis = WINDOW_SECONDS * 1000;
+        double meanGap = 2.0 * windowMillis / LIMIT;
+        List<Long> arrivals = new ArrayList<>();
+        long nextBurst = random.nextLong(windowMillis);
+        for (double t = 0; t < DURATION_MILLIS; t += -meanGap * Math.log(1 - random.nextDouble())) {
+            while (nextBurst <= t) {
+                for (int i = 0; i < 2 * LIMIT; i++) {
+                    arrivals.add(nextBurst + random.nextLong(100));
+                }
+                nextBurst += windowMillis / 2 + random.nextLong(windowMillis);
+            }
+            arrivals.add((long) t);
+        }
+        return arrivals.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static long maxInWindow(List<Long> admitted) {
+        long windowMillis = WINDOW_SECONDS * 1000;
+        int start = 0;
+        long max = 0;
+        for (int end = 0; end < admitted.size(); end++) {
+            while (admitted.get(end) - admitted.get(start) >= windowMillis) {
+                start++;
+            }
+            max = Math.max(max, end - start + 1);
+        }
+        return max;
+    }
+
+    private record Variant(AlgorithmType algorithm, int buckets) {
+    }
+}
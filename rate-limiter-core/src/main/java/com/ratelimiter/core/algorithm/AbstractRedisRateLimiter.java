@@ -0,0 +1,155 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.CompiledRule;
+import com.ratelimiter.core.model.PermitRequest;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScript;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Base class for limiters that evaluate a single-key Lua script in Redis.
+ * Subclasses provide the key prefix, the script arguments and the mapping of the
+ * script reply. The script is registered with the shared {@link RedisScriptRegistry}
+ * and invoked by digest. {@link #check} runs it through the blocking commands, while
+ * {@link #isAllowed} uses the reactive commands so the decision never leaves the
+ * Netty event loop. The permit count is always the script's last argument. Arguments that
+ * depend on the rule alone are rendered once per rule and kept in its {@link CompiledRule},
+ * and the reply is read in place, so an allowed decision allocates little beyond the call.
+ */
+public abstract class AbstractRedisRateLimiter implements RateLimiter {
+
+    private static final String[] NO_ARGS = new String[0];
+
+    private static final String SINGLE_KEY_REPLY = """
+            if not allowed then
+                return {0, 0, value}
+            end
+            write()
+            return {1, value, 0}
+            """;
+
+    private final RedisScriptRegistry scripts;
+    private final RedisScript script;
+    private final boolean migrateLegacyKeys;
+    private final Function<RateLimitRule, String[]> renderRuleArgs = this::ruleArgs;
+
+    protected AbstractRedisRateLimiter(RedisScriptRegistry scripts, String scriptName, String scriptSource) {
+        this(scripts, scriptName, scriptSource, false);
+    }
+
+    protected AbstractRedisRateLimiter(RedisScriptRegistry scripts, String scriptName, String scriptSource,
+                                       boolean migrateLegacyKeys) {
+        this.scripts = scripts;
+        this.script = scripts.register(scriptName, scriptSource);
+        this.migrateLegacyKeys = migrateLegacyKeys;
+    }
+
+    protected abstract String redisKey(String key);
+
+    /**
+     * Script deciding one key with an algorithm's decide function, the Lua fragment the
+     * algorithm shares with {@link RedisRuleSetRateLimiter}. The function is called as
+     * {@code name(key, legacy_key, now_ms, permits, ...)}, reads the key without writing
+     * it, and returns {@code false} and the milliseconds until the request would next be
+     * admitted, provided nothing else is admitted meanwhile, or {@code true}, the remaining
+     * count and a function writing the new state. {@code call} invokes it; the script
+     * replies {@code {allowed, remaining, retry-after}}.
+     */
+    protected static String singleKeyScript(String decide, String call) {
+        return decide + "local allowed, value, write = " + call + SINGLE_KEY_REPLY;
+    }
+
+    /**
+     * Key the state lived under before the current layout, or {@code null} if it never moved.
+     */
+    protected String legacyKey(String key) {
+        return null;
+    }
+
+    protected String[] args(RateLimitRule rule) {
+        return args(rule, 1);
+    }
+
+    protected abstract String[] args(RateLimitRule rule, long permits);
+
+    /**
+     * Script arguments that depend on the rule alone, such as its limits. Subclasses read
+     * them through {@link #compiledArgs} when building {@link #args(RateLimitRule, long)}.
+     */
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return NO_ARGS;
+    }
+
+    /**
+     * The rule's {@link #ruleArgs}, rendered on first use and kept with the compiled rule.
+     */
+    protected final String[] compiledArgs(RateLimitRule rule) {
+        return rule.compiled().derive(this, renderRuleArgs);
+    }
+
+    protected abstract RateLimitResult toResult(List<Long> reply, RateLimitRule rule);
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule) {
+        return check(key, rule, 1);
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+        List<Object> reply = scripts.eval(script, keys(key), args(rule, permits));
+        return toResult(toLongs(reply), rule);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
+        return isAllowed(key, rule, 1);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        return Mono.defer(() -> scripts.evalReactive(script, keys(key), args(rule, permits))
+                .collectList()
+                .map(reply -> toResult(toLongs(reply), rule)));
+    }
+
+    /**
+     * Sends every call of the batch before waiting for any reply, so they share one
+     * pipelined round trip instead of one each.
+     */
+    @Override
+    public List<RateLimitResult> checkAll(List<PermitRequest> requests, RateLimitRule rule) {
+        return isAllowedAll(requests, rule).block();
+    }
+
+    /**
+     * Keys passed to the script: the state key, followed by the legacy key while
+     * migration is on.
+     */
+    protected String[] keys(String key) {
+        String legacy = migrateLegacyKeys ? legacyKey(key) : null;
+        return legacy == null ? new String[]{redisKey(key)} : new String[]{redisKey(key), legacy};
+    }
+
+    /**
+     * Normalizes a MULTI script reply. The reactive API may emit the reply either
+     * element by element or as one nested list, depending on the Lettuce output type.
+     * The elements are checked and the list is returned as it is, without a copy.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Long> toLongs(List<?> reply) {
+        if (reply.size() == 1 && reply.get(0) instanceof List<?> nested) {
+            reply = nested;
+        }
+        for (int i = 0; i < reply.size(); i++) {
+            if (!(reply.get(i) instanceof Long)) {
+                throw new ClassCastException("Expected an integer script reply, got " + reply.get(i));
+            }
+        }
+        return (List<Long>) reply;
+    }
+}
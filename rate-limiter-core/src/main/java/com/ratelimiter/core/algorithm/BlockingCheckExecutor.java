@@ -0,0 +1,209 @@
+package com.ratelimiter.core.algorithm;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs blocking {@link RateLimiter#check} calls off the event loop, for the
+ * {@link CheckExecution} modes that use them. With virtual threads every decision gets
+ * a thread of its own, which unmounts from its carrier while it waits for Redis, so the
+ * number in flight is bounded by the permits rather than by a thread pool. The bounded
+ * elastic scheduler keeps at most ten threads per core and queues the rest.
+ *
+ * <p>A decision takes one of {@code maxInFlight} permits before it runs. A decision that
+ * finds none within {@code permitTimeout} fails with a {@link RejectedExecutionException},
+ * which the gateway treats like any other limiter error. On virtual threads the decision
+ * waits for its permit on its own thread. Bounded elastic workers are too few to spend on
+ * waiting, so there a decision finding no free permit queues without a thread: a finishing
+ * decision hands its permit to the oldest one queued, and one still queued after
+ * {@code permitTimeout} fails.
+ */
+public class BlockingCheckExecutor implements AutoCloseable {
+
+    private final CheckExecution mode;
+    private final Scheduler scheduler;
+    private final ExecutorService ownedExecutor;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final long permitTimeoutNanos;
+    private final LongAdder rejected = new LongAdder();
+    /** Bounded elastic decisions waiting for a permit, oldest first; also guards the hand-over. */
+    private final Set<Waiter> waiters = new LinkedHashSet<>();
+
+    private BlockingCheckExecutor(CheckExecution mode, Scheduler scheduler, ExecutorService ownedExecutor,
+                                  int maxInFlight, Duration permitTimeout) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive, got " + maxInFlight);
+        }
+        this.mode = mode;
+        this.scheduler = scheduler;
+        this.ownedExecutor = ownedExecutor;
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.permitTimeoutNanos = permitTimeout.toNanos();
+    }
+
+    /**
+     * Runs each decision on a new virtual thread.
+     */
+    public static BlockingCheckExecutor virtualThreads(int maxInFlight, Duration permitTimeout) {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("rate-limit-check-", 0).factory());
+        return new BlockingCheckExecutor(CheckExecution.VIRTUAL_THREADS,
+                Schedulers.fromExecutorService(executor, "rate-limit-check"), executor, maxInFlight, permitTimeout);
+    }
+
+    /**
+     * Runs decisions on Reactor's shared {@link Schedulers#boundedElastic()}.
+     */
+    public static BlockingCheckExecutor boundedElastic(int maxInFlight, Duration permitTimeout) {
+        return new BlockingCheckExecutor(CheckExecution.BOUNDED_ELASTIC,
+                Schedulers.boundedElastic(), null, maxInFlight, permitTimeout);
+    }
+
+    /**
+     * Executor for {@code mode}; {@link CheckExecution#REACTIVE} needs none.
+     */
+    public static BlockingCheckExecutor forMode(CheckExecution mode, int maxInFlight, Duration permitTimeout) {
+        return switch (mode) {
+            case VIRTUAL_THREADS -> virtualThreads(maxInFlight, permitTimeout);
+            case BOUNDED_ELASTIC -> boundedElastic(maxInFlight, permitTimeout);
+            case REACTIVE -> throw new IllegalArgumentException("Reactive decisions do not block");
+        };
+    }
+
+    public <T> Mono<T> run(Callable<T> check) {
+        if (mode == CheckExecution.BOUNDED_ELASTIC) {
+            return Mono.defer(() -> {
+                Waiter waiter = new Waiter();
+                return Mono.<Void>create(sink -> awaitPermit(waiter, sink))
+                        .then(Mono.fromCallable(check).subscribeOn(scheduler))
+                        .doFinally(signal -> release(waiter));
+            });
+        }
+        return Mono.fromCallable(() -> {
+            if (!permits.tryAcquire(permitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw reject();
+            }
+            try {
+                return check.call();
+            } finally {
+                permits.release();
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * Takes a free permit for {@code waiter}, or queues it until a permit is handed over or
+     * the permit timeout passes.
+     */
+    private void awaitPermit(Waiter waiter, MonoSink<Void> sink) {
+        boolean acquired;
+        boolean queued = false;
+        synchronized (waiters) {
+            acquired = permits.tryAcquire();
+            if (acquired) {
+                waiter.held = true;
+            } else if (permitTimeoutNanos > 0) {
+                waiter.sink = sink;
+                queued = waiters.add(waiter);
+            }
+        }
+        if (acquired) {
+            sink.success();
+        } else if (!queued) {
+            sink.error(reject());
+        } else {
+            Disposable timeout = Schedulers.parallel()
+                    .schedule(() -> expire(waiter), permitTimeoutNanos, TimeUnit.NANOSECONDS);
+            sink.onDispose(timeout);
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (waiters) {
+            if (!waiters.remove(waiter)) {
+                return;
+            }
+        }
+        waiter.sink.error(reject());
+    }
+
+    /**
+     * Hands the permit {@code waiter} holds to the oldest queued decision, or returns it. A
+     * waiter cancelled while still queued just leaves the queue.
+     */
+    private void release(Waiter waiter) {
+        Waiter next;
+        synchronized (waiters) {
+            if (!waiter.held) {
+                waiters.remove(waiter);
+                return;
+            }
+            waiter.held = false;
+            Iterator<Waiter> oldest = waiters.iterator();
+            if (!oldest.hasNext()) {
+                permits.release();
+                return;
+            }
+            next = oldest.next();
+            oldest.remove();
+            next.held = true;
+        }
+        next.sink.success();
+    }
+
+    private RejectedExecutionException reject() {
+        rejected.increment();
+        return new RejectedExecutionException("All " + maxInFlight + " decision permits are in use");
+    }
+
+    public CheckExecution getMode() {
+        return mode;
+    }
+
+    /**
+     * Decisions holding a permit.
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Decisions that failed because no permit became free in time.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * A bounded elastic decision; its fields are guarded by {@link #waiters}.
+     */
+    private static final class Waiter {
+        private boolean held;
+        private MonoSink<Void> sink;
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            scheduler.dispose();
+            ownedExecutor.shutdown();
+        }
+    }
+}
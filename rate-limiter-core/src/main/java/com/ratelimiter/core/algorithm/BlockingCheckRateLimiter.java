@@ -0,0 +1,44 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers {@link #isAllowed} with the wrapped limiter's blocking {@link #check}, run by a
+ * {@link BlockingCheckExecutor}. Blocking calls stay as they are.
+ */
+public class BlockingCheckRateLimiter implements RateLimiter {
+
+    private final RateLimiter delegate;
+    private final BlockingCheckExecutor executor;
+
+    public BlockingCheckRateLimiter(RateLimiter delegate, BlockingCheckExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule) {
+        return delegate.check(key, rule);
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+        return delegate.check(key, rule, permits);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
+        return executor.run(() -> delegate.check(key, rule));
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        return executor.run(() -> permits == 1 ? delegate.check(key, rule) : delegate.check(key, rule, permits));
+    }
+
+    public RateLimiter getDelegate() {
+        return delegate;
+    }
+}
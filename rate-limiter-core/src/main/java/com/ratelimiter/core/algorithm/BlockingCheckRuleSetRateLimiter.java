@@ -0,0 +1,36 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link BlockingCheckRateLimiter} for rules with layers: {@link #isAllowed} runs the
+ * wrapped limiter's blocking {@link #check} on a {@link BlockingCheckExecutor}.
+ */
+public class BlockingCheckRuleSetRateLimiter implements RuleSetRateLimiter {
+
+    private final RuleSetRateLimiter delegate;
+    private final BlockingCheckExecutor executor;
+
+    public BlockingCheckRuleSetRateLimiter(RuleSetRateLimiter delegate, BlockingCheckExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public RuleSetResult check(List<String> keys, RateLimitRule rule, long permits) {
+        return delegate.check(keys, rule, permits);
+    }
+
+    @Override
+    public Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return executor.run(() -> delegate.check(keys, rule, permits));
+    }
+
+    public RuleSetRateLimiter getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,127 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
+
+import java.util.List;
+
+/**
+ * Bucketed Sliding Window algorithm.
+ * Splits the window into {@code windowBuckets} sub-windows and keeps one counter per
+ * sub-window in a hash, indexed by the sub-window's number. The count covers the window
+ * plus whatever is left of the bucket sliding out of it, so no window ever admits more
+ * than the limit; the price is up to one bucket's worth of under-admission, which more
+ * buckets shrink towards the Sliding Window Log's exact count. A key never holds more
+ * than {@code windowBuckets + 1} counters, however high the limit, and its TTL is only
+ * set when a new bucket starts. A request for several permits counts as that many requests.
+ */
+public class BucketedSlidingWindowRateLimiter extends AbstractRedisRateLimiter {
+
+    public static final int DEFAULT_BUCKETS = 10;
+
+    public static final int MAX_BUCKETS = 1000;
+
+    static final String DECIDE = """
+            local function sliding_window_buckets(key, _, now_ms, permits, limit, bucket_ms, buckets)
+                local current = math.floor(now_ms / bucket_ms)
+                local counts = redis.call('hgetall', key)
+                local total = 0
+                local stale = {}
+                local live = {}
+                for i = 1, #counts, 2 do
+                    local bucket = tonumber(counts[i])
+                    if bucket < current - buckets then
+                        stale[#stale + 1] = counts[i]
+                    else
+                        total = total + tonumber(counts[i + 1])
+                        live[#live + 1] = {bucket, tonumber(counts[i + 1])}
+                    end
+                end
+                if total + permits > limit then
+                    -- admitted once enough of the oldest buckets have slid out of the window
+                    local admit_at = (current + 1) * bucket_ms
+                    if permits <= limit then
+                        table.sort(live, function(a, b) return a[1] < b[1] end)
+                        local left = total
+                        for _, entry in ipairs(live) do
+                            left = left - entry[2]
+                            if left + permits <= limit then
+                                admit_at = (entry[1] + buckets + 1) * bucket_ms
+                                break
+                            end
+                        end
+                    end
+                    return false, admit_at - now_ms
+                end
+                return true, limit - total - permits, function()
+                    if #stale > 0 then
+                        redis.call('hdel', key, unpack(stale))
+                    end
+                    if redis.call('hincrby', key, string.format('%d', current), permits) == permits then
+                        redis.call('pexpire', key, bucket_ms * (buckets + 1))
+                    end
+                end
+            end
+            """;
+
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            sliding_window_buckets(KEYS[1], nil, tonumber(ARGV[4]), tonumber(ARGV[5]),
+                    tonumber(ARGV[1]), tonumber(ARGV[2]), tonumber(ARGV[3]))
+            """);
+
+    public BucketedSlidingWindowRateLimiter(RedisScriptRegistry scripts) {
+        super(scripts, "sliding_window_buckets", SCRIPT);
+    }
+
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.SLIDING_WINDOW_BUCKETS, key);
+    }
+
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
+                String.valueOf(rule.getMaxRequests()),
+                String.valueOf(bucketMillis(rule)),
+                String.valueOf(bucketCount(rule))
+        };
+    }
+
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{
+                limits[0], limits[1], limits[2], ScriptArgs.millis(System.currentTimeMillis()), ScriptArgs.of(permits)
+        };
+    }
+
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        if (allowed == 1) {
+            return RateLimitResult.allowed(reply.get(1));
+        }
+        return RateLimitResult.denied(reply.get(2));
+    }
+
+    /**
+     * The rule's {@code windowBuckets}, or {@value #DEFAULT_BUCKETS} when unset, capped at
+     * {@value #MAX_BUCKETS} and at one bucket per millisecond of the window.
+     */
+    public static int bucketCount(RateLimitRule rule) {
+        int buckets = rule.getWindowBuckets() > 0 ? rule.getWindowBuckets() : DEFAULT_BUCKETS;
+        long windowMillis = rule.getWindowSizeSeconds() * 1000;
+        return (int) Math.max(1, Math.min(Math.min(buckets, MAX_BUCKETS), windowMillis));
+    }
+
+    /**
+     * Length of one bucket, rounded up so the buckets never cover less than the window.
+     */
+    public static long bucketMillis(RateLimitRule rule) {
+        int buckets = bucketCount(rule);
+        return Math.max(1, (rule.getWindowSizeSeconds() * 1000 + buckets - 1) / buckets);
+    }
+}
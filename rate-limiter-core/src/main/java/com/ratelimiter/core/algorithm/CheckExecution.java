@@ -0,0 +1,23 @@
+package com.ratelimiter.core.algorithm;
+
+/**
+ * How the gateway runs the decisions of the Redis limiters.
+ */
+public enum CheckExecution {
+
+    /**
+     * The limiter's own {@link RateLimiter#isAllowed}, which for Redis sends the script
+     * through Lettuce's reactive API and never blocks a thread.
+     */
+    REACTIVE,
+
+    /**
+     * The blocking {@link RateLimiter#check} on a virtual thread per decision.
+     */
+    VIRTUAL_THREADS,
+
+    /**
+     * The blocking {@link RateLimiter#check} on Reactor's bounded elastic scheduler.
+     */
+    BOUNDED_ELASTIC
+}
@@ -0,0 +1,208 @@
+package com.ratelimiter.core.algorithm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the health of the Redis backend from the outcome of each decision.
+ * The breaker opens when, within one window, at least {@code minimumCalls} calls were
+ * made and the share of failures (errors and blown latency budgets) reaches
+ * {@code failureRateThreshold}. After {@code openDuration} it lets up to {@code probes}
+ * calls through at a time and closes only once {@code probes} of them succeeded in a row;
+ * any failed probe opens it again. Requiring a run of successes before closing, rather
+ * than a single one, keeps a flapping Redis from switching the gateway back and forth.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * What a caller may do: skip Redis, make a regular call or make a probe call.
+     * The permit must be handed back with the outcome of the call.
+     */
+    public enum Permit {
+        REJECTED, CALL, PROBE
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long windowMillis;
+    private final long openMillis;
+    private final int probes;
+    private final LongSupplier clock;
+
+    private volatile State state = State.CLOSED;
+    private volatile long windowStart;
+    private volatile long openedAt;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger probesInFlight = new AtomicInteger();
+    private final AtomicInteger probeSuccesses = new AtomicInteger();
+    private final AtomicLong openings = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public CircuitBreaker(double failureRateThreshold, int minimumCalls, Duration window,
+                          Duration openDuration, int probes) {
+        this(failureRateThreshold, minimumCalls, window, openDuration, probes, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(double failureRateThreshold, int minimumCalls, Duration window,
+                          Duration openDuration, int probes, LongSupplier clock) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || minimumCalls < 1 || probes < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.windowMillis = window.toMillis();
+        this.openMillis = openDuration.toMillis();
+        this.probes = probes;
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    public Permit acquire() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return Permit.CALL;
+        }
+        if (current == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                rejected.increment();
+                return Permit.REJECTED;
+            }
+            halfOpen();
+        }
+        while (true) {
+            int inFlight = probesInFlight.get();
+            if (state != State.HALF_OPEN || inFlight >= probes) {
+                if (state == State.CLOSED) {
+                    return Permit.CALL;
+                }
+                rejected.increment();
+                return Permit.REJECTED;
+            }
+            if (probesInFlight.compareAndSet(inFlight, inFlight + 1)) {
+                return Permit.PROBE;
+            }
+        }
+    }
+
+    public void record(Permit permit, boolean success) {
+        if (!success) {
+            failed.increment();
+        }
+        switch (permit) {
+            case CALL -> recordCall(success);
+            case PROBE -> recordProbe(success);
+            case REJECTED -> {
+            }
+        }
+    }
+
+    /**
+     * Hands back a permit whose call was abandoned without an outcome, e.g. cancelled.
+     */
+    public void release(Permit permit) {
+        if (permit == Permit.PROBE) {
+            probesInFlight.decrementAndGet();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Number of times the breaker opened, counting re-openings after a failed probe.
+     */
+    public long getOpenCount() {
+        return openings.get();
+    }
+
+    /**
+     * Number of calls not sent to Redis because the breaker was open.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of calls that failed or exceeded their latency budget.
+     */
+    public long getFailureCount() {
+        return failed.sum();
+    }
+
+    private void recordCall(boolean success) {
+        long now = clock.getAsLong();
+        if (now - windowStart >= windowMillis) {
+            rollWindow(now);
+        }
+        int total = calls.incrementAndGet();
+        if (success) {
+            return;
+        }
+        int failedInWindow = failures.incrementAndGet();
+        if (total >= minimumCalls && failedInWindow >= failureRateThreshold * total) {
+            open(State.CLOSED, now);
+        }
+    }
+
+    private void recordProbe(boolean success) {
+        probesInFlight.decrementAndGet();
+        if (!success) {
+            open(State.HALF_OPEN, clock.getAsLong());
+        } else if (probeSuccesses.incrementAndGet() >= probes) {
+            close();
+        }
+    }
+
+    private synchronized void rollWindow(long now) {
+        if (now - windowStart >= windowMillis) {
+            windowStart = now;
+            calls.set(0);
+            failures.set(0);
+        }
+    }
+
+    private synchronized void open(State from, long now) {
+        if (state != from) {
+            return;
+        }
+        openedAt = now;
+        state = State.OPEN;
+        openings.incrementAndGet();
+        log.warn("Redis circuit breaker opened, deciding locally for {} ms", openMillis);
+    }
+
+    private synchronized void halfOpen() {
+        if (state != State.OPEN || clock.getAsLong() - openedAt < openMillis) {
+            return;
+        }
+        probeSuccesses.set(0);
+        state = State.HALF_OPEN;
+        log.info("Redis circuit breaker half-open, probing Redis");
+    }
+
+    private synchronized void close() {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        windowStart = clock.getAsLong();
+        calls.set(0);
+        failures.set(0);
+        state = State.CLOSED;
+        log.info("Redis circuit breaker closed, deciding in Redis again");
+    }
+}
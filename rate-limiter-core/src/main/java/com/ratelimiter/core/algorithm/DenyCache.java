@@ -0,0 +1,113 @@
+package com.ratelimiter.core.algorithm;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded map of (rule, key) to the time until which the key is known to be throttled.
+ * Entries expire on their own once the deny period ends. Local denials are reported to
+ * the registered listeners, e.g. to broadcast them to other gateway instances; denials
+ * received from elsewhere are recorded with {@link #applyRemote} and not reported again.
+ */
+public class DenyCache {
+
+    /**
+     * Notified of every denial recorded by this gateway.
+     */
+    @FunctionalInterface
+    public interface DenyListener {
+        void onDeny(String ruleId, String key, long retryAfterMillis);
+    }
+
+    private final Cache<String, Long> denials;
+    private final LongSupplier clock;
+    private final List<DenyListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder hits = new LongAdder();
+
+    public DenyCache(long maxSize) {
+        this(maxSize, System::currentTimeMillis);
+    }
+
+    public DenyCache(long maxSize, LongSupplier clock) {
+        this.clock = clock;
+        this.denials = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long deniedUntil, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, deniedUntil - clock.getAsLong()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long deniedUntil, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, deniedUntil, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long deniedUntil, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns how long {@code key} remains throttled under the rule, or {@code 0} if it is not.
+     */
+    public long remainingMillis(String ruleId, String key) {
+        Long deniedUntil = denials.getIfPresent(cacheKey(ruleId, key));
+        if (deniedUntil == null) {
+            return 0;
+        }
+        long remaining = deniedUntil - clock.getAsLong();
+        if (remaining <= 0) {
+            return 0;
+        }
+        hits.increment();
+        return remaining;
+    }
+
+    public void deny(String ruleId, String key, long retryAfterMillis) {
+        if (retryAfterMillis <= 0) {
+            return;
+        }
+        denials.put(cacheKey(ruleId, key), clock.getAsLong() + retryAfterMillis);
+        for (DenyListener listener : listeners) {
+            listener.onDeny(ruleId, key, retryAfterMillis);
+        }
+    }
+
+    public void applyRemote(String ruleId, String key, long retryAfterMillis) {
+        if (retryAfterMillis > 0) {
+            denials.put(cacheKey(ruleId, key), clock.getAsLong() + retryAfterMillis);
+        }
+    }
+
+    public void addListener(DenyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Number of requests rejected from the cache without consulting the limiter.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long size() {
+        return denials.estimatedSize();
+    }
+
+    private static String cacheKey(String ruleId, String key) {
+        return ruleId + '\n' + key;
+    }
+}
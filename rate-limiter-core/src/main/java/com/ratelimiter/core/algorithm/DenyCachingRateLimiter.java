@@ -0,0 +1,68 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rejects keys that are still inside the retry-after period of an earlier denial without
+ * consulting the wrapped limiter, so a client retrying while throttled costs no Redis call.
+ * Every single-permit denial returned by the wrapped limiter is recorded in the shared
+ * {@link DenyCache}; a heavy request being turned away says nothing about a light one.
+ *
+ * <p>Every algorithm's retry-after is when the key would next be admitted if nothing else
+ * were, and other admissions can only push that back, so it is cached as it is.
+ */
+public class DenyCachingRateLimiter implements RateLimiter {
+
+    private final RateLimiter delegate;
+    private final DenyCache denyCache;
+
+    public DenyCachingRateLimiter(RateLimiter delegate, DenyCache denyCache) {
+        this.delegate = delegate;
+        this.denyCache = denyCache;
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule) {
+        return check(key, rule, 1);
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+        long remaining = denyCache.remainingMillis(rule.getId(), key);
+        if (remaining > 0) {
+            return RateLimitResult.denied(remaining);
+        }
+        RateLimitResult result = permits == 1 ? delegate.check(key, rule) : delegate.check(key, rule, permits);
+        return record(key, rule, permits, result);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
+        return isAllowed(key, rule, 1);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        long remaining = denyCache.remainingMillis(rule.getId(), key);
+        if (remaining > 0) {
+            return Mono.just(RateLimitResult.denied(remaining));
+        }
+        Mono<RateLimitResult> decision = permits == 1
+                ? delegate.isAllowed(key, rule)
+                : delegate.isAllowed(key, rule, permits);
+        return decision.map(result -> record(key, rule, permits, result));
+    }
+
+    public RateLimiter getDelegate() {
+        return delegate;
+    }
+
+    private RateLimitResult record(String key, RateLimitRule rule, long permits, RateLimitResult result) {
+        if (!result.allowed() && permits == 1) {
+            denyCache.deny(rule.getId(), key, result.retryAfterMillis());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link DenyCachingRateLimiter} for rules with layers. A denial is recorded for the layer
+ * that denied the request under that layer's client key, so a client still throttled by
+ * any layer is turned away without consulting the wrapped limiter. A layer keyed by the
+ * {@code global} resolver therefore turns every client away until its period ends. The
+ * period is capped by the denying layer's algorithm as in {@link DenyCachingRateLimiter}.
+ */
+public class DenyCachingRuleSetRateLimiter implements RuleSetRateLimiter {
+
+    private final RuleSetRateLimiter delegate;
+    private final DenyCache denyCache;
+
+    public DenyCachingRuleSetRateLimiter(RuleSetRateLimiter delegate, DenyCache denyCache) {
+        this.delegate = delegate;
+        this.denyCache = denyCache;
+    }
+
+    @Override
+    public RuleSetResult check(List<String> keys, RateLimitRule rule, long permits) {
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+        RuleSetRateLimiter.checkKeys(keys, layers);
+        RuleSetResult cached = cachedDenial(keys, rule, layers);
+        if (cached != null) {
+            return cached;
+        }
+        return record(keys, rule, layers, permits, delegate.check(keys, rule, permits));
+    }
+
+    @Override
+    public Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return Mono.defer(() -> {
+            List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+            RuleSetRateLimiter.checkKeys(keys, layers);
+            RuleSetResult cached = cachedDenial(keys, rule, layers);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return delegate.isAllowed(keys, rule, permits)
+                    .map(decision -> record(keys, rule, layers, permits, decision));
+        });
+    }
+
+    public RuleSetRateLimiter getDelegate() {
+        return delegate;
+    }
+
+    private RuleSetResult cachedDenial(List<String> keys, RateLimitRule rule, List<RateLimitRule> layers) {
+        for (int i = 0; i < layers.size(); i++) {
+            RateLimitRule layer = layers.get(i);
+            String key = RuleSetRateLimiter.layerKey(rule, layer, keys.get(i));
+            long remaining = denyCache.remainingMillis(rule.getId(), key);
+            if (remaining > 0) {
+                return new RuleSetResult(RateLimitResult.denied(remaining), layer);
+            }
+        }
+        return null;
+    }
+
+    private RuleSetResult record(List<String> keys, RateLimitRule rule, List<RateLimitRule> layers, long permits,
+                                 RuleSetResult decision) {
+        if (decision.result().allowed() || permits != 1) {
+            return decision;
+        }
+        for (int i = 0; i < layers.size(); i++) {
+            RateLimitRule layer = layers.get(i);
+            if (layer == decision.rule()) {
+                denyCache.deny(rule.getId(), RuleSetRateLimiter.layerKey(rule, layer, keys.get(i)),
+                        decision.result().retryAfterMillis());
+                break;
+            }
+        }
+        return decision;
+    }
+}
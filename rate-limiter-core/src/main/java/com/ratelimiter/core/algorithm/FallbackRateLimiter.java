@@ -0,0 +1,137 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Bounds how long a decision waits for Redis. A call that errors or exceeds the rule's
+ * latency budget is answered by the in-process limiter of the same algorithm instead,
+ * and counts as a failure towards the shared {@link CircuitBreaker}; while the breaker is
+ * open every decision is local. Each gateway then enforces its share of the limit, the
+ * rule's capacity and rates divided by the number of live gateways, so the cluster-wide
+ * limit holds roughly as long as traffic is spread evenly.
+ */
+public class FallbackRateLimiter implements RateLimiter {
+
+    /**
+     * Notified of every failed or timed out call to the delegate, before it is answered
+     * locally.
+     */
+    @FunctionalInterface
+    public interface ErrorListener {
+        ErrorListener NONE = (rule, error) -> {
+        };
+
+        void onError(RateLimitRule rule, Throwable error);
+    }
+
+    private final RateLimiter delegate;
+    private final RateLimiterFactory fallback;
+    private final CircuitBreaker breaker;
+    private final Duration defaultBudget;
+    private final LocalShares shares;
+    private final ErrorListener errorListener;
+    private final LongAdder fallbacks = new LongAdder();
+
+    public FallbackRateLimiter(RateLimiter delegate, RateLimiterFactory fallback, CircuitBreaker breaker,
+                               Duration defaultBudget, IntSupplier gatewayCount) {
+        this(delegate, fallback, breaker, defaultBudget, gatewayCount, ErrorListener.NONE);
+    }
+
+    public FallbackRateLimiter(RateLimiter delegate, RateLimiterFactory fallback, CircuitBreaker breaker,
+                               Duration defaultBudget, IntSupplier gatewayCount, ErrorListener errorListener) {
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.breaker = breaker;
+        this.defaultBudget = defaultBudget;
+        this.shares = new LocalShares(gatewayCount);
+        this.errorListener = errorListener;
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule) {
+        return check(key, rule, 1);
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+        CircuitBreaker.Permit permit = breaker.acquire();
+        if (permit == CircuitBreaker.Permit.REJECTED) {
+            return checkLocally(key, rule, permits);
+        }
+        long start = System.nanoTime();
+        RateLimitResult result;
+        try {
+            result = permits == 1 ? delegate.check(key, rule) : delegate.check(key, rule, permits);
+        } catch (RuntimeException e) {
+            breaker.record(permit, false);
+            errorListener.onError(rule, e);
+            return checkLocally(key, rule, permits);
+        }
+        breaker.record(permit, System.nanoTime() - start <= budget(rule).toNanos());
+        return result;
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
+        return isAllowed(key, rule, 1);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        return Mono.defer(() -> {
+            CircuitBreaker.Permit permit = breaker.acquire();
+            if (permit == CircuitBreaker.Permit.REJECTED) {
+                return Mono.fromSupplier(() -> checkLocally(key, rule, permits));
+            }
+            Mono<RateLimitResult> decision = permits == 1
+                    ? delegate.isAllowed(key, rule)
+                    : delegate.isAllowed(key, rule, permits);
+            return decision
+                    .timeout(budget(rule))
+                    .doOnNext(result -> breaker.record(permit, true))
+                    .doOnCancel(() -> breaker.release(permit))
+                    .onErrorResume(e -> {
+                        breaker.record(permit, false);
+                        errorListener.onError(rule, e);
+                        return Mono.fromSupplier(() -> checkLocally(key, rule, permits));
+                    });
+        });
+    }
+
+    public RateLimiter getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Number of decisions made locally, whether the breaker was open or the call failed.
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    private RateLimitResult checkLocally(String key, RateLimitRule rule, long permits) {
+        fallbacks.increment();
+        return fallback.getLimiter(rule.getAlgorithm()).check(key, localShare(rule), permits);
+    }
+
+    private Duration budget(RateLimitRule rule) {
+        return rule.getLatencyBudgetMs() > 0 ? Duration.ofMillis(rule.getLatencyBudgetMs()) : defaultBudget;
+    }
+
+    /**
+     * Returns the rule scaled down to this gateway's share.
+     */
+    RateLimitRule localShare(RateLimitRule rule) {
+        return shares.of(rule);
+    }
+
+    static RateLimitRule scale(RateLimitRule rule, int gateways) {
+        return LocalShares.scale(rule, gateways);
+    }
+}
@@ -0,0 +1,119 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * {@link FallbackRateLimiter} for rules with layers. A decision that errors or exceeds the
+ * rule's latency budget is made by the in-process rule-set limiter instead, against this
+ * gateway's share of every layer, and counts towards the same {@link CircuitBreaker} as
+ * the single rules. Local results name the configured layer, not its scaled copy.
+ */
+public class FallbackRuleSetRateLimiter implements RuleSetRateLimiter {
+
+    private final RuleSetRateLimiter delegate;
+    private final RateLimiterFactory fallback;
+    private final CircuitBreaker breaker;
+    private final Duration defaultBudget;
+    private final LocalShares shares;
+    private final FallbackRateLimiter.ErrorListener errorListener;
+    private final LongAdder fallbacks = new LongAdder();
+
+    public FallbackRuleSetRateLimiter(RuleSetRateLimiter delegate, RateLimiterFactory fallback,
+                                      CircuitBreaker breaker, Duration defaultBudget, IntSupplier gatewayCount) {
+        this(delegate, fallback, breaker, defaultBudget, gatewayCount, FallbackRateLimiter.ErrorListener.NONE);
+    }
+
+    /**
+     * @param errorListener notified with the layered rule itself
+     */
+    public FallbackRuleSetRateLimiter(RuleSetRateLimiter delegate, RateLimiterFactory fallback,
+                                      CircuitBreaker breaker, Duration defaultBudget, IntSupplier gatewayCount,
+                                      FallbackRateLimiter.ErrorListener errorListener) {
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.breaker = breaker;
+        this.defaultBudget = defaultBudget;
+        this.shares = new LocalShares(gatewayCount);
+        this.errorListener = errorListener;
+    }
+
+    @Override
+    public RuleSetResult check(List<String> keys, RateLimitRule rule, long permits) {
+        CircuitBreaker.Permit permit = breaker.acquire();
+        if (permit == CircuitBreaker.Permit.REJECTED) {
+            return checkLocally(keys, rule, permits);
+        }
+        long start = System.nanoTime();
+        RuleSetResult result;
+        try {
+            result = delegate.check(keys, rule, permits);
+        } catch (RuntimeException e) {
+            breaker.record(permit, false);
+            errorListener.onError(rule, e);
+            return checkLocally(keys, rule, permits);
+        }
+        breaker.record(permit, System.nanoTime() - start <= budget(rule).toNanos());
+        return result;
+    }
+
+    @Override
+    public Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return Mono.defer(() -> {
+            CircuitBreaker.Permit permit = breaker.acquire();
+            if (permit == CircuitBreaker.Permit.REJECTED) {
+                return Mono.fromSupplier(() -> checkLocally(keys, rule, permits));
+            }
+            return delegate.isAllowed(keys, rule, permits)
+                    .timeout(budget(rule))
+                    .doOnNext(result -> breaker.record(permit, true))
+                    .doOnCancel(() -> breaker.release(permit))
+                    .onErrorResume(e -> {
+                        breaker.record(permit, false);
+                        errorListener.onError(rule, e);
+                        return Mono.fromSupplier(() -> checkLocally(keys, rule, permits));
+                    });
+        });
+    }
+
+    public RuleSetRateLimiter getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Number of decisions made locally, whether the breaker was open or the call failed.
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    private RuleSetResult checkLocally(List<String> keys, RateLimitRule rule, long permits) {
+        fallbacks.increment();
+        RateLimitRule share = shares.of(rule);
+        RuleSetResult result = fallback.getRuleSetLimiter().check(keys, share, permits);
+        return share == rule ? result : new RuleSetResult(result.result(), configured(rule, share, result.rule()));
+    }
+
+    private Duration budget(RateLimitRule rule) {
+        return rule.getLatencyBudgetMs() > 0 ? Duration.ofMillis(rule.getLatencyBudgetMs()) : defaultBudget;
+    }
+
+    /**
+     * The layer of {@code rule} that {@code layer}, a layer of its share, was scaled from.
+     */
+    private static RateLimitRule configured(RateLimitRule rule, RateLimitRule share, RateLimitRule layer) {
+        List<RateLimitRule> scaled = share.getLayers();
+        for (int i = 0; i < scaled.size(); i++) {
+            if (scaled.get(i) == layer) {
+                return rule.getLayers().get(i);
+            }
+        }
+        return rule;
+    }
+}
@@ -1,9 +1,11 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.model.AlgorithmType;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
-import io.lettuce.core.ScriptOutputType;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
 
 import java.util.List;
 
@@ -11,60 +13,90 @@ import java.util.List;
  * Fixed Window Counter algorithm.
  * Divides time into fixed windows and counts requests per window.
  * If the count exceeds the limit, the request is denied until the next window.
+ * A request for several permits counts as that many requests.
+ *
+ * <p>A client's counter is one string holding the window start second and the count,
+ * packed big-endian as {@code I4 I4}. The same key serves every window: a new window
+ * overwrites it and sets its TTL, later requests in the window keep the TTL.
  */
-public class FixedWindowRateLimiter implements RateLimiter {
+public class FixedWindowRateLimiter extends AbstractRedisRateLimiter {
 
-    private static final String SCRIPT = """
-            local key = KEYS[1]
-            local limit = tonumber(ARGV[1])
-            local window_size = tonumber(ARGV[2])
-            local now = tonumber(ARGV[3])
-
-            local window_start = now - (now % window_size)
-            local window_key = key .. ':' .. window_start
-
-            local current = tonumber(redis.call('get', window_key) or "0")
-
-            local allowed = 0
-            local remaining = 0
-
-            if current < limit then
-                redis.call('incr', window_key)
-                redis.call('expire', window_key, window_size + 1)
-                allowed = 1
-                remaining = limit - current - 1
-            else
-                remaining = 0
+    static final String DECIDE = """
+            local function fixed_window(key, legacy, now_ms, permits, limit, window_size)
+                local now = math.floor(now_ms / 1000)
+                local window_start = now - (now % window_size)
+                local current = 0
+                local same_window = false
+                local raw = redis.call('get', key)
+                if raw then
+                    local start, count = struct.unpack('>I4I4', raw)
+                    if start == window_start then
+                        current = count
+                        same_window = true
+                    end
+                elseif legacy then
+                    current = tonumber(redis.call('get', legacy .. ':' .. window_start) or "0")
+                end
+                if current + permits > limit then
+                    return false, (window_start + window_size) * 1000 - now_ms
+                end
+                return true, limit - current - permits, function()
+                    local value = struct.pack('>I4I4', window_start, current + permits)
+                    if same_window then
+                        redis.call('set', key, value, 'keepttl')
+                    else
+                        redis.call('set', key, value, 'ex', window_size + 1)
+                    end
+                end
             end
+            """;
 
-            local retry_after = (window_start + window_size - now) * 1000
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            fixed_window(KEYS[1], KEYS[2], tonumber(ARGV[3]), tonumber(ARGV[4]), tonumber(ARGV[1]), tonumber(ARGV[2]))
+            """);
 
-            return {allowed, remaining, retry_after}
-            """;
+    public FixedWindowRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, false);
+    }
 
-    private final RedisCommands<String, String> commands;
+    public FixedWindowRateLimiter(RedisScriptRegistry scripts, boolean migrateLegacyKeys) {
+        super(scripts, "fixed_window", SCRIPT, migrateLegacyKeys);
+    }
 
-    public FixedWindowRateLimiter(RedisCommands<String, String> commands) {
-        this.commands = commands;
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.FIXED_WINDOW, key);
     }
 
+    /**
+     * Base of the per-window keys of the previous layout; the script appends the window start.
+     */
     @Override
-    @SuppressWarnings("unchecked")
-    public RateLimitResult check(String key, RateLimitRule rule) {
-        String redisKey = "rl:fw:" + key;
-        long nowSeconds = System.currentTimeMillis() / 1000;
+    protected String legacyKey(String key) {
+        return RedisKeys.legacyPrefix(AlgorithmType.FIXED_WINDOW) + key;
+    }
 
-        String[] keys = {redisKey};
-        String[] args = {
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
                 String.valueOf(rule.getMaxRequests()),
-                String.valueOf(rule.getWindowSizeSeconds()),
-                String.valueOf(nowSeconds)
+                String.valueOf(rule.getWindowSizeSeconds())
+        };
+    }
+
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{
+                limits[0], limits[1], ScriptArgs.millis(System.currentTimeMillis()), ScriptArgs.of(permits)
         };
+    }
 
-        List<Long> result = commands.eval(SCRIPT, ScriptOutputType.MULTI, keys, args);
-        long allowed = result.get(0);
-        long remaining = result.get(1);
-        long retryAfter = result.get(2);
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        long remaining = reply.get(1);
+        long retryAfter = reply.get(2);
         if (allowed == 1) {
             return RateLimitResult.allowed(remaining);
         } else {
@@ -0,0 +1,94 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Generic Cell Rate Algorithm.
+ * Same rate and burst as the Token Bucket ({@code refillRate} per second, up to
+ * {@code bucketCapacity} at once), but the only state is the key's theoretical arrival
+ * time (TAT): when the next request would be due if traffic arrived exactly at the rate.
+ * A request is allowed unless it comes more than {@code bucketCapacity} emission
+ * intervals before the TAT, so the retry-after is exact. Times are in microseconds, the
+ * clock being passed in milliseconds like the other scripts', and the TAT is one integer
+ * written with a single {@code SET PX}. The Token Bucket's packed {@code SET ... EX}
+ * costs the same single write, but it has to read back, refill and round a level, while
+ * the TAT only moves by whole intervals. A request for several permits moves the TAT by
+ * that many intervals.
+ */
+public class GcraRateLimiter extends AbstractRedisRateLimiter {
+
+    static final String DECIDE = """
+            local function gcra(key, _, now_ms, permits, interval, burst)
+                local now = now_ms * 1000
+                local tat = tonumber(redis.call('get', key))
+                if tat == nil or tat < now then
+                    tat = now
+                end
+                local new_tat = tat + interval * permits
+                local allow_at = new_tat - burst * interval
+                if now < allow_at then
+                    return false, math.ceil((allow_at - now) / 1000)
+                end
+                return true, math.floor((now - allow_at) / interval), function()
+                    redis.call('set', key, string.format('%d', new_tat), 'px', math.ceil((new_tat - now) / 1000))
+                end
+            end
+            """;
+
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            gcra(KEYS[1], nil, tonumber(ARGV[3]), tonumber(ARGV[4]), tonumber(ARGV[1]), tonumber(ARGV[2]))
+            """);
+
+    private final LongSupplier clock;
+
+    public GcraRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, System::currentTimeMillis);
+    }
+
+    GcraRateLimiter(RedisScriptRegistry scripts, LongSupplier clock) {
+        super(scripts, "gcra", SCRIPT);
+        this.clock = clock;
+    }
+
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.GCRA, key);
+    }
+
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
+                String.valueOf(emissionIntervalMicros(rule)),
+                String.valueOf(rule.getBucketCapacity())
+        };
+    }
+
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{limits[0], limits[1], ScriptArgs.millis(clock.getAsLong()), ScriptArgs.of(permits)};
+    }
+
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        if (allowed == 1) {
+            return RateLimitResult.allowed(reply.get(1));
+        }
+        return RateLimitResult.denied(reply.get(2));
+    }
+
+    /**
+     * Time between two requests at the rule's rate, rounded to whole microseconds.
+     */
+    static long emissionIntervalMicros(RateLimitRule rule) {
+        return Math.max(1, Math.round(1_000_000 / rule.getRefillRate()));
+    }
+}
@@ -1,80 +1,116 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.model.AlgorithmType;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
-import io.lettuce.core.ScriptOutputType;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
 
 import java.util.List;
 
 /**
  * Leaking Bucket algorithm.
  * Requests are added to a queue (bucket). The bucket leaks at a fixed rate.
- * If the bucket is full, the request is denied.
+ * If the bucket is full, the request is denied. A request for several permits pours in
+ * that many units at once and needs room for all but the last of them.
+ *
+ * <p>A bucket is one string holding the water level in thousandths and the last leak
+ * second, packed big-endian as {@code i8 I4} and rewritten with one {@code SET EX}.
  */
-public class LeakingBucketRateLimiter implements RateLimiter {
-
-    private static final String SCRIPT = """
-            local key = KEYS[1]
-            local capacity = tonumber(ARGV[1])
-            local leak_rate = tonumber(ARGV[2])
-            local now = tonumber(ARGV[3])
-
-            local data = redis.call('hmget', key, 'water', 'last_leak')
-            local water = tonumber(data[1])
-            local last_leak = tonumber(data[2])
-
-            if water == nil then
-                water = 0
-                last_leak = now
-            end
-
-            local elapsed = math.max(0, now - last_leak)
-            local leaked = elapsed * leak_rate
-            water = math.max(0, water - leaked)
-            last_leak = now
-
-            local allowed = 0
-            local remaining = 0
-
-            if water < capacity then
-                water = water + 1
-                allowed = 1
-                remaining = math.floor(capacity - water)
+public class LeakingBucketRateLimiter extends AbstractRedisRateLimiter {
+
+    static final String DECIDE = """
+            local function leaking_bucket(key, legacy, now_ms, permits, capacity, leak_rate)
+                local now = math.floor(now_ms / 1000)
+                local water = 0
+                local last_leak = now
+                local migrated = false
+                local raw = redis.call('get', key)
+                if raw then
+                    local milli
+                    milli, last_leak = struct.unpack('>i8I4', raw)
+                    water = milli / 1000
+                elseif legacy then
+                    local data = redis.call('hmget', legacy, 'water', 'last_leak')
+                    if data[1] then
+                        water = tonumber(data[1])
+                        last_leak = tonumber(data[2])
+                        migrated = true
+                    end
+                end
+                local leaked = math.max(0, water - math.max(0, now - last_leak) * leak_rate)
+                if leaked + permits - 1 >= capacity then
+                    -- water leaks on whole seconds: the first one after which a later call,
+                    -- leaking the stored level in floating point, finds room
+                    local function fits(at)
+                        return math.max(0, water - (at - last_leak) * leak_rate) + permits - 1 < capacity
+                    end
+                    local at = now + math.floor((leaked + permits - 1 - capacity) / leak_rate) + 1
+                    if at - 1 > now and fits(at - 1) then
+                        at = at - 1
+                    elseif not fits(at) then
+                        at = at + 1
+                    end
+                    return false, at * 1000 - now_ms
+                end
+                water = leaked + permits
+                return true, math.floor(capacity - water), function()
+                    redis.call('set', key, struct.pack('>i8I4', math.floor(water * 1000 + 0.5), now),
+                            'ex', math.ceil(capacity / leak_rate) + 1)
+                    if migrated then
+                        redis.call('del', legacy)
+                    end
+                end
             end
+            """;
 
-            redis.call('hmset', key, 'water', water, 'last_leak', last_leak)
-            redis.call('expire', key, math.ceil(capacity / leak_rate) + 1)
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            leaking_bucket(KEYS[1], KEYS[2], tonumber(ARGV[3]), tonumber(ARGV[4]), tonumber(ARGV[1]), tonumber(ARGV[2]))
+            """);
 
-            return {allowed, remaining}
-            """;
+    public LeakingBucketRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, false);
+    }
 
-    private final RedisCommands<String, String> commands;
+    public LeakingBucketRateLimiter(RedisScriptRegistry scripts, boolean migrateLegacyKeys) {
+        super(scripts, "leaking_bucket", SCRIPT, migrateLegacyKeys);
+    }
 
-    public LeakingBucketRateLimiter(RedisCommands<String, String> commands) {
-        this.commands = commands;
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.LEAKING_BUCKET, key);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public RateLimitResult check(String key, RateLimitRule rule) {
-        String redisKey = "rl:lb:" + key;
-        long nowSeconds = System.currentTimeMillis() / 1000;
+    protected String legacyKey(String key) {
+        return RedisKeys.legacyPrefix(AlgorithmType.LEAKING_BUCKET) + key;
+    }
 
-        String[] keys = {redisKey};
-        String[] args = {
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
                 String.valueOf(rule.getBucketCapacity()),
-                String.valueOf(rule.getLeakRate()),
-                String.valueOf(nowSeconds)
+                String.valueOf(rule.getLeakRate())
+        };
+    }
+
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{
+                limits[0], limits[1], ScriptArgs.millis(System.currentTimeMillis()), ScriptArgs.of(permits)
         };
+    }
 
-        List<Long> result = commands.eval(SCRIPT, ScriptOutputType.MULTI, keys, args);
-        long allowed = result.get(0);
-        long remaining = result.get(1);
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        long remaining = reply.get(1);
+        long retryAfter = reply.get(2);
         if (allowed == 1) {
             return RateLimitResult.allowed(remaining);
         } else {
-            long retryAfter = (long) (1000.0 / rule.getLeakRate());
             return RateLimitResult.denied(retryAfter);
         }
     }
@@ -0,0 +1,85 @@
+package com.ratelimiter.core.algorithm;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * This gateway's share of rules: capacities and rates divided by the number of live
+ * gateways, for deciding locally what is otherwise decided cluster-wide. Shares are
+ * recomputed when the number of gateways changes and held weakly by the rule they derive
+ * from, so they go away together with a replaced rule set.
+ */
+final class LocalShares {
+
+    private final IntSupplier gatewayCount;
+    private final Cache<RateLimitRule, Share> shares = Caffeine.newBuilder().weakKeys().build();
+
+    LocalShares(IntSupplier gatewayCount) {
+        this.gatewayCount = gatewayCount;
+    }
+
+    /**
+     * The rule scaled down to this gateway's share, or the rule itself on a single gateway.
+     */
+    RateLimitRule of(RateLimitRule rule) {
+        int gateways = Math.max(1, gatewayCount.getAsInt());
+        if (gateways == 1) {
+            return rule;
+        }
+        Share share = shares.getIfPresent(rule);
+        if (share == null || share.gateways != gateways) {
+            share = new Share(gateways, scale(rule, gateways));
+            shares.put(rule, share);
+        }
+        return share.rule;
+    }
+
+    /**
+     * Copy of the rule with its counts and rates, and those of its layers, divided by
+     * {@code gateways}.
+     */
+    static RateLimitRule scale(RateLimitRule rule, int gateways) {
+        RateLimitRule scaled = scaleLimits(rule, gateways);
+        if (!rule.getLayers().isEmpty()) {
+            List<RateLimitRule> layers = new ArrayList<>(rule.getLayers().size());
+            for (RateLimitRule layer : rule.getLayers()) {
+                layers.add(scaleLimits(layer, gateways));
+            }
+            scaled.setLayers(layers);
+        }
+        return scaled;
+    }
+
+    private static RateLimitRule scaleLimits(RateLimitRule rule, int gateways) {
+        RateLimitRule scaled = new RateLimitRule();
+        scaled.setId(rule.getId());
+        scaled.setPath(rule.getPath());
+        scaled.setAlgorithm(rule.getAlgorithm());
+        scaled.setKeyResolver(rule.getKeyResolver());
+        scaled.setStore(rule.getStore());
+        scaled.setCost(rule.getCost());
+        scaled.setWindowSizeSeconds(rule.getWindowSizeSeconds());
+        scaled.setWindowBuckets(rule.getWindowBuckets());
+        scaled.setLatencyBudgetMs(rule.getLatencyBudgetMs());
+        scaled.setMaxRequests(divide(rule.getMaxRequests(), gateways));
+        scaled.setBucketCapacity(divide(rule.getBucketCapacity(), gateways));
+        scaled.setRefillRate(rule.getRefillRate() / gateways);
+        scaled.setLeakRate(rule.getLeakRate() / gateways);
+        return scaled;
+    }
+
+    /**
+     * Divides a count, rounding up so that every gateway keeps admitting at least one request.
+     */
+    private static long divide(long value, int gateways) {
+        return value <= 0 ? value : Math.max(1, (value + gateways - 1) / gateways);
+    }
+
+    private record Share(int gateways, RateLimitRule rule) {
+    }
+}
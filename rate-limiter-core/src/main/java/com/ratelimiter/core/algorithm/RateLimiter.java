@@ -1,16 +1,65 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.model.PermitRequest;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface RateLimiter {
 
     RateLimitResult check(String key, RateLimitRule rule);
 
+    /**
+     * Takes {@code permits} units at once, all or none: the request is admitted only if
+     * the whole amount fits.
+     */
+    RateLimitResult check(String key, RateLimitRule rule, long permits);
+
+    /**
+     * Reactive variant of {@link #check}. The default offloads the blocking call to
+     * {@link Schedulers#boundedElastic()}; implementations with a non-blocking client
+     * should override it.
+     */
     default Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
         return Mono.fromCallable(() -> check(key, rule))
                 .subscribeOn(Schedulers.boundedElastic());
     }
+
+    /**
+     * Reactive variant of {@link #check(String, RateLimitRule, long)}.
+     */
+    default Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        if (permits == 1) {
+            return isAllowed(key, rule);
+        }
+        return Mono.fromCallable(() -> check(key, rule, permits))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Decides every request of a batch under one rule, returning the results in order.
+     * Each entry is decided on its own; a denied entry does not affect the others.
+     */
+    default List<RateLimitResult> checkAll(List<PermitRequest> requests, RateLimitRule rule) {
+        List<RateLimitResult> results = new ArrayList<>(requests.size());
+        for (PermitRequest request : requests) {
+            results.add(check(request.key(), rule, request.permits()));
+        }
+        return results;
+    }
+
+    /**
+     * Reactive variant of {@link #checkAll}. The entries are decided concurrently, so a
+     * limiter with a non-blocking client has them all in flight at once.
+     */
+    default Mono<List<RateLimitResult>> isAllowedAll(List<PermitRequest> requests, RateLimitRule rule) {
+        return Flux.fromIterable(requests)
+                .flatMapSequential(request -> isAllowed(request.key(), rule, request.permits()))
+                .collectList();
+    }
 }
@@ -1,31 +1,214 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
 import com.ratelimiter.core.model.AlgorithmType;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.store.LocalRateLimitStore;
+import com.ratelimiter.core.store.RateLimitStore;
+import com.ratelimiter.core.store.RedisRateLimitStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
 
+/**
+ * Hands out the limiter for a rule from the {@link RateLimitStore} the rule names,
+ * or from the default store. Limiters are created once per store and algorithm.
+ */
 public class RateLimiterFactory {
 
-    private final Map<AlgorithmType, RateLimiter> limiters = new ConcurrentHashMap<>();
-    private final RedisCommands<String, String> commands;
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterFactory.class);
 
-    public RateLimiterFactory(RedisCommands<String, String> commands) {
-        this.commands = commands;
+    private final Map<String, RateLimitStore> stores;
+    private final RateLimitStore defaultStore;
+    private final Map<RateLimitStore, Map<AlgorithmType, RateLimiter>> backends = new ConcurrentHashMap<>();
+    private final Map<RateLimitStore, Map<AlgorithmType, RateLimiter>> limiters = new ConcurrentHashMap<>();
+    private final Map<RateLimitStore, RuleSetRateLimiter> ruleSetBackends = new ConcurrentHashMap<>();
+    private final Map<RateLimitStore, RuleSetRateLimiter> ruleSetLimiters = new ConcurrentHashMap<>();
+    private final List<Decorator<RateLimiter>> decorators = new CopyOnWriteArrayList<>();
+    private final List<Decorator<RuleSetRateLimiter>> ruleSetDecorators = new CopyOnWriteArrayList<>();
+    private final Map<String, Boolean> unknownStores = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a factory for the Redis-backed limiters.
+     */
+    public RateLimiterFactory(RedisScriptRegistry scripts) {
+        this(new RedisRateLimitStore(scripts));
+    }
+
+    /**
+     * Creates a factory for the Redis-backed limiters whose token leases last {@code leaseTtl}.
+     */
+    public RateLimiterFactory(RedisScriptRegistry scripts, Duration leaseTtl) {
+        this(new RedisRateLimitStore(scripts, leaseTtl));
+    }
+
+    /**
+     * Creates a factory for the in-process limiters, which keep their state in
+     * {@code localStore} and never talk to Redis.
+     */
+    public RateLimiterFactory(LocalStateStore localStore) {
+        this(new LocalRateLimitStore(localStore));
     }
 
+    public RateLimiterFactory(RateLimitStore store) {
+        this(store.name(), List.of(store));
+    }
+
+    /**
+     * Creates a factory serving every store in {@code stores}; rules that name no store
+     * use the one called {@code defaultStore}.
+     */
+    public RateLimiterFactory(String defaultStore, Collection<? extends RateLimitStore> stores) {
+        Map<String, RateLimitStore> byName = new LinkedHashMap<>();
+        for (RateLimitStore store : stores) {
+            if (byName.putIfAbsent(store.name(), store) != null) {
+                throw new IllegalArgumentException("Duplicate rate limit store '" + store.name() + "'");
+            }
+        }
+        this.stores = Map.copyOf(byName);
+        this.defaultStore = byName.get(defaultStore);
+        if (this.defaultStore == null) {
+            throw new IllegalArgumentException("Unknown default rate limit store '" + defaultStore + "'");
+        }
+    }
+
+    /**
+     * Returns the limiter of the default store for {@code type}.
+     */
     public RateLimiter getLimiter(AlgorithmType type) {
-        return limiters.computeIfAbsent(type, this::createLimiter);
+        return getLimiter(defaultStore, type);
+    }
+
+    /**
+     * Returns the limiter for the rule's algorithm from the store the rule names. A rule
+     * naming a store this gateway does not have falls back to the default store.
+     */
+    public RateLimiter getLimiter(RateLimitRule rule) {
+        return getLimiter(storeFor(rule), rule.getAlgorithm());
+    }
+
+    /**
+     * Returns the limiter deciding a rule together with its layers, from the store the
+     * rule names. Layers always use the rule's store.
+     */
+    public RuleSetRateLimiter getRuleSetLimiter(RateLimitRule rule) {
+        return getRuleSetLimiter(storeFor(rule));
+    }
+
+    /**
+     * Returns the rule-set limiter of the default store.
+     */
+    public RuleSetRateLimiter getRuleSetLimiter() {
+        return getRuleSetLimiter(defaultStore);
+    }
+
+    /**
+     * Wraps every limiter handed out by {@link #getLimiter}, e.g. with a
+     * {@link DenyCachingRateLimiter}. Decorators apply in the order they were added,
+     * the last one outermost.
+     */
+    public void addDecorator(UnaryOperator<RateLimiter> decorator) {
+        addDecorator(null, decorator);
+    }
+
+    /**
+     * Wraps the limiters of the store called {@code storeName} only.
+     */
+    public void addDecorator(String storeName, UnaryOperator<RateLimiter> decorator) {
+        decorators.add(new Decorator<>(storeName, decorator));
+        limiters.clear();
+    }
+
+    /**
+     * Wraps every limiter handed out by {@link #getRuleSetLimiter}, the counterpart of
+     * {@link #addDecorator} for rules with layers.
+     */
+    public void addRuleSetDecorator(UnaryOperator<RuleSetRateLimiter> decorator) {
+        addRuleSetDecorator(null, decorator);
+    }
+
+    /**
+     * Wraps the rule-set limiter of the store called {@code storeName} only.
+     */
+    public void addRuleSetDecorator(String storeName, UnaryOperator<RuleSetRateLimiter> decorator) {
+        ruleSetDecorators.add(new Decorator<>(storeName, decorator));
+        ruleSetLimiters.clear();
+    }
+
+    /**
+     * Creates every limiter of every store so their scripts are registered, then lets
+     * each store load them.
+     */
+    public void preloadScripts() {
+        for (RateLimitStore store : stores.values()) {
+            for (AlgorithmType type : AlgorithmType.values()) {
+                getLimiter(store, type);
+            }
+            getRuleSetLimiter(store);
+            store.preload();
+        }
+    }
+
+    /**
+     * Hands tokens still leased by the Token Bucket limiters back to Redis.
+     */
+    public void releaseLeases() {
+        for (Map<AlgorithmType, RateLimiter> created : backends.values()) {
+            if (created.get(AlgorithmType.TOKEN_BUCKET) instanceof TokenBucketRateLimiter tokenBucket) {
+                tokenBucket.releaseLeases();
+            }
+        }
+    }
+
+    private RateLimiter getLimiter(RateLimitStore store, AlgorithmType type) {
+        return limiters.computeIfAbsent(store, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(type, t -> decorate(store, t));
+    }
+
+    private RuleSetRateLimiter getRuleSetLimiter(RateLimitStore store) {
+        return ruleSetLimiters.computeIfAbsent(store, s -> decorate(store,
+                ruleSetBackends.computeIfAbsent(store, RateLimitStore::createRuleSetLimiter), ruleSetDecorators));
+    }
+
+    private RateLimitStore storeFor(RateLimitRule rule) {
+        String name = rule.getStore();
+        if (name == null) {
+            return defaultStore;
+        }
+        RateLimitStore store = stores.get(name);
+        if (store != null) {
+            return store;
+        }
+        if (unknownStores.putIfAbsent(name, Boolean.TRUE) == null) {
+            log.warn("Rule '{}' names unknown rate limit store '{}', using '{}'",
+                    rule.getId(), name, defaultStore.name());
+        }
+        return defaultStore;
+    }
+
+    private RateLimiter decorate(RateLimitStore store, AlgorithmType type) {
+        return decorate(store, backends.computeIfAbsent(store, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(type, store::createLimiter), decorators);
+    }
+
+    private static <T> T decorate(RateLimitStore store, T limiter, List<Decorator<T>> decorators) {
+        for (Decorator<T> decorator : decorators) {
+            if (decorator.storeName == null || decorator.storeName.equals(store.name())) {
+                limiter = decorator.operator.apply(limiter);
+            }
+        }
+        return limiter;
     }
 
-    private RateLimiter createLimiter(AlgorithmType type) {
-        return switch (type) {
-            case TOKEN_BUCKET -> new TokenBucketRateLimiter(commands);
-            case LEAKING_BUCKET -> new LeakingBucketRateLimiter(commands);
-            case FIXED_WINDOW -> new FixedWindowRateLimiter(commands);
-            case SLIDING_WINDOW_LOG -> new SlidingWindowLogRateLimiter(commands);
-            case SLIDING_WINDOW_COUNTER -> new SlidingWindowCounterRateLimiter(commands);
-        };
+    private record Decorator<T>(String storeName, UnaryOperator<T> operator) {
     }
 }
@@ -0,0 +1,261 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScript;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides every layer of a rule in one script call. The script is built from the decide
+ * functions of the algorithms' own scripts: it first decides each layer against its state
+ * without writing anything, and only writes the layers back once all of them admit the
+ * request. A denied request therefore costs no layer anything, and the reply names the
+ * layer that denied it. Token buckets keep the lease counters stored with them, but
+ * layered rules do not lease themselves.
+ *
+ * <p>A script may only touch keys of one Redis Cluster slot, so every layer key carries
+ * the rule's id as its hash tag, e.g. {@code rt{api}api/per-user:alice}. All
+ * clients of a layered rule share one slot; rules that need to spread over the cluster
+ * should stay single-layer.
+ */
+public class RedisRuleSetRateLimiter implements RuleSetRateLimiter {
+
+    private static final int ARGS_PER_LAYER = 6;
+
+    /*
+     * Owners of the forms this limiter derives from compiled rules; shared by every
+     * instance, since the forms depend on the rule alone.
+     */
+    private static final Object KEY_PREFIXES = new Object();
+    private static final Object LEGACY_PREFIXES = new Object();
+    private static final Object LAYER_ARGS = new Object();
+
+    /*
+     * The algorithms' decide functions, each deciding one layer without writing it, and a
+     * loop calling them and writing the layers back once every one of them admits.
+     */
+    private static final String SCRIPT = TokenBucketRateLimiter.DECIDE
+            + LeakingBucketRateLimiter.DECIDE
+            + FixedWindowRateLimiter.DECIDE
+            + SlidingWindowLogRateLimiter.DECIDE
+            + SlidingWindowCounterRateLimiter.DECIDE
+            + GcraRateLimiter.DECIDE
+            + BucketedSlidingWindowRateLimiter.DECIDE
+            + """
+            local decide = {
+                token_bucket = token_bucket,
+                leaking_bucket = leaking_bucket,
+                fixed_window = fixed_window,
+                sliding_window_log = sliding_window_log,
+                sliding_window_counter = sliding_window_counter,
+                gcra = gcra,
+                sliding_window_buckets = sliding_window_buckets
+            }
+
+            local now_ms = tonumber(ARGV[1])
+            local permits = tonumber(ARGV[2])
+            local writes = {}
+            local remaining = -1
+            local tightest = 1
+            for i = 1, (#ARGV - 2) / 6 do
+                local base = 3 + (i - 1) * 6
+                local legacy = nil
+                if ARGV[base + 5] ~= '' then
+                    legacy = KEYS[tonumber(ARGV[base + 5])]
+                end
+                local allowed, value, write = decide[ARGV[base]](KEYS[i], legacy, now_ms, permits,
+                        tonumber(ARGV[base + 1]), tonumber(ARGV[base + 2]), tonumber(ARGV[base + 3]), ARGV[base + 4])
+                if not allowed then
+                    return {0, i, 0, value}
+                end
+                writes[i] = write
+                if remaining < 0 or value < remaining then
+                    remaining = value
+                    tightest = i
+                end
+            end
+
+            for i = 1, #writes do
+                writes[i]()
+            end
+            return {1, tightest, remaining, 0}
+            """;
+
+    private final RedisScriptRegistry scripts;
+    private final RedisScript script;
+    private final LongSupplier clock;
+    private final boolean migrateLegacyKeys;
+
+    public RedisRuleSetRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, false);
+    }
+
+    /**
+     * Creates a limiter that, with {@code migrateLegacyKeys}, takes over layer state still
+     * kept under the untagged keys of the previous layout, as the algorithms' own limiters do.
+     */
+    public RedisRuleSetRateLimiter(RedisScriptRegistry scripts, boolean migrateLegacyKeys) {
+        this(scripts, System::currentTimeMillis, migrateLegacyKeys);
+    }
+
+    RedisRuleSetRateLimiter(RedisScriptRegistry scripts, LongSupplier clock) {
+        this(scripts, clock, false);
+    }
+
+    RedisRuleSetRateLimiter(RedisScriptRegistry scripts, LongSupplier clock, boolean migrateLegacyKeys) {
+        this.scripts = scripts;
+        this.script = scripts.register("rule_set", SCRIPT);
+        this.clock = clock;
+        this.migrateLegacyKeys = migrateLegacyKeys;
+    }
+
+    @Override
+    public RuleSetResult check(List<String> keys, RateLimitRule rule, long permits) {
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+        RuleSetRateLimiter.checkKeys(keys, layers);
+        List<Object> reply = scripts.eval(script, redisKeys(keys, rule, layers), args(rule, layers, permits));
+        return toResult(AbstractRedisRateLimiter.toLongs(reply), layers);
+    }
+
+    @Override
+    public Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return Mono.defer(() -> {
+            List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+            RuleSetRateLimiter.checkKeys(keys, layers);
+            return scripts.evalReactive(script, redisKeys(keys, rule, layers), args(rule, layers, permits))
+                    .collectList()
+                    .map(reply -> toResult(AbstractRedisRateLimiter.toLongs(reply), layers));
+        });
+    }
+
+    /**
+     * The layers' keys, followed while migration is on by the legacy keys of the layers
+     * whose algorithm had one; the script finds those through each layer's last argument.
+     */
+    String[] redisKeys(List<String> keys, RateLimitRule rule, List<RateLimitRule> layers) {
+        String[] prefixes = rule.compiled().derive(KEY_PREFIXES, RedisRuleSetRateLimiter::keyPrefixes);
+        String[] legacyPrefixes = migrateLegacyKeys
+                ? rule.compiled().derive(LEGACY_PREFIXES, RedisRuleSetRateLimiter::legacyPrefixes)
+                : new String[0];
+        int legacyCount = 0;
+        for (String legacyPrefix : legacyPrefixes) {
+            if (legacyPrefix != null) {
+                legacyCount++;
+            }
+        }
+        String[] redisKeys = new String[layers.size() + legacyCount];
+        int next = layers.size();
+        for (int i = 0; i < layers.size(); i++) {
+            redisKeys[i] = prefixes[i] + keys.get(i);
+            if (legacyPrefixes.length > 0 && legacyPrefixes[i] != null) {
+                redisKeys[next++] = legacyPrefixes[i] + keys.get(i);
+            }
+        }
+        return redisKeys;
+    }
+
+    /**
+     * Everything of a layer's key but the client key, which the rule fixes.
+     */
+    private static String[] keyPrefixes(RateLimitRule rule) {
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+        String[] prefixes = new String[layers.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            RateLimitRule layer = layers.get(i);
+            prefixes[i] = RedisKeys.tagged(RedisKeys.prefix(layer.getAlgorithm()), rule.getId())
+                    + RuleSetRateLimiter.layerKey(rule, layer, "");
+        }
+        return prefixes;
+    }
+
+    /**
+     * Everything of a layer's legacy key but the client key, or {@code null} for layers
+     * whose algorithm never had one.
+     */
+    private static String[] legacyPrefixes(RateLimitRule rule) {
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+        String[] prefixes = new String[layers.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            RateLimitRule layer = layers.get(i);
+            String legacyPrefix = RedisKeys.legacyPrefix(layer.getAlgorithm());
+            if (legacyPrefix != null) {
+                prefixes[i] = legacyPrefix + RuleSetRateLimiter.layerKey(rule, layer, "");
+            }
+        }
+        return prefixes;
+    }
+
+    String[] args(RateLimitRule rule, List<RateLimitRule> layers, long permits) {
+        long nowMillis = clock.getAsLong();
+        String[] args = new String[2 + layers.size() * ARGS_PER_LAYER];
+        args[0] = ScriptArgs.millis(nowMillis);
+        args[1] = ScriptArgs.of(permits);
+        for (int i = 0; i < layers.size(); i++) {
+            RateLimitRule layer = layers.get(i);
+            int base = 2 + i * ARGS_PER_LAYER;
+            System.arraycopy(layer.compiled().derive(LAYER_ARGS, RedisRuleSetRateLimiter::layerArgs), 0,
+                    args, base, ARGS_PER_LAYER);
+            if (layer.getAlgorithm() == AlgorithmType.SLIDING_WINDOW_LOG) {
+                args[base + 4] = nowMillis + ":" + Thread.currentThread().threadId() + ":" + Math.random();
+            }
+        }
+        if (migrateLegacyKeys) {
+            String[] legacyPrefixes = rule.compiled().derive(LEGACY_PREFIXES, RedisRuleSetRateLimiter::legacyPrefixes);
+            int next = layers.size();
+            for (int i = 0; i < layers.size(); i++) {
+                if (legacyPrefixes[i] != null) {
+                    args[2 + i * ARGS_PER_LAYER + 5] = ScriptArgs.of(++next);
+                }
+            }
+        }
+        return args;
+    }
+
+    /**
+     * A layer's arguments but the sliding log's member, which is new on every call, and the
+     * index of its legacy key, which is only set while migrating.
+     */
+    private static String[] layerArgs(RateLimitRule layer) {
+        String[] args = {layer.getAlgorithm().getValue(), "", "", "", "", ""};
+        switch (layer.getAlgorithm()) {
+            case TOKEN_BUCKET -> {
+                args[1] = String.valueOf(layer.getBucketCapacity());
+                args[2] = String.valueOf(layer.getRefillRate());
+            }
+            case LEAKING_BUCKET -> {
+                args[1] = String.valueOf(layer.getBucketCapacity());
+                args[2] = String.valueOf(layer.getLeakRate());
+            }
+            case FIXED_WINDOW, SLIDING_WINDOW_COUNTER, SLIDING_WINDOW_LOG -> {
+                args[1] = String.valueOf(layer.getMaxRequests());
+                args[2] = String.valueOf(layer.getWindowSizeSeconds());
+            }
+            case GCRA -> {
+                args[1] = String.valueOf(GcraRateLimiter.emissionIntervalMicros(layer));
+                args[2] = String.valueOf(layer.getBucketCapacity());
+            }
+            case SLIDING_WINDOW_BUCKETS -> {
+                args[1] = String.valueOf(layer.getMaxRequests());
+                args[2] = String.valueOf(BucketedSlidingWindowRateLimiter.bucketMillis(layer));
+                args[3] = String.valueOf(BucketedSlidingWindowRateLimiter.bucketCount(layer));
+            }
+        }
+        return args;
+    }
+
+    private static RuleSetResult toResult(List<Long> reply, List<RateLimitRule> layers) {
+        RateLimitRule layer = layers.get(reply.get(1).intValue() - 1);
+        if (reply.get(0) == 1) {
+            return new RuleSetResult(RateLimitResult.allowed(reply.get(2)), layer);
+        }
+        return new RuleSetResult(RateLimitResult.denied(reply.get(3)), layer);
+    }
+}
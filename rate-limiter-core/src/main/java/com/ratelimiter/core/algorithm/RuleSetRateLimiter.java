@@ -0,0 +1,62 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides a request against a rule and its {@linkplain RateLimitRule#getLayers() layers}
+ * at once. {@code keys} holds the client key of every layer, in {@link #layers} order.
+ */
+public interface RuleSetRateLimiter {
+
+    default RuleSetResult check(List<String> keys, RateLimitRule rule) {
+        return check(keys, rule, 1);
+    }
+
+    /**
+     * Takes {@code permits} units from every layer, or from none of them.
+     */
+    RuleSetResult check(List<String> keys, RateLimitRule rule, long permits);
+
+    default Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule) {
+        return isAllowed(keys, rule, 1);
+    }
+
+    /**
+     * Reactive variant of {@link #check(List, RateLimitRule, long)}. The default offloads
+     * the blocking call to {@link Schedulers#boundedElastic()}.
+     */
+    default Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return Mono.fromCallable(() -> check(keys, rule, permits))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * The rule followed by its layers, the order in which they are evaluated and reported.
+     */
+    static List<RateLimitRule> layers(RateLimitRule rule) {
+        List<RateLimitRule> layers = new ArrayList<>(rule.getLayers().size() + 1);
+        layers.add(rule);
+        layers.addAll(rule.getLayers());
+        return layers;
+    }
+
+    /**
+     * Client key under which a layer keeps its state: prefixed with the rule and layer ids,
+     * so it never collides with a single rule's key or with another rule set's layers.
+     */
+    static String layerKey(RateLimitRule rule, RateLimitRule layer, String key) {
+        return rule.getId() + '/' + layer.getId() + ':' + key;
+    }
+
+    static void checkKeys(List<String> keys, List<RateLimitRule> layers) {
+        if (keys.size() != layers.size()) {
+            throw new IllegalArgumentException("Expected " + layers.size() + " keys, got " + keys.size());
+        }
+    }
+}
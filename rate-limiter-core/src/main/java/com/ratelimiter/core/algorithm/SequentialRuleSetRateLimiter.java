@@ -0,0 +1,69 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Checks the layers one after the other with the single-key limiters, stopping at the
+ * first denial. Layers checked before the denying one keep the request counted, so this
+ * is only the fallback for stores that cannot evaluate a rule set atomically.
+ */
+public class SequentialRuleSetRateLimiter implements RuleSetRateLimiter {
+
+    private final Function<RateLimitRule, RateLimiter> limiters;
+
+    public SequentialRuleSetRateLimiter(Function<RateLimitRule, RateLimiter> limiters) {
+        this.limiters = limiters;
+    }
+
+    @Override
+    public RuleSetResult check(List<String> keys, RateLimitRule rule, long permits) {
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+        RuleSetRateLimiter.checkKeys(keys, layers);
+        RuleSetResult tightest = null;
+        for (int i = 0; i < layers.size(); i++) {
+            RateLimitRule layer = layers.get(i);
+            String key = RuleSetRateLimiter.layerKey(rule, layer, keys.get(i));
+            RateLimitResult result = limiters.apply(layer).check(key, layer, permits);
+            if (!result.allowed()) {
+                return new RuleSetResult(result, layer);
+            }
+            if (tightest == null || result.remaining() < tightest.result().remaining()) {
+                tightest = new RuleSetResult(result, layer);
+            }
+        }
+        return tightest;
+    }
+
+    @Override
+    public Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return Mono.defer(() -> {
+            List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+            RuleSetRateLimiter.checkKeys(keys, layers);
+            return next(keys, rule, permits, layers, 0, null);
+        });
+    }
+
+    private Mono<RuleSetResult> next(List<String> keys, RateLimitRule rule, long permits,
+                                     List<RateLimitRule> layers, int index, RuleSetResult tightest) {
+        if (index == layers.size()) {
+            return Mono.just(tightest);
+        }
+        RateLimitRule layer = layers.get(index);
+        String key = RuleSetRateLimiter.layerKey(rule, layer, keys.get(index));
+        return limiters.apply(layer).isAllowed(key, layer, permits)
+                .flatMap(result -> {
+                    if (!result.allowed()) {
+                        return Mono.just(new RuleSetResult(result, layer));
+                    }
+                    boolean tighter = tightest == null || result.remaining() < tightest.result().remaining();
+                    RuleSetResult next = tighter ? new RuleSetResult(result, layer) : tightest;
+                    return next(keys, rule, permits, layers, index + 1, next);
+                });
+    }
+}
@@ -1,9 +1,11 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.model.AlgorithmType;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
-import io.lettuce.core.ScriptOutputType;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
 
 import java.util.List;
 
@@ -11,66 +13,127 @@ import java.util.List;
  * Sliding Window Counter algorithm.
  * Combines fixed window counter with a weighted count from the previous window
  * to approximate a sliding window. Uses less memory than the sliding window log.
+ * A request for several permits counts as that many requests.
+ *
+ * <p>Both windows live in one string: the current window's start second, its count and
+ * the previous window's count, packed big-endian as {@code I4 I4 I4}. Rolling over to a
+ * new window shifts the counts and sets the TTL, later requests in the window keep it.
  */
-public class SlidingWindowCounterRateLimiter implements RateLimiter {
-
-    private static final String SCRIPT = """
-            local key = KEYS[1]
-            local limit = tonumber(ARGV[1])
-            local window_size = tonumber(ARGV[2])
-            local now = tonumber(ARGV[3])
-
-            local current_window = now - (now % window_size)
-            local previous_window = current_window - window_size
-
-            local current_key = key .. ':' .. current_window
-            local previous_key = key .. ':' .. previous_window
-
-            local current_count = tonumber(redis.call('get', current_key) or "0")
-            local previous_count = tonumber(redis.call('get', previous_key) or "0")
-
-            local elapsed_in_current = now - current_window
-            local weight = 1 - (elapsed_in_current / window_size)
-            local weighted_count = math.floor(previous_count * weight + current_count)
-
-            local allowed = 0
-            local remaining = 0
+public class SlidingWindowCounterRateLimiter extends AbstractRedisRateLimiter {
+
+    static final String DECIDE = """
+            -- First second of a window that admits permits over these counts, or window_size if none does.
+            local function admitted_after(previous, current, permits, limit, window_size)
+                local spare = limit - permits - current
+                if spare < 0 then
+                    return window_size
+                end
+                if previous <= spare then
+                    return 0
+                end
+                local offset = math.floor(window_size * (previous - spare - 1) / previous) + 1
+                -- the decision weighs in floating point, which may admit a second sooner
+                if math.floor(previous * (1 - ((offset - 1) / window_size)) + current) + permits <= limit then
+                    offset = offset - 1
+                end
+                return offset
+            end
 
-            if weighted_count < limit then
-                redis.call('incr', current_key)
-                redis.call('expire', current_key, window_size * 2 + 1)
-                allowed = 1
-                remaining = limit - weighted_count - 1
+            local function sliding_window_counter(key, legacy, now_ms, permits, limit, window_size)
+                local now = math.floor(now_ms / 1000)
+                local current_window = now - (now % window_size)
+                local previous_window = current_window - window_size
+                local current_count = 0
+                local previous_count = 0
+                local same_window = false
+                local raw = redis.call('get', key)
+                if raw then
+                    local start, current, previous = struct.unpack('>I4I4I4', raw)
+                    if start == current_window then
+                        current_count = current
+                        previous_count = previous
+                        same_window = true
+                    elseif start == previous_window then
+                        previous_count = current
+                    end
+                elseif legacy then
+                    current_count = tonumber(redis.call('get', legacy .. ':' .. current_window) or "0")
+                    previous_count = tonumber(redis.call('get', legacy .. ':' .. previous_window) or "0")
+                end
+                local weight = 1 - ((now - current_window) / window_size)
+                local weighted_count = math.floor(previous_count * weight + current_count)
+                if weighted_count + permits > limit then
+                    -- the current window, if the previous one's weight falls far enough before it
+                    -- ends, or else the next one, where this window's count is the one fading out
+                    local offset = math.max(now - current_window + 1,
+                            admitted_after(previous_count, current_count, permits, limit, window_size))
+                    local admit_at = current_window + offset
+                    if offset >= window_size then
+                        admit_at = current_window + window_size
+                        if permits <= limit then
+                            admit_at = admit_at + admitted_after(current_count, 0, permits, limit, window_size)
+                        end
+                    end
+                    return false, admit_at * 1000 - now_ms
+                end
+                return true, limit - weighted_count - permits, function()
+                    local value = struct.pack('>I4I4I4', current_window, current_count + permits, previous_count)
+                    if same_window then
+                        redis.call('set', key, value, 'keepttl')
+                    else
+                        redis.call('set', key, value, 'ex', window_size * 2 + 1)
+                    end
+                end
             end
+            """;
 
-            local retry_after = (current_window + window_size - now) * 1000
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            sliding_window_counter(KEYS[1], KEYS[2], tonumber(ARGV[3]), tonumber(ARGV[4]),
+                    tonumber(ARGV[1]), tonumber(ARGV[2]))
+            """);
 
-            return {allowed, remaining, retry_after}
-            """;
+    public SlidingWindowCounterRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, false);
+    }
 
-    private final RedisCommands<String, String> commands;
+    public SlidingWindowCounterRateLimiter(RedisScriptRegistry scripts, boolean migrateLegacyKeys) {
+        super(scripts, "sliding_window_counter", SCRIPT, migrateLegacyKeys);
+    }
 
-    public SlidingWindowCounterRateLimiter(RedisCommands<String, String> commands) {
-        this.commands = commands;
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.SLIDING_WINDOW_COUNTER, key);
     }
 
+    /**
+     * Base of the per-window keys of the previous layout; the script appends the window start.
+     */
     @Override
-    @SuppressWarnings("unchecked")
-    public RateLimitResult check(String key, RateLimitRule rule) {
-        String redisKey = "rl:swc:" + key;
-        long nowSeconds = System.currentTimeMillis() / 1000;
+    protected String legacyKey(String key) {
+        return RedisKeys.legacyPrefix(AlgorithmType.SLIDING_WINDOW_COUNTER) + key;
+    }
 
-        String[] keys = {redisKey};
-        String[] args = {
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
                 String.valueOf(rule.getMaxRequests()),
-                String.valueOf(rule.getWindowSizeSeconds()),
-                String.valueOf(nowSeconds)
+                String.valueOf(rule.getWindowSizeSeconds())
+        };
+    }
+
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{
+                limits[0], limits[1], ScriptArgs.millis(System.currentTimeMillis()), ScriptArgs.of(permits)
         };
+    }
 
-        List<Long> result = commands.eval(SCRIPT, ScriptOutputType.MULTI, keys, args);
-        long allowed = result.get(0);
-        long remaining = result.get(1);
-        long retryAfter = result.get(2);
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        long remaining = reply.get(1);
+        long retryAfter = reply.get(2);
         if (allowed == 1) {
             return RateLimitResult.allowed(remaining);
         } else {
@@ -1,9 +1,11 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.model.AlgorithmType;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
-import io.lettuce.core.ScriptOutputType;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
 
 import java.util.List;
 
@@ -11,64 +13,91 @@ import java.util.List;
  * Sliding Window Log algorithm.
  * Keeps a sorted set of timestamps for each request.
  * Removes expired entries and checks if the count is within the limit.
+ * A request for several permits adds that many entries.
+ * The log is inherently one member per admitted request; with legacy migration on, a
+ * log still under the previous key is renamed to the current one.
  */
-public class SlidingWindowLogRateLimiter implements RateLimiter {
-
-    private static final String SCRIPT = """
-            local key = KEYS[1]
-            local limit = tonumber(ARGV[1])
-            local window_size = tonumber(ARGV[2])
-            local now = tonumber(ARGV[3])
-            local request_id = ARGV[4]
-
-            local window_start = now - window_size * 1000
-
-            redis.call('zremrangebyscore', key, '-inf', window_start)
-
-            local current = redis.call('zcard', key)
-
-            local allowed = 0
-            local remaining = 0
-
-            if current < limit then
-                redis.call('zadd', key, now, request_id)
-                allowed = 1
-                remaining = limit - current - 1
+public class SlidingWindowLogRateLimiter extends AbstractRedisRateLimiter {
+
+    static final String DECIDE = """
+            local function sliding_window_log(key, legacy, now_ms, permits, limit, window_size, _, request_id)
+                if legacy and redis.call('exists', key) == 0 and redis.call('exists', legacy) == 1 then
+                    redis.call('rename', legacy, key)
+                end
+                redis.call('zremrangebyscore', key, '-inf', now_ms - window_size * 1000)
+                local current = redis.call('zcard', key)
+                if current + permits > limit then
+                    if permits > limit then
+                        return false, window_size * 1000
+                    end
+                    -- admitted once the entry that has to go last has left the window
+                    local last = current + permits - limit - 1
+                    local entry = redis.call('zrange', key, last, last, 'withscores')
+                    return false, tonumber(entry[2]) + window_size * 1000 - now_ms
+                end
+                return true, limit - current - permits, function()
+                    local entries = {}
+                    for i = 1, permits do
+                        entries[#entries + 1] = now_ms
+                        entries[#entries + 1] = request_id .. ':' .. i
+                        if #entries == 200 or i == permits then
+                            redis.call('zadd', key, unpack(entries))
+                            entries = {}
+                        end
+                    end
+                    redis.call('expire', key, window_size + 1)
+                end
             end
+            """;
 
-            redis.call('expire', key, window_size + 1)
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            sliding_window_log(KEYS[1], KEYS[2], tonumber(ARGV[3]), tonumber(ARGV[5]),
+                    tonumber(ARGV[1]), tonumber(ARGV[2]), nil, ARGV[4])
+            """);
 
-            return {allowed, remaining}
-            """;
+    public SlidingWindowLogRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, false);
+    }
 
-    private final RedisCommands<String, String> commands;
+    public SlidingWindowLogRateLimiter(RedisScriptRegistry scripts, boolean migrateLegacyKeys) {
+        super(scripts, "sliding_window_log", SCRIPT, migrateLegacyKeys);
+    }
 
-    public SlidingWindowLogRateLimiter(RedisCommands<String, String> commands) {
-        this.commands = commands;
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.SLIDING_WINDOW_LOG, key);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public RateLimitResult check(String key, RateLimitRule rule) {
-        String redisKey = "rl:swl:" + key;
-        long nowMillis = System.currentTimeMillis();
-        String requestId = nowMillis + ":" + Thread.currentThread().threadId() + ":" + Math.random();
+    protected String legacyKey(String key) {
+        return RedisKeys.legacyPrefix(AlgorithmType.SLIDING_WINDOW_LOG) + key;
+    }
 
-        String[] keys = {redisKey};
-        String[] args = {
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
                 String.valueOf(rule.getMaxRequests()),
-                String.valueOf(rule.getWindowSizeSeconds()),
-                String.valueOf(nowMillis),
-                requestId
+                String.valueOf(rule.getWindowSizeSeconds())
         };
+    }
 
-        List<Long> result = commands.eval(SCRIPT, ScriptOutputType.MULTI, keys, args);
-        long allowed = result.get(0);
-        long remaining = result.get(1);
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        long nowMillis = System.currentTimeMillis();
+        String requestId = nowMillis + ":" + Thread.currentThread().threadId() + ":" + Math.random();
+        String[] limits = compiledArgs(rule);
+        return new String[]{limits[0], limits[1], ScriptArgs.millis(nowMillis), requestId, ScriptArgs.of(permits)};
+    }
+
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        long remaining = reply.get(1);
+        long retryAfter = reply.get(2);
         if (allowed == 1) {
             return RateLimitResult.allowed(remaining);
         } else {
-            return RateLimitResult.denied(rule.getWindowSizeSeconds() * 1000);
+            return RateLimitResult.denied(retryAfter);
         }
     }
 }
@@ -1,79 +1,355 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.model.AlgorithmType;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
-import io.lettuce.core.ScriptOutputType;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.redis.RedisKeys;
+import com.ratelimiter.core.redis.RedisScript;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.redis.ScriptArgs;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
 
 /**
  * Token Bucket algorithm.
  * Tokens are added at a fixed refill rate up to a max capacity.
- * Each request consumes one token. If no tokens are available, the request is denied.
+ * Each request consumes one token, or its permit count. If not enough tokens are
+ * available, the request is denied and consumes nothing.
+ *
+ * <p>Rules with {@code maxLeasedTokens > 0} use leasing: a renewal takes a block of tokens
+ * from the bucket in one script call and the gateway serves them from a local counter until
+ * they run out or the lease TTL elapses. Requests for more than one permit skip the lease
+ * and take their tokens straight from the bucket. The block size follows the key's observed
+ * request rate, so cold keys still cost one call per request while hot keys mostly stay local.
+ * Leased tokens do not count against the bucket's capacity, so the script caps the tokens
+ * outstanding across all gateways at {@code maxLeasedTokens}, which bounds the over-admission.
+ * A gateway's next renewal settles its previous lease: its tokens stop being outstanding and
+ * the unused ones of an expired lease are handed back. Outstanding tokens are counted per
+ * lease TTL, so those of a gateway that never renews are forgotten once its lease has expired.
+ *
+ * <p>A bucket is one string: the token level in thousandths and the last refill second,
+ * packed big-endian as {@code i8 I4}, followed once leasing is used by the tokens outstanding
+ * from leases granted in the current and previous lease TTL and the current TTL's index
+ * ({@code I4 I4 i8}). Each call reads it with one {@code GET} and rewrites it, TTL included,
+ * with one {@code SET}.
  */
-public class TokenBucketRateLimiter implements RateLimiter {
+public class TokenBucketRateLimiter extends AbstractRedisRateLimiter {
 
-    private static final String SCRIPT = """
+    static final String DECIDE = """
+            local function token_bucket(key, legacy, now_ms, permits, capacity, refill_rate)
+                local now = math.floor(now_ms / 1000)
+                local tokens = capacity
+                local last_refill = now
+                local lease = ''
+                local migrated = false
+                local raw = redis.call('get', key)
+                if raw then
+                    local milli
+                    milli, last_refill = struct.unpack('>i8I4', raw)
+                    tokens = milli / 1000
+                    lease = string.sub(raw, 13)
+                elseif legacy then
+                    local data = redis.call('hmget', legacy, 'tokens', 'last_refill')
+                    if data[1] then
+                        tokens = tonumber(data[1])
+                        last_refill = tonumber(data[2])
+                        migrated = true
+                    end
+                end
+                local refilled = math.min(capacity, tokens + math.max(0, now - last_refill) * refill_rate)
+                if refilled < permits then
+                    -- refills happen on whole seconds: the first one after which a later call,
+                    -- refilling the stored level in floating point, finds enough tokens
+                    local function fits(at)
+                        return tokens + (at - last_refill) * refill_rate >= permits
+                    end
+                    local at = now + math.max(1, math.ceil((permits - refilled) / refill_rate))
+                    if at - 1 > now and fits(at - 1) then
+                        at = at - 1
+                    elseif not fits(at) then
+                        at = at + 1
+                    end
+                    return false, at * 1000 - now_ms
+                end
+                tokens = refilled - permits
+                return true, math.floor(tokens), function()
+                    redis.call('set', key, struct.pack('>i8I4', math.floor(tokens * 1000 + 0.5), now) .. lease,
+                            'ex', math.ceil(capacity / refill_rate) + 1)
+                    if migrated then
+                        redis.call('del', legacy)
+                    end
+                end
+            end
+            """;
+
+    private static final String SCRIPT = singleKeyScript(DECIDE, """
+            token_bucket(KEYS[1], KEYS[2], tonumber(ARGV[3]), tonumber(ARGV[4]), tonumber(ARGV[1]), tonumber(ARGV[2]))
+            """);
+
+    private static final String LEASE_SCRIPT = """
             local key = KEYS[1]
             local capacity = tonumber(ARGV[1])
             local refill_rate = tonumber(ARGV[2])
-            local now = tonumber(ARGV[3])
+            local now_ms = tonumber(ARGV[3])
+            local requested = tonumber(ARGV[4])
+            local returned = tonumber(ARGV[5])
+            local max_leased = tonumber(ARGV[6])
+            local lease_ttl_ms = tonumber(ARGV[7])
+            local settled = tonumber(ARGV[8])
+            local settled_epoch = math.floor(tonumber(ARGV[9]) / lease_ttl_ms)
+            local now = math.floor(now_ms / 1000)
+            local epoch = math.floor(now_ms / lease_ttl_ms)
 
-            local data = redis.call('hmget', key, 'tokens', 'last_refill')
-            local tokens = tonumber(data[1])
-            local last_refill = tonumber(data[2])
+            local tokens = capacity
+            local last_refill = now
+            local leased = 0
+            local leased_before = 0
+            local leased_epoch = epoch
+            local raw = redis.call('get', key)
+            if raw then
+                local milli
+                if #raw >= 28 then
+                    milli, last_refill, leased, leased_before, leased_epoch = struct.unpack('>i8I4I4I4i8', raw)
+                else
+                    milli, last_refill = struct.unpack('>i8I4', raw)
+                end
+                tokens = milli / 1000
+            elseif KEYS[2] then
+                local data = redis.call('hmget', KEYS[2], 'tokens', 'last_refill')
+                if data[1] then
+                    tokens = tonumber(data[1])
+                    last_refill = tonumber(data[2])
+                    redis.call('del', KEYS[2])
+                end
+            end
+
+            -- A lease lasts one TTL, so those granted before the previous epoch have expired.
+            if epoch > leased_epoch + 1 then
+                leased_before = 0
+                leased = 0
+                leased_epoch = epoch
+            elseif epoch == leased_epoch + 1 then
+                leased_before = leased
+                leased = 0
+                leased_epoch = epoch
+            end
 
-            if tokens == nil then
-                tokens = capacity
-                last_refill = now
+            -- The gateway's previous lease is over: none of its tokens are outstanding any
+            -- more and its unused ones go back to the bucket, unless it is no longer tracked.
+            local credit = 0
+            if settled_epoch == leased_epoch then
+                leased = math.max(0, leased - settled)
+                credit = returned
+            elseif settled_epoch == leased_epoch - 1 then
+                leased_before = math.max(0, leased_before - settled)
+                credit = returned
             end
 
             local elapsed = math.max(0, now - last_refill)
-            tokens = math.min(capacity, tokens + elapsed * refill_rate)
+            tokens = math.min(capacity, tokens + elapsed * refill_rate + credit)
             last_refill = now
 
-            local allowed = 0
-            local remaining = 0
+            local granted = 0
+            local retry_after = 0
 
-            if tokens >= 1 then
-                tokens = tokens - 1
-                allowed = 1
-                remaining = math.floor(tokens)
+            if requested > 0 and tokens >= 1 then
+                granted = math.min(math.floor(tokens), requested,
+                        1 + math.max(0, max_leased - leased - leased_before))
+                tokens = tokens - granted
+                leased = leased + granted - 1
+            elseif requested > 0 then
+                local stored = math.floor(tokens * 1000 + 0.5) / 1000
+                local at = now + math.max(1, math.ceil((1 - stored) / refill_rate))
+                if stored + (at - now) * refill_rate < 1 then
+                    at = at + 1
+                end
+                retry_after = at * 1000 - now_ms
             end
 
-            redis.call('hmset', key, 'tokens', tokens, 'last_refill', last_refill)
-            redis.call('expire', key, math.ceil(capacity / refill_rate) + 1)
+            redis.call('set', key,
+                    struct.pack('>i8I4I4I4i8', math.floor(tokens * 1000 + 0.5), last_refill,
+                            leased, leased_before, leased_epoch),
+                    'ex', math.max(math.ceil(capacity / refill_rate), math.ceil(2 * lease_ttl_ms / 1000)) + 1)
 
-            return {allowed, remaining}
+            return {granted, math.floor(tokens), retry_after}
             """;
 
-    private final RedisCommands<String, String> commands;
+    private static final Duration DEFAULT_LEASE_TTL = Duration.ofSeconds(1);
+
+    private final RedisScriptRegistry scripts;
+    private final RedisScript leaseScript;
+    private final long leaseTtlMillis;
+    private final LongSupplier clock;
+    private final Map<String, TokenLease> leases = new ConcurrentHashMap<>();
+    private volatile long nextSweepAtMillis;
+
+    public TokenBucketRateLimiter(RedisScriptRegistry scripts) {
+        this(scripts, DEFAULT_LEASE_TTL);
+    }
+
+    public TokenBucketRateLimiter(RedisScriptRegistry scripts, Duration leaseTtl) {
+        this(scripts, leaseTtl, false);
+    }
+
+    /**
+     * Creates a limiter that, with {@code migrateLegacyKeys}, takes over buckets still kept
+     * in the hashes of the previous layout.
+     */
+    public TokenBucketRateLimiter(RedisScriptRegistry scripts, Duration leaseTtl, boolean migrateLegacyKeys) {
+        this(scripts, leaseTtl, System::currentTimeMillis, migrateLegacyKeys);
+    }
+
+    TokenBucketRateLimiter(RedisScriptRegistry scripts, Duration leaseTtl, LongSupplier clock) {
+        this(scripts, leaseTtl, clock, false);
+    }
 
-    public TokenBucketRateLimiter(RedisCommands<String, String> commands) {
-        this.commands = commands;
+    TokenBucketRateLimiter(RedisScriptRegistry scripts, Duration leaseTtl, LongSupplier clock,
+                           boolean migrateLegacyKeys) {
+        super(scripts, "token_bucket", SCRIPT, migrateLegacyKeys);
+        this.scripts = scripts;
+        this.leaseScript = scripts.register("token_bucket_lease", LEASE_SCRIPT);
+        this.leaseTtlMillis = leaseTtl.toMillis();
+        this.clock = clock;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public RateLimitResult check(String key, RateLimitRule rule) {
-        String redisKey = "rl:tb:" + key;
-        long nowSeconds = System.currentTimeMillis() / 1000;
+    public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+        if (rule.getMaxLeasedTokens() <= 0 || permits != 1) {
+            return super.check(key, rule, permits);
+        }
+        long now = clock.getAsLong();
+        TokenLease lease = lease(key, now);
+        long left = lease.tryTake(now);
+        if (left >= 0) {
+            return RateLimitResult.allowed(left + lease.bucketRemaining());
+        }
+        TokenLease.Renewal renewal = lease.beginRenewal(rule, now, leaseTtlMillis);
+        List<Object> reply;
+        try {
+            reply = scripts.eval(leaseScript, keys(key), leaseArgs(rule, now, renewal));
+        } catch (RuntimeException e) {
+            lease.abort(renewal);
+            throw e;
+        }
+        return toLeaseResult(toLongs(reply), lease, rule, now);
+    }
 
-        String[] keys = {redisKey};
-        String[] args = {
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        if (rule.getMaxLeasedTokens() <= 0 || permits != 1) {
+            return super.isAllowed(key, rule, permits);
+        }
+        return Mono.defer(() -> {
+            long now = clock.getAsLong();
+            TokenLease lease = lease(key, now);
+            long left = lease.tryTake(now);
+            if (left >= 0) {
+                return Mono.just(RateLimitResult.allowed(left + lease.bucketRemaining()));
+            }
+            TokenLease.Renewal renewal = lease.beginRenewal(rule, now, leaseTtlMillis);
+            return scripts.evalReactive(leaseScript, keys(key), leaseArgs(rule, now, renewal))
+                    .collectList()
+                    .doOnError(e -> lease.abort(renewal))
+                    .doOnCancel(() -> lease.abort(renewal))
+                    .map(reply -> toLeaseResult(toLongs(reply), lease, rule, now));
+        });
+    }
+
+    /**
+     * Hands every token still leased back to Redis, e.g. on shutdown, so other
+     * gateways do not have to wait for the leases to expire.
+     */
+    public void releaseLeases() {
+        long now = clock.getAsLong();
+        for (Map.Entry<String, TokenLease> entry : leases.entrySet()) {
+            TokenLease lease = entry.getValue();
+            TokenLease.Renewal release = lease.release();
+            if (release.settled() > 0) {
+                scripts.eval(leaseScript, keys(entry.getKey()), leaseArgs(lease.rule(), now, release));
+            }
+        }
+        leases.clear();
+    }
+
+    /**
+     * Number of keys currently holding a lease.
+     */
+    public int getLeaseCount() {
+        return leases.size();
+    }
+
+    private TokenLease lease(String key, long now) {
+        if (now >= nextSweepAtMillis) {
+            nextSweepAtMillis = now + 10 * leaseTtlMillis;
+            leases.values().removeIf(lease -> lease.isIdle(now, leaseTtlMillis));
+        }
+        return leases.computeIfAbsent(key, k -> new TokenLease(now));
+    }
+
+    private String[] leaseArgs(RateLimitRule rule, long now, TokenLease.Renewal renewal) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{
+                limits[0],
+                limits[1],
+                String.valueOf(now),
+                String.valueOf(renewal.requested()),
+                String.valueOf(renewal.returned()),
+                String.valueOf(rule.getMaxLeasedTokens()),
+                String.valueOf(leaseTtlMillis),
+                String.valueOf(renewal.settled()),
+                String.valueOf(renewal.settledGrantMillis())
+        };
+    }
+
+    private RateLimitResult toLeaseResult(List<Long> reply, TokenLease lease, RateLimitRule rule, long now) {
+        long granted = reply.get(0);
+        long bucketRemaining = reply.get(1);
+        if (granted > 0) {
+            long left = lease.grant(granted, bucketRemaining, now, leaseTtlMillis);
+            return RateLimitResult.allowed(left + bucketRemaining);
+        }
+        return RateLimitResult.denied(reply.get(2));
+    }
+
+    @Override
+    protected String redisKey(String key) {
+        return RedisKeys.tagged(RedisKeys.TOKEN_BUCKET, key);
+    }
+
+    @Override
+    protected String legacyKey(String key) {
+        return RedisKeys.legacyPrefix(AlgorithmType.TOKEN_BUCKET) + key;
+    }
+
+    @Override
+    protected String[] ruleArgs(RateLimitRule rule) {
+        return new String[]{
                 String.valueOf(rule.getBucketCapacity()),
-                String.valueOf(rule.getRefillRate()),
-                String.valueOf(nowSeconds)
+                String.valueOf(rule.getRefillRate())
         };
+    }
+
+    @Override
+    protected String[] args(RateLimitRule rule, long permits) {
+        String[] limits = compiledArgs(rule);
+        return new String[]{
+                limits[0], limits[1], ScriptArgs.millis(System.currentTimeMillis()), ScriptArgs.of(permits)
+        };
+    }
 
-        List<Long> result = commands.eval(SCRIPT, ScriptOutputType.MULTI, keys, args);
-        long allowed = result.get(0);
-        long remaining = result.get(1);
+    @Override
+    protected RateLimitResult toResult(List<Long> reply, RateLimitRule rule) {
+        long allowed = reply.get(0);
+        long remaining = reply.get(1);
+        long retryAfter = reply.get(2);
         if (allowed == 1) {
             return RateLimitResult.allowed(remaining);
         } else {
-            long retryAfter = (long) (1000.0 / rule.getRefillRate());
             return RateLimitResult.denied(retryAfter);
         }
     }
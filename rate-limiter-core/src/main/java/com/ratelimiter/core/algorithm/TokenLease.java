@@ -0,0 +1,160 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Block of tokens a gateway took from a Redis token bucket for one key.
+ * Tokens are served from an atomic counter until they run out or the lease expires.
+ * The lease also tracks how many requests it served so the next lease can be sized
+ * to the observed request rate, and the tokens Redis still counts as leased to it,
+ * which the next renewal settles.
+ */
+class TokenLease {
+
+    /**
+     * What a renewal or release tells Redis: how many tokens to grant, the unused tokens of
+     * an expired lease to hand back, and the tokens of the previous grant, made at
+     * {@code settledGrantMillis}, that no longer count as leased.
+     */
+    record Renewal(long requested, long returned, long settled, long settledGrantMillis) {
+    }
+
+    private static final Grant NO_GRANT = new Grant(0, 0);
+
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicReference<Grant> unsettled = new AtomicReference<>(NO_GRANT);
+    private volatile long expiresAtMillis;
+    private volatile long renewedAtMillis;
+    private volatile double ratePerSecond;
+    private volatile long bucketRemaining;
+    private volatile RateLimitRule rule;
+
+    TokenLease(long nowMillis) {
+        this.renewedAtMillis = nowMillis;
+    }
+
+    /**
+     * Takes one leased token, returning the tokens left in the lease or -1 when the
+     * lease is empty or expired.
+     */
+    long tryTake(long nowMillis) {
+        if (nowMillis >= expiresAtMillis) {
+            return -1;
+        }
+        while (true) {
+            long current = tokens.get();
+            if (current <= 0) {
+                return -1;
+            }
+            if (tokens.compareAndSet(current, current - 1)) {
+                served.incrementAndGet();
+                return current - 1;
+            }
+        }
+    }
+
+    /**
+     * Takes back the tokens of an expired lease so they can be returned to the bucket.
+     */
+    long reclaimExpired(long nowMillis) {
+        if (nowMillis < expiresAtMillis) {
+            return 0;
+        }
+        return tokens.getAndSet(0);
+    }
+
+    /**
+     * Starts a renewal, taking the unused tokens of an expired lease and the previous grant
+     * out of the lease. They are only handed back by the script call, so a call that fails
+     * must {@link #abort} the renewal to keep them.
+     */
+    Renewal beginRenewal(RateLimitRule rule, long nowMillis, long leaseTtlMillis) {
+        long returned = reclaimExpired(nowMillis);
+        Grant previous = unsettled.getAndSet(NO_GRANT);
+        long requested = nextSize(rule, nowMillis, leaseTtlMillis);
+        return new Renewal(requested, returned, previous.tokens, previous.atMillis);
+    }
+
+    /**
+     * Hands back every token still held, expired or not, and settles the last grant.
+     */
+    Renewal release() {
+        Grant previous = unsettled.getAndSet(NO_GRANT);
+        return new Renewal(0, tokens.getAndSet(0), previous.tokens, previous.atMillis);
+    }
+
+    /**
+     * Puts back what a renewal whose script call failed took out of the lease. Returned
+     * tokens stay unusable if the lease has expired and go back with the next renewal.
+     * A call that timed out after Redis ran it hands them back twice, at most a lease's
+     * worth, which the bucket's capacity bounds.
+     */
+    void abort(Renewal renewal) {
+        tokens.addAndGet(renewal.returned());
+        if (renewal.settled() > 0) {
+            unsettled.accumulateAndGet(new Grant(renewal.settled(), renewal.settledGrantMillis()), Grant::merge);
+        }
+    }
+
+    /**
+     * Number of tokens to ask for on the next renewal: the tokens this key is expected
+     * to use during one lease TTL, plus the one the renewing request consumes itself.
+     * The rate is an exponentially weighted average of the rate seen by past leases.
+     */
+    long nextSize(RateLimitRule rule, long nowMillis, long leaseTtlMillis) {
+        this.rule = rule;
+        long elapsed = Math.max(1, nowMillis - renewedAtMillis);
+        double observed = served.getAndSet(0) * 1000.0 / elapsed;
+        double rate = ratePerSecond == 0 ? observed : (ratePerSecond + observed) / 2;
+        ratePerSecond = rate;
+        renewedAtMillis = nowMillis;
+        long expected = (long) Math.ceil(rate * leaseTtlMillis / 1000.0);
+        return 1 + Math.min(expected, rule.getMaxLeasedTokens());
+    }
+
+    /**
+     * Adds the tokens granted by a renewal, except the one consumed by the renewing request.
+     * Redis counts them as leased until the next renewal settles them.
+     */
+    long grant(long granted, long bucketRemaining, long nowMillis, long leaseTtlMillis) {
+        served.incrementAndGet();
+        this.bucketRemaining = bucketRemaining;
+        if (granted > 1) {
+            unsettled.accumulateAndGet(new Grant(granted - 1, nowMillis), Grant::merge);
+            expiresAtMillis = nowMillis + leaseTtlMillis;
+            return tokens.addAndGet(granted - 1);
+        }
+        return tokens.get();
+    }
+
+    /**
+     * Rule the last renewal was made for, needed to hand unused tokens back.
+     */
+    RateLimitRule rule() {
+        return rule;
+    }
+
+    long bucketRemaining() {
+        return bucketRemaining;
+    }
+
+    boolean isIdle(long nowMillis, long leaseTtlMillis) {
+        return nowMillis >= expiresAtMillis + leaseTtlMillis;
+    }
+
+    /**
+     * Tokens granted to this gateway and not yet settled, with the time of the latest grant.
+     * Concurrent renewals add up; Redis stops counting tokens of a grant made before the
+     * previous lease TTL on its own, so attributing them to the later grant loses nothing.
+     */
+    private record Grant(long tokens, long atMillis) {
+
+        Grant merge(Grant other) {
+            return new Grant(tokens + other.tokens, Math.max(atMillis, other.atMillis));
+        }
+    }
+}
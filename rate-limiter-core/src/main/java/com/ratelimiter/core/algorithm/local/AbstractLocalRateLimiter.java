@@ -0,0 +1,53 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import reactor.core.publisher.Mono;
+
+/**
+ * Base class for the in-process limiters. Each one reproduces the decision of the
+ * matching Redis Lua script against lock-free per-key state, so the two backends
+ * are interchangeable. Decisions are pure CPU work and run on the caller's thread.
+ */
+abstract class AbstractLocalRateLimiter<S extends LocalState> implements RateLimiter {
+
+    private final LocalStateStore store;
+    private final LocalStateMap<S> states;
+
+    AbstractLocalRateLimiter(LocalStateStore store) {
+        this.store = store;
+        this.states = store.newStateMap();
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule) {
+        return check(key, rule, 1);
+    }
+
+    @Override
+    public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+        return decide(key, rule, store.currentTimeMillis(), permits, true);
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule) {
+        return Mono.fromSupplier(() -> check(key, rule));
+    }
+
+    @Override
+    public Mono<RateLimitResult> isAllowed(String key, RateLimitRule rule, long permits) {
+        return Mono.fromSupplier(() -> check(key, rule, permits));
+    }
+
+    /**
+     * Decides a request for {@code permits} at {@code nowMillis}. Without {@code consume} the
+     * key's state is left untouched and the result is what a consuming call would return at
+     * that instant.
+     */
+    abstract RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume);
+
+    LocalStateMap<S> states() {
+        return states;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ratelimiter.core.algorithm.local;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring of sub-window counters for the bucketed sliding window, one slot more than the
+ * window has buckets so the bucket sliding out is still there to be weighted. Slots are
+ * addressed by the bucket number modulo the ring size and hold a {@link PackedState}-style
+ * word: request count above, the low 32 bits of the bucket number below.
+ */
+final class BucketRingState extends LocalState {
+
+    private final AtomicLongArray slots;
+
+    BucketRingState(int buckets) {
+        this.slots = new AtomicLongArray(buckets + 1);
+    }
+
+    int buckets() {
+        return slots.length() - 1;
+    }
+
+    int slotOf(long bucket) {
+        return (int) Math.floorMod(bucket, slots.length());
+    }
+
+    long get(int slot) {
+        return slots.get(slot);
+    }
+
+    boolean compareAndSet(int slot, long expected, long next) {
+        return slots.compareAndSet(slot, expected, next);
+    }
+
+    static long pack(long count, long bucket) {
+        return PackedState.pack((int) count, bucket);
+    }
+
+    static long count(long packed, long bucket) {
+        if (packed == PackedState.EMPTY || PackedState.seconds(packed) != (bucket & 0xFFFFFFFFL)) {
+            return 0;
+        }
+        return PackedState.payload(packed);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.algorithm.BucketedSlidingWindowRateLimiter;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process Bucketed Sliding Window, equivalent to {@code BucketedSlidingWindowRateLimiter}'s
+ * script. As with the Sliding Window Counter only the current bucket's slot is written, so
+ * a CAS on that slot keeps the count consistent. A rule whose bucket count changes starts
+ * its keys over with an empty ring.
+ */
+public class LocalBucketedSlidingWindowRateLimiter extends AbstractLocalRateLimiter<BucketRingState> {
+
+    public LocalBucketedSlidingWindowRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long limit = rule.getMaxRequests();
+        int buckets = BucketedSlidingWindowRateLimiter.bucketCount(rule);
+        long bucketMillis = BucketedSlidingWindowRateLimiter.bucketMillis(rule);
+        long current = nowMillis / bucketMillis;
+        long oldest = current - buckets;
+        long elapsed = nowMillis - current * bucketMillis;
+        BucketRingState state = states().get(key, k -> new BucketRingState(buckets));
+        if (state.buckets() != buckets) {
+            state = states().replace(key, state, new BucketRingState(buckets));
+        }
+        int currentSlot = state.slotOf(current);
+
+        while (true) {
+            long word = state.get(currentSlot);
+            long currentCount = BucketRingState.count(word, current);
+            long count = currentCount;
+            for (long bucket = oldest; bucket < current; bucket++) {
+                count += BucketRingState.count(state.get(state.slotOf(bucket)), bucket);
+            }
+
+            if (count + permits > limit) {
+                return RateLimitResult.denied(permits > limit
+                        ? bucketMillis - elapsed
+                        : slidOutAt(state, count, limit, permits, oldest, buckets, bucketMillis) - nowMillis);
+            }
+            if (!consume) {
+                return RateLimitResult.allowed(limit - count - permits);
+            }
+            if (state.compareAndSet(currentSlot, word, BucketRingState.pack(currentCount + permits, current))) {
+                state.touch(nowMillis, bucketMillis * (buckets + 1));
+                return RateLimitResult.allowed(limit - count - permits);
+            }
+        }
+    }
+
+    /**
+     * When enough of the oldest buckets have slid out of the window to admit {@code permits}:
+     * bucket {@code b} leaves it at the start of bucket {@code b + buckets + 1}.
+     */
+    private static long slidOutAt(BucketRingState state, long count, long limit, long permits, long oldest,
+                                  int buckets, long bucketMillis) {
+        long left = count;
+        long bucket = oldest;
+        while (true) {
+            left -= BucketRingState.count(state.get(state.slotOf(bucket)), bucket);
+            if (left + permits <= limit) {
+                return (bucket + buckets + 1) * bucketMillis;
+            }
+            bucket++;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process Fixed Window, equivalent to {@code FixedWindowRateLimiter}'s script.
+ * The request count and the window start second share one CAS-updated word; a new
+ * window simply overwrites the previous one.
+ */
+public class LocalFixedWindowRateLimiter extends AbstractLocalRateLimiter<PackedState> {
+
+    public LocalFixedWindowRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long now = nowMillis / 1000;
+        long limit = rule.getMaxRequests();
+        long windowSize = rule.getWindowSizeSeconds();
+        long windowStart = now - (now % windowSize);
+        long retryAfter = (windowStart + windowSize) * 1000 - nowMillis;
+        PackedState state = states().get(key, k -> new PackedState());
+
+        while (true) {
+            long current = state.get();
+            long count = 0;
+            if (current != PackedState.EMPTY && PackedState.seconds(current) == windowStart) {
+                count = PackedState.payload(current);
+            }
+            if (count + permits > limit) {
+                return RateLimitResult.denied(retryAfter);
+            }
+            if (!consume) {
+                return RateLimitResult.allowed(limit - count - permits);
+            }
+            if (state.compareAndSet(current, PackedState.pack((int) (count + permits), windowStart))) {
+                state.touch(nowMillis, (windowSize + 1) * 1000);
+                return RateLimitResult.allowed(limit - count - permits);
+            }
+        }
+    }
+}
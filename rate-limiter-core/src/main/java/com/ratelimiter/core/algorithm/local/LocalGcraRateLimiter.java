@@ -0,0 +1,40 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process GCRA, equivalent to {@code GcraRateLimiter}'s script. The theoretical
+ * arrival time in epoch microseconds is the whole CAS-updated word, unpacked.
+ */
+public class LocalGcraRateLimiter extends AbstractLocalRateLimiter<PackedState> {
+
+    public LocalGcraRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long now = nowMillis * 1000;
+        long interval = Math.max(1, Math.round(1_000_000 / rule.getRefillRate()));
+        long burst = rule.getBucketCapacity();
+        PackedState state = states().get(key, k -> new PackedState());
+
+        while (true) {
+            long current = state.get();
+            long tat = Math.max(current, now);
+            long newTat = tat + interval * permits;
+            long allowAt = newTat - burst * interval;
+            if (now < allowAt) {
+                return RateLimitResult.denied((allowAt - now + 999) / 1000);
+            }
+            if (!consume) {
+                return RateLimitResult.allowed((now - allowAt) / interval);
+            }
+            if (state.compareAndSet(current, newTat)) {
+                state.touch(nowMillis, (newTat - now + 999) / 1000);
+                return RateLimitResult.allowed((now - allowAt) / interval);
+            }
+        }
+    }
+}
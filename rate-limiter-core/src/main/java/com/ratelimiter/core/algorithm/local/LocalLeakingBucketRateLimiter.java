@@ -0,0 +1,74 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process Leaking Bucket, equivalent to {@code LeakingBucketRateLimiter}'s script.
+ * The water level, in thousandths like the script's, and the last leak second share one
+ * CAS-updated word.
+ */
+public class LocalLeakingBucketRateLimiter extends AbstractLocalRateLimiter<PackedState> {
+
+    public LocalLeakingBucketRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long now = nowMillis / 1000;
+        double capacity = rule.getBucketCapacity();
+        double leakRate = rule.getLeakRate();
+        // admission needs water + permits - 1 < capacity, so an admitted level stays under
+        // capacity + 1; the packed level is sized for that, not for capacity
+        long units = PackedState.unitsPerToken(capacity + 1);
+        PackedState state = states().get(key, k -> new PackedState());
+
+        while (true) {
+            long current = state.get();
+            double stored = 0;
+            long lastLeak = now;
+            if (current != PackedState.EMPTY) {
+                stored = PackedState.level(current, units);
+                lastLeak = PackedState.seconds(current);
+            }
+
+            long elapsed = Math.max(0, now - lastLeak);
+            double water = Math.max(0, stored - elapsed * leakRate);
+
+            // like the script: the call is admitted while the bucket is not yet full before its last
+            // permit, so from empty, or any level under one, exactly capacity single permits fit
+            if (water + permits - 1 >= capacity) {
+                // like the script, a denial leaves the bucket as it is
+                long leakedAt = leakedAt(stored, lastLeak, water, capacity, permits, leakRate, now);
+                return RateLimitResult.denied(leakedAt - nowMillis);
+            }
+            water = water + permits;
+            RateLimitResult result = RateLimitResult.allowed((long) Math.floor(capacity - water));
+
+            if (!consume) {
+                return result;
+            }
+            if (state.compareAndSet(current, PackedState.packLevel(water, units, now))) {
+                state.touch(nowMillis, ((long) Math.ceil(capacity / leakRate) + 1) * 1000);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * The first whole second, in epoch millis, after which a later call leaking the
+     * {@code stored} level from second {@code since} finds room for {@code permits}, as the
+     * script computes it; {@code water} is the level leaked to now.
+     */
+    private static long leakedAt(double stored, long since, double water, double capacity, long permits,
+                                 double leakRate, long now) {
+        long at = now + (long) Math.floor((water + permits - 1 - capacity) / leakRate) + 1;
+        if (at - 1 > now && Math.max(0, stored - (at - 1 - since) * leakRate) + permits - 1 < capacity) {
+            at--;
+        } else if (Math.max(0, stored - (at - since) * leakRate) + permits - 1 >= capacity) {
+            at++;
+        }
+        return at * 1000;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process counterpart of {@code RedisRuleSetRateLimiter}. Holding the locks of all its
+ * layer keys, a request first decides every layer without consuming and, if all admit it,
+ * consumes. Layer keys are only ever touched under their locks, so the two passes see the
+ * same state. Locks are striped by key and taken in stripe order: requests of different
+ * clients proceed in parallel unless they share a layer key, such as a global layer's.
+ * They are {@link ReentrantLock}s, so a virtual thread waiting for one does not pin its
+ * carrier.
+ */
+public class LocalRuleSetRateLimiter implements RuleSetRateLimiter {
+
+    private static final int STRIPES = 256;
+
+    private final LocalStateStore store;
+    private final Map<AlgorithmType, AbstractLocalRateLimiter<?>> limiters = new EnumMap<>(AlgorithmType.class);
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public LocalRuleSetRateLimiter(LocalStateStore store) {
+        this.store = store;
+        limiters.put(AlgorithmType.TOKEN_BUCKET, new LocalTokenBucketRateLimiter(store));
+        limiters.put(AlgorithmType.LEAKING_BUCKET, new LocalLeakingBucketRateLimiter(store));
+        limiters.put(AlgorithmType.FIXED_WINDOW, new LocalFixedWindowRateLimiter(store));
+        limiters.put(AlgorithmType.SLIDING_WINDOW_LOG, new LocalSlidingWindowLogRateLimiter(store));
+        limiters.put(AlgorithmType.SLIDING_WINDOW_COUNTER, new LocalSlidingWindowCounterRateLimiter(store));
+        limiters.put(AlgorithmType.GCRA, new LocalGcraRateLimiter(store));
+        limiters.put(AlgorithmType.SLIDING_WINDOW_BUCKETS, new LocalBucketedSlidingWindowRateLimiter(store));
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public RuleSetResult check(List<String> keys, RateLimitRule rule, long permits) {
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(rule);
+        RuleSetRateLimiter.checkKeys(keys, layers);
+        String[] layerKeys = new String[layers.size()];
+        for (int i = 0; i < layerKeys.length; i++) {
+            layerKeys[i] = RuleSetRateLimiter.layerKey(rule, layers.get(i), keys.get(i));
+        }
+        int[] stripes = stripes(layerKeys);
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            long nowMillis = store.currentTimeMillis();
+            for (int i = 0; i < layerKeys.length; i++) {
+                RateLimitRule layer = layers.get(i);
+                AbstractLocalRateLimiter<?> limiter = limiters.get(layer.getAlgorithm());
+                RateLimitResult result = limiter.decide(layerKeys[i], layer, nowMillis, permits, false);
+                if (!result.allowed()) {
+                    return new RuleSetResult(result, layer);
+                }
+            }
+            RuleSetResult tightest = null;
+            for (int i = 0; i < layerKeys.length; i++) {
+                RateLimitRule layer = layers.get(i);
+                AbstractLocalRateLimiter<?> limiter = limiters.get(layer.getAlgorithm());
+                RateLimitResult result = limiter.decide(layerKeys[i], layer, nowMillis, permits, true);
+                if (tightest == null || result.remaining() < tightest.result().remaining()) {
+                    tightest = new RuleSetResult(result, layer);
+                }
+            }
+            return tightest;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * The distinct stripes of the keys in ascending order, the order they are locked in.
+     */
+    private static int[] stripes(String[] keys) {
+        int[] stripes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int hash = keys[i].hashCode();
+            stripes[i] = (hash ^ (hash >>> 16)) & (STRIPES - 1);
+        }
+        Arrays.sort(stripes);
+        int distinct = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        return distinct == stripes.length ? stripes : Arrays.copyOf(stripes, distinct);
+    }
+
+    @Override
+    public Mono<RuleSetResult> isAllowed(List<String> keys, RateLimitRule rule, long permits) {
+        return Mono.fromSupplier(() -> check(keys, rule, permits));
+    }
+}
@@ -0,0 +1,88 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process Sliding Window Counter, equivalent to {@code SlidingWindowCounterRateLimiter}'s
+ * script. Only the current window's slot is written, so a CAS on that slot is enough to
+ * keep the weighted count consistent.
+ */
+public class LocalSlidingWindowCounterRateLimiter extends AbstractLocalRateLimiter<WindowPairState> {
+
+    public LocalSlidingWindowCounterRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long now = nowMillis / 1000;
+        long limit = rule.getMaxRequests();
+        long windowSize = rule.getWindowSizeSeconds();
+        long currentWindow = now - (now % windowSize);
+        long previousWindow = currentWindow - windowSize;
+        int currentSlot = WindowPairState.slotOf(currentWindow, windowSize);
+        int previousSlot = currentSlot ^ 1;
+        double weight = 1 - ((double) (now - currentWindow) / windowSize);
+        WindowPairState state = states().get(key, k -> new WindowPairState());
+
+        while (true) {
+            long current = state.get(currentSlot);
+            long currentCount = WindowPairState.count(current, currentWindow);
+            long previousCount = WindowPairState.count(state.get(previousSlot), previousWindow);
+            long weightedCount = (long) Math.floor(previousCount * weight + currentCount);
+
+            if (weightedCount + permits > limit) {
+                long admitAt = admittedAt(currentCount, previousCount, limit, permits, currentWindow, windowSize, now);
+                return RateLimitResult.denied(admitAt * 1000 - nowMillis);
+            }
+            if (!consume) {
+                return RateLimitResult.allowed(limit - weightedCount - permits);
+            }
+            long next = PackedState.pack((int) (currentCount + permits), currentWindow);
+            if (state.compareAndSet(currentSlot, current, next)) {
+                state.touch(nowMillis, (windowSize * 2 + 1) * 1000);
+                return RateLimitResult.allowed(limit - weightedCount - permits);
+            }
+        }
+    }
+
+    /**
+     * The second a denied request would next be admitted, as the script computes it: in the
+     * current window if the previous one's weight falls far enough before it ends, or else
+     * in the next one, where the current window's count is the one fading out.
+     */
+    static long admittedAt(long currentCount, long previousCount, long limit, long permits,
+                           long currentWindow, long windowSize, long now) {
+        long offset = Math.max(now - currentWindow + 1,
+                admittedAfter(previousCount, currentCount, permits, limit, windowSize));
+        if (offset < windowSize) {
+            return currentWindow + offset;
+        }
+        if (permits > limit) {
+            return currentWindow + windowSize;
+        }
+        return currentWindow + windowSize + admittedAfter(currentCount, 0, permits, limit, windowSize);
+    }
+
+    /**
+     * First second of a window that admits {@code permits} over these counts, or the window
+     * size if none does.
+     */
+    private static long admittedAfter(long previous, long current, long permits, long limit, long windowSize) {
+        long spare = limit - permits - current;
+        if (spare < 0) {
+            return windowSize;
+        }
+        if (previous <= spare) {
+            return 0;
+        }
+        long offset = windowSize * (previous - spare - 1) / previous + 1;
+        // the decision weighs in floating point, which may admit a second sooner
+        double weight = 1 - ((double) (offset - 1) / windowSize);
+        if ((long) Math.floor(previous * weight + current) + permits <= limit) {
+            offset--;
+        }
+        return offset;
+    }
+}
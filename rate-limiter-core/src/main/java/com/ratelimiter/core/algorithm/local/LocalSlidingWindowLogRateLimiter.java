@@ -0,0 +1,46 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process Sliding Window Log, equivalent to {@code SlidingWindowLogRateLimiter}'s script.
+ * Instead of a growing sorted set each key keeps a ring of the last {@code maxRequests}
+ * admission timestamps, which is all the log algorithm ever needs to decide.
+ * A request for several permits claims all its slots in the ring at once, so a denied
+ * request leaves none of its timestamps behind.
+ */
+public class LocalSlidingWindowLogRateLimiter extends AbstractLocalRateLimiter<TimestampRingState> {
+
+    public LocalSlidingWindowLogRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long limit = rule.getMaxRequests();
+        long windowSize = rule.getWindowSizeSeconds();
+        if (limit <= 0) {
+            return RateLimitResult.denied(windowSize * 1000);
+        }
+        int capacity = Math.toIntExact(limit);
+        TimestampRingState state = states().get(key, k -> new TimestampRingState(capacity));
+        if (state.capacity() != capacity) {
+            state = states().replace(key, state, state.resize(capacity));
+        }
+
+        long windowStart = nowMillis - windowSize * 1000;
+        long inWindow = consume
+                ? state.tryAppend(nowMillis, windowStart, permits)
+                : state.peek(windowStart, permits);
+        if (consume) {
+            state.touch(nowMillis, (windowSize + 1) * 1000);
+        }
+        if (inWindow == TimestampRingState.FULL) {
+            return RateLimitResult.denied(permits > limit
+                    ? windowSize * 1000
+                    : state.newestOverwritten(nowMillis, permits) + windowSize * 1000 - nowMillis);
+        }
+        return RateLimitResult.allowed(limit - inWindow - permits);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ratelimiter.core.algorithm.local;
+
+/**
+ * Per-key state held by an in-process limiter. Mirrors the Redis key TTL: every
+ * access pushes the expiry forward and the store sweeps states that stayed idle.
+ */
+abstract class LocalState {
+
+    private volatile long expiresAtMillis;
+
+    void touch(long nowMillis, long ttlMillis) {
+        expiresAtMillis = nowMillis + ttlMillis;
+    }
+
+    boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
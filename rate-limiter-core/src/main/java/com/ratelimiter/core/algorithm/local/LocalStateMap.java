@@ -0,0 +1,46 @@
+package com.ratelimiter.core.algorithm.local;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Concurrent map of per-key states for one limiter.
+ */
+final class LocalStateMap<S extends LocalState> {
+
+    private final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+
+    S get(String key, Function<String, S> factory) {
+        S state = states.get(key);
+        if (state == null) {
+            state = states.computeIfAbsent(key, factory);
+        }
+        return state;
+    }
+
+    /**
+     * Replaces a state that can no longer serve the current rule, for example a log
+     * ring sized for a different limit.
+     */
+    S replace(String key, S expected, S replacement) {
+        if (states.replace(key, expected, replacement)) {
+            return replacement;
+        }
+        return states.computeIfAbsent(key, k -> replacement);
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    int evictExpired(long nowMillis) {
+        int evicted = 0;
+        for (Map.Entry<String, S> entry : states.entrySet()) {
+            if (entry.getValue().isExpired(nowMillis) && states.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
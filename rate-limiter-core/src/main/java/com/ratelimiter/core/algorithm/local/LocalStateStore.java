@@ -0,0 +1,80 @@
+package com.ratelimiter.core.algorithm.local;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Owns the per-key state of the in-process limiters and the clock they read.
+ * A single daemon thread periodically drops states whose TTL elapsed, mirroring
+ * the key expiry the Redis scripts rely on.
+ */
+public class LocalStateStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalStateStore.class);
+    private static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofSeconds(10);
+
+    private final LongSupplier clock;
+    private final List<LocalStateMap<?>> maps = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sweeper;
+
+    public LocalStateStore() {
+        this(System::currentTimeMillis, DEFAULT_SWEEP_INTERVAL);
+    }
+
+    public LocalStateStore(LongSupplier clock, Duration sweepInterval) {
+        this.clock = clock;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-rate-limiter-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::evictExpired, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public long currentTimeMillis() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Number of keys currently tracked across all in-process limiters.
+     */
+    public int size() {
+        int size = 0;
+        for (LocalStateMap<?> map : maps) {
+            size += map.size();
+        }
+        return size;
+    }
+
+    public int evictExpired() {
+        long now = currentTimeMillis();
+        int evicted = 0;
+        for (LocalStateMap<?> map : maps) {
+            evicted += map.evictExpired(now);
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle local rate limit keys", evicted);
+        }
+        return evicted;
+    }
+
+    <S extends LocalState> LocalStateMap<S> newStateMap() {
+        LocalStateMap<S> map = new LocalStateMap<>();
+        maps.add(map);
+        return map;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
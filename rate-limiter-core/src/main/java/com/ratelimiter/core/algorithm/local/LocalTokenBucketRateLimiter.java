@@ -0,0 +1,70 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+
+/**
+ * In-process Token Bucket, equivalent to {@code TokenBucketRateLimiter}'s script.
+ * The token level, in thousandths like the script's, and the last refill second share one
+ * CAS-updated word.
+ */
+public class LocalTokenBucketRateLimiter extends AbstractLocalRateLimiter<PackedState> {
+
+    public LocalTokenBucketRateLimiter(LocalStateStore store) {
+        super(store);
+    }
+
+    @Override
+    RateLimitResult decide(String key, RateLimitRule rule, long nowMillis, long permits, boolean consume) {
+        long now = nowMillis / 1000;
+        double capacity = rule.getBucketCapacity();
+        double refillRate = rule.getRefillRate();
+        long units = PackedState.unitsPerToken(capacity);
+        PackedState state = states().get(key, k -> new PackedState());
+
+        while (true) {
+            long current = state.get();
+            double stored = capacity;
+            long lastRefill = now;
+            if (current != PackedState.EMPTY) {
+                stored = PackedState.level(current, units);
+                lastRefill = PackedState.seconds(current);
+            }
+
+            long elapsed = Math.max(0, now - lastRefill);
+            double tokens = Math.min(capacity, stored + elapsed * refillRate);
+
+            if (tokens < permits) {
+                // like the script, a denial leaves the bucket as it is
+                long refilledAt = refilledAt(stored, lastRefill, tokens, permits, refillRate, now);
+                return RateLimitResult.denied(refilledAt - nowMillis);
+            }
+            tokens = tokens - permits;
+            RateLimitResult result = RateLimitResult.allowed((long) Math.floor(tokens));
+
+            if (!consume) {
+                return result;
+            }
+            if (state.compareAndSet(current, PackedState.packLevel(tokens, units, now))) {
+                state.touch(nowMillis, ((long) Math.ceil(capacity / refillRate) + 1) * 1000);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * The first whole second, in epoch millis, after which a later call refilling the
+     * {@code stored} level from second {@code since} finds {@code permits} tokens, as the
+     * script computes it; {@code tokens} is the level refilled to now.
+     */
+    private static long refilledAt(double stored, long since, double tokens, long permits, double refillRate,
+                                   long now) {
+        long at = now + Math.max(1, (long) Math.ceil((permits - tokens) / refillRate));
+        if (at - 1 > now && stored + (at - 1 - since) * refillRate >= permits) {
+            at--;
+        } else if (stored + (at - since) * refillRate < permits) {
+            at++;
+        }
+        return at * 1000;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ratelimiter.core.algorithm.local;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * State packed into a single 64-bit word and updated with compare-and-set.
+ * The upper half holds a 32-bit payload (token level or request count), the lower
+ * half an unsigned epoch-seconds timestamp (valid until 2106). Zero means "no state yet".
+ * Levels are unsigned fixed-point: in thousandths of a token, rounded like the Redis
+ * scripts' {@code i8} level, so both stores reach the same decisions.
+ */
+final class PackedState extends LocalState {
+
+    static final long EMPTY = 0L;
+
+    /**
+     * Largest level the payload holds, in units.
+     */
+    static final long MAX_LEVEL_UNITS = 0xFFFFFFFFL;
+
+    private static final long MILLI = 1000;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(PackedState.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile long value;
+
+    long get() {
+        return value;
+    }
+
+    boolean compareAndSet(long expected, long next) {
+        return VALUE.compareAndSet(this, expected, next);
+    }
+
+    static long pack(int payload, long epochSeconds) {
+        return ((long) payload << 32) | (epochSeconds & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Fixed-point units per token for levels of up to {@code maxLevel} tokens: thousandths,
+     * unless that would overflow the payload, as above about 4.29 million tokens, in which
+     * case the finest resolution that still fits.
+     */
+    static long unitsPerToken(double maxLevel) {
+        if (maxLevel * MILLI <= MAX_LEVEL_UNITS) {
+            return MILLI;
+        }
+        return Math.max(1, (long) (MAX_LEVEL_UNITS / maxLevel));
+    }
+
+    static long packLevel(double level, long unitsPerToken, long epochSeconds) {
+        long units = Math.min(MAX_LEVEL_UNITS, (long) Math.floor(level * unitsPerToken + 0.5));
+        return pack((int) units, epochSeconds);
+    }
+
+    static int payload(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static double level(long packed, long unitsPerToken) {
+        return Integer.toUnsignedLong(payload(packed)) / (double) unitsPerToken;
+    }
+
+    static long seconds(long packed) {
+        return packed & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,158 @@
+package com.ratelimiter.core.algorithm.local;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free ring holding the timestamps of the last {@code capacity} admitted requests,
+ * the in-process counterpart of the sliding window log ZSET. A request for {@code n}
+ * permits fits in the window when the {@code n} slots it would overwrite, the oldest of
+ * those admissions, have all expired.
+ *
+ * <p>Each slot packs a 22-bit generation (the ring lap that wrote it) above a 42-bit epoch
+ * millisecond timestamp. A writer claims all its slots at once by moving the head past
+ * them with one CAS and then stamps them, so a request is admitted whole or not at all.
+ * A slot claimed but not yet stamped still carries the previous lap's generation; it
+ * counts as inside the window and cannot be overwritten until its writer stamps it.
+ */
+final class TimestampRingState extends LocalState {
+
+    static final int TIMESTAMP_BITS = 42;
+    private static final long TIMESTAMP_MASK = (1L << TIMESTAMP_BITS) - 1;
+    private static final long GENERATION_MASK = (1L << (Long.SIZE - TIMESTAMP_BITS)) - 1;
+
+    /**
+     * Returned by {@link #tryAppend} when the window is already full.
+     */
+    static final long FULL = -1;
+
+    private final int capacity;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray slots;
+
+    TimestampRingState(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicLongArray(capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends {@code permits} copies of {@code nowMillis} if no more than
+     * {@code capacity - permits} timestamps are newer than {@code windowStart}. Returns how
+     * many were in the window before the append, or {@link #FULL} when the request has to
+     * be denied, in which case nothing is appended.
+     */
+    long tryAppend(long nowMillis, long windowStart, long permits) {
+        while (true) {
+            long seq = head.get();
+            if (!fits(seq, windowStart, permits)) {
+                return FULL;
+            }
+            long inWindow = countInWindow(seq, windowStart);
+            if (head.compareAndSet(seq, seq + permits)) {
+                for (long position = seq; position < seq + permits; position++) {
+                    slots.set(index(position), (generation(position) << TIMESTAMP_BITS) | (nowMillis & TIMESTAMP_MASK));
+                }
+                return inWindow;
+            }
+        }
+    }
+
+    /**
+     * What {@link #tryAppend} would return for {@code windowStart}, without appending.
+     */
+    long peek(long windowStart, long permits) {
+        long seq = head.get();
+        return fits(seq, windowStart, permits) ? countInWindow(seq, windowStart) : FULL;
+    }
+
+    /**
+     * Time of the newest admission a request for {@code permits} would overwrite, which
+     * leaves the window last; {@code nowMillis} if it is being admitted right now, or if
+     * the ring has room to spare.
+     */
+    long newestOverwritten(long nowMillis, long permits) {
+        long position = head.get() + permits - 1 - capacity;
+        if (position < 0) {
+            return nowMillis;
+        }
+        long slot = slots.get(index(position));
+        return (slot >>> TIMESTAMP_BITS) != generation(position) ? nowMillis : slot & TIMESTAMP_MASK;
+    }
+
+    /**
+     * Whether the {@code permits} admissions that appending at {@code seq} would overwrite
+     * have all left the window.
+     */
+    private boolean fits(long seq, long windowStart, long permits) {
+        if (permits > capacity) {
+            return false;
+        }
+        for (long position = seq - capacity; position < seq + permits - capacity; position++) {
+            if (position >= 0 && inWindow(position, windowStart)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the most recent timestamps into a ring of a different size, used when the
+     * rule's limit changes.
+     */
+    TimestampRingState resize(int newCapacity) {
+        TimestampRingState resized = new TimestampRingState(newCapacity);
+        long seq = head.get();
+        for (long position = Math.max(0, seq - Math.min(capacity, newCapacity)); position < seq; position++) {
+            resized.append(timestamp(position));
+        }
+        return resized;
+    }
+
+    private void append(long timestamp) {
+        long seq = head.getAndIncrement();
+        slots.set(index(seq), (generation(seq) << TIMESTAMP_BITS) | timestamp);
+    }
+
+    /**
+     * Binary search for the oldest admission still inside the window. Admissions are
+     * appended in time order, so everything after it is inside the window as well.
+     */
+    private long countInWindow(long seq, long windowStart) {
+        long low = Math.max(0, seq - capacity);
+        long high = seq;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (inWindow(mid, windowStart)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return seq - low;
+    }
+
+    /**
+     * Whether the admission at {@code position} is newer than {@code windowStart}; one whose
+     * slot is claimed but not yet stamped is being admitted now.
+     */
+    private boolean inWindow(long position, long windowStart) {
+        long slot = slots.get(index(position));
+        return (slot >>> TIMESTAMP_BITS) != generation(position) || (slot & TIMESTAMP_MASK) > windowStart;
+    }
+
+    private long timestamp(long position) {
+        return slots.get(index(position)) & TIMESTAMP_MASK;
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private long generation(long seq) {
+        return ((seq / capacity) + 1) & GENERATION_MASK;
+    }
+}
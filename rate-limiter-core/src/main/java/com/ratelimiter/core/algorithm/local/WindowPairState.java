@@ -0,0 +1,32 @@
+package com.ratelimiter.core.algorithm.local;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Two window counters addressed by the parity of the window index, so the current
+ * and the previous window of a sliding window counter never share a slot. Each slot
+ * is a {@link PackedState}-style word: request count above, window start second below.
+ */
+final class WindowPairState extends LocalState {
+
+    private final AtomicLongArray slots = new AtomicLongArray(2);
+
+    static int slotOf(long windowStart, long windowSize) {
+        return (int) ((windowStart / windowSize) & 1);
+    }
+
+    long get(int slot) {
+        return slots.get(slot);
+    }
+
+    boolean compareAndSet(int slot, long expected, long next) {
+        return slots.compareAndSet(slot, expected, next);
+    }
+
+    static long count(long packed, long windowStart) {
+        if (packed == PackedState.EMPTY || PackedState.seconds(packed) != windowStart) {
+            return 0;
+        }
+        return PackedState.payload(packed);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ratelimiter.core.autoconfigure;
+
+import com.ratelimiter.core.redis.RedisBatchDispatcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for a {@link RedisBatchDispatcher}, shared by the standalone and cluster setups.
+ */
+public final class BatchDispatcherMetrics {
+
+    private BatchDispatcherMetrics() {
+    }
+
+    public static RedisBatchDispatcher.FlushListener flushListener(MeterRegistry meterRegistry) {
+        DistributionSummary batchSize = DistributionSummary.builder("rate_limiter.redis.batch.size")
+                .description("Number of script calls flushed together")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Timer batchWait = Timer.builder("rate_limiter.redis.batch.wait")
+                .description("Time the oldest call of a batch waited before the flush")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return (size, waitNanos) -> {
+            batchSize.record(size);
+            batchWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        };
+    }
+
+    public static RedisBatchDispatcher bind(RedisBatchDispatcher dispatcher, MeterRegistry meterRegistry) {
+        Gauge.builder("rate_limiter.redis.batch.queued", dispatcher, RedisBatchDispatcher::getQueuedCalls)
+                .description("Script calls waiting for the next batch")
+                .register(meterRegistry);
+        Gauge.builder("rate_limiter.redis.batch.in_flight", dispatcher, RedisBatchDispatcher::getInFlightBatches)
+                .description("Batches awaiting their replies")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.redis.batch.rejected", dispatcher,
+                        RedisBatchDispatcher::getRejectedCount)
+                .description("Script calls rejected because the batch queue was full")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.redis.batch.timeouts", dispatcher,
+                        RedisBatchDispatcher::getTimedOutCount)
+                .description("Batches failed for want of a reply within the batch timeout")
+                .register(meterRegistry);
+        return dispatcher;
+    }
+}
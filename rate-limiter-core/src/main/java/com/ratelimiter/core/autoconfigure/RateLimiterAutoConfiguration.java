@@ -0,0 +1,134 @@
+package com.ratelimiter.core.autoconfigure;
+
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.redis.RedisBatchDispatcher;
+import com.ratelimiter.core.redis.RedisConnectionPool;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.store.LocalRateLimitStore;
+import com.ratelimiter.core.store.RateLimitStore;
+import com.ratelimiter.core.store.RedisRateLimitStore;
+import io.lettuce.core.api.reactive.RedisScriptingReactiveCommands;
+import io.lettuce.core.api.sync.RedisScriptingCommands;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stores and the {@link RateLimiterFactory} serving them. The Redis store runs on the
+ * Redis commands the application or {@link RateLimiterRedisAutoConfiguration} provides,
+ * through the batch dispatcher or connection pool if one is declared. Decorators are added
+ * by {@link RateLimiterFactoryCustomizer} beans; without any, callers see every decision
+ * and error of the stores as is.
+ */
+@AutoConfiguration
+public class RateLimiterAutoConfiguration {
+
+    @Value("${rate-limiter.backend:redis}")
+    private String backend;
+
+    @Value("${rate-limiter.lease.ttl-ms:1000}")
+    private long leaseTtlMs;
+
+    @Value("${rate-limiter.redis.migrate-legacy-keys:false}")
+    private boolean migrateLegacyKeys;
+
+    @Value("${rate-limiter.redis.mode:standalone}")
+    private String redisMode;
+
+    @Value("${rate-limiter.local.sweep-interval-ms:10000}")
+    private long localSweepIntervalMs;
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "rate-limiter.backend", havingValue = "redis", matchIfMissing = true)
+    public RedisScriptRegistry redisScriptRegistry(RedisScriptingCommands<String, String> commands,
+                                                   RedisScriptingReactiveCommands<String, String> reactiveCommands,
+                                                   ObjectProvider<RedisBatchDispatcher> batchDispatcher,
+                                                   ObjectProvider<RedisConnectionPool> connectionPool,
+                                                   MeterRegistry meterRegistry) {
+        RedisScriptRegistry registry = new RedisScriptRegistry(commands, reactiveCommands,
+                batchDispatcher.getIfAvailable(), connectionPool.getIfAvailable());
+        FunctionCounter.builder("rate_limiter.redis.script.loads", registry, RedisScriptRegistry::getLoadCount)
+                .description("Number of SCRIPT LOAD calls issued")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.redis.script.reloads", registry, RedisScriptRegistry::getReloadCount)
+                .description("Number of scripts reloaded after a NOSCRIPT reply")
+                .register(meterRegistry);
+        registry.setCallListener(scriptTimers(meterRegistry));
+        return registry;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "rate-limiter.backend", havingValue = "redis", matchIfMissing = true)
+    public RedisRateLimitStore redisRateLimitStore(RedisScriptRegistry redisScriptRegistry) {
+        // The legacy keys are untagged, so in a cluster they would sit in another slot.
+        if (migrateLegacyKeys && "cluster".equals(redisMode)) {
+            throw new IllegalStateException("rate-limiter.redis.migrate-legacy-keys needs a standalone Redis");
+        }
+        return new RedisRateLimitStore(redisScriptRegistry, Duration.ofMillis(leaseTtlMs), migrateLegacyKeys);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LocalRateLimitStore localRateLimitStore(LocalStateStore localStateStore) {
+        return new LocalRateLimitStore(localStateStore);
+    }
+
+    /**
+     * Serves every {@link RateLimitStore} bean; rules without a {@code store} use the one
+     * named by {@code rate-limiter.backend}.
+     */
+    @Bean(destroyMethod = "releaseLeases")
+    @ConditionalOnMissingBean
+    public RateLimiterFactory rateLimiterFactory(List<RateLimitStore> stores,
+                                                 ObjectProvider<RateLimiterFactoryCustomizer> customizers) {
+        RateLimiterFactory factory = new RateLimiterFactory(backend, stores);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(factory));
+        factory.preloadScripts();
+        return factory;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public LocalStateStore localStateStore(MeterRegistry meterRegistry) {
+        LocalStateStore store = new LocalStateStore(System::currentTimeMillis,
+                Duration.ofMillis(localSweepIntervalMs));
+        Gauge.builder("rate_limiter.local.keys", store, LocalStateStore::size)
+                .description("Number of keys tracked by the in-process limiters")
+                .register(meterRegistry);
+        return store;
+    }
+
+    /**
+     * One timer per script and outcome, so their number is bounded by the scripts registered.
+     */
+    private static RedisScriptRegistry.CallListener scriptTimers(MeterRegistry meterRegistry) {
+        Map<String, Timer> succeeded = new ConcurrentHashMap<>();
+        Map<String, Timer> failed = new ConcurrentHashMap<>();
+        return (script, nanos, success) -> (success ? succeeded : failed)
+                .computeIfAbsent(script.name(), name -> Timer.builder("rate_limiter.redis.script")
+                        .description("Script calls from the call until the reply, including batching and reloads")
+                        .tag("script", name)
+                        .tag("outcome", success ? "success" : "error")
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(10_000))
+                        .maximumExpectedValue(Duration.ofSeconds(1))
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,13 @@
+package com.ratelimiter.core.autoconfigure;
+
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+
+/**
+ * Adds decorators to the auto-configured {@link RateLimiterFactory} before its scripts are
+ * preloaded, e.g. the gateway's fallback and deny cache. Customizers run in bean order.
+ */
+@FunctionalInterface
+public interface RateLimiterFactoryCustomizer {
+
+    void customize(RateLimiterFactory factory);
+}
@@ -0,0 +1,92 @@
+package com.ratelimiter.core.autoconfigure;
+
+import com.ratelimiter.core.redis.RedisBatchDispatcher;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection to a standalone Redis for the {@code redis} backend, and the batch dispatcher
+ * when {@code rate-limiter.batch.enabled} is set. An application running against a Redis
+ * Cluster declares the cluster client and commands itself.
+ */
+@AutoConfiguration
+@ConditionalOnExpression("'${rate-limiter.backend:redis}' == 'redis' and '${rate-limiter.redis.mode:standalone}' == 'standalone'")
+public class RateLimiterRedisAutoConfiguration {
+
+    @Value("${redis.host:localhost}")
+    private String redisHost;
+
+    @Value("${redis.port:6379}")
+    private int redisPort;
+
+    @Value("${rate-limiter.batch.max-size:64}")
+    private int batchMaxSize;
+
+    @Value("${rate-limiter.batch.max-linger-us:200}")
+    private long batchMaxLingerUs;
+
+    @Value("${rate-limiter.batch.max-in-flight:4}")
+    private int batchMaxInFlight;
+
+    @Value("${rate-limiter.batch.max-queued:10000}")
+    private int batchMaxQueued;
+
+    @Value("${rate-limiter.batch.timeout-ms:1000}")
+    private long batchTimeoutMs;
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    public RedisClient redisClient() {
+        return RedisClient.create(RedisURI.builder()
+                .withHost(redisHost)
+                .withPort(redisPort)
+                .build());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public StatefulRedisConnection<String, String> redisConnection(RedisClient redisClient) {
+        return redisClient.connect();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RedisCommands<String, String> redisCommands(
+            StatefulRedisConnection<String, String> connection) {
+        return connection.sync();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RedisReactiveCommands<String, String> redisReactiveCommands(
+            StatefulRedisConnection<String, String> connection) {
+        return connection.reactive();
+    }
+
+    /**
+     * Coalesces the limiters' script calls into pipelined batches on a connection of its own.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "rate-limiter.batch.enabled", havingValue = "true")
+    public RedisBatchDispatcher redisBatchDispatcher(RedisClient redisClient, MeterRegistry meterRegistry) {
+        RedisBatchDispatcher dispatcher = new RedisBatchDispatcher(redisClient.connect(), batchMaxSize,
+                Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(batchMaxLingerUs)), batchMaxInFlight,
+                batchMaxQueued, Duration.ofMillis(batchTimeoutMs),
+                BatchDispatcherMetrics.flushListener(meterRegistry));
+        return BatchDispatcherMetrics.bind(dispatcher, meterRegistry);
+    }
+}
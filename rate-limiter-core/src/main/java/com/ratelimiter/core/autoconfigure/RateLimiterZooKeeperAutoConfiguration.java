@@ -0,0 +1,72 @@
+package com.ratelimiter.core.autoconfigure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ratelimiter.core.config.RateLimitConfigService;
+import com.ratelimiter.core.config.RuleMatchService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * The rules, watched in ZooKeeper, and the matcher that finds the rule of a path or id.
+ */
+@AutoConfiguration
+public class RateLimiterZooKeeperAutoConfiguration {
+
+    @Value("${zookeeper.connect-string:localhost:2181}")
+    private String connectString;
+
+    @Value("${zookeeper.session-timeout-ms:5000}")
+    private int sessionTimeoutMs;
+
+    @Value("${zookeeper.connection-timeout-ms:3000}")
+    private int connectionTimeoutMs;
+
+    @Value("${rate-limiter.rule-cache.max-size:10000}")
+    private long ruleCacheMaxSize;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public CuratorFramework curatorFramework() {
+        return CuratorFrameworkFactory.builder()
+                .connectString(connectString)
+                .sessionTimeoutMs(sessionTimeoutMs)
+                .connectionTimeoutMs(connectionTimeoutMs)
+                .retryPolicy(new ExponentialBackoffRetry(1000, 3))
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public RateLimitConfigService rateLimitConfigService(CuratorFramework curator,
+                                                         ObjectProvider<ObjectMapper> objectMapper)
+            throws Exception {
+        RateLimitConfigService service = new RateLimitConfigService(curator,
+                objectMapper.getIfAvailable(ObjectMapper::new));
+        service.start();
+        return service;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RuleMatchService ruleMatchService(RateLimitConfigService configService, MeterRegistry meterRegistry) {
+        RuleMatchService service = new RuleMatchService(configService, ruleCacheMaxSize);
+        FunctionCounter.builder("rate_limiter.rule_cache.hits", service, RuleMatchService::getCacheHitCount)
+                .description("Rule resolutions served from the per-path cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.rule_cache.misses", service, RuleMatchService::getCacheMissCount)
+                .description("Rule resolutions that had to walk the path trie")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.rule_cache.evictions", service, RuleMatchService::getCacheEvictionCount)
+                .description("Path resolutions evicted from the per-path cache")
+                .register(meterRegistry);
+        return service;
+    }
+}
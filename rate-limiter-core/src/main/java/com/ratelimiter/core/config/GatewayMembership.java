@@ -0,0 +1,66 @@
+package com.ratelimiter.core.config;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.nodes.PersistentNode;
+import org.apache.zookeeper.CreateMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Registers this gateway under {@code /rate-limiter/gateways} with an ephemeral znode,
+ * recreated by Curator after a session loss, and keeps count of the live gateways.
+ * The count lets a gateway that decides on its own enforce its share of a rule.
+ */
+public class GatewayMembership implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GatewayMembership.class);
+    private static final String MEMBERS_PATH = "/rate-limiter/gateways";
+
+    private final PersistentNode node;
+    private final CuratorCache members;
+    private volatile int gatewayCount = 1;
+
+    public GatewayMembership(CuratorFramework curator, String gatewayId) {
+        this.node = new PersistentNode(curator, CreateMode.EPHEMERAL_SEQUENTIAL, false,
+                MEMBERS_PATH + "/gateway-", gatewayId.getBytes(StandardCharsets.UTF_8));
+        this.members = CuratorCache.build(curator, MEMBERS_PATH);
+    }
+
+    public void start() {
+        members.listenable().addListener((type, oldData, data) -> recount());
+        members.start();
+        node.start();
+    }
+
+    /**
+     * Number of gateways currently registered, this one included, and at least 1.
+     */
+    public int getGatewayCount() {
+        return gatewayCount;
+    }
+
+    private void recount() {
+        long count = members.stream()
+                .filter(child -> !child.getPath().equals(MEMBERS_PATH))
+                .count();
+        int updated = (int) Math.max(1, count);
+        if (updated != gatewayCount) {
+            gatewayCount = updated;
+            log.info("{} gateway(s) registered in ZooKeeper", updated);
+        }
+    }
+
+    @Override
+    public void close() {
+        members.close();
+        try {
+            node.close();
+        } catch (IOException e) {
+            log.warn("Could not remove gateway registration from ZooKeeper", e);
+        }
+    }
+}
@@ -4,71 +4,211 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ratelimiter.core.model.RateLimitRule;
 import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.recipes.cache.NodeCache;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.common.PathUtils;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.Consumer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Keeps the rules in ZooKeeper, one znode per rule below {@code /rate-limiter/rules}. A
+ * rule's id is its path below that node, so {@code tenant-a/checkout} lives at
+ * {@code /rate-limiter/rules/tenant-a/checkout}; znodes without data only group rules.
+ * A {@link CuratorCache} watches the tree, each changed znode is parsed on its own, and
+ * the changes are applied to the current {@link RuleSet} as a delta. An edit therefore
+ * costs the same with ten rules as with ten thousand, and no znode grows towards
+ * ZooKeeper's 1 MB limit. Changes arriving in a burst, such as a full replacement, are
+ * applied together, and listeners receive the new snapshot with the diff.
+ *
+ * <p>A rule list left in the root znode by earlier versions is moved into per-rule znodes
+ * on start, in its original order.
+ */
 public class RateLimitConfigService implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(RateLimitConfigService.class);
     private static final String CONFIG_PATH = "/rate-limiter/rules";
+    private static final long LOAD_TIMEOUT_SECONDS = 30;
+    private static final byte[] NO_DATA = new byte[0];
+    private static final int UPDATE_ATTEMPTS = 3;
+
+    /**
+     * A znode below the root as read for a replacement.
+     */
+    private record Znode(byte[] data, int version, boolean hasChildren) {
+    }
+
+    /**
+     * Notified after every change with the new snapshot and what changed.
+     */
+    @FunctionalInterface
+    public interface RuleSetListener {
+        void onChange(RuleSet rules, RuleSetDiff diff);
+    }
 
     private final CuratorFramework curator;
     private final ObjectMapper objectMapper;
-    private final List<Consumer<List<RateLimitRule>>> listeners = new CopyOnWriteArrayList<>();
-    private volatile List<RateLimitRule> currentRules = Collections.emptyList();
-    private NodeCache nodeCache;
+    private final List<RuleSetListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, RateLimitRule> pending = new HashMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final ExecutorService updates;
+    private volatile RuleSet currentRules = RuleSet.EMPTY;
+    private volatile boolean initialized;
+    private CuratorCache cache;
 
     public RateLimitConfigService(CuratorFramework curator, ObjectMapper objectMapper) {
         this.curator = curator;
         this.objectMapper = objectMapper;
+        this.updates = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-rule-updates");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public void start() throws Exception {
         ensurePathExists();
-        loadRules();
-        watchForChanges();
+        migrateRuleList();
+        cache = CuratorCache.build(curator, CONFIG_PATH);
+        cache.listenable().addListener(CuratorCacheListener.builder()
+                .forAll(this::onNodeEvent)
+                .forInitialized(this::onInitialized)
+                .build());
+        cache.start();
+        if (!awaitLoaded(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Rate limit rules not loaded from ZooKeeper within {}s, starting without them",
+                    LOAD_TIMEOUT_SECONDS);
+        }
     }
 
     private void ensurePathExists() throws Exception {
         if (curator.checkExists().forPath(CONFIG_PATH) == null) {
-            curator.create().creatingParentsIfNeeded().forPath(CONFIG_PATH, "[]".getBytes());
+            curator.create().creatingParentsIfNeeded().forPath(CONFIG_PATH, NO_DATA);
             log.info("Created ZooKeeper path: {}", CONFIG_PATH);
         }
     }
 
-    private void loadRules() {
+    /**
+     * Moves a rule list stored as one JSON array in the root znode into per-rule znodes.
+     * Gateways starting together may both migrate; rules already moved are left alone.
+     */
+    private void migrateRuleList() {
         try {
             byte[] data = curator.getData().forPath(CONFIG_PATH);
+            if (data == null || data.length == 0) {
+                return;
+            }
             List<RateLimitRule> rules = objectMapper.readValue(data, new TypeReference<>() {});
-            this.currentRules = List.copyOf(rules);
-            log.info("Loaded {} rate limit rules from ZooKeeper", rules.size());
+            RuleSet.inListOrder(rules);
+            for (RateLimitRule rule : rules) {
+                try {
+                    curator.create().creatingParentContainersIfNeeded()
+                            .forPath(rulePath(rule.getId()), objectMapper.writeValueAsBytes(rule));
+                } catch (KeeperException.NodeExistsException e) {
+                    log.debug("Rule {} already moved to its own znode", rule.getId());
+                }
+            }
+            curator.setData().forPath(CONFIG_PATH, NO_DATA);
+            log.info("Moved {} rate limit rules from {} into per-rule znodes", rules.size(), CONFIG_PATH);
         } catch (Exception e) {
-            log.error("Failed to load rate limit rules from ZooKeeper", e);
+            log.error("Failed to move the rate limit rule list into per-rule znodes", e);
         }
     }
 
-    @SuppressWarnings("deprecation")
-    private void watchForChanges() throws Exception {
-        nodeCache = new NodeCache(curator, CONFIG_PATH);
-        nodeCache.getListenable().addListener(() -> {
-            log.info("Rate limit rules changed in ZooKeeper, reloading...");
-            loadRules();
-            notifyListeners();
+    void onNodeEvent(CuratorCacheListener.Type type, ChildData oldData, ChildData data) {
+        ChildData node = data != null ? data : oldData;
+        String id = ruleId(node.getPath());
+        if (id == null) {
+            return;
+        }
+        RateLimitRule rule = null;
+        if (type != CuratorCacheListener.Type.NODE_DELETED && data.getData() != null && data.getData().length > 0) {
+            try {
+                rule = objectMapper.readValue(data.getData(), RateLimitRule.class);
+                rule.setId(id);
+                RuleSet.checkLayers(rule);
+            } catch (IOException e) {
+                log.error("Ignoring unreadable rate limit rule {}", id, e);
+                return;
+            } catch (IllegalArgumentException e) {
+                log.error("Ignoring invalid rate limit rule {}: {}", id, e.getMessage());
+                return;
+            }
+        }
+        synchronized (pending) {
+            pending.put(id, rule);
+        }
+        if (initialized) {
+            updates.execute(this::applyPending);
+        }
+    }
+
+    void onInitialized() {
+        updates.execute(() -> {
+            initialized = true;
+            applyPending();
+            loaded.countDown();
+            log.info("Loaded {} rate limit rules from ZooKeeper", currentRules.size());
         });
-        nodeCache.start(true);
     }
 
-    private void notifyListeners() {
-        List<RateLimitRule> rules = currentRules;
-        for (Consumer<List<RateLimitRule>> listener : listeners) {
+    boolean awaitLoaded(long timeout, TimeUnit unit) throws InterruptedException {
+        return loaded.await(timeout, unit);
+    }
+
+    /**
+     * Applies every change queued since the last call as one delta. Runs on the single
+     * update thread, so snapshots are installed and announced in order.
+     */
+    private void applyPending() {
+        Map<String, RateLimitRule> changes;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = new HashMap<>(pending);
+            pending.clear();
+        }
+        RuleSet previous = currentRules;
+        RuleSetDiff diff = previous.diff(changes);
+        if (diff.isEmpty()) {
+            return;
+        }
+        RuleSet rules = previous.apply(diff);
+        currentRules = rules;
+        if (loaded.getCount() == 0) {
+            log.info("Rate limit rules changed in ZooKeeper: {} added, {} updated, {} removed, {} in total",
+                    diff.added().size(), diff.updated().size(), diff.removed().size(), rules.size());
+        }
+        notifyListeners(rules, diff);
+    }
+
+    private void notifyListeners(RuleSet rules, RuleSetDiff diff) {
+        for (RuleSetListener listener : listeners) {
             try {
-                listener.accept(rules);
+                listener.onChange(rules, diff);
             } catch (Exception e) {
                 log.error("Error notifying listener of rule changes", e);
             }
@@ -76,23 +216,243 @@ public class RateLimitConfigService implements AutoCloseable {
     }
 
     public List<RateLimitRule> getRules() {
+        return getRuleSet().rules();
+    }
+
+    public RuleSet getRuleSet() {
         return currentRules;
     }
 
-    public void addListener(Consumer<List<RateLimitRule>> listener) {
+    public Optional<RateLimitRule> getRule(String id) {
+        return getRuleSet().get(id);
+    }
+
+    public void addListener(RuleSetListener listener) {
         listeners.add(listener);
     }
 
+    /**
+     * Creates or replaces one rule, leaving every other rule untouched.
+     *
+     * @return {@code true} if the rule was created
+     * @throws IllegalArgumentException if the id is not a valid znode path or names a group,
+     *         or a layer has no id or shares one
+     */
+    public boolean putRule(RateLimitRule rule) throws Exception {
+        String path = rulePath(rule.getId());
+        RuleSet.checkLayers(rule);
+        byte[] data = objectMapper.writeValueAsBytes(rule);
+        try {
+            curator.create().creatingParentContainersIfNeeded().forPath(path, data);
+            log.info("Created rate limit rule {} in ZooKeeper", rule.getId());
+            return true;
+        } catch (KeeperException.NodeExistsException e) {
+            // Groups are container znodes, which ZooKeeper removes once empty.
+            if (!curator.getChildren().forPath(path).isEmpty()) {
+                throw new IllegalArgumentException("Rule id names a group of rules: " + rule.getId());
+            }
+            curator.setData().forPath(path, data);
+            log.info("Updated rate limit rule {} in ZooKeeper", rule.getId());
+            return false;
+        }
+    }
+
+    /**
+     * Deletes one rule. A rule with rules grouped below it keeps its znode, emptied.
+     *
+     * @return {@code false} if there was no such rule
+     */
+    public boolean deleteRule(String id) throws Exception {
+        String path = rulePath(id);
+        try {
+            byte[] data = curator.getData().forPath(path);
+            if (data == null || data.length == 0) {
+                return false;
+            }
+            curator.delete().forPath(path);
+        } catch (KeeperException.NoNodeException e) {
+            return false;
+        } catch (KeeperException.NotEmptyException e) {
+            curator.setData().forPath(path, NO_DATA);
+        }
+        log.info("Deleted rate limit rule {} from ZooKeeper", id);
+        return true;
+    }
+
+    /**
+     * Replaces all rules with the given list, matched in list order. Only the rules that
+     * differ from those in ZooKeeper are written or deleted, all in one transaction, so
+     * either every change lands or none does. Each op checks the version it was computed
+     * from and the transaction bumps the root's version, so a replacement racing another
+     * edit fails as a whole; it is then recomputed from a fresh read, a few times at most.
+     *
+     * @throws IllegalArgumentException if a rule or layer id is missing, repeated or not a
+     *         valid znode path, or a changed rule id names a group
+     * @throws ConcurrentModificationException if the rules changed during every attempt
+     */
     public void updateRules(List<RateLimitRule> rules) throws Exception {
-        byte[] data = objectMapper.writeValueAsBytes(rules);
-        curator.setData().forPath(CONFIG_PATH, data);
-        log.info("Updated {} rate limit rules in ZooKeeper", rules.size());
+        RuleSet desired = RuleSet.inListOrder(rules);
+        for (RateLimitRule rule : desired.rules()) {
+            rulePath(rule.getId());
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                replaceRules(desired);
+                return;
+            } catch (KeeperException.BadVersionException | KeeperException.NodeExistsException
+                     | KeeperException.NoNodeException | KeeperException.NotEmptyException e) {
+                if (attempt == UPDATE_ATTEMPTS) {
+                    throw new ConcurrentModificationException(
+                            "Rules kept changing in ZooKeeper while being replaced", e);
+                }
+                log.info("Rate limit rules changed while being replaced, retrying: {}", e.toString());
+            }
+        }
+    }
+
+    private void replaceRules(RuleSet desired) throws Exception {
+        Stat root = new Stat();
+        curator.getData().storingStatIn(root).forPath(CONFIG_PATH);
+        Map<String, Znode> current = new HashMap<>();
+        readTree(CONFIG_PATH, current);
+
+        // new znodes, null for the groups they need, created parents first
+        Map<String, byte[]> created = new TreeMap<>(Comparator.comparingLong(RateLimitConfigService::depth)
+                .thenComparing(Comparator.naturalOrder()));
+        List<CuratorOp> ops = new ArrayList<>();
+        ops.add(curator.transactionOp().setData().withVersion(root.getVersion()).forPath(CONFIG_PATH, NO_DATA));
+        int written = 0;
+        for (RateLimitRule rule : desired.rules()) {
+            String id = rule.getId();
+            Znode existing = current.get(id);
+            if (existing != null && sameRule(existing.data(), rule)) {
+                continue;
+            }
+            byte[] data = objectMapper.writeValueAsBytes(rule);
+            written++;
+            if (existing == null) {
+                created.put(id, data);
+                for (String group = parent(id); group != null && !current.containsKey(group); group = parent(group)) {
+                    created.putIfAbsent(group, null);
+                }
+            } else if (existing.hasChildren()) {
+                throw new IllegalArgumentException("Rule id names a group of rules: " + id);
+            } else {
+                ops.add(curator.transactionOp().setData().withVersion(existing.version())
+                        .forPath(rulePath(id), data));
+            }
+        }
+        for (Map.Entry<String, byte[]> node : created.entrySet()) {
+            ops.add(node.getValue() == null
+                    ? curator.transactionOp().create().withMode(CreateMode.CONTAINER)
+                            .forPath(rulePath(node.getKey()), NO_DATA)
+                    : curator.transactionOp().create().forPath(rulePath(node.getKey()), node.getValue()));
+        }
+
+        // every znode that is neither kept nor above a kept one goes, children first; a
+        // dropped rule above kept ones stays as their group, emptied
+        Set<String> kept = new HashSet<>();
+        for (RateLimitRule rule : desired.rules()) {
+            String id = rule.getId();
+            while (id != null && kept.add(id)) {
+                id = parent(id);
+            }
+        }
+        List<String> dropped = new ArrayList<>(current.keySet());
+        dropped.sort(Comparator.comparingLong(RateLimitConfigService::depth).reversed());
+        int deleted = 0;
+        for (String id : dropped) {
+            Znode existing = current.get(id);
+            boolean rule = existing.data() != null && existing.data().length > 0;
+            if (!kept.contains(id)) {
+                ops.add(curator.transactionOp().delete().withVersion(existing.version()).forPath(rulePath(id)));
+            } else if (rule && desired.get(id).isEmpty()) {
+                ops.add(curator.transactionOp().setData().withVersion(existing.version())
+                        .forPath(rulePath(id), NO_DATA));
+            } else {
+                continue;
+            }
+            if (rule) {
+                deleted++;
+            }
+        }
+
+        if (written > 0 || deleted > 0) {
+            curator.transaction().forOperations(ops);
+        }
+        log.info("Replaced rate limit rules in ZooKeeper: {} written, {} deleted, {} unchanged",
+                written, deleted, desired.size() - written);
+    }
+
+    /**
+     * Reads every znode below {@code path} into {@code nodes}, keyed by rule id.
+     */
+    private void readTree(String path, Map<String, Znode> nodes) throws Exception {
+        for (String child : curator.getChildren().forPath(path)) {
+            String childPath = path + "/" + child;
+            Stat stat = new Stat();
+            byte[] data = curator.getData().storingStatIn(stat).forPath(childPath);
+            nodes.put(ruleId(childPath), new Znode(data, stat.getVersion(), stat.getNumChildren() > 0));
+            if (stat.getNumChildren() > 0) {
+                readTree(childPath, nodes);
+            }
+        }
+    }
+
+    private boolean sameRule(byte[] data, RateLimitRule rule) {
+        if (data == null || data.length == 0) {
+            return false;
+        }
+        try {
+            RateLimitRule existing = objectMapper.readValue(data, RateLimitRule.class);
+            existing.setId(rule.getId());
+            return Arrays.equals(objectMapper.writeValueAsBytes(existing), objectMapper.writeValueAsBytes(rule));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Id of the group a rule id sits in, or {@code null} at the top level.
+     */
+    static String parent(String id) {
+        int slash = id.lastIndexOf('/');
+        return slash < 0 ? null : id.substring(0, slash);
+    }
+
+    private static long depth(String id) {
+        return id.chars().filter(c -> c == '/').count();
+    }
+
+    /**
+     * Znode holding the rule with the given id.
+     *
+     * @throws IllegalArgumentException if the id is missing or not a valid znode path
+     */
+    static String rulePath(String id) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Rule id is required");
+        }
+        String path = CONFIG_PATH + "/" + id;
+        PathUtils.validatePath(path);
+        return path;
+    }
+
+    /**
+     * Id of the rule a znode holds, or {@code null} for the root.
+     */
+    static String ruleId(String path) {
+        if (path == null || !path.startsWith(CONFIG_PATH + "/")) {
+            return null;
+        }
+        return path.substring(CONFIG_PATH.length() + 1);
     }
 
     @Override
     public void close() throws Exception {
-        if (nodeCache != null) {
-            nodeCache.close();
+        if (cache != null) {
+            cache.close();
         }
+        updates.shutdownNow();
     }
 }
@@ -1,48 +1,152 @@
 package com.ratelimiter.core.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
 import com.ratelimiter.core.model.RateLimitRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 
+/**
+ * Resolves the rule for a request path. Rules are compiled into a {@link RuleTrie} whenever
+ * {@link RateLimitConfigService} reports a change. Resolutions, including "no rule", are
+ * cached per path in a bounded Caffeine cache whose W-TinyLFU admission keeps one-off paths
+ * such as {@code /api/users/{id}} from evicting the hot ones. The trie and its cache are
+ * replaced together in a single volatile write, so a lookup never sees a half-built rule set
+ * or a resolution made against the previous rules. A change that keeps every rule's path and
+ * order, such as a new limit, reuses the trie and carries the cached resolutions over to the
+ * new rule versions instead of starting cold. Callers that already know the rule, such as
+ * the decision service, look it up by id instead.
+ */
 public class RuleMatchService {
 
     private static final Logger log = LoggerFactory.getLogger(RuleMatchService.class);
+    private static final long DEFAULT_CACHE_SIZE = 10_000;
 
     private final RateLimitConfigService configService;
+    private final long cacheSize;
+    private final ConcurrentStatsCounter cacheStats = new ConcurrentStatsCounter();
+    private volatile Resolver resolver;
 
     public RuleMatchService(RateLimitConfigService configService) {
+        this(configService, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize maximum number of cached path resolutions, {@code 0} disables the cache
+     */
+    public RuleMatchService(RateLimitConfigService configService, long cacheSize) {
         this.configService = configService;
+        this.cacheSize = cacheSize;
+        this.resolver = new Resolver(RuleTrie.EMPTY, RuleSet.EMPTY, null);
+        configService.addListener(this::update);
+        rebuild();
     }
 
     public Optional<RateLimitRule> findMatchingRule(String path) {
-        List<RateLimitRule> rules = configService.getRules();
-        for (RateLimitRule rule : rules) {
-            if (pathMatches(rule.getPath(), path)) {
-                log.debug("Matched rule '{}' for path '{}'", rule.getId(), path);
-                return Optional.of(rule);
-            }
+        Optional<RateLimitRule> rule = resolver.resolve(path);
+        if (rule.isPresent() && log.isDebugEnabled()) {
+            log.debug("Matched rule '{}' for path '{}'", rule.get().getId(), path);
         }
-        return Optional.empty();
+        return rule;
+    }
+
+    public Optional<RateLimitRule> findRule(String id) {
+        return resolver.rules.get(id);
+    }
+
+    public long getCacheHitCount() {
+        return cacheStats.snapshot().hitCount();
     }
 
-    private boolean pathMatches(String pattern, String path) {
-        if (pattern == null || path == null) {
+    public long getCacheMissCount() {
+        return cacheStats.snapshot().missCount();
+    }
+
+    public long getCacheEvictionCount() {
+        return cacheStats.snapshot().evictionCount();
+    }
+
+    /**
+     * Compiles the current rules. Always reads them from the config service so that
+     * concurrent rebuilds cannot install an older rule set over a newer one.
+     */
+    private synchronized void rebuild() {
+        RuleSet rules = configService.getRuleSet();
+        resolver = new Resolver(RuleTrie.compile(rules.rules()), rules, newCache());
+        log.info("Compiled {} rate limit rules into the path trie", rules.size());
+    }
+
+    private synchronized void update(RuleSet rules, RuleSetDiff diff) {
+        Resolver current = resolver;
+        if (!keepsMatching(current.rules, diff)) {
+            rebuild();
+            return;
+        }
+        Map<String, RateLimitRule> replacements = new HashMap<>();
+        for (RuleSetDiff.Update update : diff.updated()) {
+            replacements.put(update.current().getId(), update.current());
+        }
+        Cache<String, Optional<RateLimitRule>> cache = newCache();
+        if (cache != null && current.cache != null) {
+            current.cache.asMap().forEach((path, rule) -> cache.put(path,
+                    rule.map(r -> replacements.getOrDefault(r.getId(), r))));
+        }
+        resolver = new Resolver(current.trie.withRules(rules.rules()), rules, cache);
+        log.info("Updated {} rate limit rules in place", replacements.size());
+    }
+
+    /**
+     * Whether the diff applies to the given snapshot and leaves every rule matching the
+     * same paths at the same position.
+     */
+    private static boolean keepsMatching(RuleSet rules, RuleSetDiff diff) {
+        if (!diff.added().isEmpty() || !diff.removed().isEmpty()) {
             return false;
         }
-        if (pattern.equals("/**") || pattern.equals("*")) {
-            return true;
+        for (RuleSetDiff.Update update : diff.updated()) {
+            RateLimitRule previous = update.previous();
+            RateLimitRule current = update.current();
+            if (rules.get(previous.getId()).orElse(null) != previous
+                    || !Objects.equals(previous.getPath(), current.getPath())
+                    || previous.getOrder() != current.getOrder()) {
+                return false;
+            }
         }
-        if (pattern.endsWith("/**")) {
-            String prefix = pattern.substring(0, pattern.length() - 3);
-            return path.startsWith(prefix);
+        return true;
+    }
+
+    private Cache<String, Optional<RateLimitRule>> newCache() {
+        return cacheSize > 0
+                ? Caffeine.newBuilder().maximumSize(cacheSize).recordStats(() -> cacheStats).build()
+                : null;
+    }
+
+    private static final class Resolver {
+
+        private final RuleTrie trie;
+        private final RuleSet rules;
+        private final Cache<String, Optional<RateLimitRule>> cache;
+        private final Function<String, Optional<RateLimitRule>> lookup;
+
+        private Resolver(RuleTrie trie, RuleSet rules, Cache<String, Optional<RateLimitRule>> cache) {
+            this.trie = trie;
+            this.rules = rules;
+            this.cache = cache;
+            this.lookup = path -> Optional.ofNullable(trie.match(path));
         }
-        if (pattern.endsWith("/*")) {
-            String prefix = pattern.substring(0, pattern.length() - 2);
-            return path.startsWith(prefix) && !path.substring(prefix.length() + 1).contains("/");
+
+        private Optional<RateLimitRule> resolve(String path) {
+            if (cache == null || path == null) {
+                return lookup.apply(path);
+            }
+            return cache.get(path, lookup);
         }
-        return pattern.equals(path);
     }
 }
@@ -0,0 +1,194 @@
+package com.ratelimiter.core.config;
+
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the rules, by id and in matching order: ascending
+ * {@link RateLimitRule#getOrder() order}, then id. A change to a few rules produces a new
+ * snapshot through {@link #diff} and {@link #apply}, which reuse the parsed rules of this
+ * one, so the cost of an update does not grow with the number of rules parsed. Every rule
+ * entering a snapshot is {@linkplain RateLimitRule#compiled() compiled} on the way in.
+ */
+public final class RuleSet {
+
+    public static final RuleSet EMPTY = new RuleSet(Map.of(), List.of());
+
+    /**
+     * Most layers a rule may have, so that the decision service's TCP protocol can name
+     * the deciding one in a byte.
+     */
+    public static final int MAX_LAYERS = 255;
+
+    static final Comparator<RateLimitRule> PRECEDENCE =
+            Comparator.comparingInt(RateLimitRule::getOrder).thenComparing(RateLimitRule::getId);
+
+    private final Map<String, RateLimitRule> byId;
+    private final List<RateLimitRule> rules;
+
+    private RuleSet(Map<String, RateLimitRule> byId, List<RateLimitRule> rules) {
+        this.byId = byId;
+        this.rules = rules;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rule has no id, two rules share one, or a rule's
+     *         layers are {@linkplain #checkLayers invalid}
+     */
+    public static RuleSet of(Collection<RateLimitRule> rules) {
+        Map<String, RateLimitRule> byId = new HashMap<>();
+        for (RateLimitRule rule : rules) {
+            if (rule.getId() == null) {
+                throw new IllegalArgumentException("Rule without an id: " + rule.getPath());
+            }
+            if (byId.putIfAbsent(rule.getId(), rule) != null) {
+                throw new IllegalArgumentException("Duplicate rule id: " + rule.getId());
+            }
+            checkLayers(rule);
+            compile(rule);
+        }
+        List<RateLimitRule> ordered = new ArrayList<>(rules);
+        ordered.sort(PRECEDENCE);
+        return new RuleSet(Collections.unmodifiableMap(byId), Collections.unmodifiableList(ordered));
+    }
+
+    /**
+     * Snapshot matching the rules in list order, the precedence of the former single rule
+     * list. Sets each rule's order to its position.
+     */
+    public static RuleSet inListOrder(List<RateLimitRule> rules) {
+        for (int i = 0; i < rules.size(); i++) {
+            rules.get(i).setOrder(i);
+        }
+        return of(rules);
+    }
+
+    /**
+     * The rules in matching order.
+     */
+    public List<RateLimitRule> rules() {
+        return rules;
+    }
+
+    public Optional<RateLimitRule> get(String id) {
+        return id != null ? Optional.ofNullable(byId.get(id)) : Optional.empty();
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Compares the given rule versions with this snapshot. A {@code null} version removes
+     * the rule; removing a rule this snapshot lacks is no change.
+     */
+    public RuleSetDiff diff(Map<String, RateLimitRule> changes) {
+        List<RateLimitRule> added = new ArrayList<>();
+        List<RuleSetDiff.Update> updated = new ArrayList<>();
+        List<RateLimitRule> removed = new ArrayList<>();
+        for (Map.Entry<String, RateLimitRule> change : changes.entrySet()) {
+            RateLimitRule previous = byId.get(change.getKey());
+            RateLimitRule current = change.getValue();
+            if (current == null) {
+                if (previous != null) {
+                    removed.add(previous);
+                }
+            } else if (previous == null) {
+                added.add(current);
+            } else if (previous != current) {
+                updated.add(new RuleSetDiff.Update(previous, current));
+            }
+        }
+        return new RuleSetDiff(added, updated, removed);
+    }
+
+    /**
+     * New snapshot with the diff applied. Only the changed rules are placed anew; the
+     * rest keep their relative order, so re-sorting is close to a single merge.
+     */
+    public RuleSet apply(RuleSetDiff diff) {
+        if (diff.isEmpty()) {
+            return this;
+        }
+        Map<String, RateLimitRule> nextById = new HashMap<>(byId);
+        Set<String> replaced = new HashSet<>();
+        for (RateLimitRule rule : diff.removed()) {
+            nextById.remove(rule.getId());
+            replaced.add(rule.getId());
+        }
+        List<RateLimitRule> placed = new ArrayList<>(diff.added().size() + diff.updated().size());
+        for (RuleSetDiff.Update update : diff.updated()) {
+            placed.add(update.current());
+        }
+        placed.addAll(diff.added());
+        for (RateLimitRule rule : placed) {
+            nextById.put(rule.getId(), rule);
+            replaced.add(rule.getId());
+            compile(rule);
+        }
+
+        List<RateLimitRule> ordered = new ArrayList<>(nextById.size());
+        for (RateLimitRule rule : rules) {
+            if (!replaced.contains(rule.getId())) {
+                ordered.add(rule);
+            }
+        }
+        placed.sort(PRECEDENCE);
+        ordered.addAll(placed);
+        ordered.sort(PRECEDENCE);
+        return new RuleSet(Collections.unmodifiableMap(nextById), Collections.unmodifiableList(ordered));
+    }
+
+    /**
+     * Checks that every layer of the rule has an id, differing from the rule's and the
+     * other layers' ids: a layer keeps its state under its id, so two layers sharing one
+     * would count every request twice against the same key. Layered rules are decided in
+     * one call for all layers, so neither the rule nor its layers may lease tokens.
+     *
+     * @throws IllegalArgumentException if a layer has no id or shares one, leasing is on, or
+     *         the rule has more than {@link #MAX_LAYERS} layers
+     */
+    public static void checkLayers(RateLimitRule rule) {
+        if (rule.getLayers().isEmpty()) {
+            return;
+        }
+        if (rule.getLayers().size() > MAX_LAYERS) {
+            throw new IllegalArgumentException("Rule " + rule.getId() + " has more than " + MAX_LAYERS + " layers");
+        }
+        Set<String> ids = new HashSet<>();
+        ids.add(rule.getId());
+        if (rule.getMaxLeasedTokens() > 0) {
+            throw new IllegalArgumentException("Layered rule cannot lease tokens: " + rule.getId());
+        }
+        for (RateLimitRule layer : rule.getLayers()) {
+            if (layer.getMaxLeasedTokens() > 0) {
+                throw new IllegalArgumentException(
+                        "Layer " + layer.getId() + " of rule " + rule.getId() + " cannot lease tokens");
+            }
+            if (layer.getId() == null || layer.getId().isBlank()) {
+                throw new IllegalArgumentException("Layer without an id in rule: " + rule.getId());
+            }
+            if (!ids.add(layer.getId())) {
+                throw new IllegalArgumentException(
+                        "Duplicate layer id in rule " + rule.getId() + ": " + layer.getId());
+            }
+        }
+    }
+
+    private static void compile(RateLimitRule rule) {
+        rule.compiled();
+        for (RateLimitRule layer : rule.getLayers()) {
+            layer.compiled();
+        }
+    }
+}
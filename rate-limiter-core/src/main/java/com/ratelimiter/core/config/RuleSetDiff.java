@@ -0,0 +1,33 @@
+package com.ratelimiter.core.config;
+
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.util.List;
+
+/**
+ * Rules added, changed and removed between two {@link RuleSet} snapshots.
+ */
+public record RuleSetDiff(List<RateLimitRule> added, List<Update> updated, List<RateLimitRule> removed) {
+
+    public static final RuleSetDiff NONE = new RuleSetDiff(List.of(), List.of(), List.of());
+
+    public RuleSetDiff {
+        added = List.copyOf(added);
+        updated = List.copyOf(updated);
+        removed = List.copyOf(removed);
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+
+    public int size() {
+        return added.size() + updated.size() + removed.size();
+    }
+
+    /**
+     * A rule replaced by a new version with the same id.
+     */
+    public record Update(RateLimitRule previous, RateLimitRule current) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.ratelimiter.core.config;
+
+import com.ratelimiter.core.model.RateLimitRule;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable segment trie compiled from the rule paths. Each pattern segment becomes a
+ * literal, {@code *} (exactly one segment) or {@code **} (zero or more segments) node.
+ * Every node remembers the lowest rule position that ends in it or below it, so a lookup
+ * only descends into branches that can still beat the best match found so far, which keeps
+ * first-match-wins ordering. Lookups walk the path by index and never allocate.
+ */
+final class RuleTrie {
+
+    static final RuleTrie EMPTY = compile(List.of());
+
+    private static final int NONE = Integer.MAX_VALUE;
+    private static final int END = -1;
+
+    private final List<RateLimitRule> rules;
+    private final Node root;
+
+    private RuleTrie(List<RateLimitRule> rules, Node root) {
+        this.rules = rules;
+        this.root = root;
+    }
+
+    static RuleTrie compile(List<RateLimitRule> rules) {
+        List<RateLimitRule> ordered = List.copyOf(rules);
+        NodeBuilder root = new NodeBuilder();
+        for (int i = 0; i < ordered.size(); i++) {
+            String pattern = ordered.get(i).getPath();
+            if (pattern == null) {
+                continue;
+            }
+            NodeBuilder node = root;
+            for (String segment : segments(pattern)) {
+                node = node.child(segment);
+            }
+            node.ruleIndex = Math.min(node.ruleIndex, i);
+        }
+        return new RuleTrie(ordered, root.build());
+    }
+
+    /**
+     * The same trie over new versions of its rules, for changes that keep every rule's
+     * path and position, such as a new limit.
+     */
+    RuleTrie withRules(List<RateLimitRule> updated) {
+        if (updated.size() != rules.size()) {
+            throw new IllegalArgumentException("Expected " + rules.size() + " rules, got " + updated.size());
+        }
+        return new RuleTrie(List.copyOf(updated), root);
+    }
+
+    /**
+     * Returns the first rule, in configuration order, whose pattern matches {@code path},
+     * or {@code null}.
+     */
+    RateLimitRule match(String path) {
+        if (path == null) {
+            return null;
+        }
+        int start = !path.isEmpty() && path.charAt(0) == '/' ? 1 : 0;
+        int index = match(root, path, start, NONE);
+        return index == NONE ? null : rules.get(index);
+    }
+
+    private static int match(Node node, String path, int pos, int best) {
+        if (node.minIndex >= best) {
+            return best;
+        }
+        if (pos == END) {
+            best = Math.min(best, node.ruleIndex);
+            if (node.doubleStar != null) {
+                best = Math.min(best, node.doubleStar.minIndexAtEnd());
+            }
+            return best;
+        }
+        int end = path.indexOf('/', pos);
+        if (end < 0) {
+            end = path.length();
+        }
+        int next = end < path.length() ? end + 1 : END;
+
+        Node literal = node.literal(path, pos, end);
+        if (literal != null) {
+            best = match(literal, path, next, best);
+        }
+        if (node.star != null) {
+            best = match(node.star, path, next, best);
+        }
+        if (node.doubleStar != null) {
+            best = matchDoubleStar(node.doubleStar, path, pos, best);
+        }
+        return best;
+    }
+
+    /**
+     * Lets the {@code **} node consume the rest of the path, then tries its continuation
+     * after every number of consumed segments.
+     */
+    private static int matchDoubleStar(Node node, String path, int pos, int best) {
+        best = Math.min(best, node.ruleIndex);
+        if (!node.hasChildren() || node.minIndex >= best) {
+            return best;
+        }
+        int p = pos;
+        while (true) {
+            best = match(node, path, p, best);
+            if (p == END) {
+                return best;
+            }
+            int end = path.indexOf('/', p);
+            p = end < 0 ? END : end + 1;
+        }
+    }
+
+    private static List<String> segments(String pattern) {
+        if (pattern.equals("*")) {
+            return List.of("**");
+        }
+        String trimmed = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+        return List.of(trimmed.split("/", -1));
+    }
+
+    private static int hash(String path, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + path.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node {
+
+        private final String[] keys;
+        private final Node[] children;
+        private final int mask;
+        private final Node star;
+        private final Node doubleStar;
+        private final int ruleIndex;
+        private final int minIndex;
+
+        private Node(String[] keys, Node[] children, Node star, Node doubleStar, int ruleIndex, int minIndex) {
+            this.keys = keys;
+            this.children = children;
+            this.mask = keys.length - 1;
+            this.star = star;
+            this.doubleStar = doubleStar;
+            this.ruleIndex = ruleIndex;
+            this.minIndex = minIndex;
+        }
+
+        /**
+         * Open-addressing lookup of the literal child named by {@code path[from, to)}.
+         */
+        private Node literal(String path, int from, int to) {
+            if (keys.length == 0) {
+                return null;
+            }
+            int length = to - from;
+            for (int slot = hash(path, from, to) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                String key = keys[slot];
+                if (key.length() == length && path.regionMatches(from, key, 0, length)) {
+                    return children[slot];
+                }
+            }
+            return null;
+        }
+
+        private boolean hasChildren() {
+            return keys.length > 0 || star != null || doubleStar != null;
+        }
+
+        /**
+         * Lowest rule matching when this {@code **} node consumes no segment at the end of the path.
+         */
+        private int minIndexAtEnd() {
+            int best = ruleIndex;
+            if (doubleStar != null) {
+                best = Math.min(best, doubleStar.minIndexAtEnd());
+            }
+            return best;
+        }
+    }
+
+    private static final class NodeBuilder {
+
+        private final Map<String, NodeBuilder> literals = new LinkedHashMap<>();
+        private NodeBuilder star;
+        private NodeBuilder doubleStar;
+        private int ruleIndex = NONE;
+
+        private NodeBuilder child(String segment) {
+            return switch (segment) {
+                case "*" -> star != null ? star : (star = new NodeBuilder());
+                case "**" -> doubleStar != null ? doubleStar : (doubleStar = new NodeBuilder());
+                default -> literals.computeIfAbsent(segment, s -> new NodeBuilder());
+            };
+        }
+
+        private Node build() {
+            int capacity = literals.isEmpty() ? 0 : Integer.highestOneBit(literals.size() * 2 - 1) << 1;
+            String[] keys = new String[capacity];
+            Node[] children = new Node[capacity];
+            int minIndex = ruleIndex;
+            for (Map.Entry<String, NodeBuilder> entry : literals.entrySet()) {
+                String key = entry.getKey();
+                Node child = entry.getValue().build();
+                int slot = hash(key, 0, key.length()) & (capacity - 1);
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = key;
+                children[slot] = child;
+                minIndex = Math.min(minIndex, child.minIndex);
+            }
+            Node starNode = star != null ? star.build() : null;
+            Node doubleStarNode = doubleStar != null ? doubleStar.build() : null;
+            if (starNode != null) {
+                minIndex = Math.min(minIndex, starNode.minIndex);
+            }
+            if (doubleStarNode != null) {
+                minIndex = Math.min(minIndex, doubleStarNode.minIndex);
+            }
+            return new Node(keys, children, starNode, doubleStarNode, ruleIndex, minIndex);
+        }
+    }
+}
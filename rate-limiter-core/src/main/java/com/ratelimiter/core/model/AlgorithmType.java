@@ -7,7 +7,9 @@ public enum AlgorithmType {
     LEAKING_BUCKET("leaking_bucket"),
     FIXED_WINDOW("fixed_window"),
     SLIDING_WINDOW_LOG("sliding_window_log"),
-    SLIDING_WINDOW_COUNTER("sliding_window_counter");
+    SLIDING_WINDOW_COUNTER("sliding_window_counter"),
+    GCRA("gcra"),
+    SLIDING_WINDOW_BUCKETS("sliding_window_buckets");
 
     private final String value;
 
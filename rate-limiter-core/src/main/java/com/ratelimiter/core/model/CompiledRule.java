@@ -0,0 +1,55 @@
+package com.ratelimiter.core.model;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Precompiled form of a {@link RateLimitRule}, created when the rule is loaded and dropped
+ * whenever the rule changes. Each component on the decision path derives what it needs from
+ * the rule once, such as a limiter's rendered script arguments or the gateway's 429 body,
+ * and finds it here on every later request instead of rebuilding it. Derived forms are
+ * never replaced, so they must depend on the rule and their owner alone.
+ */
+public final class CompiledRule {
+
+    private static final Object[] NONE = new Object[0];
+
+    private final RateLimitRule rule;
+    private volatile Object[] derived = NONE;
+
+    CompiledRule(RateLimitRule rule) {
+        this.rule = rule;
+    }
+
+    public RateLimitRule rule() {
+        return rule;
+    }
+
+    /**
+     * The form {@code owner} derives from the rule, computed by {@code derivation} on first
+     * use. A lookup scans a few owner references and never allocates.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T derive(Object owner, Function<? super RateLimitRule, ? extends T> derivation) {
+        Object[] entries = derived;
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == owner) {
+                return (T) entries[i + 1];
+            }
+        }
+        synchronized (this) {
+            entries = derived;
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == owner) {
+                    return (T) entries[i + 1];
+                }
+            }
+            T value = derivation.apply(rule);
+            Object[] extended = Arrays.copyOf(entries, entries.length + 2);
+            extended[entries.length] = owner;
+            extended[entries.length + 1] = value;
+            derived = extended;
+            return value;
+        }
+    }
+}
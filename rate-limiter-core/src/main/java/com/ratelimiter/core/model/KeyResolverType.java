@@ -6,7 +6,11 @@ public enum KeyResolverType {
     IP("ip"),
     USER("user"),
     PATH("path"),
-    IP_PATH("ip_path");
+    IP_PATH("ip_path"),
+    /**
+     * One key for every client of the rule, e.g. for a limit protecting the upstream as a whole.
+     */
+    GLOBAL("global");
 
     private final String value;
 
@@ -0,0 +1,94 @@
+package com.ratelimiter.core.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * How many permits a request matching a rule takes. The rule's route already picks the
+ * rule, so {@code permits} is the route's cost; {@code methods} overrides it per HTTP
+ * method, and {@code header} names a request header whose positive integer value raises
+ * the cost further. Clients can set the header themselves, so it never lowers the cost
+ * below the configured one.
+ */
+public class PermitCost {
+
+    @JsonProperty("permits")
+    private long permits = 1;
+
+    @JsonProperty("methods")
+    private Map<String, Long> methods = Map.of();
+
+    @JsonProperty("header")
+    private String header;
+
+    public PermitCost() {}
+
+    /**
+     * Permits for a request with the given method and value of {@link #getHeader()}, either
+     * of which may be {@code null}: the configured cost, or the header value if higher. A
+     * header value that is not an integer is ignored.
+     */
+    public long permitsFor(String method, String headerValue) {
+        long configured = permits;
+        if (method != null) {
+            Long byMethod = methods.get(method);
+            if (byMethod != null) {
+                configured = byMethod;
+            }
+        }
+        if (headerValue != null) {
+            try {
+                return Math.max(configured, Long.parseLong(headerValue.trim()));
+            } catch (NumberFormatException e) {
+                // keep the configured cost
+            }
+        }
+        return configured;
+    }
+
+    public long getPermits() {
+        return permits;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code permits} is below 1
+     */
+    public void setPermits(long permits) {
+        this.permits = checkCost("permits", permits);
+    }
+
+    public Map<String, Long> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a method's cost is missing or below 1
+     */
+    public void setMethods(Map<String, Long> methods) {
+        if (methods == null) {
+            this.methods = Map.of();
+            return;
+        }
+        methods.forEach((method, cost) -> checkCost("methods." + method, cost == null ? 0 : cost));
+        this.methods = methods;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    /**
+     * A cost below one permit would hand tokens back to the limiter on every request.
+     */
+    private static long checkCost(String name, long cost) {
+        if (cost < 1) {
+            throw new IllegalArgumentException("Cost " + name + " must be at least 1, got " + cost);
+        }
+        return cost;
+    }
+}
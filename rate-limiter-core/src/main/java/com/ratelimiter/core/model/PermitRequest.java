@@ -0,0 +1,10 @@
+package com.ratelimiter.core.model;
+
+/**
+ * One entry of a bulk check: the client key and the number of permits it asks for.
+ */
+public record PermitRequest(
+        String key,
+        long permits
+) {
+}
@@ -5,8 +5,22 @@ public record RateLimitResult(
         long remaining,
         long retryAfterMillis
 ) {
+    /**
+     * Allowed results for the small remaining counts most decisions report, shared so a
+     * decision need not allocate one.
+     */
+    private static final RateLimitResult[] ALLOWED = new RateLimitResult[1024];
+
+    static {
+        for (int i = 0; i < ALLOWED.length; i++) {
+            ALLOWED[i] = new RateLimitResult(true, i, 0);
+        }
+    }
+
     public static RateLimitResult allowed(long remaining) {
-        return new RateLimitResult(true, remaining, 0);
+        return remaining >= 0 && remaining < ALLOWED.length
+                ? ALLOWED[(int) remaining]
+                : new RateLimitResult(true, remaining, 0);
     }
 
     public static RateLimitResult denied(long retryAfterMillis) {
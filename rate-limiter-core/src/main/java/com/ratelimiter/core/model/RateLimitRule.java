@@ -2,6 +2,8 @@ package com.ratelimiter.core.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.List;
+
 public class RateLimitRule {
 
     @JsonProperty("id")
@@ -10,6 +12,14 @@ public class RateLimitRule {
     @JsonProperty("path")
     private String path;
 
+    /**
+     * Precedence among rules whose paths match the same request: the lowest order wins,
+     * ties going to the lower id. Replacing the whole rule list sets each rule's order to
+     * its position in the list.
+     */
+    @JsonProperty("order")
+    private int order;
+
     @JsonProperty("algorithm")
     private AlgorithmType algorithm;
 
@@ -28,17 +38,78 @@ public class RateLimitRule {
     @JsonProperty("leakRate")
     private double leakRate;
 
+    /**
+     * Bucketed Sliding Window only: number of sub-window counters the window is split
+     * into. More buckets track the window more closely at a constant cost per key.
+     * {@code 0} uses the algorithm's default.
+     */
+    @JsonProperty("windowBuckets")
+    private int windowBuckets;
+
+    /**
+     * Token Bucket only: upper bound on tokens leased out to gateways at once, and so on
+     * how far the rule can over-admit. {@code 0} disables leasing.
+     */
+    @JsonProperty("maxLeasedTokens")
+    private long maxLeasedTokens;
+
+    /**
+     * Longest the rule's decision may wait for Redis before falling back to a local one.
+     * {@code 0} uses the gateway default.
+     */
+    @JsonProperty("latencyBudgetMs")
+    private long latencyBudgetMs;
+
+    /**
+     * Name of the store holding the rule's state, e.g. {@code local} for coarse abuse
+     * limits that need no coordination. {@code null} uses the gateway's default store.
+     */
+    @JsonProperty("store")
+    private String store;
+
     @JsonProperty("keyResolver")
     private KeyResolverType keyResolver = KeyResolverType.IP;
 
+    /**
+     * Permits a matching request takes, e.g. more for exports than for reads.
+     * {@code null} costs one permit per request.
+     */
+    @JsonProperty("cost")
+    private PermitCost cost;
+
+    /**
+     * Further limits checked together with this one, e.g. per user and global on top of
+     * a per-IP rule. A request is admitted only if every limit admits it, and only then
+     * does it count against any of them. Layers take the rule's path and store; their own
+     * {@code path}, {@code store} and {@code layers} are ignored.
+     */
+    @JsonProperty("layers")
+    private List<RateLimitRule> layers = List.of();
+
+    private transient volatile CompiledRule compiled;
+
     public RateLimitRule() {}
 
+    /**
+     * The rule's precompiled form, created on first use and again after any setter call.
+     * {@link com.ratelimiter.core.config.RuleSet} compiles every rule when it is loaded.
+     */
+    public CompiledRule compiled() {
+        CompiledRule current = compiled;
+        if (current == null) {
+            current = new CompiledRule(this);
+            compiled = current;
+        }
+        return current;
+    }
+
     public String getId() {
         return id;
     }
 
     public void setId(String id) {
         this.id = id;
+        compiled = null;
     }
 
     public String getPath() {
@@ -47,6 +118,16 @@ public class RateLimitRule {
 
     public void setPath(String path) {
         this.path = path;
+        compiled = null;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+        compiled = null;
     }
 
     public AlgorithmType getAlgorithm() {
@@ -55,6 +136,7 @@ public class RateLimitRule {
 
     public void setAlgorithm(AlgorithmType algorithm) {
         this.algorithm = algorithm;
+        compiled = null;
     }
 
     public long getMaxRequests() {
@@ -63,6 +145,7 @@ public class RateLimitRule {
 
     public void setMaxRequests(long maxRequests) {
         this.maxRequests = maxRequests;
+        compiled = null;
     }
 
     public long getWindowSizeSeconds() {
@@ -71,6 +154,7 @@ public class RateLimitRule {
 
     public void setWindowSizeSeconds(long windowSizeSeconds) {
         this.windowSizeSeconds = windowSizeSeconds;
+        compiled = null;
     }
 
     public long getBucketCapacity() {
@@ -79,6 +163,7 @@ public class RateLimitRule {
 
     public void setBucketCapacity(long bucketCapacity) {
         this.bucketCapacity = bucketCapacity;
+        compiled = null;
     }
 
     public double getRefillRate() {
@@ -87,6 +172,7 @@ public class RateLimitRule {
 
     public void setRefillRate(double refillRate) {
         this.refillRate = refillRate;
+        compiled = null;
     }
 
     public double getLeakRate() {
@@ -95,6 +181,43 @@ public class RateLimitRule {
 
     public void setLeakRate(double leakRate) {
         this.leakRate = leakRate;
+        compiled = null;
+    }
+
+    public int getWindowBuckets() {
+        return windowBuckets;
+    }
+
+    public void setWindowBuckets(int windowBuckets) {
+        this.windowBuckets = windowBuckets;
+        compiled = null;
+    }
+
+    public long getMaxLeasedTokens() {
+        return maxLeasedTokens;
+    }
+
+    public void setMaxLeasedTokens(long maxLeasedTokens) {
+        this.maxLeasedTokens = maxLeasedTokens;
+        compiled = null;
+    }
+
+    public long getLatencyBudgetMs() {
+        return latencyBudgetMs;
+    }
+
+    public void setLatencyBudgetMs(long latencyBudgetMs) {
+        this.latencyBudgetMs = latencyBudgetMs;
+        compiled = null;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+        compiled = null;
     }
 
     public KeyResolverType getKeyResolver() {
@@ -103,5 +226,24 @@ public class RateLimitRule {
 
     public void setKeyResolver(KeyResolverType keyResolver) {
         this.keyResolver = keyResolver;
+        compiled = null;
+    }
+
+    public PermitCost getCost() {
+        return cost;
+    }
+
+    public void setCost(PermitCost cost) {
+        this.cost = cost;
+        compiled = null;
+    }
+
+    public List<RateLimitRule> getLayers() {
+        return layers;
+    }
+
+    public void setLayers(List<RateLimitRule> layers) {
+        this.layers = layers == null ? List.of() : layers;
+        compiled = null;
     }
 }
@@ -0,0 +1,11 @@
+package com.ratelimiter.core.model;
+
+/**
+ * Decision for a rule and its layers. {@code rule} is the layer that denied the request,
+ * or, when every layer admitted it, the one with the fewest requests left.
+ */
+public record RuleSetResult(
+        RateLimitResult result,
+        RateLimitRule rule
+) {
+}
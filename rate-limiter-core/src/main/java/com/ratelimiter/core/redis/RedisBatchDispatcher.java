@@ -0,0 +1,323 @@
+package com.ratelimiter.core.redis;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisScriptingAsyncCommands;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent script calls, across keys and algorithms, into pipelined batches.
+ * Calls queue until {@code maxBatchSize} are pending or the oldest one has waited
+ * {@code maxLinger}. The batch is then written to a dedicated connection with auto-flush
+ * disabled and reaches Redis in a single flush; each caller completes with its own reply.
+ * At most {@code maxInFlightBatches} batches await replies at once, later calls keep queuing,
+ * up to {@code maxQueuedCalls}; calls beyond that fail at once with a
+ * {@link RejectedExecutionException}. Calls of a batch still unanswered after
+ * {@code batchTimeout} fail with a {@link TimeoutException}, which frees the batch's slot, so
+ * a hung connection cannot hold every slot. Batches are taken from the queue under the
+ * dispatcher's monitor, then written and flushed under a separate write lock, one batch at
+ * a time: the connection is shared by every batch, and a flush would otherwise send part
+ * of a batch another thread is still writing. Callers queuing a call never wait for a write.
+ *
+ * <p>The dispatcher owns its connection and closes it: auto-flush is a per-connection
+ * setting, so the connection must not be shared with other callers. On a Redis Cluster
+ * connection each call is routed to the node owning its key's slot and the flush writes
+ * every node's share at once, so the per-slot parts of a batch execute in parallel.
+ */
+public class RedisBatchDispatcher implements AutoCloseable {
+
+    /**
+     * Notified after each flush with the batch size and how long its oldest call waited
+     * in the queue, i.e. the latency batching added to that batch.
+     */
+    @FunctionalInterface
+    public interface FlushListener {
+        void onFlush(int batchSize, long waitNanos);
+    }
+
+    private final StatefulConnection<String, String> connection;
+    private final RedisScriptingAsyncCommands<String, String> commands;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final int maxInFlightBatches;
+    private final int maxQueuedCalls;
+    private final long batchTimeoutNanos;
+    private final FlushListener listener;
+    private final ScheduledExecutorService timer;
+    private final Queue<PendingCall> queue = new ArrayDeque<>();
+    private final Object writeLock = new Object();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private int inFlight;
+    private ScheduledFuture<?> lingerTask;
+    private boolean closed;
+
+    public RedisBatchDispatcher(StatefulRedisConnection<String, String> connection, int maxBatchSize,
+                                Duration maxLinger, int maxInFlightBatches, int maxQueuedCalls,
+                                Duration batchTimeout, FlushListener listener) {
+        this(connection, connection.async(), maxBatchSize, maxLinger, maxInFlightBatches, maxQueuedCalls,
+                batchTimeout, listener);
+    }
+
+    public RedisBatchDispatcher(StatefulRedisClusterConnection<String, String> connection, int maxBatchSize,
+                                Duration maxLinger, int maxInFlightBatches, int maxQueuedCalls,
+                                Duration batchTimeout, FlushListener listener) {
+        this(connection, connection.async(), maxBatchSize, maxLinger, maxInFlightBatches, maxQueuedCalls,
+                batchTimeout, listener);
+    }
+
+    private RedisBatchDispatcher(StatefulConnection<String, String> connection,
+                                 RedisScriptingAsyncCommands<String, String> commands, int maxBatchSize,
+                                 Duration maxLinger, int maxInFlightBatches, int maxQueuedCalls,
+                                 Duration batchTimeout, FlushListener listener) {
+        if (maxBatchSize < 1 || maxInFlightBatches < 1 || maxQueuedCalls < 1) {
+            throw new IllegalArgumentException("Batch size, in-flight batches and queued calls must be positive");
+        }
+        if (batchTimeout.isNegative() || batchTimeout.isZero()) {
+            throw new IllegalArgumentException("Batch timeout must be positive, got " + batchTimeout);
+        }
+        this.connection = connection;
+        this.commands = commands;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.batchTimeoutNanos = batchTimeout.toNanos();
+        this.listener = listener;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-batch-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connection.setAutoFlushCommands(false);
+    }
+
+    /**
+     * Queues one {@code EVALSHA} call. The returned future completes with the script
+     * reply, or exceptionally with the error Redis returned for this call alone, a
+     * {@link RejectedExecutionException} if the queue is full or a {@link TimeoutException}
+     * if its batch was not answered in time.
+     */
+    public CompletableFuture<List<Object>> submit(RedisScript script, String[] keys, String... args) {
+        PendingCall call = new PendingCall(script, keys, args, System.nanoTime());
+        List<List<PendingCall>> ready = List.of();
+        synchronized (this) {
+            if (closed) {
+                call.reply.completeExceptionally(new IllegalStateException("Batch dispatcher is closed"));
+                return call.reply;
+            }
+            if (queue.size() >= maxQueuedCalls) {
+                rejected.incrementAndGet();
+                call.reply.completeExceptionally(
+                        new RejectedExecutionException("All " + maxQueuedCalls + " batch queue slots are in use"));
+                return call.reply;
+            }
+            queue.add(call);
+            if (queue.size() >= maxBatchSize) {
+                ready = drain(call.enqueuedNanos);
+            } else if (lingerTask == null && inFlight < maxInFlightBatches) {
+                scheduleLinger(maxLingerNanos);
+            }
+        }
+        sendAll(ready, call.enqueuedNanos);
+        return call.reply;
+    }
+
+    /**
+     * Number of batches flushed to Redis.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Number of calls sent in those batches.
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * Number of calls rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Number of batches whose calls failed for want of a reply within the batch timeout.
+     */
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    public synchronized int getQueuedCalls() {
+        return queue.size();
+    }
+
+    public synchronized int getInFlightBatches() {
+        return inFlight;
+    }
+
+    @Override
+    public void close() {
+        List<PendingCall> abandoned;
+        synchronized (this) {
+            closed = true;
+            abandoned = new ArrayList<>(queue);
+            queue.clear();
+        }
+        timer.shutdownNow();
+        for (PendingCall call : abandoned) {
+            call.reply.completeExceptionally(new IllegalStateException("Batch dispatcher is closed"));
+        }
+        connection.close();
+    }
+
+    private void lingerElapsed() {
+        long now = System.nanoTime();
+        List<List<PendingCall>> ready;
+        synchronized (this) {
+            lingerTask = null;
+            ready = drain(now);
+        }
+        sendAll(ready, now);
+    }
+
+    private void batchCompleted() {
+        long now = System.nanoTime();
+        List<List<PendingCall>> ready;
+        synchronized (this) {
+            inFlight--;
+            ready = drain(now);
+        }
+        sendAll(ready, now);
+    }
+
+    /**
+     * Takes every batch that is full or whose oldest call reached the linger time off the
+     * queue, as long as in-flight batches are below the limit, and counts them as in flight.
+     * Must hold the monitor; the caller sends them once it has released it.
+     */
+    private List<List<PendingCall>> drain(long now) {
+        List<List<PendingCall>> ready = List.of();
+        while (!queue.isEmpty() && inFlight < maxInFlightBatches
+                && (queue.size() >= maxBatchSize || now - queue.peek().enqueuedNanos >= maxLingerNanos)) {
+            List<PendingCall> batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+            while (batch.size() < maxBatchSize && !queue.isEmpty()) {
+                batch.add(queue.poll());
+            }
+            if (ready.isEmpty()) {
+                ready = new ArrayList<>(1);
+            }
+            ready.add(batch);
+            inFlight++;
+        }
+        if (queue.isEmpty()) {
+            if (lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+        } else if (lingerTask == null && inFlight < maxInFlightBatches) {
+            scheduleLinger(Math.max(0, maxLingerNanos - (now - queue.peek().enqueuedNanos)));
+        }
+        return ready;
+    }
+
+    private void sendAll(List<List<PendingCall>> ready, long now) {
+        for (List<PendingCall> batch : ready) {
+            send(batch, now);
+        }
+    }
+
+    /**
+     * Writes and flushes one batch already counted as in flight. The batch leaves flight
+     * once every call has completed, by reply, error or timeout. Takes the write lock, never
+     * while holding the monitor.
+     */
+    private void send(List<PendingCall> batch, long now) {
+        CompletableFuture<?>[] replies = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            replies[i] = batch.get(i).reply;
+        }
+        CompletableFuture<Void> completed = CompletableFuture.allOf(replies);
+        try {
+            ScheduledFuture<?> timeout = timer.schedule(() -> expire(batch), batchTimeoutNanos, TimeUnit.NANOSECONDS);
+            completed.whenComplete((ignored, error) -> timeout.cancel(false));
+            synchronized (writeLock) {
+                for (PendingCall call : batch) {
+                    RedisFuture<List<Object>> future = commands.evalsha(
+                            call.script.sha(), ScriptOutputType.MULTI, call.keys, call.args);
+                    future.whenComplete((reply, error) -> {
+                        if (error != null) {
+                            call.reply.completeExceptionally(error);
+                        } else {
+                            call.reply.complete(reply);
+                        }
+                    });
+                }
+                connection.flushCommands();
+            }
+            batches.incrementAndGet();
+            calls.addAndGet(batch.size());
+            if (listener != null) {
+                listener.onFlush(batch.size(), now - batch.get(0).enqueuedNanos);
+            }
+        } catch (RuntimeException e) {
+            for (PendingCall call : batch) {
+                call.reply.completeExceptionally(e);
+            }
+        }
+        completed.whenComplete((ignored, error) -> batchCompleted());
+    }
+
+    private void expire(List<PendingCall> batch) {
+        TimeoutException timeout = new TimeoutException(
+                "No reply from Redis within " + TimeUnit.NANOSECONDS.toMillis(batchTimeoutNanos) + " ms");
+        boolean expired = false;
+        for (PendingCall call : batch) {
+            expired |= call.reply.completeExceptionally(timeout);
+        }
+        if (expired) {
+            timedOut.incrementAndGet();
+        }
+    }
+
+    private void scheduleLinger(long delayNanos) {
+        lingerTask = timer.schedule(this::lingerElapsed, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class PendingCall {
+
+        private final RedisScript script;
+        private final String[] keys;
+        private final String[] args;
+        private final long enqueuedNanos;
+        private final CompletableFuture<List<Object>> reply = new CompletableFuture<>();
+
+        private PendingCall(RedisScript script, String[] keys, String[] args, long enqueuedNanos) {
+            this.script = script;
+            this.keys = keys;
+            this.args = args;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.ratelimiter.core.redis;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.reactive.RedisScriptingReactiveCommands;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spreads the limiters' script calls over several Redis connections so that one slow
+ * script, e.g. a Sliding Window Log on a large sorted set, only delays the calls queued
+ * behind it on its own connection. Calls go to a shared connection chosen by
+ * {@link Selection}, unless their algorithm has a dedicated connection.
+ *
+ * <p>Scripts are attributed to an algorithm by name: the script named after the
+ * algorithm's value, and its variants such as {@code token_bucket_lease}, use that
+ * algorithm's dedicated connection. The pool owns its connections and closes them.
+ */
+public class RedisConnectionPool implements AutoCloseable {
+
+    public enum Selection {
+        /**
+         * Same key, same connection: calls for one key reach Redis in submission order.
+         */
+        KEY_HASH,
+        /**
+         * Connections take turns; spreads load evenly but gives up per-key ordering.
+         */
+        ROUND_ROBIN
+    }
+
+    /**
+     * Notified when a call completes, fails or is cancelled, with the time since it was sent.
+     */
+    @FunctionalInterface
+    public interface LatencyListener {
+        void onReply(PooledConnection connection, long latencyNanos);
+    }
+
+    /**
+     * Route cached for scripts without a dedicated connection.
+     */
+    private static final PooledConnection NO_ROUTE = new PooledConnection("none", null, null);
+
+    private final List<PooledConnection> shared;
+    private final Map<AlgorithmType, PooledConnection> dedicated;
+    private final Selection selection;
+    private final LatencyListener listener;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, PooledConnection> routes = new ConcurrentHashMap<>();
+
+    public RedisConnectionPool(List<PooledConnection> shared, Map<AlgorithmType, PooledConnection> dedicated,
+                               Selection selection, LatencyListener listener) {
+        if (shared.isEmpty()) {
+            throw new IllegalArgumentException("The pool needs at least one shared connection");
+        }
+        this.shared = List.copyOf(shared);
+        this.dedicated = dedicated.isEmpty() ? Map.of() : new EnumMap<>(dedicated);
+        this.selection = selection;
+        this.listener = listener;
+    }
+
+    /**
+     * Runs {@code EVALSHA} on the connection selected for the script and its first key.
+     */
+    public Flux<Object> evalsha(RedisScript script, String[] keys, String... args) {
+        PooledConnection connection = select(script, keys);
+        return Flux.defer(() -> {
+            connection.inFlight.incrementAndGet();
+            connection.calls.incrementAndGet();
+            long start = System.nanoTime();
+            return connection.commands.<Object>evalsha(script.sha(), ScriptOutputType.MULTI, keys, args)
+                    .doFinally(signal -> {
+                        connection.inFlight.decrementAndGet();
+                        if (listener != null) {
+                            listener.onReply(connection, System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Every connection of the pool, shared ones first.
+     */
+    public List<PooledConnection> getConnections() {
+        List<PooledConnection> all = new ArrayList<>(shared);
+        all.addAll(dedicated.values());
+        return all;
+    }
+
+    @Override
+    public void close() {
+        for (PooledConnection connection : getConnections()) {
+            connection.connection.close();
+        }
+    }
+
+    PooledConnection select(RedisScript script, String[] keys) {
+        PooledConnection own = routes.computeIfAbsent(script.name(), this::dedicatedFor);
+        if (own != NO_ROUTE) {
+            return own;
+        }
+        int size = shared.size();
+        if (size == 1) {
+            return shared.get(0);
+        }
+        int index = selection == Selection.ROUND_ROBIN || keys.length == 0
+                ? next.getAndIncrement()
+                : spread(keys[0].hashCode());
+        return shared.get(Math.floorMod(index, size));
+    }
+
+    private PooledConnection dedicatedFor(String scriptName) {
+        for (Map.Entry<AlgorithmType, PooledConnection> entry : dedicated.entrySet()) {
+            String algorithm = entry.getKey().getValue();
+            if (scriptName.equals(algorithm) || scriptName.startsWith(algorithm + "_")) {
+                return entry.getValue();
+            }
+        }
+        return NO_ROUTE;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * One connection of the pool with its queue depth and call count.
+     */
+    public static final class PooledConnection {
+
+        private final String name;
+        private final StatefulConnection<String, String> connection;
+        private final RedisScriptingReactiveCommands<String, String> commands;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong calls = new AtomicLong();
+
+        private PooledConnection(String name, StatefulConnection<String, String> connection,
+                                 RedisScriptingReactiveCommands<String, String> commands) {
+            this.name = name;
+            this.connection = connection;
+            this.commands = commands;
+        }
+
+        public static PooledConnection of(String name, StatefulRedisConnection<String, String> connection) {
+            return new PooledConnection(name, connection, connection.reactive());
+        }
+
+        public static PooledConnection of(String name, StatefulRedisClusterConnection<String, String> connection) {
+            return new PooledConnection(name, connection, connection.reactive());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Calls sent on this connection that have not completed yet.
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getCallCount() {
+            return calls.get();
+        }
+    }
+}
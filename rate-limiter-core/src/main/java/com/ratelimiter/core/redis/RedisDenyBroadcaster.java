@@ -0,0 +1,78 @@
+package com.ratelimiter.core.redis;
+
+import com.ratelimiter.core.algorithm.DenyCache;
+import io.lettuce.core.api.reactive.BaseRedisReactiveCommands;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares denials between gateway instances over a Redis pub/sub channel. Denials recorded
+ * locally are published as {@code retryAfterMillis \n ruleId \n key}; denials received from
+ * the channel are applied to the local {@link DenyCache} without being published again.
+ * The retry-after period, not an absolute time, travels so clock skew between gateways
+ * does not matter.
+ */
+public class RedisDenyBroadcaster implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisDenyBroadcaster.class);
+
+    private final StatefulRedisPubSubConnection<String, String> subscription;
+    private final BaseRedisReactiveCommands<String, String> publisher;
+    private final DenyCache denyCache;
+    private final String channel;
+
+    public RedisDenyBroadcaster(StatefulRedisPubSubConnection<String, String> subscription,
+                                BaseRedisReactiveCommands<String, String> publisher,
+                                DenyCache denyCache, String channel) {
+        this.subscription = subscription;
+        this.publisher = publisher;
+        this.denyCache = denyCache;
+        this.channel = channel;
+    }
+
+    public void start() {
+        subscription.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String from, String message) {
+                if (channel.equals(from)) {
+                    receive(message);
+                }
+            }
+        });
+        subscription.async().subscribe(channel);
+        denyCache.addListener(this::publish);
+        log.info("Sharing rate limit denials on Redis channel '{}'", channel);
+    }
+
+    void publish(String ruleId, String key, long retryAfterMillis) {
+        publisher.publish(channel, encode(ruleId, key, retryAfterMillis))
+                .subscribe(null, e -> log.warn("Could not publish denial for rule '{}'", ruleId, e));
+    }
+
+    void receive(String message) {
+        int first = message.indexOf('\n');
+        int second = first < 0 ? -1 : message.indexOf('\n', first + 1);
+        if (second < 0) {
+            log.warn("Ignoring malformed denial message on channel '{}'", channel);
+            return;
+        }
+        try {
+            long retryAfterMillis = Long.parseLong(message, 0, first, 10);
+            denyCache.applyRemote(message.substring(first + 1, second), message.substring(second + 1),
+                    retryAfterMillis);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed denial message on channel '{}'", channel);
+        }
+    }
+
+    static String encode(String ruleId, String key, long retryAfterMillis) {
+        return retryAfterMillis + "\n" + ruleId + "\n" + key;
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+    }
+}
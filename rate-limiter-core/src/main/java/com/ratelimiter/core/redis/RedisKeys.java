@@ -0,0 +1,62 @@
+package com.ratelimiter.core.redis;
+
+import com.ratelimiter.core.model.AlgorithmType;
+
+/**
+ * Key layout shared by the Redis limiters. Each algorithm keeps a client's state in one
+ * key: a two-character prefix naming the algorithm, followed by the client key wrapped in
+ * a hash tag, e.g. {@code rt{user-1}}. The tag keeps every key a script touches for one
+ * client in the same Redis Cluster slot. Keys of the original layout, such as
+ * {@code rl:tb:user-1}, are untagged; versions writing them ran on a single Redis only.
+ */
+public final class RedisKeys {
+
+    public static final String TOKEN_BUCKET = "rt";
+    public static final String LEAKING_BUCKET = "rl";
+    public static final String FIXED_WINDOW = "rf";
+    public static final String SLIDING_WINDOW_LOG = "rs";
+    public static final String SLIDING_WINDOW_COUNTER = "rc";
+    public static final String GCRA = "rg";
+    public static final String SLIDING_WINDOW_BUCKETS = "rb";
+
+    private RedisKeys() {
+    }
+
+    /**
+     * Prefix of the keys holding the algorithm's state.
+     */
+    public static String prefix(AlgorithmType algorithm) {
+        return switch (algorithm) {
+            case TOKEN_BUCKET -> TOKEN_BUCKET;
+            case LEAKING_BUCKET -> LEAKING_BUCKET;
+            case FIXED_WINDOW -> FIXED_WINDOW;
+            case SLIDING_WINDOW_LOG -> SLIDING_WINDOW_LOG;
+            case SLIDING_WINDOW_COUNTER -> SLIDING_WINDOW_COUNTER;
+            case GCRA -> GCRA;
+            case SLIDING_WINDOW_BUCKETS -> SLIDING_WINDOW_BUCKETS;
+        };
+    }
+
+    /**
+     * Prefix of the untagged keys the original release kept the algorithm's state under,
+     * followed there by the client key, or {@code null} for algorithms added since.
+     */
+    public static String legacyPrefix(AlgorithmType algorithm) {
+        return switch (algorithm) {
+            case TOKEN_BUCKET -> "rl:tb:";
+            case LEAKING_BUCKET -> "rl:lb:";
+            case FIXED_WINDOW -> "rl:fw:";
+            case SLIDING_WINDOW_LOG -> "rl:swl:";
+            case SLIDING_WINDOW_COUNTER -> "rl:swc:";
+            case GCRA, SLIDING_WINDOW_BUCKETS -> null;
+        };
+    }
+
+    /**
+     * Returns {@code prefix{key}}. An empty key would make an empty tag, which Redis
+     * ignores, so callers must not pass one.
+     */
+    public static String tagged(String prefix, String key) {
+        return prefix + '{' + key + '}';
+    }
+}
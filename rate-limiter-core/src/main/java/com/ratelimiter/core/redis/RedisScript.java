@@ -0,0 +1,28 @@
+package com.ratelimiter.core.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A Lua script together with the SHA1 digest Redis uses to cache it.
+ */
+public record RedisScript(
+        String name,
+        String source,
+        String sha
+) {
+    public static RedisScript of(String name, String source) {
+        return new RedisScript(name, source, sha1(source));
+    }
+
+    private static String sha1(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.ratelimiter.core.redis;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisScriptingReactiveCommands;
+import io.lettuce.core.api.sync.RedisScriptingCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared registry of the Lua scripts used by the Redis-backed limiters.
+ * Scripts are preloaded with {@code SCRIPT LOAD} and invoked by digest with {@code EVALSHA},
+ * so only the 40-byte SHA1 travels with each request. When Redis answers {@code NOSCRIPT}
+ * (after a restart, a failover or a {@code SCRIPT FLUSH}) the script is loaded again and the
+ * call is retried once. With a {@link RedisBatchDispatcher} the reactive calls are
+ * coalesced into pipelined batches; otherwise a {@link RedisConnectionPool}, if given,
+ * spreads them over several connections.
+ *
+ * <p>The registry only needs the scripting commands, so it works with a standalone
+ * connection as well as a Redis Cluster one, where {@code SCRIPT LOAD} reaches every
+ * node and {@code EVALSHA} is routed by the slot of its first key.
+ */
+public class RedisScriptRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisScriptRegistry.class);
+
+    /**
+     * Notified after every script call with its duration, from the call until its reply,
+     * including a reload after {@code NOSCRIPT} and any wait in a batch.
+     */
+    @FunctionalInterface
+    public interface CallListener {
+        void onCall(RedisScript script, long nanos, boolean success);
+    }
+
+    private final Map<String, RedisScript> scripts = new ConcurrentHashMap<>();
+    private final RedisScriptingCommands<String, String> commands;
+    private final RedisScriptingReactiveCommands<String, String> reactiveCommands;
+    private final RedisBatchDispatcher dispatcher;
+    private final RedisConnectionPool pool;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile CallListener callListener;
+
+    public RedisScriptRegistry(RedisScriptingCommands<String, String> commands,
+                               RedisScriptingReactiveCommands<String, String> reactiveCommands) {
+        this(commands, reactiveCommands, null);
+    }
+
+    public RedisScriptRegistry(RedisScriptingCommands<String, String> commands,
+                               RedisScriptingReactiveCommands<String, String> reactiveCommands,
+                               RedisBatchDispatcher dispatcher) {
+        this(commands, reactiveCommands, dispatcher, null);
+    }
+
+    public RedisScriptRegistry(RedisScriptingCommands<String, String> commands,
+                               RedisScriptingReactiveCommands<String, String> reactiveCommands,
+                               RedisBatchDispatcher dispatcher, RedisConnectionPool pool) {
+        this.commands = commands;
+        this.reactiveCommands = reactiveCommands;
+        this.dispatcher = dispatcher;
+        this.pool = pool;
+    }
+
+    public RedisScript register(String name, String source) {
+        RedisScript script = scripts.computeIfAbsent(name, n -> RedisScript.of(n, source));
+        if (!script.source().equals(source)) {
+            throw new IllegalStateException("Script '" + name + "' is already registered with a different body");
+        }
+        return script;
+    }
+
+    public void setCallListener(CallListener callListener) {
+        this.callListener = callListener;
+    }
+
+    public Collection<RedisScript> getScripts() {
+        return List.copyOf(scripts.values());
+    }
+
+    /**
+     * Loads every registered script into the Redis script cache. Failures are logged
+     * rather than thrown: a script that could not be loaded now is loaded on first use.
+     */
+    public void loadAll() {
+        for (RedisScript script : scripts.values()) {
+            try {
+                load(script);
+                log.info("Loaded Lua script '{}' ({})", script.name(), script.sha());
+            } catch (Exception e) {
+                log.warn("Could not preload Lua script '{}', it will be loaded on first use", script.name(), e);
+            }
+        }
+    }
+
+    public List<Object> eval(RedisScript script, String[] keys, String... args) {
+        CallListener listener = callListener;
+        long start = listener != null ? System.nanoTime() : 0;
+        boolean success = false;
+        try {
+            List<Object> reply = evalOnce(script, keys, args);
+            success = true;
+            return reply;
+        } finally {
+            if (listener != null) {
+                listener.onCall(script, System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    public Flux<Object> evalReactive(RedisScript script, String[] keys, String... args) {
+        Flux<Object> reply = send(script, keys, args).onErrorResume(RedisNoScriptException.class, e -> {
+            reloads.incrementAndGet();
+            log.warn("Lua script '{}' missing from the Redis script cache, reloading", script.name());
+            return reactiveCommands.scriptLoad(script.source())
+                    .doOnNext(sha -> loads.incrementAndGet())
+                    .thenMany(send(script, keys, args));
+        });
+        CallListener listener = callListener;
+        if (listener == null) {
+            return reply;
+        }
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return reply
+                    .doOnComplete(() -> listener.onCall(script, System.nanoTime() - start, true))
+                    .doOnError(e -> listener.onCall(script, System.nanoTime() - start, false));
+        });
+    }
+
+    private List<Object> evalOnce(RedisScript script, String[] keys, String[] args) {
+        try {
+            return commands.evalsha(script.sha(), ScriptOutputType.MULTI, keys, args);
+        } catch (RedisNoScriptException e) {
+            reloads.incrementAndGet();
+            log.warn("Lua script '{}' missing from the Redis script cache, reloading", script.name());
+            load(script);
+            return commands.evalsha(script.sha(), ScriptOutputType.MULTI, keys, args);
+        }
+    }
+
+    private Flux<Object> send(RedisScript script, String[] keys, String[] args) {
+        if (dispatcher != null) {
+            return Mono.fromFuture(() -> dispatcher.submit(script, keys, args)).flatMapIterable(values -> values);
+        }
+        if (pool != null) {
+            return pool.evalsha(script, keys, args);
+        }
+        return reactiveCommands.evalsha(script.sha(), ScriptOutputType.MULTI, keys, args);
+    }
+
+    /**
+     * Number of {@code SCRIPT LOAD} calls issued, including the startup preload.
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Number of times a script had to be reloaded after a {@code NOSCRIPT} reply.
+     */
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    private void load(RedisScript script) {
+        String sha = commands.scriptLoad(script.source());
+        loads.incrementAndGet();
+        if (!script.sha().equals(sha)) {
+            throw new IllegalStateException("Redis returned digest " + sha + " for script '"
+                    + script.name() + "', expected " + script.sha());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ratelimiter.core.redis;
+
+/**
+ * Decimal renderings of the numbers the scripts take on every call, so the decision path
+ * does not allocate a new string for each of them. Small values, such as permit counts,
+ * come from a table. The current second and millisecond are shared by every call made
+ * within them and rendered once.
+ */
+public final class ScriptArgs {
+
+    private static final String[] SMALL = new String[1024];
+
+    static {
+        for (int i = 0; i < SMALL.length; i++) {
+            SMALL[i] = String.valueOf(i);
+        }
+    }
+
+    private static final Repeating SECONDS = new Repeating();
+    private static final Repeating MILLIS = new Repeating();
+
+    private ScriptArgs() {
+    }
+
+    public static String of(long value) {
+        return value >= 0 && value < SMALL.length ? SMALL[(int) value] : String.valueOf(value);
+    }
+
+    public static String seconds(long epochSeconds) {
+        return SECONDS.render(epochSeconds);
+    }
+
+    public static String millis(long epochMillis) {
+        return MILLIS.render(epochMillis);
+    }
+
+    /**
+     * Keeps the last value rendered; callers racing on a new value may each render it.
+     */
+    private static final class Repeating {
+
+        private volatile Rendered last = new Rendered(Long.MIN_VALUE, "");
+
+        private String render(long value) {
+            Rendered rendered = last;
+            if (rendered.value != value) {
+                rendered = new Rendered(value, String.valueOf(value));
+                last = rendered;
+            }
+            return rendered.text;
+        }
+    }
+
+    private record Rendered(long value, String text) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.ratelimiter.core.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-memory estimate of the busiest (rule, key) pairs, for finding the clients that
+ * dominate the limiter's traffic. Requests and denials are counted in two Count-Min
+ * sketches of {@value #DEPTH} rows, whose estimate of a pair never undercounts and
+ * overcounts by roughly the total traffic divided by the width. Candidates for the top
+ * pairs live in a table of {@code capacity} slots; each pair may take one of two slots,
+ * and evicts the occupant with the lower estimate. All of it is updated with single
+ * atomic operations, so {@link #record} never waits; a tracked pair costs
+ * {@value #DEPTH} increments and a slot read per request.
+ *
+ * <p>Every {@code decayInterval} a daemon thread halves all counters, so estimates follow
+ * recent traffic: a pair seen at a steady rate {@code r} settles around
+ * {@code 2 * r * decayInterval}, from which the rates are derived. Increments racing a
+ * halving may be lost, which only makes the estimates slightly lower.
+ */
+public class HeavyHitterSketch implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HeavyHitterSketch.class);
+
+    static final int DEPTH = 4;
+    private static final int MAX_WIDTH = 1 << 16;
+
+    public static final Comparator<HotKey> BY_REQUESTS = Comparator.comparingDouble(HotKey::requestRate).reversed();
+    public static final Comparator<HotKey> BY_DENIALS = Comparator.comparingDouble(HotKey::denialRate).reversed();
+
+    /**
+     * Estimated rates, per second, of one pair.
+     */
+    public record HotKey(String rule, String key, double requestRate, double denialRate) {
+    }
+
+    private record Candidate(long hash, String rule, String key) {
+
+        boolean matches(long hash, String rule, String key) {
+            return this.hash == hash && this.key.equals(key) && this.rule.equals(rule);
+        }
+    }
+
+    private final int widthMask;
+    private final int slotMask;
+    private final AtomicLongArray requests;
+    private final AtomicLongArray denials;
+    private final AtomicReferenceArray<Candidate> slots;
+    private final double decaySeconds;
+    private final List<Runnable> decayListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService decayer;
+
+    /**
+     * @param capacity      pairs tracked as candidates, rounded up to a power of two
+     * @param width         counters per sketch row, rounded up to a power of two, at most 65536
+     * @param decayInterval how often all counters are halved
+     */
+    public HeavyHitterSketch(int capacity, int width, Duration decayInterval) {
+        if (width > MAX_WIDTH) {
+            throw new IllegalArgumentException("width must not exceed " + MAX_WIDTH + ": " + width);
+        }
+        int slotCount = powerOfTwo(capacity);
+        int rowWidth = powerOfTwo(width);
+        this.widthMask = rowWidth - 1;
+        this.slotMask = slotCount - 1;
+        this.requests = new AtomicLongArray(DEPTH * rowWidth);
+        this.denials = new AtomicLongArray(DEPTH * rowWidth);
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.decaySeconds = decayInterval.toMillis() / 1000.0;
+        this.decayer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heavy-hitter-decay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = decayInterval.toMillis();
+        decayer.scheduleWithFixedDelay(this::decay, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts one request of {@code key} under {@code rule}.
+     */
+    public void record(String rule, String key, boolean denied) {
+        long hash = hash(rule, key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            estimate = Math.min(estimate, requests.incrementAndGet(index));
+            if (denied) {
+                denials.incrementAndGet(index);
+            }
+        }
+
+        int first = (int) hash & slotMask;
+        Candidate firstCandidate = slots.get(first);
+        if (firstCandidate != null && firstCandidate.matches(hash, rule, key)) {
+            return;
+        }
+        int second = (int) (hash >>> 32) & slotMask;
+        Candidate secondCandidate = slots.get(second);
+        if (secondCandidate != null && secondCandidate.matches(hash, rule, key)) {
+            return;
+        }
+
+        int victim;
+        Candidate current;
+        if (firstCandidate == null) {
+            victim = first;
+            current = null;
+        } else if (secondCandidate == null) {
+            victim = second;
+            current = null;
+        } else {
+            long firstEstimate = estimate(requests, firstCandidate.hash());
+            long secondEstimate = estimate(requests, secondCandidate.hash());
+            victim = firstEstimate <= secondEstimate ? first : second;
+            current = victim == first ? firstCandidate : secondCandidate;
+            if (estimate <= Math.min(firstEstimate, secondEstimate)) {
+                return;
+            }
+        }
+        slots.compareAndSet(victim, current, new Candidate(hash, rule, key));
+    }
+
+    /**
+     * The {@code limit} tracked pairs ranked first by {@code order}, e.g.
+     * {@link #BY_REQUESTS} or {@link #BY_DENIALS}.
+     */
+    public List<HotKey> top(int limit, Comparator<HotKey> order) {
+        List<HotKey> hotKeys = new ArrayList<>();
+        Set<Candidate> seen = new HashSet<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Candidate candidate = slots.get(i);
+            if (candidate != null && seen.add(candidate)) {
+                hotKeys.add(new HotKey(candidate.rule(), candidate.key(),
+                        rate(estimate(requests, candidate.hash())), rate(estimate(denials, candidate.hash()))));
+            }
+        }
+        hotKeys.sort(order);
+        return List.copyOf(hotKeys.subList(0, Math.min(limit, hotKeys.size())));
+    }
+
+    /**
+     * Number of candidate slots, the most pairs {@link #top} can return.
+     */
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * Runs {@code listener} on the decay thread after each halving, e.g. to refresh gauges
+     * at the pace the estimates change.
+     */
+    public void addDecayListener(Runnable listener) {
+        decayListeners.add(listener);
+    }
+
+    /**
+     * Halves every counter; called every {@code decayInterval}.
+     */
+    public void decay() {
+        for (int i = 0; i < requests.length(); i++) {
+            requests.set(i, requests.get(i) >> 1);
+            denials.set(i, denials.get(i) >> 1);
+        }
+        for (Runnable listener : decayListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Heavy hitter decay listener failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        decayer.shutdownNow();
+    }
+
+    private double rate(long estimate) {
+        return estimate / (2 * decaySeconds);
+    }
+
+    private long estimate(AtomicLongArray counters, long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Row {@code row} uses its own 16 bits of the hash, so the rows are independent.
+     */
+    private int index(long hash, int row) {
+        return row * (widthMask + 1) + ((int) (hash >>> (row * 16)) & widthMask);
+    }
+
+    /**
+     * MurmurHash3's 64-bit finalizer over both strings' hash codes.
+     */
+    private static long hash(String rule, String key) {
+        long hash = ((long) rule.hashCode() << 32) ^ (key.hashCode() & 0xffffffffL);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static int powerOfTwo(int value) {
+        return Math.max(1, Integer.highestOneBit(Math.max(1, value) - 1) << 1);
+    }
+}
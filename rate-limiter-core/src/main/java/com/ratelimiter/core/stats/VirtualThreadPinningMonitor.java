@@ -0,0 +1,90 @@
+package com.ratelimiter.core.stats;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts virtual threads pinned to their carrier for at least {@code threshold}, from the
+ * JDK's {@code jdk.VirtualThreadPinned} flight recorder event. A pinned thread blocks
+ * inside a {@code synchronized} block or a native frame and holds the carrier while it
+ * waits, which with few carriers stalls every other decision. The first pinning at each
+ * site is logged with its stack, so the offending lock can be found; later ones are
+ * only counted.
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_SITES = 100;
+
+    private final RecordingStream stream;
+    private final LongAdder pinned = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final Set<String> sites = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPinningMonitor(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    public long getPinnedCount() {
+        return pinned.sum();
+    }
+
+    public Duration getPinnedTime() {
+        return Duration.ofNanos(pinnedNanos.sum());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+        RecordedStackTrace stack = event.getStackTrace();
+        String site = stack != null ? site(stack) : "unknown";
+        if (sites.size() < MAX_SITES && sites.add(site)) {
+            log.warn("Virtual thread pinned for {} at {}:{}", event.getDuration(), site, format(stack));
+        }
+    }
+
+    /**
+     * The innermost frame outside the JDK, where the code holding the carrier runs.
+     */
+    private static String site(RecordedStackTrace stack) {
+        for (RecordedFrame frame : stack.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + '.' + frame.getMethod().getName();
+            }
+        }
+        return stack.getFrames().isEmpty() ? "unknown" : stack.getFrames().get(0).getMethod().getName();
+    }
+
+    private static String format(RecordedStackTrace stack) {
+        if (stack == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (RecordedFrame frame : stack.getFrames()) {
+            text.append(System.lineSeparator()).append("\tat ")
+                    .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
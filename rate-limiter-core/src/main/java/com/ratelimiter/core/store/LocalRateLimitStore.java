@@ -0,0 +1,51 @@
+package com.ratelimiter.core.store;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalBucketedSlidingWindowRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalFixedWindowRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalGcraRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalLeakingBucketRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalRuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalSlidingWindowCounterRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalSlidingWindowLogRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.algorithm.local.LocalTokenBucketRateLimiter;
+import com.ratelimiter.core.model.AlgorithmType;
+
+/**
+ * State held in this process only; each gateway enforces the limit on its own.
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+
+    public static final String NAME = "local";
+
+    private final LocalStateStore states;
+
+    public LocalRateLimitStore(LocalStateStore states) {
+        this.states = states;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public RateLimiter createLimiter(AlgorithmType type) {
+        return switch (type) {
+            case TOKEN_BUCKET -> new LocalTokenBucketRateLimiter(states);
+            case LEAKING_BUCKET -> new LocalLeakingBucketRateLimiter(states);
+            case FIXED_WINDOW -> new LocalFixedWindowRateLimiter(states);
+            case SLIDING_WINDOW_LOG -> new LocalSlidingWindowLogRateLimiter(states);
+            case SLIDING_WINDOW_COUNTER -> new LocalSlidingWindowCounterRateLimiter(states);
+            case GCRA -> new LocalGcraRateLimiter(states);
+            case SLIDING_WINDOW_BUCKETS -> new LocalBucketedSlidingWindowRateLimiter(states);
+        };
+    }
+
+    @Override
+    public RuleSetRateLimiter createRuleSetLimiter() {
+        return new LocalRuleSetRateLimiter(states);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ratelimiter.core.store;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.SequentialRuleSetRateLimiter;
+import com.ratelimiter.core.model.AlgorithmType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where the per-key state of the limiters lives. A store supplies one limiter per
+ * algorithm, each of which reads and updates a key's state in a single atomic step
+ * (a Lua script in Redis, a CAS on the in-process state), so the algorithms keep their
+ * guarantees whatever the store. Rules pick a store by {@link #name()}; the others can
+ * be plugged in without touching the algorithms' callers.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Name rules use to select this store, e.g. {@code redis}.
+     */
+    String name();
+
+    RateLimiter createLimiter(AlgorithmType type);
+
+    /**
+     * Creates the limiter for rules with layers. The default checks the layers one by one
+     * and is not all-or-nothing: stores that can decide every layer in one atomic step
+     * should override it.
+     */
+    default RuleSetRateLimiter createRuleSetLimiter() {
+        Map<AlgorithmType, RateLimiter> limiters = new ConcurrentHashMap<>();
+        return new SequentialRuleSetRateLimiter(
+                layer -> limiters.computeIfAbsent(layer.getAlgorithm(), this::createLimiter));
+    }
+
+    /**
+     * Prepares the limiters created so far, e.g. loads their scripts. Called once at startup.
+     */
+    default void preload() {
+    }
+}
@@ -0,0 +1,81 @@
+package com.ratelimiter.core.store;
+
+import com.ratelimiter.core.algorithm.BucketedSlidingWindowRateLimiter;
+import com.ratelimiter.core.algorithm.FixedWindowRateLimiter;
+import com.ratelimiter.core.algorithm.GcraRateLimiter;
+import com.ratelimiter.core.algorithm.LeakingBucketRateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RedisRuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.SlidingWindowCounterRateLimiter;
+import com.ratelimiter.core.algorithm.SlidingWindowLogRateLimiter;
+import com.ratelimiter.core.algorithm.TokenBucketRateLimiter;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+
+import java.time.Duration;
+
+/**
+ * State shared by every gateway in Redis, updated by the algorithms' Lua scripts.
+ */
+public class RedisRateLimitStore implements RateLimitStore {
+
+    public static final String NAME = "redis";
+
+    private final RedisScriptRegistry scripts;
+    private final Duration leaseTtl;
+    private final boolean migrateLegacyKeys;
+
+    public RedisRateLimitStore(RedisScriptRegistry scripts) {
+        this(scripts, Duration.ofSeconds(1));
+    }
+
+    /**
+     * Creates a store whose Token Bucket leases last {@code leaseTtl}.
+     */
+    public RedisRateLimitStore(RedisScriptRegistry scripts, Duration leaseTtl) {
+        this(scripts, leaseTtl, false);
+    }
+
+    /**
+     * Creates a store whose limiters, with {@code migrateLegacyKeys}, take over state still
+     * kept under the keys of the previous layout. Only needed while such keys may exist,
+     * i.e. for the longest window or refill time after an upgrade.
+     */
+    public RedisRateLimitStore(RedisScriptRegistry scripts, Duration leaseTtl, boolean migrateLegacyKeys) {
+        this.scripts = scripts;
+        this.leaseTtl = leaseTtl;
+        this.migrateLegacyKeys = migrateLegacyKeys;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public RateLimiter createLimiter(AlgorithmType type) {
+        return switch (type) {
+            case TOKEN_BUCKET -> new TokenBucketRateLimiter(scripts, leaseTtl, migrateLegacyKeys);
+            case LEAKING_BUCKET -> new LeakingBucketRateLimiter(scripts, migrateLegacyKeys);
+            case FIXED_WINDOW -> new FixedWindowRateLimiter(scripts, migrateLegacyKeys);
+            case SLIDING_WINDOW_LOG -> new SlidingWindowLogRateLimiter(scripts, migrateLegacyKeys);
+            case SLIDING_WINDOW_COUNTER -> new SlidingWindowCounterRateLimiter(scripts, migrateLegacyKeys);
+            case GCRA -> new GcraRateLimiter(scripts);
+            case SLIDING_WINDOW_BUCKETS -> new BucketedSlidingWindowRateLimiter(scripts);
+        };
+    }
+
+    @Override
+    public RuleSetRateLimiter createRuleSetLimiter() {
+        return new RedisRuleSetRateLimiter(scripts, migrateLegacyKeys);
+    }
+
+    /**
+     * Loads the scripts of the limiters created so far into Redis.
+     */
+    @Override
+    public void preload() {
+        scripts.loadAll();
+    }
+}
@@ -0,0 +1,20 @@
+package com.ratelimiter.core.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AbstractRedisRateLimiterTest {
+
+    @Test
+    void keepsFlatReply() {
+        assertEquals(List.of(1L, 9L), AbstractRedisRateLimiter.toLongs(List.of(1L, 9L)));
+    }
+
+    @Test
+    void unwrapsNestedReply() {
+        assertEquals(List.of(0L, 0L, 500L), AbstractRedisRateLimiter.toLongs(List.of(List.of(0L, 0L, 500L))));
+    }
+}
@@ -0,0 +1,171 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockingCheckRateLimiterTest {
+
+    private final RateLimitRule rule = new RateLimitRule();
+    private BlockingCheckExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void runsBlockingChecksOnVirtualThreads() {
+        executor = BlockingCheckExecutor.virtualThreads(10, Duration.ofSeconds(1));
+        RateLimiter limiter = new BlockingCheckRateLimiter(
+                checking((key, r) -> RateLimitResult.allowed(Thread.currentThread().isVirtual() ? 1 : 0)), executor);
+
+        assertEquals(1, limiter.isAllowed("client", rule).block().remaining());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void runsBlockingChecksOnTheBoundedElasticScheduler() {
+        executor = BlockingCheckExecutor.boundedElastic(10, Duration.ofSeconds(1));
+        Thread caller = Thread.currentThread();
+        RateLimiter limiter = new BlockingCheckRateLimiter(
+                checking((key, r) -> RateLimitResult.allowed(Thread.currentThread() != caller ? 1 : 0)), executor);
+
+        assertEquals(1, limiter.isAllowed("client", rule, 1).block().remaining());
+    }
+
+    @Test
+    void rejectsDecisionsBeyondThePermits() throws Exception {
+        executor = BlockingCheckExecutor.virtualThreads(1, Duration.ofMillis(20));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RateLimiter limiter = new BlockingCheckRateLimiter(checking((key, r) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RateLimitResult.allowed(0);
+        }), executor);
+
+        Mono<RateLimitResult> first = limiter.isAllowed("a", rule).cache();
+        first.subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class, () -> limiter.isAllowed("b", rule).block());
+        assertEquals(1, executor.getRejectedCount());
+        release.countDown();
+        assertTrue(first.block().allowed());
+    }
+
+    @Test
+    void boundedElasticRejectsOnceThePermitTimeoutPasses() throws Exception {
+        executor = BlockingCheckExecutor.boundedElastic(1, Duration.ofMillis(20));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RateLimiter limiter = new BlockingCheckRateLimiter(awaiting(started, release), executor);
+
+        Mono<RateLimitResult> first = limiter.isAllowed("a", rule).cache();
+        first.subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> limiter.isAllowed("b", rule).block(Duration.ofSeconds(5)));
+        assertEquals(1, executor.getRejectedCount());
+        release.countDown();
+        assertTrue(first.block().allowed());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void boundedElasticHandsAFreedPermitToAQueuedDecision() throws Exception {
+        executor = BlockingCheckExecutor.boundedElastic(1, Duration.ofSeconds(30));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RateLimiter limiter = new BlockingCheckRateLimiter(awaiting(started, release), executor);
+
+        Mono<RateLimitResult> first = limiter.isAllowed("a", rule).cache();
+        first.subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Mono<RateLimitResult> queued = limiter.isAllowed("b", rule).cache();
+        queued.subscribe();
+
+        release.countDown();
+        assertTrue(queued.block(Duration.ofSeconds(5)).allowed());
+        assertEquals(0, executor.getRejectedCount());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    void boundedElasticRejectsAtOnceWithoutAPermitTimeout() throws Exception {
+        executor = BlockingCheckExecutor.boundedElastic(1, Duration.ZERO);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RateLimiter limiter = new BlockingCheckRateLimiter(awaiting(started, release), executor);
+
+        Mono<RateLimitResult> first = limiter.isAllowed("a", rule).cache();
+        first.subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> limiter.isAllowed("b", rule).block(Duration.ofSeconds(1)));
+        release.countDown();
+        assertTrue(first.block().allowed());
+    }
+
+    @Test
+    void blockingCallsStayOnTheCaller() {
+        executor = BlockingCheckExecutor.virtualThreads(10, Duration.ofSeconds(1));
+        RateLimiter limiter = new BlockingCheckRateLimiter(
+                checking((key, r) -> RateLimitResult.allowed(Thread.currentThread().isVirtual() ? 1 : 0)), executor);
+
+        assertFalse(Thread.currentThread().isVirtual());
+        assertEquals(0, limiter.check("client", rule).remaining());
+    }
+
+    /**
+     * A limiter whose checks signal {@code started}, then allow once {@code release} opens.
+     */
+    private static RateLimiter awaiting(CountDownLatch started, CountDownLatch release) {
+        return checking((key, r) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RateLimitResult.allowed(0);
+        });
+    }
+
+    /**
+     * A limiter answering every check, whatever its permits, with the given function.
+     */
+    private static RateLimiter checking(BiFunction<String, RateLimitRule, RateLimitResult> check) {
+        return new RateLimiter() {
+            @Override
+            public RateLimitResult check(String key, RateLimitRule rule) {
+                return check.apply(key, rule);
+            }
+
+            @Override
+            public RateLimitResult check(String key, RateLimitRule rule, long permits) {
+                return check.apply(key, rule);
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlockingCheckRuleSetRateLimiterTest {
+
+    private final RateLimitRule rule = new RateLimitRule();
+    private BlockingCheckExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void runsBlockingChecksOnVirtualThreads() {
+        executor = BlockingCheckExecutor.virtualThreads(10, Duration.ofSeconds(1));
+        RuleSetRateLimiter limiter = new BlockingCheckRuleSetRateLimiter((keys, r, permits) -> new RuleSetResult(
+                RateLimitResult.allowed(Thread.currentThread().isVirtual() ? 1 : 0), r), executor);
+
+        assertEquals(1, limiter.isAllowed(List.of("client"), rule).block().result().remaining());
+        assertEquals(0, limiter.check(List.of("client"), rule).result().remaining());
+    }
+}
@@ -0,0 +1,72 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BucketedSlidingWindowRateLimiterTest {
+
+    private RedisCommands<String, String> commands;
+    private BucketedSlidingWindowRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        commands = mock(RedisCommands.class);
+        limiter = new BucketedSlidingWindowRateLimiter(
+                new RedisScriptRegistry(commands, mock(RedisReactiveCommands.class)));
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.SLIDING_WINDOW_BUCKETS);
+        rule.setMaxRequests(100);
+        rule.setWindowSizeSeconds(60);
+    }
+
+    @Test
+    void usesDefaultBucketCountWhenUnset() {
+        assertEquals(BucketedSlidingWindowRateLimiter.DEFAULT_BUCKETS, BucketedSlidingWindowRateLimiter.bucketCount(rule));
+        assertEquals(6_000, BucketedSlidingWindowRateLimiter.bucketMillis(rule));
+    }
+
+    @Test
+    void capsBucketCount() {
+        rule.setWindowBuckets(1_000_000);
+        assertEquals(BucketedSlidingWindowRateLimiter.MAX_BUCKETS, BucketedSlidingWindowRateLimiter.bucketCount(rule));
+
+        rule.setWindowSizeSeconds(0);
+        assertEquals(1, BucketedSlidingWindowRateLimiter.bucketCount(rule));
+        assertEquals(1, BucketedSlidingWindowRateLimiter.bucketMillis(rule));
+    }
+
+    @Test
+    void roundsBucketLengthUp() {
+        rule.setWindowBuckets(7);
+
+        assertEquals(8_572, BucketedSlidingWindowRateLimiter.bucketMillis(rule));
+    }
+
+    @Test
+    void mapsReplies() {
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(List.of(1L, 41L, 0L), List.of(0L, 0L, 2_500L));
+
+        assertEquals(RateLimitResult.allowed(41), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(2_500), limiter.check("client", rule));
+        assertEquals("rb{client}", limiter.redisKey("client"));
+    }
+}
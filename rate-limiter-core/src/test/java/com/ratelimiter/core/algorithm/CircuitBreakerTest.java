@@ -0,0 +1,107 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.algorithm.CircuitBreaker.Permit;
+import com.ratelimiter.core.algorithm.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final CircuitBreaker breaker = new CircuitBreaker(0.5, 4, Duration.ofSeconds(10),
+            Duration.ofSeconds(5), 2, now::get);
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        fail(3);
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(Permit.CALL, breaker.acquire());
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        succeed(2);
+        fail(2);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(Permit.REJECTED, breaker.acquire());
+        assertEquals(1, breaker.getOpenCount());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    void forgetsOutcomesOfPreviousWindow() {
+        fail(3);
+        now.addAndGet(10_000);
+        succeed(3);
+        fail(1);
+
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void limitsConcurrentProbesOnceOpenDurationElapsed() {
+        fail(4);
+        now.addAndGet(5_000);
+
+        assertEquals(Permit.PROBE, breaker.acquire());
+        assertEquals(Permit.PROBE, breaker.acquire());
+        assertEquals(Permit.REJECTED, breaker.acquire());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void closesOnlyAfterRunOfSuccessfulProbes() {
+        fail(4);
+        now.addAndGet(5_000);
+
+        breaker.record(breaker.acquire(), true);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        breaker.record(breaker.acquire(), true);
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(Permit.CALL, breaker.acquire());
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        fail(4);
+        now.addAndGet(5_000);
+
+        breaker.record(breaker.acquire(), true);
+        breaker.record(breaker.acquire(), false);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+        assertEquals(Permit.REJECTED, breaker.acquire());
+    }
+
+    @Test
+    void releasedProbeFreesItsSlot() {
+        fail(4);
+        now.addAndGet(5_000);
+        Permit first = breaker.acquire();
+        breaker.acquire();
+
+        breaker.release(first);
+
+        assertEquals(Permit.PROBE, breaker.acquire());
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.record(breaker.acquire(), true);
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.record(breaker.acquire(), false);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ratelimiter.core.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DenyCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final DenyCache cache = new DenyCache(100, now::get);
+
+    @Test
+    void remembersDenialUntilRetryAfter() {
+        cache.deny("rule", "client", 500);
+
+        assertEquals(500, cache.remainingMillis("rule", "client"));
+        now.addAndGet(300);
+        assertEquals(200, cache.remainingMillis("rule", "client"));
+        now.addAndGet(200);
+        assertEquals(0, cache.remainingMillis("rule", "client"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    void keysAreScopedByRule() {
+        cache.deny("rule-a", "client", 500);
+
+        assertEquals(0, cache.remainingMillis("rule-b", "client"));
+        assertEquals(0, cache.remainingMillis("rule-a", "other"));
+    }
+
+    @Test
+    void ignoresDenialsWithoutRetryAfter() {
+        cache.deny("rule", "client", 0);
+        assertEquals(0, cache.remainingMillis("rule", "client"));
+    }
+
+    @Test
+    void notifiesListenersOfLocalDenialsOnly() {
+        List<String> published = new ArrayList<>();
+        cache.addListener((ruleId, key, retryAfterMillis) -> published.add(ruleId + "/" + key + "/" + retryAfterMillis));
+
+        cache.deny("rule", "local", 100);
+        cache.applyRemote("rule", "remote", 200);
+
+        assertEquals(List.of("rule/local/100"), published);
+        assertEquals(200, cache.remainingMillis("rule", "remote"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DenyCachingRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final RateLimitRule rule = new RateLimitRule();
+    private RateLimiter delegate;
+    private DenyCachingRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        rule.setId("rule");
+        delegate = mock(RateLimiter.class);
+        limiter = new DenyCachingRateLimiter(delegate, new DenyCache(100, now::get));
+    }
+
+    @Test
+    void shortCircuitsKeysDeniedEarlier() {
+        when(delegate.check("client", rule)).thenReturn(RateLimitResult.denied(1000));
+
+        assertFalse(limiter.check("client", rule).allowed());
+        now.addAndGet(400);
+        RateLimitResult cached = limiter.check("client", rule);
+
+        assertFalse(cached.allowed());
+        assertEquals(600, cached.retryAfterMillis());
+        verify(delegate, times(1)).check("client", rule);
+    }
+
+    @Test
+    void consultsLimiterAgainAfterRetryAfter() {
+        when(delegate.check("client", rule))
+                .thenReturn(RateLimitResult.denied(1000))
+                .thenReturn(RateLimitResult.allowed(3));
+
+        limiter.check("client", rule);
+        now.addAndGet(1000);
+
+        assertTrue(limiter.check("client", rule).allowed());
+        verify(delegate, times(2)).check("client", rule);
+    }
+
+    @Test
+    void allowedResultsAreNotCached() {
+        when(delegate.check("client", rule)).thenReturn(RateLimitResult.allowed(3));
+
+        limiter.check("client", rule);
+        limiter.check("client", rule);
+
+        verify(delegate, times(2)).check("client", rule);
+    }
+
+    @Test
+    void cachesEveryAlgorithmsDenialsUntilTheirRetryAfter() {
+        for (AlgorithmType algorithm : AlgorithmType.values()) {
+            assertEquals(45_000, cachedMillis(algorithm, 45_000), algorithm.getValue());
+        }
+    }
+
+    /**
+     * Denies a request under a 60 second window and returns how long the denial stays cached.
+     */
+    private long cachedMillis(AlgorithmType algorithm, long retryAfterMillis) {
+        rule.setAlgorithm(algorithm);
+        rule.setWindowSizeSeconds(60);
+        DenyCache denyCache = new DenyCache(100, now::get);
+        when(delegate.check("client", rule)).thenReturn(RateLimitResult.denied(retryAfterMillis));
+
+        new DenyCachingRateLimiter(delegate, denyCache).check("client", rule);
+
+        return denyCache.remainingMillis(rule.getId(), "client");
+    }
+}
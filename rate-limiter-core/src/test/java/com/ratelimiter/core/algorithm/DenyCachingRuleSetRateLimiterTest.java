@@ -0,0 +1,93 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DenyCachingRuleSetRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final RateLimitRule perIp = new RateLimitRule();
+    private final RateLimitRule perUser = new RateLimitRule();
+    private RuleSetRateLimiter delegate;
+    private DenyCachingRuleSetRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        perIp.setId("per-ip");
+        perUser.setId("per-user");
+        perIp.setLayers(List.of(perUser));
+        delegate = mock(RuleSetRateLimiter.class);
+        limiter = new DenyCachingRuleSetRateLimiter(delegate, new DenyCache(100, now::get));
+    }
+
+    @Test
+    void shortCircuitsKeysDeniedByALayer() {
+        List<String> keys = List.of("10.0.0.1", "alice");
+        when(delegate.check(keys, perIp, 1)).thenReturn(new RuleSetResult(RateLimitResult.denied(1000), perUser));
+
+        assertFalse(limiter.check(keys, perIp, 1).result().allowed());
+        now.addAndGet(400);
+        RuleSetResult cached = limiter.check(keys, perIp, 1);
+
+        assertEquals(600, cached.result().retryAfterMillis());
+        assertSame(perUser, cached.rule());
+        verify(delegate, times(1)).check(keys, perIp, 1);
+    }
+
+    @Test
+    void otherKeysOfTheDenyingLayerAreStillDecided() {
+        List<String> alice = List.of("10.0.0.1", "alice");
+        List<String> bob = List.of("10.0.0.1", "bob");
+        when(delegate.check(alice, perIp, 1)).thenReturn(new RuleSetResult(RateLimitResult.denied(1000), perUser));
+        when(delegate.check(bob, perIp, 1)).thenReturn(new RuleSetResult(RateLimitResult.allowed(3), perIp));
+
+        limiter.check(alice, perIp, 1);
+
+        assertTrue(limiter.check(bob, perIp, 1).result().allowed());
+    }
+
+    @Test
+    void weightedDenialsAreNotCached() {
+        List<String> keys = List.of("10.0.0.1", "alice");
+        when(delegate.check(keys, perIp, 5)).thenReturn(new RuleSetResult(RateLimitResult.denied(1000), perIp));
+
+        limiter.check(keys, perIp, 5);
+        limiter.check(keys, perIp, 5);
+
+        verify(delegate, times(2)).check(keys, perIp, 5);
+    }
+
+    @Test
+    void cachesTheDenyingLayersRetryAfterAsItIs() {
+        perUser.setAlgorithm(AlgorithmType.SLIDING_WINDOW_LOG);
+        perUser.setWindowSizeSeconds(60);
+        List<String> keys = List.of("10.0.0.1", "alice");
+        when(delegate.check(keys, perIp, 1))
+                .thenReturn(new RuleSetResult(RateLimitResult.denied(7000), perUser))
+                .thenReturn(new RuleSetResult(RateLimitResult.allowed(3), perIp));
+
+        limiter.check(keys, perIp, 1);
+        now.addAndGet(6000);
+        assertEquals(RateLimitResult.denied(1000), limiter.check(keys, perIp, 1).result());
+        now.addAndGet(1000);
+
+        assertTrue(limiter.check(keys, perIp, 1).result().allowed());
+        verify(delegate, times(2)).check(keys, perIp, 1);
+    }
+}
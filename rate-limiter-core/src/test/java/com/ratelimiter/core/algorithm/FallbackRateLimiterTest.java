@@ -0,0 +1,148 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FallbackRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger gateways = new AtomicInteger(1);
+    private final RateLimitRule rule = new RateLimitRule();
+    private LocalStateStore store;
+    private CircuitBreaker breaker;
+    private RateLimiter delegate;
+    private FallbackRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        rule.setId("rule");
+        rule.setAlgorithm(AlgorithmType.FIXED_WINDOW);
+        rule.setMaxRequests(10);
+        rule.setWindowSizeSeconds(60);
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        breaker = new CircuitBreaker(0.5, 2, Duration.ofSeconds(10), Duration.ofSeconds(5), 1, now::get);
+        delegate = mock(RateLimiter.class);
+        limiter = new FallbackRateLimiter(delegate, new RateLimiterFactory(store), breaker,
+                Duration.ofMillis(50), gateways::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void usesDelegateWhileHealthy() {
+        when(delegate.check("client", rule)).thenReturn(RateLimitResult.allowed(7));
+
+        assertEquals(7, limiter.check("client", rule).remaining());
+        assertEquals(0, limiter.getFallbackCount());
+    }
+
+    @Test
+    void decidesLocallyWhenDelegateFails() {
+        when(delegate.check("client", rule)).thenThrow(new IllegalStateException("connection reset"));
+
+        RateLimitResult result = limiter.check("client", rule);
+
+        assertTrue(result.allowed());
+        assertEquals(9, result.remaining());
+        assertEquals(1, limiter.getFallbackCount());
+        assertEquals(1, breaker.getFailureCount());
+    }
+
+    @Test
+    void reportsEveryFailedCallButNotTheSkippedOnes() {
+        List<Throwable> errors = new ArrayList<>();
+        limiter = new FallbackRateLimiter(delegate, new RateLimiterFactory(store), breaker,
+                Duration.ofMillis(50), gateways::get, (failed, error) -> {
+                    assertSame(rule, failed);
+                    errors.add(error);
+                });
+        when(delegate.check(any(), any())).thenThrow(new IllegalStateException("connection reset"));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.check("client", rule);
+        }
+
+        assertEquals(2, errors.size());
+        assertEquals(3, limiter.getFallbackCount());
+    }
+
+    @Test
+    void skipsDelegateWhileBreakerIsOpen() {
+        when(delegate.check(any(), any())).thenThrow(new IllegalStateException("connection reset"));
+        limiter.check("a", rule);
+        limiter.check("b", rule);
+
+        limiter.check("client", rule);
+
+        verify(delegate, never()).check("client", rule);
+        assertEquals(3, limiter.getFallbackCount());
+    }
+
+    @Test
+    void enforcesThisGatewaysShareLocally() {
+        gateways.set(4);
+        breaker.record(breaker.acquire(), false);
+        breaker.record(breaker.acquire(), false);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.check("client", rule).allowed());
+        }
+        assertFalse(limiter.check("client", rule).allowed());
+    }
+
+    @Test
+    void scalesCountsUpAndRatesDown() {
+        rule.setBucketCapacity(10);
+        rule.setRefillRate(2.0);
+        rule.setLeakRate(1.0);
+
+        RateLimitRule share = FallbackRateLimiter.scale(rule, 4);
+
+        assertEquals(3, share.getMaxRequests());
+        assertEquals(3, share.getBucketCapacity());
+        assertEquals(0.5, share.getRefillRate());
+        assertEquals(0.25, share.getLeakRate());
+        assertEquals("rule", share.getId());
+    }
+
+    @Test
+    void reusesShareUntilGatewayCountChanges() {
+        gateways.set(2);
+        RateLimitRule first = limiter.localShare(rule);
+        assertSame(first, limiter.localShare(rule));
+
+        gateways.set(3);
+
+        assertEquals(4, limiter.localShare(rule).getMaxRequests());
+        assertSame(rule, limiterWithGateways(0).localShare(rule));
+    }
+
+    private FallbackRateLimiter limiterWithGateways(int count) {
+        return new FallbackRateLimiter(delegate, new RateLimiterFactory(store), breaker,
+                Duration.ofMillis(50), () -> count);
+    }
+}
@@ -0,0 +1,126 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FallbackRuleSetRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger gateways = new AtomicInteger(1);
+    private final List<String> keys = List.of("10.0.0.1", "api");
+    private RateLimitRule perIp;
+    private RateLimitRule global;
+    private LocalStateStore store;
+    private CircuitBreaker breaker;
+    private RuleSetRateLimiter delegate;
+    private FallbackRuleSetRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        perIp = rule("per-ip", 10);
+        global = rule("global", 8);
+        global.setKeyResolver(KeyResolverType.GLOBAL);
+        perIp.setLayers(List.of(global));
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        breaker = new CircuitBreaker(0.5, 2, Duration.ofSeconds(10), Duration.ofSeconds(5), 1, now::get);
+        delegate = mock(RuleSetRateLimiter.class);
+        limiter = new FallbackRuleSetRateLimiter(delegate, new RateLimiterFactory(store), breaker,
+                Duration.ofMillis(50), gateways::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void usesDelegateWhileHealthy() {
+        RuleSetResult decision = new RuleSetResult(RateLimitResult.allowed(7), perIp);
+        when(delegate.check(keys, perIp, 1)).thenReturn(decision);
+
+        assertSame(decision, limiter.check(keys, perIp, 1));
+        assertEquals(0, limiter.getFallbackCount());
+    }
+
+    @Test
+    void decidesEveryLayerLocallyWhenDelegateFails() {
+        when(delegate.check(keys, perIp, 1)).thenThrow(new IllegalStateException("connection reset"));
+
+        RuleSetResult result = limiter.check(keys, perIp, 1);
+
+        assertEquals(RateLimitResult.allowed(7), result.result());
+        assertSame(global, result.rule());
+        assertEquals(1, limiter.getFallbackCount());
+        assertEquals(1, breaker.getFailureCount());
+    }
+
+    @Test
+    void skipsDelegateWhileBreakerIsOpen() {
+        when(delegate.check(any(), any(), anyLong())).thenThrow(new IllegalStateException("connection reset"));
+        limiter.check(List.of("a", "api"), perIp, 1);
+        limiter.check(List.of("b", "api"), perIp, 1);
+
+        limiter.check(keys, perIp, 1);
+
+        verify(delegate, never()).check(keys, perIp, 1);
+        assertEquals(3, limiter.getFallbackCount());
+    }
+
+    @Test
+    void enforcesThisGatewaysShareOfEveryLayer() {
+        gateways.set(4);
+        breaker.record(breaker.acquire(), false);
+        breaker.record(breaker.acquire(), false);
+
+        // The global layer's share of 8 is 2, below the per-IP share of 3.
+        assertTrue(limiter.check(List.of("a", "api"), perIp, 1).result().allowed());
+        assertTrue(limiter.check(List.of("b", "api"), perIp, 1).result().allowed());
+        RuleSetResult denied = limiter.check(List.of("c", "api"), perIp, 1);
+
+        assertFalse(denied.result().allowed());
+        assertSame(global, denied.rule());
+    }
+
+    @Test
+    void scalesLayersWithTheirRule() {
+        RateLimitRule share = LocalShares.scale(perIp, 4);
+
+        assertEquals(3, share.getMaxRequests());
+        assertEquals(1, share.getLayers().size());
+        assertEquals(2, share.getLayers().get(0).getMaxRequests());
+        assertEquals("global", share.getLayers().get(0).getId());
+        assertEquals(8, global.getMaxRequests());
+    }
+
+    private static RateLimitRule rule(String id, long maxRequests) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setAlgorithm(AlgorithmType.FIXED_WINDOW);
+        rule.setMaxRequests(maxRequests);
+        rule.setWindowSizeSeconds(60);
+        return rule;
+    }
+}
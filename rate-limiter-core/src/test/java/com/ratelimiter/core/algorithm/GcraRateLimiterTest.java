@@ -0,0 +1,76 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GcraRateLimiterTest {
+
+    private RedisCommands<String, String> commands;
+    private GcraRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        commands = mock(RedisCommands.class);
+        RedisScriptRegistry scripts = new RedisScriptRegistry(commands, mock(RedisReactiveCommands.class));
+        limiter = new GcraRateLimiter(scripts, () -> 1_700_000_000_000L);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.GCRA);
+        rule.setBucketCapacity(3);
+        rule.setRefillRate(3.0);
+    }
+
+    @Test
+    void passesEmissionIntervalBurstAndMillisecondClock() {
+        assertEquals(List.of("333333", "3", "1700000000000", "1"), List.of(limiter.args(rule)));
+        assertEquals("rg{client}", limiter.redisKey("client"));
+    }
+
+    @Test
+    void passesThePermitCountLast() {
+        assertEquals("5", limiter.args(rule, 5)[3]);
+    }
+
+    @Test
+    void intervalNeverRoundsToZero() {
+        rule.setRefillRate(5_000_000.0);
+
+        assertEquals(1, GcraRateLimiter.emissionIntervalMicros(rule));
+    }
+
+    @Test
+    void mapsAllowedReply() {
+        stubReply(List.of(1L, 2L, 0L));
+
+        assertEquals(RateLimitResult.allowed(2), limiter.check("client", rule));
+    }
+
+    @Test
+    void mapsDeniedReplyToItsRetryAfter() {
+        stubReply(List.of(0L, 0L, 334L));
+
+        assertEquals(RateLimitResult.denied(334), limiter.check("client", rule));
+    }
+
+    private void stubReply(List<Object> reply) {
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(reply);
+    }
+}
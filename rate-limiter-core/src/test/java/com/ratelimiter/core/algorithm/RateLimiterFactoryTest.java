@@ -1,11 +1,24 @@
 package com.ratelimiter.core.algorithm;
 
+import com.ratelimiter.core.algorithm.local.LocalRuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalSlidingWindowLogRateLimiter;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.algorithm.local.LocalTokenBucketRateLimiter;
 import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import com.ratelimiter.core.store.LocalRateLimitStore;
+import com.ratelimiter.core.store.RedisRateLimitStore;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 
 class RateLimiterFactoryTest {
@@ -14,46 +27,142 @@ class RateLimiterFactoryTest {
     private final RedisCommands<String, String> commands =
             mock(RedisCommands.class);
 
+    @SuppressWarnings("unchecked")
+    private final RedisScriptRegistry scripts =
+            new RedisScriptRegistry(commands, mock(RedisReactiveCommands.class));
+
     @Test
     void createsTokenBucketLimiter() {
-        RateLimiterFactory factory = new RateLimiterFactory(commands);
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
         RateLimiter limiter = factory.getLimiter(AlgorithmType.TOKEN_BUCKET);
         assertInstanceOf(TokenBucketRateLimiter.class, limiter);
     }
 
     @Test
     void createsLeakingBucketLimiter() {
-        RateLimiterFactory factory = new RateLimiterFactory(commands);
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
         RateLimiter limiter = factory.getLimiter(AlgorithmType.LEAKING_BUCKET);
         assertInstanceOf(LeakingBucketRateLimiter.class, limiter);
     }
 
     @Test
     void createsFixedWindowLimiter() {
-        RateLimiterFactory factory = new RateLimiterFactory(commands);
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
         RateLimiter limiter = factory.getLimiter(AlgorithmType.FIXED_WINDOW);
         assertInstanceOf(FixedWindowRateLimiter.class, limiter);
     }
 
     @Test
     void createsSlidingWindowLogLimiter() {
-        RateLimiterFactory factory = new RateLimiterFactory(commands);
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
         RateLimiter limiter = factory.getLimiter(AlgorithmType.SLIDING_WINDOW_LOG);
         assertInstanceOf(SlidingWindowLogRateLimiter.class, limiter);
     }
 
     @Test
     void createsSlidingWindowCounterLimiter() {
-        RateLimiterFactory factory = new RateLimiterFactory(commands);
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
         RateLimiter limiter = factory.getLimiter(AlgorithmType.SLIDING_WINDOW_COUNTER);
         assertInstanceOf(SlidingWindowCounterRateLimiter.class, limiter);
     }
 
     @Test
     void returnsSameInstanceForSameType() {
-        RateLimiterFactory factory = new RateLimiterFactory(commands);
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
         RateLimiter first = factory.getLimiter(AlgorithmType.TOKEN_BUCKET);
         RateLimiter second = factory.getLimiter(AlgorithmType.TOKEN_BUCKET);
         assertSame(first, second);
     }
+
+    @Test
+    void preloadRegistersEveryAlgorithmScript() {
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
+        factory.preloadScripts();
+        // one script per algorithm plus the token lease and rule set scripts
+        assertEquals(AlgorithmType.values().length + 2, scripts.getScripts().size());
+    }
+
+    @Test
+    void appliesDecorators() {
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
+        RateLimiter plain = factory.getLimiter(AlgorithmType.FIXED_WINDOW);
+
+        factory.addDecorator(limiter -> new DenyCachingRateLimiter(limiter, new DenyCache(10)));
+        RateLimiter decorated = factory.getLimiter(AlgorithmType.FIXED_WINDOW);
+
+        assertInstanceOf(DenyCachingRateLimiter.class, decorated);
+        assertSame(plain, ((DenyCachingRateLimiter) decorated).getDelegate());
+    }
+
+    @Test
+    void appliesRuleSetDecoratorsOfTheRulesStore() {
+        try (LocalStateStore store = new LocalStateStore()) {
+            RateLimiterFactory factory = new RateLimiterFactory(RedisRateLimitStore.NAME,
+                    List.of(new RedisRateLimitStore(scripts), new LocalRateLimitStore(store)));
+            RuleSetRateLimiter plain = factory.getRuleSetLimiter(rule(null));
+
+            factory.addRuleSetDecorator(RedisRateLimitStore.NAME,
+                    limiter -> new DenyCachingRuleSetRateLimiter(limiter, new DenyCache(10)));
+            RuleSetRateLimiter decorated = factory.getRuleSetLimiter(rule(null));
+
+            assertInstanceOf(DenyCachingRuleSetRateLimiter.class, decorated);
+            assertSame(plain, ((DenyCachingRuleSetRateLimiter) decorated).getDelegate());
+            assertInstanceOf(LocalRuleSetRateLimiter.class, factory.getRuleSetLimiter(rule("local")));
+        }
+    }
+
+    @Test
+    void createsInProcessLimitersForLocalStore() {
+        try (LocalStateStore store = new LocalStateStore()) {
+            RateLimiterFactory factory = new RateLimiterFactory(store);
+            assertInstanceOf(LocalTokenBucketRateLimiter.class, factory.getLimiter(AlgorithmType.TOKEN_BUCKET));
+            assertInstanceOf(LocalSlidingWindowLogRateLimiter.class,
+                    factory.getLimiter(AlgorithmType.SLIDING_WINDOW_LOG));
+        }
+    }
+
+    @Test
+    void rulePicksItsStore() {
+        try (LocalStateStore store = new LocalStateStore()) {
+            RateLimiterFactory factory = new RateLimiterFactory(RedisRateLimitStore.NAME,
+                    List.of(new RedisRateLimitStore(scripts), new LocalRateLimitStore(store)));
+
+            assertInstanceOf(TokenBucketRateLimiter.class, factory.getLimiter(rule(null)));
+            assertInstanceOf(LocalTokenBucketRateLimiter.class, factory.getLimiter(rule("local")));
+        }
+    }
+
+    @Test
+    void unknownStoreFallsBackToDefault() {
+        RateLimiterFactory factory = new RateLimiterFactory(scripts);
+        assertInstanceOf(TokenBucketRateLimiter.class, factory.getLimiter(rule("persistent")));
+    }
+
+    @Test
+    void rejectsMissingDefaultStore() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RateLimiterFactory("local", List.of(new RedisRateLimitStore(scripts))));
+    }
+
+    @Test
+    void appliesStoreDecoratorsToThatStoreOnly() {
+        try (LocalStateStore store = new LocalStateStore()) {
+            RateLimiterFactory factory = new RateLimiterFactory(RedisRateLimitStore.NAME,
+                    List.of(new RedisRateLimitStore(scripts), new LocalRateLimitStore(store)));
+
+            factory.addDecorator(RedisRateLimitStore.NAME,
+                    limiter -> new DenyCachingRateLimiter(limiter, new DenyCache(10)));
+
+            assertInstanceOf(DenyCachingRateLimiter.class, factory.getLimiter(rule(null)));
+            assertInstanceOf(LocalTokenBucketRateLimiter.class, factory.getLimiter(rule("local")));
+        }
+    }
+
+    private static RateLimitRule rule(String store) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId("rule");
+        rule.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        rule.setStore(store);
+        return rule;
+    }
 }
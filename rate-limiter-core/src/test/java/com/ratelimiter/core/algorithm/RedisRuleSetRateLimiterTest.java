@@ -0,0 +1,114 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedisRuleSetRateLimiterTest {
+
+    private RedisCommands<String, String> commands;
+    private RedisScriptRegistry scripts;
+    private RedisRuleSetRateLimiter limiter;
+    private RateLimitRule perUser;
+    private RateLimitRule global;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        commands = mock(RedisCommands.class);
+        scripts = new RedisScriptRegistry(commands, mock(RedisReactiveCommands.class));
+        limiter = new RedisRuleSetRateLimiter(scripts, () -> 1_700_000_000_000L);
+
+        perUser = new RateLimitRule();
+        perUser.setId("api");
+        perUser.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        perUser.setBucketCapacity(10);
+        perUser.setRefillRate(2.0);
+
+        global = new RateLimitRule();
+        global.setId("global");
+        global.setAlgorithm(AlgorithmType.FIXED_WINDOW);
+        global.setMaxRequests(1000);
+        global.setWindowSizeSeconds(60);
+        perUser.setLayers(List.of(global));
+    }
+
+    @Test
+    void tagsEveryLayerKeyWithTheRuleId() {
+        String[] keys = limiter.redisKeys(List.of("alice", "api"), perUser, RuleSetRateLimiter.layers(perUser));
+
+        assertEquals(List.of("rt{api}api/api:alice", "rf{api}api/global:api"), List.of(keys));
+    }
+
+    @Test
+    void passesSixArgumentsPerLayer() {
+        String[] args = limiter.args(perUser, RuleSetRateLimiter.layers(perUser), 3);
+
+        assertEquals(List.of("1700000000000", "3",
+                "token_bucket", "10", "2.0", "", "", "",
+                "fixed_window", "1000", "60", "", "", ""), List.of(args));
+    }
+
+    @Test
+    void appendsLegacyKeysAndPointsEachLayerAtItsOwnWhileMigrating() {
+        RateLimitRule gcra = new RateLimitRule();
+        gcra.setId("smooth");
+        gcra.setAlgorithm(AlgorithmType.GCRA);
+        gcra.setBucketCapacity(5);
+        gcra.setRefillRate(10.0);
+        perUser.setLayers(List.of(gcra, global));
+        RedisRuleSetRateLimiter migrating = new RedisRuleSetRateLimiter(scripts, () -> 1_700_000_000_000L, true);
+        List<RateLimitRule> layers = RuleSetRateLimiter.layers(perUser);
+
+        String[] keys = migrating.redisKeys(List.of("alice", "alice", "api"), perUser, layers);
+        String[] args = migrating.args(perUser, layers, 1);
+
+        assertEquals(List.of("rt{api}api/api:alice", "rg{api}api/smooth:alice", "rf{api}api/global:api",
+                "rl:tb:api/api:alice", "rl:fw:api/global:api"), List.of(keys));
+        assertEquals("4", args[2 + 5]);
+        assertEquals("", args[2 + 6 + 5]);
+        assertEquals("5", args[2 + 12 + 5]);
+    }
+
+    @Test
+    void mapsAllowedReplyToTheTightestLayer() {
+        stubReply(List.of(1L, 1L, 9L, 0L));
+
+        RuleSetResult result = limiter.check(List.of("alice", "api"), perUser);
+
+        assertEquals(RateLimitResult.allowed(9), result.result());
+        assertSame(perUser, result.rule());
+    }
+
+    @Test
+    void mapsDeniedReplyToTheDenyingLayer() {
+        stubReply(List.of(0L, 2L, 0L, 42_000L));
+
+        RuleSetResult result = limiter.check(List.of("alice", "api"), perUser);
+
+        assertEquals(RateLimitResult.denied(42_000), result.result());
+        assertSame(global, result.rule());
+    }
+
+    private void stubReply(List<Object> reply) {
+        when(commands.evalsha(anyString(), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(reply);
+    }
+}
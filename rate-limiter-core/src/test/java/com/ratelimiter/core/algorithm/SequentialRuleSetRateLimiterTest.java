@@ -0,0 +1,65 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SequentialRuleSetRateLimiterTest {
+
+    private RateLimiter first;
+    private RateLimiter second;
+    private RateLimitRule rule;
+    private RateLimitRule layer;
+    private SequentialRuleSetRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        first = mock(RateLimiter.class);
+        second = mock(RateLimiter.class);
+        rule = new RateLimitRule();
+        rule.setId("api");
+        rule.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        layer = new RateLimitRule();
+        layer.setId("global");
+        layer.setAlgorithm(AlgorithmType.FIXED_WINDOW);
+        rule.setLayers(List.of(layer));
+        limiter = new SequentialRuleSetRateLimiter(r -> r == rule ? first : second);
+    }
+
+    @Test
+    void stopsAtTheFirstDenial() {
+        when(first.check("api/api:alice", rule, 1)).thenReturn(RateLimitResult.denied(500));
+
+        RuleSetResult result = limiter.check(List.of("alice", "api"), rule);
+
+        assertEquals(RateLimitResult.denied(500), result.result());
+        assertSame(rule, result.rule());
+        verify(second, never()).check(any(), any(), anyLong());
+    }
+
+    @Test
+    void reactiveVariantReportsTheTightestLayer() {
+        when(first.isAllowed("api/api:alice", rule, 1)).thenReturn(Mono.just(RateLimitResult.allowed(7)));
+        when(second.isAllowed("api/global:api", layer, 1)).thenReturn(Mono.just(RateLimitResult.allowed(3)));
+
+        RuleSetResult result = limiter.isAllowed(List.of("alice", "api"), rule).block();
+
+        assertEquals(RateLimitResult.allowed(3), result.result());
+        assertSame(layer, result.rule());
+    }
+}
@@ -0,0 +1,227 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.redis.RedisScript;
+import com.ratelimiter.core.redis.RedisScriptRegistry;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private RedisCommands<String, String> commands;
+    private RedisScriptRegistry scripts;
+    private TokenBucketRateLimiter limiter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        commands = mock(RedisCommands.class);
+        scripts = new RedisScriptRegistry(commands, mock(RedisReactiveCommands.class));
+        limiter = new TokenBucketRateLimiter(scripts, Duration.ofSeconds(1), now::get);
+    }
+
+    private RateLimitRule rule(long maxLeasedTokens) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        rule.setBucketCapacity(100);
+        rule.setRefillRate(10.0);
+        rule.setMaxLeasedTokens(maxLeasedTokens);
+        return rule;
+    }
+
+    private String sha(String name) {
+        return scripts.getScripts().stream()
+                .filter(script -> script.name().equals(name))
+                .map(RedisScript::sha)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void stubScript(String name, List<Object> reply) {
+        when(commands.evalsha(eq(sha(name)), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(reply);
+    }
+
+    private void verifyScriptCalls(String name, int count) {
+        verify(commands, times(count))
+                .evalsha(eq(sha(name)), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class));
+    }
+
+    @Test
+    void rulesWithoutLeasingUseTheBucketScript() {
+        stubScript("token_bucket", List.of(1L, 9L, 0L));
+
+        RateLimitResult result = limiter.check("client", rule(0));
+
+        assertTrue(result.allowed());
+        assertEquals(9, result.remaining());
+        verify(commands, never())
+                .evalsha(eq(sha("token_bucket_lease")), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class));
+    }
+
+    @Test
+    void servesLeasedTokensLocally() {
+        stubScript("token_bucket_lease", List.of(5L, 50L));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.check("client", rule(20)).allowed());
+        }
+
+        verifyScriptCalls("token_bucket_lease", 1);
+        assertEquals(1, limiter.getLeaseCount());
+    }
+
+    @Test
+    void renewsWhenLeaseRunsOut() {
+        stubScript("token_bucket_lease", List.of(2L, 50L));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.check("client", rule(20)).allowed());
+        }
+
+        verifyScriptCalls("token_bucket_lease", 2);
+    }
+
+    @Test
+    void renewsWhenLeaseExpires() {
+        stubScript("token_bucket_lease", List.of(5L, 50L));
+
+        limiter.check("client", rule(20));
+        now.addAndGet(1000);
+        limiter.check("client", rule(20));
+
+        verifyScriptCalls("token_bucket_lease", 2);
+    }
+
+    @Test
+    void deniesWhenNothingIsGranted() {
+        stubScript("token_bucket_lease", List.of(0L, 0L, 100L));
+
+        RateLimitResult result = limiter.check("client", rule(20));
+
+        assertFalse(result.allowed());
+        assertEquals(100, result.retryAfterMillis());
+    }
+
+    @Test
+    void releasesUnusedTokens() {
+        stubScript("token_bucket_lease", List.of(5L, 50L));
+        limiter.check("client", rule(20));
+
+        limiter.releaseLeases();
+
+        verifyScriptCalls("token_bucket_lease", 2);
+        assertEquals(0, limiter.getLeaseCount());
+    }
+
+    @Test
+    void hotKeyKeepsLeasingBlocksAcrossTtls() {
+        RateLimitRule rule = rule(20);
+        LeaseModel redis = new LeaseModel(commands, rule.getMaxLeasedTokens());
+        TokenBucketRateLimiter hot = new TokenBucketRateLimiter(redis, Duration.ofSeconds(1), now::get);
+
+        // 40 requests per second for five lease TTLs
+        for (int i = 0; i < 200; i++) {
+            assertTrue(hot.check("client", rule).allowed());
+            now.addAndGet(25);
+        }
+
+        assertTrue(redis.grants.size() > 5);
+        for (long granted : redis.grants.subList(1, redis.grants.size())) {
+            assertTrue(granted > 1, "granted " + redis.grants);
+        }
+        assertTrue(redis.outstanding <= rule.getMaxLeasedTokens());
+    }
+
+    @Test
+    void failedRenewalKeepsTheTokensToReturn() {
+        RateLimitRule rule = rule(20);
+        LeaseModel redis = new LeaseModel(commands, rule.getMaxLeasedTokens());
+        TokenBucketRateLimiter leasing = new TokenBucketRateLimiter(redis, Duration.ofSeconds(1), now::get);
+        for (int i = 0; i < 10; i++) {
+            leasing.check("client", rule);
+            now.addAndGet(25);
+        }
+        now.addAndGet(1000);
+        redis.failNext = true;
+
+        assertThrows(IllegalStateException.class, () -> leasing.check("client", rule));
+        leasing.check("client", rule);
+
+        String[] failed = redis.calls.get(redis.calls.size() - 2);
+        String[] retried = redis.calls.get(redis.calls.size() - 1);
+        assertTrue(Long.parseLong(failed[4]) > 0);
+        assertEquals(failed[4], retried[4]);
+        assertTrue(Long.parseLong(failed[7]) > 0);
+        assertEquals(failed[7], retried[7]);
+    }
+
+    @Test
+    void passesOnlyTheStateKeyByDefault() {
+        assertEquals(List.of("rt{client}"), List.of(limiter.keys("client")));
+    }
+
+    @Test
+    void passesTheLegacyKeyWhileMigrating() {
+        TokenBucketRateLimiter migrating = new TokenBucketRateLimiter(scripts, Duration.ofSeconds(1), now::get, true);
+
+        assertEquals(List.of("rt{client}", "rl:tb:client"), List.of(migrating.keys("client")));
+    }
+
+    /**
+     * Answers the lease script with its accounting of outstanding tokens, on a bucket that
+     * never runs dry: each renewal settles the gateway's previous grant, then the new one
+     * is capped by the tokens still outstanding.
+     */
+    private static class LeaseModel extends RedisScriptRegistry {
+
+        private final long maxLeased;
+        private final List<String[]> calls = new ArrayList<>();
+        private final List<Long> grants = new ArrayList<>();
+        private long outstanding;
+        private boolean failNext;
+
+        @SuppressWarnings("unchecked")
+        LeaseModel(RedisCommands<String, String> commands, long maxLeased) {
+            super(commands, mock(RedisReactiveCommands.class));
+            this.maxLeased = maxLeased;
+        }
+
+        @Override
+        public List<Object> eval(RedisScript script, String[] keys, String... args) {
+            calls.add(args);
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("timeout");
+            }
+            outstanding = Math.max(0, outstanding - Long.parseLong(args[7]));
+            long granted = Math.min(Long.parseLong(args[3]), 1 + Math.max(0, maxLeased - outstanding));
+            outstanding += granted - 1;
+            grants.add(granted);
+            return List.of(granted, 1000L);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ratelimiter.core.algorithm;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenLeaseTest {
+
+    private static final long TTL = 1000;
+
+    private RateLimitRule rule(long maxLeasedTokens) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setMaxLeasedTokens(maxLeasedTokens);
+        return rule;
+    }
+
+    @Test
+    void servesGrantedTokensUntilEmpty() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(3, 7, 0, TTL);
+
+        assertEquals(1, lease.tryTake(10));
+        assertEquals(0, lease.tryTake(20));
+        assertEquals(-1, lease.tryTake(30));
+    }
+
+    @Test
+    void expiredLeaseIsNotServedAndCanBeReclaimed() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(5, 0, 0, TTL);
+
+        assertEquals(-1, lease.tryTake(TTL));
+        assertEquals(4, lease.reclaimExpired(TTL));
+        assertEquals(0, lease.reclaimExpired(TTL));
+    }
+
+    @Test
+    void liveLeaseIsNotReclaimed() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(5, 0, 0, TTL);
+
+        assertEquals(0, lease.reclaimExpired(TTL - 1));
+    }
+
+    @Test
+    void renewalSettlesThePreviousGrant() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(5, 0, 100, TTL);
+        for (int i = 0; i < 4; i++) {
+            lease.tryTake(200);
+        }
+
+        TokenLease.Renewal renewal = lease.beginRenewal(rule(50), 300, TTL);
+
+        assertEquals(0, renewal.returned());
+        assertEquals(4, renewal.settled());
+        assertEquals(100, renewal.settledGrantMillis());
+        assertEquals(0, lease.beginRenewal(rule(50), 300, TTL).settled());
+    }
+
+    @Test
+    void abortedRenewalKeepsWhatItTook() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(5, 0, 0, TTL);
+        TokenLease.Renewal renewal = lease.beginRenewal(rule(50), TTL, TTL);
+        assertEquals(4, renewal.returned());
+
+        lease.abort(renewal);
+
+        TokenLease.Renewal retry = lease.beginRenewal(rule(50), TTL, TTL);
+        assertEquals(4, retry.returned());
+        assertEquals(4, retry.settled());
+        assertEquals(0, retry.settledGrantMillis());
+    }
+
+    @Test
+    void releaseHandsBackLiveTokens() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(5, 0, 0, TTL);
+
+        TokenLease.Renewal release = lease.release();
+
+        assertEquals(4, release.returned());
+        assertEquals(4, release.settled());
+        assertEquals(-1, lease.tryTake(1));
+    }
+
+    @Test
+    void coldKeyRequestsSingleToken() {
+        TokenLease lease = new TokenLease(0);
+        assertEquals(1, lease.nextSize(rule(50), 10_000, TTL));
+    }
+
+    @Test
+    void leaseSizeFollowsObservedRate() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(21, 0, 0, TTL);
+        for (int i = 0; i < 19; i++) {
+            lease.tryTake(i);
+        }
+
+        // 20 requests in 500ms is 40/s, i.e. 40 tokens per lease TTL plus the renewing request
+        assertEquals(41, lease.nextSize(rule(100), 500, TTL));
+    }
+
+    @Test
+    void leaseSizeIsCappedByRule() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(21, 0, 0, TTL);
+        for (int i = 0; i < 19; i++) {
+            lease.tryTake(i);
+        }
+
+        assertEquals(11, lease.nextSize(rule(10), 500, TTL));
+    }
+
+    @Test
+    void becomesIdleOneTtlAfterExpiry() {
+        TokenLease lease = new TokenLease(0);
+        lease.grant(2, 0, 0, TTL);
+
+        assertFalse(lease.isIdle(TTL, TTL));
+        assertTrue(lease.isIdle(2 * TTL, TTL));
+    }
+}
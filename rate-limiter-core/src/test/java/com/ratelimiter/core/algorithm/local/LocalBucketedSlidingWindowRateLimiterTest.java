@@ -0,0 +1,86 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalBucketedSlidingWindowRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private LocalStateStore store;
+    private LocalBucketedSlidingWindowRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalBucketedSlidingWindowRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.SLIDING_WINDOW_BUCKETS);
+        rule.setMaxRequests(4);
+        rule.setWindowSizeSeconds(10);
+        rule.setWindowBuckets(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void deniesOverLimitUntilTheFullBucketSlidesOut() {
+        now.addAndGet(400);
+        for (int i = 3; i >= 0; i--) {
+            assertEquals(RateLimitResult.allowed(i), limiter.check("client", rule));
+        }
+
+        assertEquals(RateLimitResult.denied(10_600), limiter.check("client", rule));
+    }
+
+    @Test
+    void requestsLeaveTheWindowBucketByBucket() {
+        limiter.check("client", rule);
+        limiter.check("client", rule);
+        now.addAndGet(5_000);
+        limiter.check("client", rule);
+        limiter.check("client", rule);
+        // the first bucket slides out at 11 seconds, taking two requests with it
+        assertEquals(RateLimitResult.denied(6_000), limiter.check("client", rule));
+
+        now.addAndGet(6_000);
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+    }
+
+    @Test
+    void bucketSlidingOutCountsUntilItHasLeftTheWindow() {
+        for (int i = 0; i < 4; i++) {
+            limiter.check("client", rule);
+        }
+        now.addAndGet(10_500);
+        assertEquals(RateLimitResult.denied(500), limiter.check("client", rule));
+
+        now.addAndGet(500);
+        assertEquals(RateLimitResult.allowed(3), limiter.check("client", rule));
+    }
+
+    @Test
+    void changedBucketCountStartsOver() {
+        for (int i = 0; i < 4; i++) {
+            limiter.check("client", rule);
+        }
+        rule.setWindowBuckets(5);
+
+        assertTrue(limiter.check("client", rule).allowed());
+    }
+}
@@ -0,0 +1,90 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalFixedWindowRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_020_000L);
+    private LocalStateStore store;
+    private LocalFixedWindowRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalFixedWindowRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.FIXED_WINDOW);
+        rule.setMaxRequests(2);
+        rule.setWindowSizeSeconds(60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void deniesUntilWindowEnds() {
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(20_000), limiter.check("client", rule));
+    }
+
+    @Test
+    void resetsAtWindowBoundary() {
+        limiter.check("client", rule);
+        limiter.check("client", rule);
+        now.addAndGet(20_000);
+
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+    }
+
+    @Test
+    void admitsExactlyTheLimitUnderContention() throws Exception {
+        rule.setMaxRequests(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    int allowed = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.check("hot", rule).allowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+            assertEquals(500, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deniesPermitsThatDoNotFitTheWindow() {
+        assertEquals(RateLimitResult.denied(20_000), limiter.check("client", rule, 3));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule, 2));
+    }
+}
@@ -0,0 +1,85 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalGcraRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private LocalStateStore store;
+    private LocalGcraRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalGcraRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.GCRA);
+        rule.setBucketCapacity(3);
+        rule.setRefillRate(2.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void allowsBurstThenDeniesWithExactRetryAfter() {
+        assertEquals(RateLimitResult.allowed(2), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(500), limiter.check("client", rule));
+
+        now.addAndGet(200);
+        assertEquals(RateLimitResult.denied(300), limiter.check("client", rule));
+    }
+
+    @Test
+    void admitsOneRequestPerEmissionInterval() {
+        for (int i = 0; i < 3; i++) {
+            limiter.check("client", rule);
+        }
+        now.addAndGet(500);
+
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(500), limiter.check("client", rule));
+    }
+
+    @Test
+    void idleKeyRegainsFullBurst() {
+        limiter.check("client", rule);
+        now.addAndGet(10_000);
+
+        assertEquals(RateLimitResult.allowed(2), limiter.check("client", rule));
+    }
+
+    @Test
+    void keysAreIndependent() {
+        for (int i = 0; i < 3; i++) {
+            limiter.check("a", rule);
+        }
+
+        assertEquals(RateLimitResult.allowed(2), limiter.check("b", rule));
+    }
+
+    @Test
+    void multiplePermitsMoveTheArrivalTimeByAsManyIntervals() {
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule, 3));
+        assertEquals(RateLimitResult.denied(500), limiter.check("client", rule, 1));
+
+        now.addAndGet(1_000);
+        assertEquals(RateLimitResult.denied(500), limiter.check("client", rule, 3));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule, 2));
+    }
+}
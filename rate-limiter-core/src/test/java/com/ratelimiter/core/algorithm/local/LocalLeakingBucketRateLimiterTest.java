@@ -0,0 +1,122 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class LocalLeakingBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private LocalStateStore store;
+    private LocalLeakingBucketRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalLeakingBucketRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.LEAKING_BUCKET);
+        rule.setBucketCapacity(2);
+        rule.setLeakRate(0.5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void deniesWhenBucketIsFull() {
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule));
+    }
+
+    @Test
+    void leaksAtConfiguredRate() {
+        limiter.check("client", rule);
+        limiter.check("client", rule);
+        now.addAndGet(2000);
+
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule));
+    }
+
+    @Test
+    void admitsExactlyCapacityRequests() {
+        rule.setBucketCapacity(10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(RateLimitResult.allowed(9 - i), limiter.check("client", rule), "request " + i);
+        }
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule));
+
+        // two seconds leak one request: a level of exactly capacity - 1 takes one more
+        now.addAndGet(2000);
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule));
+    }
+
+    @Test
+    void admitsCapacityPermitsInOneRequestButNoMore() {
+        rule.setBucketCapacity(10);
+
+        assertFalse(limiter.check("client", rule, 11).allowed());
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule, 10));
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule, 1));
+    }
+
+    @Test
+    void decidesLikeTheRedisScript() {
+        rule.setBucketCapacity(1_000_000);
+        rule.setLeakRate(0.3);
+        ScriptModel redis = new ScriptModel();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            now.addAndGet(random.nextInt(3000));
+            long permits = random.nextInt(10) == 0 ? 1 + random.nextInt(200_000) : 1 + random.nextInt(3);
+
+            RateLimitResult local = limiter.check("client", rule, permits);
+            RateLimitResult script = redis.check(rule, now.get() / 1000, permits);
+
+            assertEquals(script.allowed(), local.allowed(), "request " + i);
+            if (script.allowed()) {
+                assertEquals(script.remaining(), local.remaining(), "request " + i);
+            }
+        }
+    }
+
+    /**
+     * {@code LeakingBucketRateLimiter}'s script: the level goes back as rounded thousandths
+     * after every admitted call; a denied one leaves it as it is.
+     */
+    private static final class ScriptModel {
+
+        private long milli = -1;
+        private long lastLeak;
+
+        RateLimitResult check(RateLimitRule rule, long now, long permits) {
+            double capacity = rule.getBucketCapacity();
+            double water = milli < 0 ? 0 : milli / 1000.0;
+            long elapsed = milli < 0 ? 0 : Math.max(0, now - lastLeak);
+            water = Math.max(0, water - elapsed * rule.getLeakRate());
+            boolean allowed = water + permits - 1 < capacity;
+            if (allowed) {
+                water = water + permits;
+                milli = (long) Math.floor(water * 1000 + 0.5);
+                lastLeak = now;
+            }
+            return allowed ? RateLimitResult.allowed((long) Math.floor(capacity - water)) : RateLimitResult.denied(0);
+        }
+    }
+}
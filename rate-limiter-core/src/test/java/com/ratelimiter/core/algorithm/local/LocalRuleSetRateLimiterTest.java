@@ -0,0 +1,136 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRuleSetRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private LocalStateStore store;
+    private LocalRuleSetRateLimiter limiter;
+    private RateLimitRule perIp;
+    private RateLimitRule global;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalRuleSetRateLimiter(store);
+        perIp = rule("per-ip", AlgorithmType.FIXED_WINDOW, 3);
+        global = rule("global", AlgorithmType.SLIDING_WINDOW_LOG, 4);
+        global.setKeyResolver(KeyResolverType.GLOBAL);
+        perIp.setLayers(List.of(global));
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void reportsTheLayerClosestToItsLimit() {
+        RuleSetResult result = limiter.check(List.of("10.0.0.1", "api"), perIp);
+
+        assertEquals(RateLimitResult.allowed(2), result.result());
+        assertSame(perIp, result.rule());
+    }
+
+    @Test
+    void deniedRequestCountsAgainstNoLayer() {
+        global.setWindowSizeSeconds(1);
+        global.setMaxRequests(2);
+        limiter.check(List.of("10.0.0.1", "api"), perIp);
+        limiter.check(List.of("10.0.0.1", "api"), perIp);
+
+        RuleSetResult denied = limiter.check(List.of("10.0.0.1", "api"), perIp);
+        assertFalse(denied.result().allowed());
+        assertSame(global, denied.rule());
+
+        // the global window moved on, the per-IP one did not
+        now.addAndGet(1_000);
+        RuleSetResult third = limiter.check(List.of("10.0.0.1", "api"), perIp);
+        assertEquals(RateLimitResult.allowed(0), third.result());
+        assertSame(perIp, third.rule());
+
+        RuleSetResult fourth = limiter.check(List.of("10.0.0.1", "api"), perIp);
+        assertFalse(fourth.result().allowed());
+        assertSame(perIp, fourth.rule());
+    }
+
+    @Test
+    void layersDoNotShareStateWithSingleRules() {
+        LocalFixedWindowRateLimiter single = new LocalFixedWindowRateLimiter(store);
+        limiter.check(List.of("10.0.0.1", "api"), perIp);
+
+        assertEquals(RateLimitResult.allowed(2), single.check("10.0.0.1", perIp));
+    }
+
+    @Test
+    void concurrentClientsNeverExceedASharedLayer() throws Exception {
+        global.setMaxRequests(100);
+        int threads = 16;
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger admittedShared = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 50; i++) {
+                    if (limiter.check(List.of("10.9.9.9", "api"), perIp).result().allowed()) {
+                        admittedShared.incrementAndGet();
+                    }
+                    if (limiter.check(List.of("10.0." + thread + "." + i, "api"), perIp).result().allowed()) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(3, admittedShared.get());
+        assertEquals(100, admitted.get() + admittedShared.get());
+    }
+
+    @Test
+    void rejectsMissingKeys() {
+        assertThrows(IllegalArgumentException.class, () -> limiter.check(List.of("10.0.0.1"), perIp));
+    }
+
+    private static RateLimitRule rule(String id, AlgorithmType algorithm, long maxRequests) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setAlgorithm(algorithm);
+        rule.setMaxRequests(maxRequests);
+        rule.setWindowSizeSeconds(60);
+        return rule;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalSlidingWindowCounterRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_010_000L);
+    private LocalStateStore store;
+    private LocalSlidingWindowCounterRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalSlidingWindowCounterRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.SLIDING_WINDOW_COUNTER);
+        rule.setMaxRequests(10);
+        rule.setWindowSizeSeconds(60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void deniesOnceCurrentWindowIsFull() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.check("client", rule).allowed());
+        }
+        // half way through the window: the next one admits once this one's weight drops below 10
+        assertEquals(RateLimitResult.denied(31_000), limiter.check("client", rule));
+    }
+
+    @Test
+    void weighsPreviousWindow() {
+        for (int i = 0; i < 10; i++) {
+            limiter.check("client", rule);
+        }
+        // start of the next window: the previous window still counts in full, for one second
+        now.addAndGet(30_000);
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule));
+
+        // half way through: floor(10 * 0.5) = 5 requests are still in the window
+        now.addAndGet(30_000);
+        assertEquals(RateLimitResult.allowed(4), limiter.check("client", rule));
+    }
+
+    @Test
+    void deniedRequestsRetryOnceThePreviousWindowHasFadedEnough() {
+        for (int i = 0; i < 10; i++) {
+            limiter.check("client", rule);
+        }
+        // ten seconds into the next window: floor(10 * 50 / 60) = 8 requests are still in it
+        now.addAndGet(40_000);
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+
+        // at second 13 floor(10 * 47 / 60) = 7 leaves room for one more
+        assertEquals(RateLimitResult.denied(3000), limiter.check("client", rule));
+        now.addAndGet(2999);
+        assertEquals(RateLimitResult.denied(1), limiter.check("client", rule));
+        now.addAndGet(1);
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+    }
+}
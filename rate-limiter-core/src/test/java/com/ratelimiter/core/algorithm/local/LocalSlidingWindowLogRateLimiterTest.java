@@ -0,0 +1,135 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalSlidingWindowLogRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_001_000L);
+    private LocalStateStore store;
+    private LocalSlidingWindowLogRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalSlidingWindowLogRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.SLIDING_WINDOW_LOG);
+        rule.setMaxRequests(3);
+        rule.setWindowSizeSeconds(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void slidesWithOldestRequest() {
+        assertEquals(RateLimitResult.allowed(2), advanceAndCheck(0));
+        assertEquals(RateLimitResult.allowed(1), advanceAndCheck(1000));
+        assertEquals(RateLimitResult.allowed(0), advanceAndCheck(1000));
+        // admitted once the first request has left the window
+        assertEquals(RateLimitResult.denied(7000), advanceAndCheck(1000));
+
+        // the first request is exactly window-size old and drops out of the log
+        assertEquals(RateLimitResult.allowed(0), advanceAndCheck(7000));
+        assertEquals(RateLimitResult.denied(500), advanceAndCheck(500));
+    }
+
+    @Test
+    void keepsHistoryWhenLimitChanges() {
+        for (int i = 0; i < 3; i++) {
+            limiter.check("client", rule);
+        }
+        rule.setMaxRequests(5);
+
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(10_000), limiter.check("client", rule));
+    }
+
+    @Test
+    void admitsExactlyTheLimitUnderContention() throws Exception {
+        rule.setMaxRequests(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    int allowed = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.check("hot", rule).allowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+            assertEquals(500, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RateLimitResult advanceAndCheck(long millis) {
+        now.addAndGet(millis);
+        return limiter.check("client", rule);
+    }
+
+    @Test
+    void takesAllPermitsOrNone() {
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule, 2));
+        assertEquals(RateLimitResult.denied(10_000), limiter.check("client", rule, 2));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule, 1));
+        assertEquals(RateLimitResult.denied(10_000), limiter.check("client", rule, 1));
+    }
+
+    @Test
+    void deniedMultiPermitRequestsLeaveNoSlotsBehindUnderContention() throws Exception {
+        rule.setMaxRequests(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long permits = t % 2 == 0 ? 1 : 7;
+                futures.add(executor.submit(() -> {
+                    long admitted = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.check("hot", rule, permits).allowed()) {
+                            admitted += permits;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            // every slot of the full window belongs to an admitted request
+            assertEquals(500, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.ratelimiter.core.algorithm.local;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalTokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private LocalStateStore store;
+    private LocalTokenBucketRateLimiter limiter;
+    private RateLimitRule rule;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalStateStore(now::get, Duration.ofHours(1));
+        limiter = new LocalTokenBucketRateLimiter(store);
+        rule = new RateLimitRule();
+        rule.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        rule.setBucketCapacity(3);
+        rule.setRefillRate(1.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        assertEquals(RateLimitResult.allowed(2), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule));
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule));
+    }
+
+    @Test
+    void refillsAtConfiguredRate() {
+        for (int i = 0; i < 3; i++) {
+            limiter.check("client", rule);
+        }
+        now.addAndGet(2000);
+
+        RateLimitResult result = limiter.check("client", rule);
+        assertTrue(result.allowed());
+        assertEquals(1, result.remaining());
+    }
+
+    @Test
+    void keysAreIndependent() {
+        for (int i = 0; i < 3; i++) {
+            limiter.check("client-a", rule);
+        }
+        assertFalse(limiter.check("client-a", rule).allowed());
+        assertTrue(limiter.check("client-b", rule).allowed());
+    }
+
+    @Test
+    void idleBucketExpires() {
+        limiter.check("client", rule);
+        assertEquals(1, store.size());
+
+        now.addAndGet(5000);
+        assertEquals(1, store.evictExpired());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void takesAllPermitsOrNone() {
+        assertEquals(RateLimitResult.allowed(1), limiter.check("client", rule, 2));
+        assertEquals(RateLimitResult.denied(1000), limiter.check("client", rule, 2));
+        assertEquals(RateLimitResult.allowed(0), limiter.check("client", rule, 1));
+    }
+
+    @Test
+    void decidesLikeTheRedisScript() {
+        rule.setBucketCapacity(1_000_000);
+        rule.setRefillRate(0.3);
+        ScriptModel redis = new ScriptModel();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            now.addAndGet(random.nextInt(3000));
+            long permits = random.nextInt(10) == 0 ? 1 + random.nextInt(200_000) : 1 + random.nextInt(3);
+
+            RateLimitResult local = limiter.check("client", rule, permits);
+            RateLimitResult script = redis.check(rule, now.get() / 1000, permits);
+
+            assertEquals(script.allowed(), local.allowed(), "request " + i);
+            if (script.allowed()) {
+                assertEquals(script.remaining(), local.remaining(), "request " + i);
+            }
+        }
+    }
+
+    /**
+     * {@code TokenBucketRateLimiter}'s script: the level goes back as rounded thousandths
+     * after every admitted call; a denied one leaves it as it is.
+     */
+    private static final class ScriptModel {
+
+        private long milli = -1;
+        private long lastRefill;
+
+        RateLimitResult check(RateLimitRule rule, long now, long permits) {
+            double capacity = rule.getBucketCapacity();
+            double tokens = milli < 0 ? capacity : milli / 1000.0;
+            long elapsed = milli < 0 ? 0 : Math.max(0, now - lastRefill);
+            tokens = Math.min(capacity, tokens + elapsed * rule.getRefillRate());
+            boolean allowed = tokens >= permits;
+            if (allowed) {
+                tokens = tokens - permits;
+                milli = (long) Math.floor(tokens * 1000 + 0.5);
+                lastRefill = now;
+            }
+            return allowed ? RateLimitResult.allowed((long) Math.floor(tokens)) : RateLimitResult.denied(0);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ratelimiter.core.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds cache events to the service directly, without ZooKeeper.
+ */
+class RateLimitConfigServiceTest {
+
+    private final BlockingQueue<RuleSetDiff> diffs = new LinkedBlockingQueue<>();
+    private RateLimitConfigService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RateLimitConfigService(null, new ObjectMapper());
+        service.addListener((rules, diff) -> diffs.add(diff));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    void appliesInitialLoadAsOneChange() throws Exception {
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules", ""));
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/tenant-a", ""));
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/tenant-a/checkout",
+                "{\"path\":\"/checkout/**\",\"order\":1}"));
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/default",
+                "{\"id\":\"ignored\",\"path\":\"/**\",\"order\":2}"));
+        service.onInitialized();
+
+        assertTrue(service.awaitLoaded(5, TimeUnit.SECONDS));
+        assertEquals(List.of("tenant-a/checkout", "default"), ids());
+        RuleSetDiff diff = diffs.poll(5, TimeUnit.SECONDS);
+        assertNotNull(diff);
+        assertEquals(2, diff.added().size());
+        assertTrue(diffs.isEmpty());
+    }
+
+    @Test
+    void appliesLaterChangesAsDeltas() throws Exception {
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/a", "{\"path\":\"/a\",\"order\":0}"));
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/b", "{\"path\":\"/b\",\"order\":1}"));
+        service.onInitialized();
+        assertTrue(service.awaitLoaded(5, TimeUnit.SECONDS));
+        diffs.poll(5, TimeUnit.SECONDS);
+        RateLimitRule b = service.getRule("b").orElseThrow();
+
+        service.onNodeEvent(Type.NODE_CHANGED, null,
+                node("/rate-limiter/rules/a", "{\"path\":\"/a\",\"order\":0,\"maxRequests\":5}"));
+        RuleSetDiff diff = diffs.poll(5, TimeUnit.SECONDS);
+        assertNotNull(diff);
+        assertEquals(1, diff.updated().size());
+        assertEquals(5, service.getRule("a").orElseThrow().getMaxRequests());
+        assertEquals(b, service.getRule("b").orElseThrow());
+
+        service.onNodeEvent(Type.NODE_DELETED, node("/rate-limiter/rules/b", "{}"), null);
+        diff = diffs.poll(5, TimeUnit.SECONDS);
+        assertNotNull(diff);
+        assertEquals(List.of(b), diff.removed());
+        assertEquals(List.of("a"), ids());
+    }
+
+    @Test
+    void keepsTheLastVersionOfAnUnreadableRule() throws Exception {
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/a", "{\"path\":\"/a\"}"));
+        service.onNodeEvent(Type.NODE_CHANGED, null, node("/rate-limiter/rules/a", "{not json"));
+        service.onInitialized();
+
+        assertTrue(service.awaitLoaded(5, TimeUnit.SECONDS));
+        assertEquals("/a", service.getRule("a").orElseThrow().getPath());
+    }
+
+    @Test
+    void ignoresRulesWithLayersSharingAnId() throws Exception {
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/a", "{\"path\":\"/a\"}"));
+        service.onNodeEvent(Type.NODE_CHANGED, null, node("/rate-limiter/rules/a",
+                "{\"path\":\"/b\",\"layers\":[{\"maxRequests\":5},{\"maxRequests\":9}]}"));
+        service.onInitialized();
+
+        assertTrue(service.awaitLoaded(5, TimeUnit.SECONDS));
+        assertEquals("/a", service.getRule("a").orElseThrow().getPath());
+    }
+
+    @Test
+    void rejectsWritingLayersWithoutIds() {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId("a");
+        rule.setLayers(List.of(new RateLimitRule()));
+
+        assertThrows(IllegalArgumentException.class, () -> service.putRule(rule));
+    }
+
+    @Test
+    void emptiedRuleBecomesAGroup() throws Exception {
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/a", "{\"path\":\"/a\"}"));
+        service.onNodeEvent(Type.NODE_CREATED, null, node("/rate-limiter/rules/a/b", "{\"path\":\"/b\"}"));
+        service.onInitialized();
+        assertTrue(service.awaitLoaded(5, TimeUnit.SECONDS));
+        diffs.poll(5, TimeUnit.SECONDS);
+
+        service.onNodeEvent(Type.NODE_CHANGED, null, node("/rate-limiter/rules/a", ""));
+
+        assertNotNull(diffs.poll(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a/b"), ids());
+    }
+
+    @Test
+    void mapsRuleIdsToZnodes() {
+        assertEquals("/rate-limiter/rules/tenant-a/checkout", RateLimitConfigService.rulePath("tenant-a/checkout"));
+        assertEquals("tenant-a/checkout", RateLimitConfigService.ruleId("/rate-limiter/rules/tenant-a/checkout"));
+        assertNull(RateLimitConfigService.ruleId("/rate-limiter/rules"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitConfigService.rulePath(" "));
+    }
+
+    @Test
+    void findsTheGroupOfARuleId() {
+        assertEquals("tenant-a/eu", RateLimitConfigService.parent("tenant-a/eu/checkout"));
+        assertEquals("tenant-a", RateLimitConfigService.parent("tenant-a/eu"));
+        assertNull(RateLimitConfigService.parent("tenant-a"));
+    }
+
+    @Test
+    void rejectsReplacingWithRepeatedIds() {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId("a");
+
+        assertThrows(IllegalArgumentException.class, () -> service.updateRules(List.of(rule, rule)));
+    }
+
+    private List<String> ids() {
+        return service.getRules().stream().map(RateLimitRule::getId).toList();
+    }
+
+    private static ChildData node(String path, String data) {
+        return new ChildData(path, null, data.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,14 +5,18 @@ import com.ratelimiter.core.model.RateLimitRule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RuleMatchServiceTest {
 
+    private StubConfigService configService;
     private RuleMatchService ruleMatchService;
 
     @BeforeEach
@@ -32,7 +36,7 @@ class RuleMatchServiceTest {
         catchAllRule.setPath("/**");
         catchAllRule.setAlgorithm(AlgorithmType.SLIDING_WINDOW_COUNTER);
 
-        StubConfigService configService = new StubConfigService(List.of(exactRule, wildcardRule, catchAllRule));
+        configService = new StubConfigService(List.of(exactRule, wildcardRule, catchAllRule));
         ruleMatchService = new RuleMatchService(configService);
     }
 
@@ -71,17 +75,132 @@ class RuleMatchServiceTest {
         assertEquals("exact", result.get().getId());
     }
 
+    @Test
+    void rebuildsWhenRulesChange() {
+        RateLimitRule replacement = new RateLimitRule();
+        replacement.setId("replacement");
+        replacement.setPath("/api/**");
+        replacement.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+
+        assertEquals("exact", ruleMatchService.findMatchingRule("/api/resource").orElseThrow().getId());
+        configService.publish(List.of(replacement));
+
+        assertEquals("replacement", ruleMatchService.findMatchingRule("/api/resource").orElseThrow().getId());
+        assertTrue(ruleMatchService.findMatchingRule("/other").isEmpty());
+    }
+
+    @Test
+    void findsRuleById() {
+        assertEquals("/api/users/**", ruleMatchService.findRule("wildcard").orElseThrow().getPath());
+        assertTrue(ruleMatchService.findRule("missing").isEmpty());
+
+        configService.publish(List.of());
+
+        assertTrue(ruleMatchService.findRule("wildcard").isEmpty());
+    }
+
+    @Test
+    void keepsCachedResolutionsWhenOnlyLimitsChange() {
+        ruleMatchService.findMatchingRule("/api/resource");
+        RateLimitRule stricter = rule("exact", "/api/resource", 0);
+        stricter.setBucketCapacity(1);
+
+        configService.change(Map.of("exact", stricter));
+
+        assertSame(stricter, ruleMatchService.findMatchingRule("/api/resource").orElseThrow());
+        assertSame(stricter, ruleMatchService.findRule("exact").orElseThrow());
+        assertEquals(1, ruleMatchService.getCacheHitCount());
+        assertEquals("wildcard", ruleMatchService.findMatchingRule("/api/users/1").orElseThrow().getId());
+    }
+
+    @Test
+    void recompilesWhenAPathChanges() {
+        ruleMatchService.findMatchingRule("/api/resource");
+
+        configService.change(Map.of("exact", rule("exact", "/api/other", 0)));
+
+        assertEquals("catch-all", ruleMatchService.findMatchingRule("/api/resource").orElseThrow().getId());
+        assertEquals("exact", ruleMatchService.findMatchingRule("/api/other").orElseThrow().getId());
+    }
+
+    @Test
+    void recompilesWhenOrderChanges() {
+        configService.change(Map.of("catch-all", rule("catch-all", "/**", -1)));
+
+        assertEquals("catch-all", ruleMatchService.findMatchingRule("/api/resource").orElseThrow().getId());
+    }
+
+    @Test
+    void cachesResolutions() {
+        ruleMatchService.findMatchingRule("/api/resource");
+        ruleMatchService.findMatchingRule("/api/resource");
+
+        assertEquals(1, ruleMatchService.getCacheMissCount());
+        assertEquals(1, ruleMatchService.getCacheHitCount());
+    }
+
+    @Test
+    void cachesMissingRule() {
+        configService.publish(List.of());
+
+        assertTrue(ruleMatchService.findMatchingRule("/api/resource").isEmpty());
+        assertTrue(ruleMatchService.findMatchingRule("/api/resource").isEmpty());
+        assertEquals(1, ruleMatchService.getCacheHitCount());
+    }
+
+    @Test
+    void resolvesWithoutCache() {
+        RuleMatchService uncached = new RuleMatchService(configService, 0);
+
+        assertEquals("exact", uncached.findMatchingRule("/api/resource").orElseThrow().getId());
+        assertEquals("exact", uncached.findMatchingRule("/api/resource").orElseThrow().getId());
+        assertEquals(0, uncached.getCacheHitCount());
+    }
+
+    private static RateLimitRule rule(String id, String path, int order) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setPath(path);
+        rule.setOrder(order);
+        rule.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        return rule;
+    }
+
     private static class StubConfigService extends RateLimitConfigService {
-        private final List<RateLimitRule> rules;
+        private RuleSet rules;
+        private RuleSetListener listener;
 
         StubConfigService(List<RateLimitRule> rules) {
             super(null, null);
-            this.rules = rules;
+            this.rules = RuleSet.inListOrder(rules);
         }
 
         @Override
-        public List<RateLimitRule> getRules() {
+        public RuleSet getRuleSet() {
             return rules;
         }
+
+        @Override
+        public void addListener(RuleSetListener listener) {
+            this.listener = listener;
+        }
+
+        void publish(List<RateLimitRule> replacement) {
+            Map<String, RateLimitRule> changes = new HashMap<>();
+            for (RateLimitRule rule : rules.rules()) {
+                changes.put(rule.getId(), null);
+            }
+            for (int i = 0; i < replacement.size(); i++) {
+                replacement.get(i).setOrder(i);
+                changes.put(replacement.get(i).getId(), replacement.get(i));
+            }
+            change(changes);
+        }
+
+        void change(Map<String, RateLimitRule> changes) {
+            RuleSetDiff diff = rules.diff(changes);
+            rules = rules.apply(diff);
+            listener.onChange(rules, diff);
+        }
     }
 }
@@ -0,0 +1,144 @@
+package com.ratelimiter.core.config;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleSetTest {
+
+    @Test
+    void ordersByOrderThenId() {
+        RuleSet rules = RuleSet.of(List.of(rule("b", 1), rule("c", 0), rule("a", 1)));
+
+        assertEquals(List.of("c", "a", "b"), ids(rules));
+    }
+
+    @Test
+    void keepsListOrder() {
+        RuleSet rules = RuleSet.inListOrder(List.of(rule("b", 7), rule("c", 7), rule("a", 7)));
+
+        assertEquals(List.of("b", "c", "a"), ids(rules));
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(rule("a", 0), rule("a", 1))));
+    }
+
+    @Test
+    void rejectsLayersWithoutDistinctIds() {
+        RateLimitRule unnamed = rule("a", 0);
+        unnamed.setLayers(List.of(new RateLimitRule(), new RateLimitRule()));
+        RateLimitRule repeated = rule("b", 0);
+        repeated.setLayers(List.of(rule("b-global", 0), rule("b-global", 0)));
+        RateLimitRule shadowing = rule("c", 0);
+        shadowing.setLayers(List.of(rule("c", 0)));
+
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(unnamed)));
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(repeated)));
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(shadowing)));
+    }
+
+    @Test
+    void rejectsLeasingOnLayeredRules() {
+        RateLimitRule leasing = rule("a", 0);
+        leasing.setMaxLeasedTokens(10);
+        leasing.setLayers(List.of(rule("a-global", 0)));
+        RateLimitRule leasingLayer = rule("b", 0);
+        RateLimitRule layer = rule("b-global", 0);
+        layer.setMaxLeasedTokens(10);
+        leasingLayer.setLayers(List.of(layer));
+        RateLimitRule single = rule("c", 0);
+        single.setMaxLeasedTokens(10);
+
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(leasing)));
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(leasingLayer)));
+        assertEquals(List.of("c"), ids(RuleSet.of(List.of(single))));
+    }
+
+    @Test
+    void rejectsMoreLayersThanADecisionCanName() {
+        List<RateLimitRule> layers = new ArrayList<>();
+        for (int i = 0; i <= RuleSet.MAX_LAYERS; i++) {
+            layers.add(rule("layer-" + i, 0));
+        }
+        RateLimitRule rule = rule("a", 0);
+        rule.setLayers(layers);
+
+        assertThrows(IllegalArgumentException.class, () -> RuleSet.of(List.of(rule)));
+        rule.setLayers(layers.subList(0, RuleSet.MAX_LAYERS));
+        assertEquals(List.of("a"), ids(RuleSet.of(List.of(rule))));
+    }
+
+    @Test
+    void diffsAgainstTheSnapshot() {
+        RateLimitRule a = rule("a", 0);
+        RateLimitRule b = rule("b", 1);
+        RuleSet rules = RuleSet.of(List.of(a, b));
+        RateLimitRule newerB = rule("b", 1);
+        RateLimitRule c = rule("c", 2);
+        Map<String, RateLimitRule> changes = new HashMap<>();
+        changes.put("a", null);
+        changes.put("b", newerB);
+        changes.put("c", c);
+        changes.put("missing", null);
+
+        RuleSetDiff diff = rules.diff(changes);
+
+        assertEquals(List.of(c), diff.added());
+        assertEquals(List.of(new RuleSetDiff.Update(b, newerB)), diff.updated());
+        assertEquals(List.of(a), diff.removed());
+    }
+
+    @Test
+    void appliesOnlyTheChanges() {
+        List<RateLimitRule> initial = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            initial.add(rule("rule-" + i, i * 10));
+        }
+        RuleSet rules = RuleSet.of(initial);
+        Map<String, RateLimitRule> changes = new HashMap<>();
+        changes.put("rule-1", null);
+        changes.put("rule-3", rule("rule-3", 45));
+        changes.put("new", rule("new", 5));
+
+        RuleSet updated = rules.apply(rules.diff(changes));
+
+        assertEquals(List.of("rule-0", "new", "rule-2", "rule-4", "rule-3"), ids(updated));
+        assertSame(rules.get("rule-2").orElseThrow(), updated.get("rule-2").orElseThrow());
+        assertTrue(updated.get("rule-1").isEmpty());
+        assertEquals(List.of("rule-0", "rule-1", "rule-2", "rule-3", "rule-4"), ids(rules));
+    }
+
+    @Test
+    void unchangedDiffKeepsTheSnapshot() {
+        RateLimitRule a = rule("a", 0);
+        RuleSet rules = RuleSet.of(List.of(a));
+
+        RuleSetDiff diff = rules.diff(Map.of("a", a));
+
+        assertTrue(diff.isEmpty());
+        assertSame(rules, rules.apply(diff));
+    }
+
+    private static RateLimitRule rule(String id, int order) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setPath("/" + id);
+        rule.setOrder(order);
+        return rule;
+    }
+
+    private static List<String> ids(RuleSet rules) {
+        return rules.rules().stream().map(RateLimitRule::getId).toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.ratelimiter.core.config;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RuleTrieTest {
+
+    private static RuleTrie trie(String... paths) {
+        List<RateLimitRule> rules = new ArrayList<>();
+        for (String path : paths) {
+            RateLimitRule rule = new RateLimitRule();
+            rule.setId(path);
+            rule.setPath(path);
+            rules.add(rule);
+        }
+        return RuleTrie.compile(rules);
+    }
+
+    private static String match(RuleTrie trie, String path) {
+        RateLimitRule rule = trie.match(path);
+        return rule == null ? null : rule.getId();
+    }
+
+    @Test
+    void matchesExactPath() {
+        RuleTrie trie = trie("/api/resource");
+        assertEquals("/api/resource", match(trie, "/api/resource"));
+        assertNull(match(trie, "/api/resource/1"));
+        assertNull(match(trie, "/api"));
+    }
+
+    @Test
+    void singleWildcardMatchesExactlyOneSegment() {
+        RuleTrie trie = trie("/api/users/*");
+        assertEquals("/api/users/*", match(trie, "/api/users/123"));
+        assertNull(match(trie, "/api/users/123/profile"));
+        assertNull(match(trie, "/api/users"));
+    }
+
+    @Test
+    void doubleWildcardMatchesZeroOrMoreSegments() {
+        RuleTrie trie = trie("/api/users/**");
+        assertEquals("/api/users/**", match(trie, "/api/users"));
+        assertEquals("/api/users/**", match(trie, "/api/users/123"));
+        assertEquals("/api/users/**", match(trie, "/api/users/123/profile"));
+        assertNull(match(trie, "/api/usersettings"));
+    }
+
+    @Test
+    void catchAllMatchesEverything() {
+        assertEquals("/**", match(trie("/**"), "/"));
+        assertEquals("/**", match(trie("/**"), "/a/b/c"));
+        assertEquals("*", match(trie("*"), "/a/b"));
+    }
+
+    @Test
+    void wildcardsInTheMiddle() {
+        RuleTrie trie = trie("/api/*/profile", "/files/**/raw");
+        assertEquals("/api/*/profile", match(trie, "/api/42/profile"));
+        assertNull(match(trie, "/api/42/settings"));
+        assertEquals("/files/**/raw", match(trie, "/files/raw"));
+        assertEquals("/files/**/raw", match(trie, "/files/a/b/raw"));
+        assertNull(match(trie, "/files/a/b/raw/x"));
+    }
+
+    @Test
+    void firstRuleInConfigurationOrderWins() {
+        RuleTrie trie = trie("/**", "/api/resource");
+        assertEquals("/**", match(trie, "/api/resource"));
+    }
+
+    @Test
+    void laterMoreSpecificRuleLosesToEarlierWildcard() {
+        RuleTrie trie = trie("/api/users/*", "/api/users/admin", "/api/**");
+        assertEquals("/api/users/*", match(trie, "/api/users/admin"));
+        assertEquals("/api/**", match(trie, "/api/orders"));
+    }
+
+    @Test
+    void duplicatePatternKeepsFirstRule() {
+        List<RateLimitRule> rules = new ArrayList<>();
+        for (String id : List.of("first", "second")) {
+            RateLimitRule rule = new RateLimitRule();
+            rule.setId(id);
+            rule.setPath("/api/resource");
+            rules.add(rule);
+        }
+        assertEquals("first", RuleTrie.compile(rules).match("/api/resource").getId());
+    }
+
+    @Test
+    void handlesManyLiteralSiblings() {
+        String[] paths = new String[1000];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = "/api/v" + i + "/items";
+        }
+        RuleTrie trie = trie(paths);
+        for (int i = 0; i < paths.length; i++) {
+            assertEquals(paths[i], match(trie, paths[i]));
+        }
+        assertNull(match(trie, "/api/v1000/items"));
+    }
+
+    @Test
+    void emptyTrieMatchesNothing() {
+        assertNull(RuleTrie.EMPTY.match("/api/resource"));
+        assertNull(trie("/**").match(null));
+    }
+}
@@ -14,6 +14,8 @@ class AlgorithmTypeTest {
         assertEquals(AlgorithmType.FIXED_WINDOW, AlgorithmType.fromValue("fixed_window"));
         assertEquals(AlgorithmType.SLIDING_WINDOW_LOG, AlgorithmType.fromValue("sliding_window_log"));
         assertEquals(AlgorithmType.SLIDING_WINDOW_COUNTER, AlgorithmType.fromValue("sliding_window_counter"));
+        assertEquals(AlgorithmType.GCRA, AlgorithmType.fromValue("gcra"));
+        assertEquals(AlgorithmType.SLIDING_WINDOW_BUCKETS, AlgorithmType.fromValue("sliding_window_buckets"));
     }
 
     @Test
@@ -0,0 +1,51 @@
+package com.ratelimiter.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CompiledRuleTest {
+
+    @Test
+    void derivesEachFormOncePerOwner() {
+        RateLimitRule rule = rule(10);
+        AtomicInteger derivations = new AtomicInteger();
+        Object limiter = new Object();
+        Object gateway = new Object();
+
+        String first = rule.compiled().derive(limiter, r -> "max=" + r.getMaxRequests() + derivations.incrementAndGet());
+        String again = rule.compiled().derive(limiter, r -> "max=" + r.getMaxRequests() + derivations.incrementAndGet());
+        String other = rule.compiled().derive(gateway, r -> "gateway");
+
+        assertSame(first, again);
+        assertEquals("max=101", first);
+        assertEquals("gateway", other);
+        assertEquals(1, derivations.get());
+    }
+
+    @Test
+    void changingTheRuleDropsItsCompiledForm() {
+        RateLimitRule rule = rule(10);
+        Object owner = new Object();
+        CompiledRule compiled = rule.compiled();
+        assertSame(compiled, rule.compiled());
+        assertEquals("10", compiled.derive(owner, r -> String.valueOf(r.getMaxRequests())));
+
+        rule.setMaxRequests(20);
+
+        assertNotSame(compiled, rule.compiled());
+        assertSame(rule, rule.compiled().rule());
+        assertEquals("20", rule.compiled().derive(owner, r -> String.valueOf(r.getMaxRequests())));
+    }
+
+    private static RateLimitRule rule(int maxRequests) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId("api");
+        rule.setMaxRequests(maxRequests);
+        return rule;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ratelimiter.core.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PermitCostTest {
+
+    private PermitCost cost;
+
+    @BeforeEach
+    void setUp() {
+        cost = new PermitCost();
+        cost.setPermits(2);
+        cost.setMethods(Map.of("POST", 10L));
+        cost.setHeader("X-RateLimit-Cost");
+    }
+
+    @Test
+    void usesTheRouteCostByDefault() {
+        assertEquals(2, cost.permitsFor("GET", null));
+    }
+
+    @Test
+    void methodOverridesTheRouteCost() {
+        assertEquals(10, cost.permitsFor("POST", null));
+    }
+
+    @Test
+    void headerRaisesTheCost() {
+        assertEquals(50, cost.permitsFor("POST", "50"));
+    }
+
+    @Test
+    void headerNeverLowersTheCost() {
+        assertEquals(10, cost.permitsFor("POST", "1"));
+        assertEquals(2, cost.permitsFor("GET", "-5"));
+    }
+
+    @Test
+    void ignoresHeaderValuesThatAreNotIntegers() {
+        assertEquals(10, cost.permitsFor("POST", "lots"));
+    }
+
+    @Test
+    void rejectsCostsBelowOnePermit() {
+        assertThrows(IllegalArgumentException.class, () -> cost.setPermits(0));
+        assertThrows(IllegalArgumentException.class, () -> cost.setMethods(Map.of("GET", -3L)));
+        assertEquals(2, cost.permitsFor("GET", null));
+    }
+
+    @Test
+    void costsOnePermitUnlessConfigured() {
+        assertEquals(1, new PermitCost().permitsFor("DELETE", null));
+    }
+}
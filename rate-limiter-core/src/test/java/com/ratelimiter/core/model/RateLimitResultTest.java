@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RateLimitResultTest {
@@ -23,4 +24,11 @@ class RateLimitResultTest {
         assertEquals(0, result.remaining());
         assertEquals(1000, result.retryAfterMillis());
     }
+
+    @Test
+    void sharesSmallAllowedResults() {
+        assertSame(RateLimitResult.allowed(7), RateLimitResult.allowed(7));
+        assertEquals(RateLimitResult.allowed(1_000_000), RateLimitResult.allowed(1_000_000));
+        assertEquals(-1, RateLimitResult.allowed(-1).remaining());
+    }
 }
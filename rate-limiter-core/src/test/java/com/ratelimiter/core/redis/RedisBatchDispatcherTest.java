@@ -0,0 +1,246 @@
+package com.ratelimiter.core.redis;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisBatchDispatcherTest {
+
+    private static final RedisScript SCRIPT = RedisScript.of("one", "return 1");
+    private static final Duration NO_LINGER_FLUSH = Duration.ofHours(1);
+    private static final Duration NO_TIMEOUT = Duration.ofHours(1);
+
+    private StatefulRedisConnection<String, String> connection;
+    private final List<PendingReply> replies = new CopyOnWriteArrayList<>();
+    private final List<Integer> flushedSizes = new CopyOnWriteArrayList<>();
+    private RedisBatchDispatcher dispatcher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        connection = mock(StatefulRedisConnection.class);
+        RedisAsyncCommands<String, String> commands = mock(RedisAsyncCommands.class);
+        when(connection.async()).thenReturn(commands);
+        when(commands.evalsha(eq(SCRIPT.sha()), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenAnswer(invocation -> {
+                    PendingReply reply = new PendingReply();
+                    replies.add(reply);
+                    return reply;
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    private RedisBatchDispatcher dispatcher(int maxBatchSize, Duration maxLinger, int maxInFlight) {
+        return dispatcher(maxBatchSize, maxLinger, maxInFlight, 100, NO_TIMEOUT);
+    }
+
+    private RedisBatchDispatcher dispatcher(int maxBatchSize, Duration maxLinger, int maxInFlight, int maxQueued,
+                                            Duration timeout) {
+        return new RedisBatchDispatcher(connection, maxBatchSize, maxLinger, maxInFlight, maxQueued, timeout,
+                (size, waitNanos) -> flushedSizes.add(size));
+    }
+
+    private CompletableFuture<List<Object>> submit(String key) {
+        return dispatcher.submit(SCRIPT, new String[]{key}, "arg");
+    }
+
+    @Test
+    void disablesAutoFlush() {
+        dispatcher = dispatcher(4, NO_LINGER_FLUSH, 1);
+        verify(connection).setAutoFlushCommands(false);
+    }
+
+    @Test
+    void flushesWhenBatchIsFull() {
+        dispatcher = dispatcher(3, NO_LINGER_FLUSH, 1);
+
+        submit("a");
+        submit("b");
+        verify(connection, never()).flushCommands();
+
+        submit("c");
+
+        verify(connection).flushCommands();
+        assertEquals(3, replies.size());
+        assertEquals(List.of(3), flushedSizes);
+    }
+
+    @Test
+    void completesEachCallerWithItsOwnReply() throws Exception {
+        dispatcher = dispatcher(2, NO_LINGER_FLUSH, 1);
+
+        CompletableFuture<List<Object>> first = submit("a");
+        CompletableFuture<List<Object>> second = submit("b");
+        replies.get(1).complete(List.of(1L, 2L));
+        replies.get(0).completeExceptionally(new IllegalStateException("boom"));
+
+        assertEquals(List.of(1L, 2L), second.get(1, TimeUnit.SECONDS));
+        assertTrue(first.isCompletedExceptionally());
+    }
+
+    @Test
+    void flushesPartialBatchAfterLinger() throws Exception {
+        dispatcher = dispatcher(100, Duration.ofMillis(5), 1);
+
+        CompletableFuture<List<Object>> reply = submit("a");
+        waitFor(() -> replies.size() == 1);
+        replies.get(0).complete(List.of(1L, 0L));
+
+        assertEquals(List.of(1L, 0L), reply.get(1, TimeUnit.SECONDS));
+        waitFor(() -> flushedSizes.equals(List.of(1)));
+    }
+
+    @Test
+    void holdsBatchesBeyondInFlightLimit() {
+        dispatcher = dispatcher(1, NO_LINGER_FLUSH, 1);
+
+        submit("a");
+        submit("b");
+        assertEquals(1, replies.size());
+        assertEquals(1, dispatcher.getQueuedCalls());
+
+        replies.get(0).complete(List.of(1L, 0L));
+
+        assertEquals(2, replies.size());
+        assertEquals(0, dispatcher.getQueuedCalls());
+        verify(connection, times(2)).flushCommands();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writesAndFlushesOneBatchAtATime() throws Exception {
+        List<String> writes = new CopyOnWriteArrayList<>();
+        RedisAsyncCommands<String, String> commands = mock(RedisAsyncCommands.class);
+        when(connection.async()).thenReturn(commands);
+        when(commands.evalsha(eq(SCRIPT.sha()), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenAnswer(invocation -> {
+                    writes.add("call");
+                    Thread.yield();
+                    PendingReply reply = new PendingReply();
+                    reply.complete(List.of(1L, 0L));
+                    return reply;
+                });
+        doAnswer(invocation -> writes.add("flush")).when(connection).flushCommands();
+        dispatcher = dispatcher(2, NO_LINGER_FLUSH, 64);
+
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            submitters.execute(() -> {
+                for (int i = 0; i < 100; i++) {
+                    submit("k" + i);
+                }
+            });
+        }
+        submitters.shutdown();
+        assertTrue(submitters.awaitTermination(5, TimeUnit.SECONDS));
+
+        List<String> batch = List.of("call", "call", "flush");
+        assertEquals(600, writes.size());
+        for (int i = 0; i < writes.size(); i += 3) {
+            assertEquals(batch, writes.subList(i, i + 3));
+        }
+    }
+
+    @Test
+    void rejectsCallsBeyondTheQueueBound() {
+        dispatcher = dispatcher(1, NO_LINGER_FLUSH, 1, 2, NO_TIMEOUT);
+
+        submit("a");
+        submit("b");
+        submit("c");
+        CompletableFuture<List<Object>> rejected = submit("d");
+
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        assertEquals(2, dispatcher.getQueuedCalls());
+        assertEquals(1, dispatcher.getRejectedCount());
+    }
+
+    @Test
+    void failsUnansweredBatchesAfterTheTimeoutAndSendsTheNext() throws Exception {
+        dispatcher = dispatcher(1, NO_LINGER_FLUSH, 1, 100, Duration.ofMillis(20));
+
+        CompletableFuture<List<Object>> hung = submit("a");
+        submit("b");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> hung.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        waitFor(() -> replies.size() == 2);
+        waitFor(() -> dispatcher.getTimedOutCount() >= 1);
+    }
+
+    @Test
+    void failsQueuedCallsOnClose() {
+        dispatcher = dispatcher(10, NO_LINGER_FLUSH, 1);
+        CompletableFuture<List<Object>> reply = submit("a");
+
+        dispatcher.close();
+
+        assertTrue(reply.isCompletedExceptionally());
+        assertTrue(submit("b").isCompletedExceptionally());
+        verify(connection).close();
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        dispatcher = dispatcher(1, NO_LINGER_FLUSH, 1);
+        assertThrows(IllegalArgumentException.class, () -> dispatcher(0, NO_LINGER_FLUSH, 1));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher(1, NO_LINGER_FLUSH, 0));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher(1, NO_LINGER_FLUSH, 1, 0, NO_TIMEOUT));
+        assertThrows(IllegalArgumentException.class, () -> dispatcher(1, NO_LINGER_FLUSH, 1, 1, Duration.ZERO));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static final class PendingReply extends CompletableFuture<List<Object>> implements RedisFuture<List<Object>> {
+
+        @Override
+        public String getError() {
+            return null;
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) {
+            return isDone();
+        }
+    }
+}
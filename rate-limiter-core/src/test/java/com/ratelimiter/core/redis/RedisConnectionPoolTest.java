@@ -0,0 +1,101 @@
+package com.ratelimiter.core.redis;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.redis.RedisConnectionPool.PooledConnection;
+import com.ratelimiter.core.redis.RedisConnectionPool.Selection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class RedisConnectionPoolTest {
+
+    private static final RedisScript TOKEN_BUCKET = RedisScript.of("token_bucket", "return 1");
+    private static final RedisScript TOKEN_BUCKET_LEASE = RedisScript.of("token_bucket_lease", "return 2");
+    private static final RedisScript SLIDING_WINDOW_LOG = RedisScript.of("sliding_window_log", "return 3");
+
+    private final List<StatefulRedisConnection<String, String>> connections = List.of(
+            connection(), connection(), connection(), connection());
+
+    @Test
+    void keyHashKeepsKeyOnOneConnection() {
+        RedisConnectionPool pool = pool(Selection.KEY_HASH, Map.of());
+
+        PooledConnection first = pool.select(TOKEN_BUCKET, new String[]{"rl:tb:{user-1}"});
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, pool.select(TOKEN_BUCKET, new String[]{"rl:tb:{user-1}"}));
+        }
+    }
+
+    @Test
+    void keyHashSpreadsKeys() {
+        RedisConnectionPool pool = pool(Selection.KEY_HASH, Map.of());
+
+        Set<PooledConnection> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            used.add(pool.select(TOKEN_BUCKET, new String[]{"rl:tb:{user-" + i + "}"}));
+        }
+        assertEquals(4, used.size());
+    }
+
+    @Test
+    void roundRobinCyclesThroughConnections() {
+        RedisConnectionPool pool = pool(Selection.ROUND_ROBIN, Map.of());
+
+        List<PooledConnection> all = pool.getConnections();
+        for (int i = 0; i < 8; i++) {
+            assertSame(all.get(i % 4), pool.select(TOKEN_BUCKET, new String[]{"rl:tb:{user-1}"}));
+        }
+    }
+
+    @Test
+    void dedicatedConnectionServesAlgorithmAndItsVariants() {
+        PooledConnection tokenBucket = PooledConnection.of("token_bucket", connection());
+        RedisConnectionPool pool = pool(Selection.KEY_HASH, Map.of(AlgorithmType.TOKEN_BUCKET, tokenBucket));
+
+        assertSame(tokenBucket, pool.select(TOKEN_BUCKET, new String[]{"rl:tb:{a}"}));
+        assertSame(tokenBucket, pool.select(TOKEN_BUCKET_LEASE, new String[]{"rl:tb:{b}"}));
+        assertNotSame(tokenBucket, pool.select(SLIDING_WINDOW_LOG, new String[]{"rl:swl:{a}"}));
+        assertEquals(5, pool.getConnections().size());
+    }
+
+    @Test
+    void requiresSharedConnection() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RedisConnectionPool(List.of(), Map.of(), Selection.KEY_HASH, null));
+    }
+
+    @Test
+    void closesEveryConnection() {
+        StatefulRedisConnection<String, String> dedicated = connection();
+        RedisConnectionPool pool = pool(Selection.KEY_HASH,
+                Map.of(AlgorithmType.SLIDING_WINDOW_LOG, PooledConnection.of("sliding_window_log", dedicated)));
+
+        pool.close();
+
+        connections.forEach(connection -> verify(connection).close());
+        verify(dedicated).close();
+    }
+
+    private RedisConnectionPool pool(Selection selection, Map<AlgorithmType, PooledConnection> dedicated) {
+        List<PooledConnection> shared = connections.stream()
+                .map(connection -> PooledConnection.of("shared", connection))
+                .toList();
+        return new RedisConnectionPool(shared, dedicated, selection, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StatefulRedisConnection<String, String> connection() {
+        return mock(StatefulRedisConnection.class);
+    }
+}
@@ -0,0 +1,34 @@
+package com.ratelimiter.core.redis;
+
+import com.ratelimiter.core.algorithm.DenyCache;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class RedisDenyBroadcasterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final DenyCache cache = new DenyCache(100, now::get);
+
+    @SuppressWarnings("unchecked")
+    private final RedisDenyBroadcaster broadcaster = new RedisDenyBroadcaster(
+            mock(StatefulRedisPubSubConnection.class), mock(RedisReactiveCommands.class), cache, "rl:deny");
+
+    @Test
+    void appliesReceivedDenial() {
+        broadcaster.receive(RedisDenyBroadcaster.encode("rule", "10.0.0.1:/api/a", 750));
+        assertEquals(750, cache.remainingMillis("rule", "10.0.0.1:/api/a"));
+    }
+
+    @Test
+    void ignoresMalformedMessages() {
+        broadcaster.receive("garbage");
+        broadcaster.receive("abc\nrule\nkey");
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,29 @@
+package com.ratelimiter.core.redis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RedisKeysTest {
+
+    @Test
+    void wrapsKeyInHashTag() {
+        assertEquals("rt{user-1}", RedisKeys.tagged(RedisKeys.TOKEN_BUCKET, "user-1"));
+    }
+
+    @Test
+    void derivedKeysShareTheTag() {
+        String key = RedisKeys.tagged(RedisKeys.SLIDING_WINDOW_COUNTER, "10.0.0.1:/api/users");
+        assertEquals(hashTag(key), hashTag(key + ":42"));
+        assertEquals("10.0.0.1:/api/users", hashTag(key));
+    }
+
+    /**
+     * Part of the key Redis Cluster hashes: the text between the first '{' and the next '}'.
+     */
+    private static String hashTag(String key) {
+        int open = key.indexOf('{');
+        int close = key.indexOf('}', open + 1);
+        return key.substring(open + 1, close);
+    }
+}
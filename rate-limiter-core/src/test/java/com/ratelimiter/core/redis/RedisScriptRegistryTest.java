@@ -0,0 +1,102 @@
+package com.ratelimiter.core.redis;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisScriptRegistryTest {
+
+    private static final String SOURCE = "return 1";
+    private static final String SHA = "e0e1f9fabfc9d4800c877a703b823ac0578ff8db";
+
+    private RedisCommands<String, String> commands;
+    private RedisScriptRegistry registry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        commands = mock(RedisCommands.class);
+        registry = new RedisScriptRegistry(commands, mock(RedisReactiveCommands.class));
+    }
+
+    @Test
+    void computesRedisDigest() {
+        assertEquals(SHA, registry.register("one", SOURCE).sha());
+    }
+
+    @Test
+    void registeringTwiceReturnsSameScript() {
+        RedisScript first = registry.register("one", SOURCE);
+        assertSame(first, registry.register("one", SOURCE));
+    }
+
+    @Test
+    void rejectsConflictingBody() {
+        registry.register("one", SOURCE);
+        assertThrows(IllegalStateException.class, () -> registry.register("one", "return 2"));
+    }
+
+    @Test
+    void preloadsRegisteredScripts() {
+        registry.register("one", SOURCE);
+        when(commands.scriptLoad(SOURCE)).thenReturn(SHA);
+
+        registry.loadAll();
+
+        verify(commands).scriptLoad(SOURCE);
+        assertEquals(1, registry.getLoadCount());
+        assertEquals(0, registry.getReloadCount());
+    }
+
+    @Test
+    void reloadsScriptAfterNoScript() {
+        RedisScript script = registry.register("one", SOURCE);
+        when(commands.scriptLoad(SOURCE)).thenReturn(SHA);
+        when(commands.evalsha(eq(SHA), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenThrow(new RedisNoScriptException("NOSCRIPT No matching script"))
+                .thenReturn(List.of(1L, 4L));
+
+        List<Object> reply = registry.eval(script, new String[]{"key"}, "arg");
+
+        assertEquals(List.of(1L, 4L), reply);
+        assertEquals(1, registry.getReloadCount());
+        verify(commands).scriptLoad(SOURCE);
+        verify(commands, times(2)).evalsha(eq(SHA), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class));
+    }
+
+    @Test
+    void reportsEachCallToTheListener() {
+        RedisScript script = registry.register("one", SOURCE);
+        List<Boolean> calls = new ArrayList<>();
+        registry.setCallListener((called, nanos, success) -> {
+            assertSame(script, called);
+            assertTrue(nanos >= 0);
+            calls.add(success);
+        });
+        when(commands.evalsha(eq(SHA), eq(ScriptOutputType.MULTI), any(String[].class), any(String[].class)))
+                .thenReturn(List.of(1L))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        registry.eval(script, new String[]{"key"}, "arg");
+        assertThrows(IllegalStateException.class, () -> registry.eval(script, new String[]{"key"}, "arg"));
+
+        assertEquals(List.of(true, false), calls);
+    }
+}
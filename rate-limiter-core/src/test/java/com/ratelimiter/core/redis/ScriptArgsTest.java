@@ -0,0 +1,25 @@
+package com.ratelimiter.core.redis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ScriptArgsTest {
+
+    @Test
+    void rendersSmallValuesFromATable() {
+        assertSame(ScriptArgs.of(3), ScriptArgs.of(3));
+        assertEquals("1023", ScriptArgs.of(1023));
+        assertEquals("1024", ScriptArgs.of(1024));
+        assertEquals("-1", ScriptArgs.of(-1));
+    }
+
+    @Test
+    void reusesTheCurrentSecondAndMillisecond() {
+        assertSame(ScriptArgs.seconds(1_700_000_000), ScriptArgs.seconds(1_700_000_000));
+        assertEquals("1700000001", ScriptArgs.seconds(1_700_000_001));
+        assertSame(ScriptArgs.millis(1_700_000_000_123L), ScriptArgs.millis(1_700_000_000_123L));
+        assertEquals("1700000000124", ScriptArgs.millis(1_700_000_000_124L));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ratelimiter.core.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterSketchTest {
+
+    private HeavyHitterSketch sketch;
+
+    @BeforeEach
+    void setUp() {
+        sketch = new HeavyHitterSketch(64, 1024, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sketch.close();
+    }
+
+    @Test
+    void findsTheHeavyHittersAmongTheTail() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(100);
+            String key = roll < 30 ? "hot-1" : roll < 50 ? "hot-2" : "tail-" + random.nextInt(20_000);
+            sketch.record("api", key, false);
+        }
+
+        List<HeavyHitterSketch.HotKey> top = sketch.top(2, HeavyHitterSketch.BY_REQUESTS);
+
+        assertEquals(List.of("hot-1", "hot-2"), top.stream().map(HeavyHitterSketch.HotKey::key).toList());
+        assertEquals(30_000 / 20.0, top.get(0).requestRate(), 30_000 / 20.0 * 0.1);
+    }
+
+    @Test
+    void ranksByDenials() {
+        for (int i = 0; i < 1000; i++) {
+            sketch.record("api", "busy", false);
+        }
+        for (int i = 0; i < 500; i++) {
+            sketch.record("api", "abusive", true);
+        }
+
+        List<HeavyHitterSketch.HotKey> top = sketch.top(1, HeavyHitterSketch.BY_DENIALS);
+
+        assertEquals("abusive", top.get(0).key());
+        assertEquals(500 / 20.0, top.get(0).denialRate());
+    }
+
+    @Test
+    void separatesRules() {
+        sketch.record("api", "alice", false);
+        sketch.record("admin", "alice", false);
+        sketch.record("admin", "alice", false);
+
+        List<HeavyHitterSketch.HotKey> top = sketch.top(10, HeavyHitterSketch.BY_REQUESTS);
+
+        assertEquals(2, top.size());
+        assertEquals("admin", top.get(0).rule());
+    }
+
+    @Test
+    void decayHalvesTheEstimatesAndNotifiesListeners() {
+        AtomicInteger decays = new AtomicInteger();
+        sketch.addDecayListener(decays::incrementAndGet);
+        for (int i = 0; i < 40; i++) {
+            sketch.record("api", "alice", false);
+        }
+
+        sketch.decay();
+
+        assertEquals(1.0, sketch.top(1, HeavyHitterSketch.BY_REQUESTS).get(0).requestRate());
+        assertEquals(1, decays.get());
+    }
+
+    @Test
+    void keepsMemoryFixed() {
+        for (int i = 0; i < 10_000; i++) {
+            sketch.record("api", "key-" + i, false);
+        }
+
+        assertTrue(sketch.top(Integer.MAX_VALUE, HeavyHitterSketch.BY_REQUESTS).size() <= 64);
+    }
+}
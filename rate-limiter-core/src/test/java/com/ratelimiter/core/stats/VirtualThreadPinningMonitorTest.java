@@ -0,0 +1,49 @@
+package com.ratelimiter.core.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadPinningMonitorTest {
+
+    @Test
+    void countsThreadsPinnedBySynchronizedBlocks() throws Exception {
+        try (VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(Duration.ofMillis(5))) {
+            Object lock = new Object();
+            Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    sleep(50);
+                }
+            }).join();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (monitor.getPinnedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(1, monitor.getPinnedCount());
+            assertTrue(monitor.getPinnedTime().compareTo(Duration.ofMillis(40)) >= 0);
+        }
+    }
+
+    @Test
+    void ignoresThreadsThatUnmount() throws Exception {
+        try (VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(Duration.ofMillis(5))) {
+            Thread.ofVirtual().start(() -> sleep(50)).join();
+            Thread.sleep(1500);
+
+            assertEquals(0, monitor.getPinnedCount());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
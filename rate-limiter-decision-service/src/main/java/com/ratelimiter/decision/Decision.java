@@ -0,0 +1,44 @@
+package com.ratelimiter.decision;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ratelimiter.core.model.RateLimitResult;
+
+/**
+ * Outcome of one {@link DecisionRequest}.
+ *
+ * @param rule  id of the rule, or of the layer, that decided: the one that denied the
+ *              request or, when all admitted it, the one closest to its limit
+ * @param layer position of that rule in the requested rule, {@code 0} for the rule itself
+ *              and {@code n} for its n-th layer; carried instead of the id on the TCP protocol
+ */
+public record Decision(Status status, long remaining, long retryAfterMillis, String rule,
+                       @JsonIgnore int layer) {
+
+    /**
+     * Statuses in wire order; the TCP protocol sends the ordinal.
+     */
+    public enum Status {
+        ALLOWED,
+        DENIED,
+        /**
+         * No rule has the requested id or matches the requested path.
+         */
+        NO_RULE,
+        /**
+         * The limiter failed; the caller decides whether to fail open, as the gateway does.
+         */
+        ERROR
+    }
+
+    static final Decision NO_RULE = new Decision(Status.NO_RULE, 0, 0, null, 0);
+
+    static Decision of(RateLimitResult result, String rule, int layer) {
+        return result.allowed()
+                ? new Decision(Status.ALLOWED, result.remaining(), 0, rule, layer)
+                : new Decision(Status.DENIED, 0, result.retryAfterMillis(), rule, layer);
+    }
+
+    static Decision error(String rule) {
+        return new Decision(Status.ERROR, 0, 0, rule, 0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ratelimiter.decision;
+
+/**
+ * One entry of a decision batch. The rule is named by {@code rule}, its id, or else
+ * matched by {@code path} like a gateway request; {@code key} identifies the client. It may
+ * only be left out for rules whose layers all have the {@code global} key resolver, which
+ * ignores the client as it does in the gateway.
+ *
+ * @param permits permits to take, {@code 0} meaning one
+ */
+public record DecisionRequest(String rule, String path, String key, long permits) {
+
+    public DecisionRequest {
+        if (rule == null && path == null) {
+            throw new IllegalArgumentException("Either rule or path is required");
+        }
+        if (permits < 0) {
+            throw new IllegalArgumentException("permits must not be negative: " + permits);
+        }
+        if (permits == 0) {
+            permits = 1;
+        }
+    }
+
+    public static DecisionRequest forRule(String rule, String key, long permits) {
+        return new DecisionRequest(rule, null, key, permits);
+    }
+
+    public static DecisionRequest forPath(String path, String key, long permits) {
+        return new DecisionRequest(null, path, key, permits);
+    }
+}
@@ -0,0 +1,129 @@
+package com.ratelimiter.decision;
+
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
+import com.ratelimiter.core.config.RuleMatchService;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.RateLimitRule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Decides batches of {@link DecisionRequest}s for the HTTP and TCP endpoints. The entries
+ * of a batch are decided concurrently through the limiters' reactive API, at most
+ * {@code decision.batch-concurrency} at a time, so a batch costs about one round trip to
+ * the backend (one pipelined batch when Redis batching is enabled) and no thread ever
+ * waits on Redis. Decisions come back in request order. A failing entry is reported as
+ * {@link Decision.Status#ERROR} without failing the rest of the batch.
+ */
+@Service
+public class DecisionService {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionService.class);
+
+    private final RuleMatchService ruleMatchService;
+    private final RateLimiterFactory rateLimiterFactory;
+    private final int maxBatchSize;
+    private final int concurrency;
+    private final Counter[] counters;
+
+    public DecisionService(RuleMatchService ruleMatchService,
+                           RateLimiterFactory rateLimiterFactory,
+                           MeterRegistry meterRegistry,
+                           @Value("${decision.max-batch-size:1000}") int maxBatchSize,
+                           @Value("${decision.batch-concurrency:256}") int concurrency) {
+        this.ruleMatchService = ruleMatchService;
+        this.rateLimiterFactory = rateLimiterFactory;
+        this.maxBatchSize = maxBatchSize;
+        this.concurrency = concurrency;
+        Decision.Status[] statuses = Decision.Status.values();
+        this.counters = new Counter[statuses.length];
+        for (Decision.Status status : statuses) {
+            counters[status.ordinal()] = Counter.builder("rate_limiter.decisions")
+                    .description("Decisions served by the decision service")
+                    .tag("status", status.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Fails with an {@link IllegalArgumentException} if the batch holds more than
+     * {@code decision.max-batch-size} entries, or an entry lacks the key its rule needs.
+     */
+    public Mono<List<Decision>> decide(List<DecisionRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            return Mono.error(new IllegalArgumentException("Batch of " + requests.size()
+                    + " exceeds the limit of " + maxBatchSize));
+        }
+        if (requests.size() == 1) {
+            return decide(requests.get(0)).map(List::of);
+        }
+        return Flux.fromIterable(requests)
+                .flatMapSequential(this::decide, concurrency)
+                .collectList();
+    }
+
+    public Mono<Decision> decide(DecisionRequest request) {
+        Optional<RateLimitRule> matchingRule = request.rule() != null
+                ? ruleMatchService.findRule(request.rule())
+                : ruleMatchService.findMatchingRule(request.path());
+        if (matchingRule.isEmpty()) {
+            return Mono.just(count(Decision.NO_RULE));
+        }
+
+        RateLimitRule rule = matchingRule.get();
+        List<RateLimitRule> layers = rule.getLayers().isEmpty() ? List.of(rule) : RuleSetRateLimiter.layers(rule);
+        List<String> keys = new ArrayList<>(layers.size());
+        for (RateLimitRule layer : layers) {
+            String key = key(request, layer);
+            if (key == null) {
+                return Mono.error(new IllegalArgumentException("Rule " + layer.getId() + " needs a key"));
+            }
+            keys.add(key);
+        }
+        Mono<Decision> decision;
+        if (rule.getLayers().isEmpty()) {
+            decision = rateLimiterFactory.getLimiter(rule)
+                    .isAllowed(keys.get(0), rule, request.permits())
+                    .map(result -> Decision.of(result, rule.getId(), 0));
+        } else {
+            decision = rateLimiterFactory.getRuleSetLimiter(rule)
+                    .isAllowed(keys, rule, request.permits())
+                    .map(result -> Decision.of(result.result(), result.rule().getId(),
+                            layers.indexOf(result.rule())));
+        }
+        return decision
+                .onErrorResume(ex -> {
+                    log.error("Rate limiter error for rule '{}'", rule.getId(), ex);
+                    return Mono.just(Decision.error(rule.getId()));
+                })
+                .map(this::count);
+    }
+
+    /**
+     * The client key to decide the rule for, or {@code null} if the rule needs one and the
+     * request has none.
+     */
+    private static String key(DecisionRequest request, RateLimitRule rule) {
+        return rule.getKeyResolver() == KeyResolverType.GLOBAL ? rule.getId() : request.key();
+    }
+
+    private Decision count(Decision decision) {
+        counters[decision.status().ordinal()].increment();
+        return decision;
+    }
+}
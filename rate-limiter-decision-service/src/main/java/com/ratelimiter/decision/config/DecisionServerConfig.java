@@ -0,0 +1,28 @@
+package com.ratelimiter.decision.config;
+
+import com.ratelimiter.decision.DecisionService;
+import com.ratelimiter.decision.tcp.DecisionTcpServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DecisionServerConfig {
+
+    @Value("${decision.tcp.host:0.0.0.0}")
+    private String host;
+
+    @Value("${decision.tcp.port:7070}")
+    private int port;
+
+    @Value("${decision.tcp.max-frame-bytes:1048576}")
+    private int maxFrameBytes;
+
+    @Value("${decision.tcp.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public DecisionTcpServer decisionTcpServer(DecisionService decisionService) {
+        return new DecisionTcpServer(decisionService, host, port, maxFrameBytes, maxInFlight);
+    }
+}
@@ -0,0 +1,107 @@
+package com.ratelimiter.decision.tcp;
+
+import com.ratelimiter.core.config.RuleSet;
+import com.ratelimiter.decision.Decision;
+import com.ratelimiter.decision.DecisionRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary frames of the TCP decision protocol, all integers big-endian. Every frame starts
+ * with an {@code int32} length of the rest of the frame.
+ *
+ * <pre>
+ * request:  int32 length | int32 batch id | uint16 count | count x entry
+ *   entry:  uint8 selector (0 rule id, 1 path) | uint16 n | n bytes UTF-8 rule id or path
+ *           | uint16 n | n bytes UTF-8 key | uint32 permits (0 meaning one)
+ * response: int32 length | int32 batch id | uint16 count | count x decision
+ *   decision: uint8 status (Decision.Status ordinal) | uint8 layer
+ *             | int64 remaining if allowed, retry-after millis if denied, else 0
+ * </pre>
+ *
+ * A decision takes 10 bytes. The batch id is echoed back, so a client can keep several
+ * batches in flight on one connection; responses arrive in request order.
+ */
+final class DecisionCodec {
+
+    static final int LENGTH_BYTES = 4;
+    static final byte SELECTOR_RULE = 0;
+    static final byte SELECTOR_PATH = 1;
+
+    private static final int HEADER_BYTES = 6;
+    private static final int DECISION_BYTES = 10;
+
+    record Batch(int id, List<DecisionRequest> requests) {
+    }
+
+    private DecisionCodec() {
+    }
+
+    /**
+     * Reads a request frame whose length prefix has already been stripped.
+     *
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    static Batch decode(ByteBuf frame) {
+        try {
+            int id = frame.readInt();
+            int count = frame.readUnsignedShort();
+            List<DecisionRequest> requests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte selector = frame.readByte();
+                String target = readString(frame);
+                String key = readString(frame);
+                long permits = frame.readUnsignedInt();
+                requests.add(switch (selector) {
+                    case SELECTOR_RULE -> DecisionRequest.forRule(target, key, permits);
+                    case SELECTOR_PATH -> DecisionRequest.forPath(target, key, permits);
+                    default -> throw new IllegalArgumentException("Unknown selector " + selector);
+                });
+            }
+            if (frame.isReadable()) {
+                throw new IllegalArgumentException(frame.readableBytes() + " trailing bytes in frame");
+            }
+            return new Batch(id, requests);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated frame", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a decision's layer does not fit its byte
+     */
+    static ByteBuf encode(ByteBufAllocator allocator, int id, List<Decision> decisions) {
+        for (Decision decision : decisions) {
+            if (decision.layer() < 0 || decision.layer() > RuleSet.MAX_LAYERS) {
+                throw new IllegalArgumentException("Layer " + decision.layer() + " of rule " + decision.rule()
+                        + " does not fit the protocol");
+            }
+        }
+        int length = HEADER_BYTES + decisions.size() * DECISION_BYTES;
+        ByteBuf buffer = allocator.buffer(LENGTH_BYTES + length);
+        buffer.writeInt(length);
+        buffer.writeInt(id);
+        buffer.writeShort(decisions.size());
+        for (Decision decision : decisions) {
+            buffer.writeByte(decision.status().ordinal());
+            buffer.writeByte(decision.layer());
+            buffer.writeLong(switch (decision.status()) {
+                case ALLOWED -> decision.remaining();
+                case DENIED -> decision.retryAfterMillis();
+                default -> 0;
+            });
+        }
+        return buffer;
+    }
+
+    private static String readString(ByteBuf frame) {
+        int length = frame.readUnsignedShort();
+        String value = frame.toString(frame.readerIndex(), length, StandardCharsets.UTF_8);
+        frame.skipBytes(length);
+        return value;
+    }
+}
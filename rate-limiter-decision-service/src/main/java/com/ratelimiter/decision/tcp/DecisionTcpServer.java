@@ -0,0 +1,68 @@
+package com.ratelimiter.decision.tcp;
+
+import com.ratelimiter.decision.DecisionService;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Serves the binary decision protocol of {@link DecisionCodec} on a plain TCP port.
+ * Frames are split by Netty's length-field decoder on the event loop and decoded in
+ * place; up to {@code maxInFlight} batches per connection are decided at once and their
+ * responses written back in order, flushed together when the connection's queue drains.
+ * A malformed frame, or a batch over the service's size limit, closes its connection.
+ */
+public class DecisionTcpServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionTcpServer.class);
+
+    private final DecisionService decisionService;
+    private final String host;
+    private final int port;
+    private final int maxFrameBytes;
+    private final int maxInFlight;
+    private volatile DisposableServer server;
+
+    public DecisionTcpServer(DecisionService decisionService, String host, int port,
+                             int maxFrameBytes, int maxInFlight) {
+        this.decisionService = decisionService;
+        this.host = host;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public void start() {
+        server = TcpServer.create()
+                .host(host)
+                .port(port)
+                .doOnConnection(connection -> connection.addHandlerLast("decisionFrameDecoder",
+                        new LengthFieldBasedFrameDecoder(maxFrameBytes, 0, DecisionCodec.LENGTH_BYTES,
+                                0, DecisionCodec.LENGTH_BYTES)))
+                .handle((inbound, outbound) -> outbound.send(inbound.receive()
+                        .map(DecisionCodec::decode)
+                        .flatMapSequential(batch -> decisionService.decide(batch.requests())
+                                .map(decisions -> DecisionCodec.encode(outbound.alloc(), batch.id(), decisions)),
+                                maxInFlight)
+                        .doOnError(ex -> log.warn("Closing decision connection: {}", ex.toString()))))
+                .bindNow();
+        log.info("Decision service listening for TCP clients on {}:{}", host, server.port());
+    }
+
+    /**
+     * Bound port, which differs from the configured one when that is {@code 0}.
+     */
+    public int getPort() {
+        return server.port();
+    }
+
+    @Override
+    public void close() {
+        DisposableServer current = server;
+        if (current != null) {
+            current.disposeNow();
+        }
+    }
+}
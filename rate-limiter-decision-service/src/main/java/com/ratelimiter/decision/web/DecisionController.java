@@ -0,0 +1,36 @@
+package com.ratelimiter.decision.web;
+
+import com.ratelimiter.decision.Decision;
+import com.ratelimiter.decision.DecisionRequest;
+import com.ratelimiter.decision.DecisionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * JSON form of the decision API: a batch is an array of requests and is answered with an
+ * array of decisions in the same order.
+ */
+@RestController
+@RequestMapping("/decisions")
+public class DecisionController {
+
+    private final DecisionService decisionService;
+
+    public DecisionController(DecisionService decisionService) {
+        this.decisionService = decisionService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<List<Decision>>> decide(@RequestBody List<DecisionRequest> requests) {
+        return decisionService.decide(requests)
+                .map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        ex -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+}
@@ -0,0 +1,163 @@
+package com.ratelimiter.decision;
+
+import com.ratelimiter.core.algorithm.RateLimiter;
+import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
+import com.ratelimiter.core.config.RuleMatchService;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.RateLimitResult;
+import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DecisionServiceTest {
+
+    private RuleMatchService ruleMatchService;
+    private RateLimiterFactory rateLimiterFactory;
+    private SimpleMeterRegistry meterRegistry;
+    private DecisionService service;
+
+    @BeforeEach
+    void setUp() {
+        ruleMatchService = mock(RuleMatchService.class);
+        rateLimiterFactory = mock(RateLimiterFactory.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(ruleMatchService.findRule(anyString())).thenReturn(Optional.empty());
+        when(ruleMatchService.findMatchingRule(anyString())).thenReturn(Optional.empty());
+
+        service = new DecisionService(ruleMatchService, rateLimiterFactory, meterRegistry, 3, 16);
+    }
+
+    @Test
+    void decidesByRuleIdAndByPathInRequestOrder() {
+        RateLimitRule byId = rule("by-id", KeyResolverType.USER);
+        RateLimitRule byPath = rule("by-path", KeyResolverType.IP);
+        when(ruleMatchService.findRule("by-id")).thenReturn(Optional.of(byId));
+        when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(byPath));
+
+        RateLimiter limiter = mock(RateLimiter.class);
+        when(rateLimiterFactory.getLimiter(byId)).thenReturn(limiter);
+        when(rateLimiterFactory.getLimiter(byPath)).thenReturn(limiter);
+        when(limiter.isAllowed("alice", byId, 2L)).thenReturn(Mono.just(RateLimitResult.allowed(7)));
+        when(limiter.isAllowed("10.0.0.1", byPath, 1L)).thenReturn(Mono.just(RateLimitResult.denied(1500)));
+
+        List<Decision> decisions = service.decide(List.of(
+                DecisionRequest.forRule("by-id", "alice", 2),
+                DecisionRequest.forPath("/api/resource", "10.0.0.1", 0))).block();
+
+        assertEquals(new Decision(Decision.Status.ALLOWED, 7, 0, "by-id", 0), decisions.get(0));
+        assertEquals(new Decision(Decision.Status.DENIED, 0, 1500, "by-path", 0), decisions.get(1));
+        assertEquals(1, meterRegistry.counter("rate_limiter.decisions", "status", "denied").count());
+    }
+
+    @Test
+    void reportsMissingRule() {
+        List<Decision> decisions = service.decide(List.of(DecisionRequest.forRule("missing", "alice", 1))).block();
+
+        assertEquals(Decision.Status.NO_RULE, decisions.get(0).status());
+        verifyNoInteractions(rateLimiterFactory);
+    }
+
+    @Test
+    void usesTheRuleIdAsKeyForGlobalRules() {
+        RateLimitRule rule = rule("global", KeyResolverType.GLOBAL);
+        when(ruleMatchService.findRule("global")).thenReturn(Optional.of(rule));
+        RateLimiter limiter = mock(RateLimiter.class);
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed("global", rule, 1L)).thenReturn(Mono.just(RateLimitResult.allowed(0)));
+
+        Decision decision = service.decide(DecisionRequest.forRule("global", "alice", 1)).block();
+
+        assertEquals(Decision.Status.ALLOWED, decision.status());
+    }
+
+    @Test
+    void reportsTheLayerThatDenied() {
+        RateLimitRule perUser = rule("per-user", KeyResolverType.USER);
+        RateLimitRule total = rule("total", KeyResolverType.GLOBAL);
+        RateLimitRule rule = rule("api", KeyResolverType.USER);
+        rule.setLayers(List.of(perUser, total));
+        when(ruleMatchService.findRule("api")).thenReturn(Optional.of(rule));
+
+        RuleSetRateLimiter limiter = mock(RuleSetRateLimiter.class);
+        when(rateLimiterFactory.getRuleSetLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(eq(List.of("alice", "alice", "total")), eq(rule), eq(1L)))
+                .thenReturn(Mono.just(new RuleSetResult(RateLimitResult.denied(200), total)));
+
+        Decision decision = service.decide(DecisionRequest.forRule("api", "alice", 1)).block();
+
+        assertEquals(new Decision(Decision.Status.DENIED, 0, 200, "total", 2), decision);
+    }
+
+    @Test
+    void reportsLimiterErrorsPerEntry() {
+        RateLimitRule rule = rule("api", KeyResolverType.USER);
+        when(ruleMatchService.findRule("api")).thenReturn(Optional.of(rule));
+        RateLimiter limiter = mock(RateLimiter.class);
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed("alice", rule, 1L)).thenReturn(Mono.error(new IllegalStateException("down")));
+        when(limiter.isAllowed("bob", rule, 1L)).thenReturn(Mono.just(RateLimitResult.allowed(3)));
+
+        List<Decision> decisions = service.decide(List.of(
+                DecisionRequest.forRule("api", "alice", 1),
+                DecisionRequest.forRule("api", "bob", 1))).block();
+
+        assertEquals(Decision.Status.ERROR, decisions.get(0).status());
+        assertEquals(Decision.Status.ALLOWED, decisions.get(1).status());
+    }
+
+    @Test
+    void rejectsEntriesWithoutTheKeyTheirRuleNeeds() {
+        RateLimitRule perUser = rule("per-user", KeyResolverType.USER);
+        when(ruleMatchService.findRule("per-user")).thenReturn(Optional.of(perUser));
+        RateLimitRule global = rule("global", KeyResolverType.GLOBAL);
+        when(ruleMatchService.findRule("global")).thenReturn(Optional.of(global));
+        RateLimiter limiter = mock(RateLimiter.class);
+        when(rateLimiterFactory.getLimiter(global)).thenReturn(limiter);
+        when(limiter.isAllowed("global", global, 1L)).thenReturn(Mono.just(RateLimitResult.allowed(0)));
+
+        List<DecisionRequest> requests = List.of(
+                DecisionRequest.forRule("global", null, 1), DecisionRequest.forRule("per-user", null, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> service.decide(requests).block());
+        assertEquals(Decision.Status.ALLOWED, service.decide(requests.get(0)).block().status());
+    }
+
+    @Test
+    void rejectsOversizedBatches() {
+        List<DecisionRequest> requests = List.of(
+                DecisionRequest.forRule("a", "k", 1), DecisionRequest.forRule("b", "k", 1),
+                DecisionRequest.forRule("c", "k", 1), DecisionRequest.forRule("d", "k", 1));
+
+        assertThrows(IllegalArgumentException.class, () -> service.decide(requests).block());
+    }
+
+    @Test
+    void rejectsRequestsWithoutRuleOrPath() {
+        assertThrows(IllegalArgumentException.class, () -> new DecisionRequest(null, null, "alice", 1));
+        assertThrows(IllegalArgumentException.class, () -> DecisionRequest.forRule("api", "alice", -1));
+    }
+
+    private static RateLimitRule rule(String id, KeyResolverType keyResolver) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setAlgorithm(AlgorithmType.TOKEN_BUCKET);
+        rule.setKeyResolver(keyResolver);
+        return rule;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ratelimiter.decision.tcp;
+
+import com.ratelimiter.decision.Decision;
+import com.ratelimiter.decision.DecisionRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecisionCodecTest {
+
+    @Test
+    void decodesRuleAndPathEntries() {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(42);
+        frame.writeShort(2);
+        writeEntry(frame, DecisionCodec.SELECTOR_RULE, "api", "alice", 3);
+        writeEntry(frame, DecisionCodec.SELECTOR_PATH, "/api/resource", "bob", 0);
+
+        DecisionCodec.Batch batch = DecisionCodec.decode(frame);
+
+        assertEquals(42, batch.id());
+        assertEquals(List.of(DecisionRequest.forRule("api", "alice", 3),
+                DecisionRequest.forPath("/api/resource", "bob", 1)), batch.requests());
+    }
+
+    @Test
+    void rejectsTruncatedFrames() {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(1);
+        frame.writeShort(1);
+        frame.writeByte(DecisionCodec.SELECTOR_RULE);
+
+        assertThrows(IllegalArgumentException.class, () -> DecisionCodec.decode(frame));
+    }
+
+    @Test
+    void rejectsUnknownSelectors() {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(1);
+        frame.writeShort(1);
+        writeEntry(frame, (byte) 7, "api", "alice", 1);
+
+        assertThrows(IllegalArgumentException.class, () -> DecisionCodec.decode(frame));
+    }
+
+    @Test
+    void encodesTenBytesPerDecision() {
+        ByteBuf buffer = DecisionCodec.encode(ByteBufAllocator.DEFAULT, 42, List.of(
+                new Decision(Decision.Status.ALLOWED, 9, 0, "api", 0),
+                new Decision(Decision.Status.DENIED, 0, 1500, "total", 2)));
+
+        assertEquals(4 + 6 + 2 * 10, buffer.readableBytes());
+        assertEquals(6 + 2 * 10, buffer.readInt());
+        assertEquals(42, buffer.readInt());
+        assertEquals(2, buffer.readUnsignedShort());
+        assertEquals(Decision.Status.ALLOWED.ordinal(), buffer.readByte());
+        assertEquals(0, buffer.readByte());
+        assertEquals(9, buffer.readLong());
+        assertEquals(Decision.Status.DENIED.ordinal(), buffer.readByte());
+        assertEquals(2, buffer.readByte());
+        assertEquals(1500, buffer.readLong());
+        buffer.release();
+    }
+
+    @Test
+    void rejectsLayersBeyondAByte() {
+        List<Decision> decisions = List.of(new Decision(Decision.Status.DENIED, 0, 1500, "layer", 256));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DecisionCodec.encode(ByteBufAllocator.DEFAULT, 42, decisions));
+    }
+
+    private static void writeEntry(ByteBuf frame, byte selector, String target, String key, long permits) {
+        frame.writeByte(selector);
+        byte[] targetBytes = target.getBytes(StandardCharsets.UTF_8);
+        frame.writeShort(targetBytes.length);
+        frame.writeBytes(targetBytes);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        frame.writeShort(keyBytes.length);
+        frame.writeBytes(keyBytes);
+        frame.writeInt((int) permits);
+    }
+}
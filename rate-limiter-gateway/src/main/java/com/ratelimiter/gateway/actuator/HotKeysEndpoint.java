@@ -0,0 +1,70 @@
+package com.ratelimiter.gateway.actuator;
+
+import com.ratelimiter.core.stats.HeavyHitterSketch;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/hotkeys}: the busiest rule keys of this gateway by request rate and by
+ * denial rate, both in requests per second, e.g. {@code /actuator/hotkeys?limit=5}. The
+ * limit is clamped to between 1 and the sketch's capacity. Each key comes with the hash
+ * the hot key gauges are tagged with instead of the key itself.
+ */
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int KEY_HASH_BYTES = 6;
+
+    private final HeavyHitterSketch sketch;
+
+    /**
+     * One hot key as listed by the endpoint.
+     */
+    public record Entry(String rule, String key, String keyHash, double requestRate, double denialRate) {
+
+        static Entry of(HeavyHitterSketch.HotKey hotKey) {
+            return new Entry(hotKey.rule(), hotKey.key(), HotKeysEndpoint.keyHash(hotKey.key()),
+                    hotKey.requestRate(), hotKey.denialRate());
+        }
+    }
+
+    public HotKeysEndpoint(HeavyHitterSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    @ReadOperation
+    public Map<String, List<Entry>> hotKeys(@Nullable Integer limit) {
+        int size = Math.max(1, Math.min(limit != null ? limit : DEFAULT_LIMIT, sketch.capacity()));
+        Map<String, List<Entry>> hotKeys = new LinkedHashMap<>();
+        hotKeys.put("byRequests", entries(sketch.top(size, HeavyHitterSketch.BY_REQUESTS)));
+        hotKeys.put("byDenials", entries(sketch.top(size, HeavyHitterSketch.BY_DENIALS)));
+        return hotKeys;
+    }
+
+    /**
+     * First 12 hex digits of the key's SHA-256, which identify it in metrics without
+     * publishing client IPs or user ids.
+     */
+    public static String keyHash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, KEY_HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static List<Entry> entries(List<HeavyHitterSketch.HotKey> hotKeys) {
+        return hotKeys.stream().map(Entry::of).toList();
+    }
+}
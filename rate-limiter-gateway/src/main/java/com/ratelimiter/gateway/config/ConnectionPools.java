@@ -0,0 +1,62 @@
+package com.ratelimiter.gateway.config;
+
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.redis.RedisConnectionPool;
+import com.ratelimiter.core.redis.RedisConnectionPool.PooledConnection;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds a {@link RedisConnectionPool} with per-connection meters, shared by the
+ * standalone and cluster setups.
+ */
+final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * @param dedicated comma-separated algorithm values that get a connection of their own
+     * @param connect   opens a connection with the given name
+     */
+    static RedisConnectionPool create(int size, RedisConnectionPool.Selection selection, String dedicated,
+                                      Function<String, PooledConnection> connect, MeterRegistry meterRegistry) {
+        List<PooledConnection> shared = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            shared.add(connect.apply("shared-" + i));
+        }
+        Map<AlgorithmType, PooledConnection> own = new EnumMap<>(AlgorithmType.class);
+        Arrays.stream(dedicated.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(AlgorithmType::fromValue)
+                .forEach(type -> own.put(type, connect.apply(type.getValue())));
+
+        Map<PooledConnection, Timer> latencies = new IdentityHashMap<>();
+        List<PooledConnection> all = new ArrayList<>(shared);
+        all.addAll(own.values());
+        for (PooledConnection connection : all) {
+            latencies.put(connection, Timer.builder("rate_limiter.redis.pool.latency")
+                    .description("Time from sending a script call to its reply, per connection")
+                    .tag("connection", connection.getName())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            Gauge.builder("rate_limiter.redis.pool.in_flight", connection, PooledConnection::getInFlight)
+                    .description("Script calls awaiting their reply, per connection")
+                    .tag("connection", connection.getName())
+                    .register(meterRegistry);
+        }
+        return new RedisConnectionPool(shared, own, selection,
+                (connection, latencyNanos) -> latencies.get(connection).record(latencyNanos, TimeUnit.NANOSECONDS));
+    }
+}
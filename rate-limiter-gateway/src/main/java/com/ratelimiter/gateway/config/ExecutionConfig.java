@@ -0,0 +1,73 @@
+package com.ratelimiter.gateway.config;
+
+import com.ratelimiter.core.algorithm.BlockingCheckExecutor;
+import com.ratelimiter.core.algorithm.CheckExecution;
+import com.ratelimiter.core.stats.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking execution of the Redis decisions, for {@code rate-limiter.execution.mode}
+ * {@code VIRTUAL_THREADS} or {@code BOUNDED_ELASTIC}. The default, {@code REACTIVE}, keeps
+ * the limiters' non-blocking calls and creates nothing here.
+ */
+@Configuration
+@ConditionalOnExpression("'${rate-limiter.backend:redis}' == 'redis' "
+        + "and '${rate-limiter.execution.mode:REACTIVE}'.toUpperCase() != 'REACTIVE'")
+public class ExecutionConfig {
+
+    @Value("${rate-limiter.execution.mode:REACTIVE}")
+    private CheckExecution mode;
+
+    @Value("${rate-limiter.execution.max-in-flight:10000}")
+    private int maxInFlight;
+
+    @Value("${rate-limiter.execution.permit-timeout-ms:50}")
+    private long permitTimeoutMs;
+
+    @Value("${rate-limiter.execution.pinning-threshold-ms:20}")
+    private long pinningThresholdMs;
+
+    @Bean(destroyMethod = "close")
+    public BlockingCheckExecutor blockingCheckExecutor(MeterRegistry meterRegistry) {
+        BlockingCheckExecutor executor = BlockingCheckExecutor.forMode(mode, maxInFlight,
+                Duration.ofMillis(permitTimeoutMs));
+        Gauge.builder("rate_limiter.execution.in_flight", executor, BlockingCheckExecutor::getInFlight)
+                .description("Blocking decisions holding a permit")
+                .tag("mode", mode.name().toLowerCase())
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.execution.rejected", executor, BlockingCheckExecutor::getRejectedCount)
+                .description("Blocking decisions that found no free permit in time")
+                .tag("mode", mode.name().toLowerCase())
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Logs where virtual threads pin their carrier, e.g. inside a {@code synchronized}
+     * block of a client library, and counts how often and how long.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "rate-limiter.execution.trace-pinning", havingValue = "true")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(Duration.ofMillis(pinningThresholdMs));
+        FunctionCounter.builder("rate_limiter.execution.pinned", monitor, VirtualThreadPinningMonitor::getPinnedCount)
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.execution.pinned.time", monitor,
+                        m -> m.getPinnedTime().toNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .description("Time virtual threads spent pinned to their carrier, in seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        return monitor;
+    }
+}
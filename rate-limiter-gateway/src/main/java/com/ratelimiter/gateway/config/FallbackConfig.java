@@ -0,0 +1,74 @@
+package com.ratelimiter.gateway.config;
+
+import com.ratelimiter.core.algorithm.CircuitBreaker;
+import com.ratelimiter.core.config.GatewayMembership;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.curator.framework.CuratorFramework;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Local fallback for the redis backend: decisions that exceed their latency budget or
+ * fail, and every decision while the circuit breaker is open, are made in-process
+ * against this gateway's share of the rule.
+ */
+@Configuration
+@ConditionalOnExpression("'${rate-limiter.backend:redis}' == 'redis' and ${rate-limiter.fallback.enabled:false}")
+public class FallbackConfig {
+
+    @Value("${rate-limiter.gateway-id:gateway}")
+    private String gatewayId;
+
+    @Value("${rate-limiter.fallback.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${rate-limiter.fallback.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${rate-limiter.fallback.window-ms:10000}")
+    private long windowMs;
+
+    @Value("${rate-limiter.fallback.open-ms:5000}")
+    private long openMs;
+
+    @Value("${rate-limiter.fallback.probes:10}")
+    private int probes;
+
+    @Bean
+    public CircuitBreaker redisCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreaker breaker = new CircuitBreaker(failureRateThreshold, minimumCalls,
+                Duration.ofMillis(windowMs), Duration.ofMillis(openMs), probes);
+        Gauge.builder("rate_limiter.redis.circuit.state", breaker, b -> switch (b.getState()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                })
+                .description("Redis circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.redis.circuit.openings", breaker, CircuitBreaker::getOpenCount)
+                .description("Times the Redis circuit breaker opened")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.redis.circuit.rejected", breaker, CircuitBreaker::getRejectedCount)
+                .description("Decisions made locally because the circuit breaker was open")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate_limiter.redis.failures", breaker, CircuitBreaker::getFailureCount)
+                .description("Redis decisions that failed or exceeded their latency budget")
+                .register(meterRegistry);
+        return breaker;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public GatewayMembership gatewayMembership(CuratorFramework curator, MeterRegistry meterRegistry) {
+        GatewayMembership membership = new GatewayMembership(curator, gatewayId);
+        Gauge.builder("rate_limiter.gateways", membership, GatewayMembership::getGatewayCount)
+                .description("Gateways registered in ZooKeeper")
+                .register(meterRegistry);
+        return membership;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ratelimiter.gateway.config;
+
+import com.ratelimiter.core.stats.HeavyHitterSketch;
+import com.ratelimiter.gateway.actuator.HotKeysEndpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+@ConditionalOnProperty(name = "rate-limiter.hot-keys.enabled", havingValue = "true")
+public class HotKeysConfig {
+
+    @Value("${rate-limiter.hot-keys.capacity:1024}")
+    private int capacity;
+
+    @Value("${rate-limiter.hot-keys.width:4096}")
+    private int width;
+
+    @Value("${rate-limiter.hot-keys.decay-interval-ms:10000}")
+    private long decayIntervalMs;
+
+    @Value("${rate-limiter.hot-keys.gauge-size:10}")
+    private int gaugeSize;
+
+    /**
+     * The gauges hold the top {@code gauge-size} keys, tagged with the rule and a hash of
+     * the key, and are replaced after every decay, so they never carry more than that many
+     * series each. The keys themselves are only listed by {@link HotKeysEndpoint}.
+     */
+    @Bean(destroyMethod = "close")
+    public HeavyHitterSketch heavyHitterSketch(MeterRegistry meterRegistry) {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(capacity, width, Duration.ofMillis(decayIntervalMs));
+        MultiGauge requests = MultiGauge.builder("rate_limiter.hot_keys.requests")
+                .description("Estimated requests per second of the busiest keys")
+                .register(meterRegistry);
+        MultiGauge denials = MultiGauge.builder("rate_limiter.hot_keys.denials")
+                .description("Estimated denials per second of the most denied keys")
+                .register(meterRegistry);
+        sketch.addDecayListener(() -> {
+            requests.register(rows(sketch.top(gaugeSize, HeavyHitterSketch.BY_REQUESTS),
+                    HeavyHitterSketch.HotKey::requestRate), true);
+            denials.register(rows(sketch.top(gaugeSize, HeavyHitterSketch.BY_DENIALS),
+                    HeavyHitterSketch.HotKey::denialRate), true);
+        });
+        return sketch;
+    }
+
+    @Bean
+    public HotKeysEndpoint hotKeysEndpoint(HeavyHitterSketch heavyHitterSketch) {
+        return new HotKeysEndpoint(heavyHitterSketch);
+    }
+
+    private static List<MultiGauge.Row<Number>> rows(List<HeavyHitterSketch.HotKey> hotKeys,
+                                                     ToDoubleFunction<HeavyHitterSketch.HotKey> rate) {
+        return hotKeys.stream()
+                .map(hotKey -> MultiGauge.Row.of(Tags.of("rule", hotKey.rule(), "key_hash", HotKeysEndpoint.keyHash(hotKey.key())),
+                        rate.applyAsDouble(hotKey)))
+                .toList();
+    }
+}
@@ -1,15 +1,104 @@
 package com.ratelimiter.gateway.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ratelimiter.core.algorithm.BlockingCheckExecutor;
+import com.ratelimiter.core.algorithm.BlockingCheckRateLimiter;
+import com.ratelimiter.core.algorithm.BlockingCheckRuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.CircuitBreaker;
+import com.ratelimiter.core.algorithm.DenyCache;
+import com.ratelimiter.core.algorithm.DenyCachingRateLimiter;
+import com.ratelimiter.core.algorithm.DenyCachingRuleSetRateLimiter;
+import com.ratelimiter.core.algorithm.FallbackRateLimiter;
+import com.ratelimiter.core.algorithm.FallbackRuleSetRateLimiter;
 import com.ratelimiter.core.algorithm.RateLimiterFactory;
-import io.lettuce.core.api.sync.RedisCommands;
+import com.ratelimiter.core.algorithm.local.LocalStateStore;
+import com.ratelimiter.core.autoconfigure.RateLimiterFactoryCustomizer;
+import com.ratelimiter.core.config.GatewayMembership;
+import com.ratelimiter.core.config.RateLimitConfigService;
+import com.ratelimiter.core.store.RedisRateLimitStore;
+import com.ratelimiter.gateway.filter.FilterMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
+/**
+ * The gateway's part of the limiter wiring; the stores, the factory, Redis and ZooKeeper
+ * come from the core auto-configuration. Only the Redis limiters fall back to local ones,
+ * and only they run their decisions as blocking calls when an execution mode asks for it.
+ * Rules with layers get the same decorators as single rules.
+ */
 @Configuration
 public class RateLimiterConfig {
 
+    @Value("${rate-limiter.fallback.latency-budget-ms:50}")
+    private long latencyBudgetMs;
+
+    @Value("${rate-limiter.metrics.max-rules:100}")
+    private int metricsMaxRules;
+
+    @Value("${rate-limiter.deny-cache.max-size:100000}")
+    private long denyCacheMaxSize;
+
+    @Bean
+    public ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
+
+    @Bean
+    public FilterMetrics filterMetrics(MeterRegistry meterRegistry, RateLimitConfigService configService) {
+        FilterMetrics metrics = new FilterMetrics(meterRegistry, metricsMaxRules);
+        configService.addListener((rules, diff) -> metrics.onRulesChanged(diff));
+        return metrics;
+    }
+
+    @Bean
+    public RateLimiterFactoryCustomizer gatewayDecorators(ObjectProvider<BlockingCheckExecutor> blockingCheckExecutor,
+                                                          ObjectProvider<DenyCache> denyCache,
+                                                          ObjectProvider<CircuitBreaker> circuitBreaker,
+                                                          ObjectProvider<GatewayMembership> membership,
+                                                          LocalStateStore localStateStore,
+                                                          FilterMetrics filterMetrics) {
+        return factory -> {
+            blockingCheckExecutor.ifAvailable(executor -> {
+                factory.addDecorator(RedisRateLimitStore.NAME,
+                        limiter -> new BlockingCheckRateLimiter(limiter, executor));
+                factory.addRuleSetDecorator(RedisRateLimitStore.NAME,
+                        limiter -> new BlockingCheckRuleSetRateLimiter(limiter, executor));
+            });
+            circuitBreaker.ifAvailable(breaker -> {
+                RateLimiterFactory local = new RateLimiterFactory(localStateStore);
+                GatewayMembership gateways = membership.getObject();
+                Duration budget = Duration.ofMillis(latencyBudgetMs);
+                FallbackRateLimiter.ErrorListener errors = (rule, error) -> filterMetrics.recordError(rule);
+                factory.addDecorator(RedisRateLimitStore.NAME, limiter -> new FallbackRateLimiter(limiter, local,
+                        breaker, budget, gateways::getGatewayCount, errors));
+                factory.addRuleSetDecorator(RedisRateLimitStore.NAME, limiter -> new FallbackRuleSetRateLimiter(
+                        limiter, local, breaker, budget, gateways::getGatewayCount, errors));
+            });
+            denyCache.ifAvailable(cache -> {
+                factory.addDecorator(limiter -> new DenyCachingRateLimiter(limiter, cache));
+                factory.addRuleSetDecorator(limiter -> new DenyCachingRuleSetRateLimiter(limiter, cache));
+            });
+        };
+    }
+
     @Bean
-    public RateLimiterFactory rateLimiterFactory(RedisCommands<String, String> commands) {
-        return new RateLimiterFactory(commands);
+    @ConditionalOnProperty(name = "rate-limiter.deny-cache.enabled", havingValue = "true")
+    public DenyCache denyCache(MeterRegistry meterRegistry) {
+        DenyCache cache = new DenyCache(denyCacheMaxSize);
+        FunctionCounter.builder("rate_limiter.deny_cache.hits", cache, DenyCache::getHitCount)
+                .description("Requests rejected from the local deny cache without a Redis call")
+                .register(meterRegistry);
+        Gauge.builder("rate_limiter.deny_cache.keys", cache, DenyCache::size)
+                .description("Keys currently held in the local deny cache")
+                .register(meterRegistry);
+        return cache;
     }
 }
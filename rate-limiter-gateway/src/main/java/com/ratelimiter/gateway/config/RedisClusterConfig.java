@@ -0,0 +1,138 @@
+package com.ratelimiter.gateway.config;
+
+import com.ratelimiter.core.algorithm.DenyCache;
+import com.ratelimiter.core.autoconfigure.BatchDispatcherMetrics;
+import com.ratelimiter.core.redis.RedisBatchDispatcher;
+import com.ratelimiter.core.redis.RedisConnectionPool;
+import com.ratelimiter.core.redis.RedisDenyBroadcaster;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.reactive.RedisAdvancedClusterReactiveCommands;
+import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis Cluster counterpart of the core's standalone Redis auto-configuration and of
+ * {@link RedisConfig}. Lettuce routes every script call to the node owning its key's slot
+ * and follows MOVED/ASK redirects; the topology is refreshed periodically and whenever a
+ * redirect or reconnect hints that slots moved.
+ */
+@Configuration
+@ConditionalOnExpression("'${rate-limiter.backend:redis}' == 'redis' and '${rate-limiter.redis.mode:standalone}' == 'cluster'")
+public class RedisClusterConfig {
+
+    @Value("${redis.cluster.nodes:localhost:7000}")
+    private String clusterNodes;
+
+    @Value("${redis.cluster.refresh-period-ms:30000}")
+    private long refreshPeriodMs;
+
+    @Value("${rate-limiter.deny-cache.channel:rl:deny}")
+    private String denyChannel;
+
+    @Value("${rate-limiter.batch.max-size:64}")
+    private int batchMaxSize;
+
+    @Value("${rate-limiter.batch.max-linger-us:200}")
+    private long batchMaxLingerUs;
+
+    @Value("${rate-limiter.batch.max-in-flight:4}")
+    private int batchMaxInFlight;
+
+    @Value("${rate-limiter.batch.max-queued:10000}")
+    private int batchMaxQueued;
+
+    @Value("${rate-limiter.batch.timeout-ms:1000}")
+    private long batchTimeoutMs;
+
+    @Value("${rate-limiter.redis.pool.size:4}")
+    private int poolSize;
+
+    @Value("${rate-limiter.redis.pool.selection:KEY_HASH}")
+    private RedisConnectionPool.Selection poolSelection;
+
+    @Value("${rate-limiter.redis.pool.dedicated:}")
+    private String poolDedicated;
+
+    @Bean(destroyMethod = "shutdown")
+    public RedisClusterClient redisClusterClient() {
+        List<RedisURI> seeds = Arrays.stream(clusterNodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .map(node -> RedisURI.create("redis://" + node))
+                .toList();
+        RedisClusterClient client = RedisClusterClient.create(seeds);
+        client.setOptions(ClusterClientOptions.builder()
+                .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                        .enablePeriodicRefresh(Duration.ofMillis(refreshPeriodMs))
+                        .enableAllAdaptiveRefreshTriggers()
+                        .build())
+                .build());
+        return client;
+    }
+
+    @Bean(destroyMethod = "close")
+    public StatefulRedisClusterConnection<String, String> redisClusterConnection(RedisClusterClient client) {
+        return client.connect();
+    }
+
+    @Bean
+    public RedisAdvancedClusterCommands<String, String> redisClusterCommands(
+            StatefulRedisClusterConnection<String, String> connection) {
+        return connection.sync();
+    }
+
+    @Bean
+    public RedisAdvancedClusterReactiveCommands<String, String> redisClusterReactiveCommands(
+            StatefulRedisClusterConnection<String, String> connection) {
+        return connection.reactive();
+    }
+
+    /**
+     * Spreads script calls over several connections; ignored when batching is enabled.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "rate-limiter.redis.pool.enabled", havingValue = "true")
+    public RedisConnectionPool redisConnectionPool(RedisClusterClient client, MeterRegistry meterRegistry) {
+        return ConnectionPools.create(poolSize, poolSelection, poolDedicated,
+                name -> RedisConnectionPool.PooledConnection.of(name, client.connect()), meterRegistry);
+    }
+
+    /**
+     * Coalesces script calls into pipelined batches; each batch is split by slot and the
+     * per-node parts go out in the same flush.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "rate-limiter.batch.enabled", havingValue = "true")
+    public RedisBatchDispatcher redisBatchDispatcher(RedisClusterClient client, MeterRegistry meterRegistry) {
+        RedisBatchDispatcher dispatcher = new RedisBatchDispatcher(client.connect(), batchMaxSize,
+                Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(batchMaxLingerUs)), batchMaxInFlight,
+                batchMaxQueued, Duration.ofMillis(batchTimeoutMs),
+                BatchDispatcherMetrics.flushListener(meterRegistry));
+        return BatchDispatcherMetrics.bind(dispatcher, meterRegistry);
+    }
+
+    /**
+     * Cluster pub/sub messages are propagated to every node, so one subscription suffices.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "rate-limiter.deny-cache.broadcast", havingValue = "true")
+    public RedisDenyBroadcaster redisDenyBroadcaster(RedisClusterClient client,
+                                                     RedisAdvancedClusterReactiveCommands<String, String> reactiveCommands,
+                                                     DenyCache denyCache) {
+        return new RedisDenyBroadcaster(client.connectPubSub(), reactiveCommands, denyCache, denyChannel);
+    }
+}
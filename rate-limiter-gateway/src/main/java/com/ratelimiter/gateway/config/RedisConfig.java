@@ -1,38 +1,55 @@
 package com.ratelimiter.gateway.config;
 
+import com.ratelimiter.core.algorithm.DenyCache;
+import com.ratelimiter.core.redis.RedisConnectionPool;
+import com.ratelimiter.core.redis.RedisDenyBroadcaster;
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.RedisURI;
-import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Gateway-only additions to the standalone Redis of the core auto-configuration, which
+ * provides the client, the commands and the batch dispatcher.
+ */
 @Configuration
+@ConditionalOnExpression("'${rate-limiter.backend:redis}' == 'redis' and '${rate-limiter.redis.mode:standalone}' == 'standalone'")
 public class RedisConfig {
 
-    @Value("${redis.host:localhost}")
-    private String redisHost;
+    @Value("${rate-limiter.deny-cache.channel:rl:deny}")
+    private String denyChannel;
 
-    @Value("${redis.port:6379}")
-    private int redisPort;
+    @Value("${rate-limiter.redis.pool.size:4}")
+    private int poolSize;
 
-    @Bean(destroyMethod = "shutdown")
-    public RedisClient redisClient() {
-        return RedisClient.create(RedisURI.builder()
-                .withHost(redisHost)
-                .withPort(redisPort)
-                .build());
-    }
+    @Value("${rate-limiter.redis.pool.selection:KEY_HASH}")
+    private RedisConnectionPool.Selection poolSelection;
+
+    @Value("${rate-limiter.redis.pool.dedicated:}")
+    private String poolDedicated;
 
+    /**
+     * Spreads script calls over several connections; ignored when batching is enabled.
+     */
     @Bean(destroyMethod = "close")
-    public StatefulRedisConnection<String, String> redisConnection(RedisClient redisClient) {
-        return redisClient.connect();
+    @ConditionalOnProperty(name = "rate-limiter.redis.pool.enabled", havingValue = "true")
+    public RedisConnectionPool redisConnectionPool(RedisClient redisClient, MeterRegistry meterRegistry) {
+        return ConnectionPools.create(poolSize, poolSelection, poolDedicated,
+                name -> RedisConnectionPool.PooledConnection.of(name, redisClient.connect()), meterRegistry);
     }
 
-    @Bean
-    public RedisCommands<String, String> redisCommands(
-            StatefulRedisConnection<String, String> connection) {
-        return connection.sync();
+    /**
+     * Shares denials with the other gateway instances; requires the deny cache.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "rate-limiter.deny-cache.broadcast", havingValue = "true")
+    public RedisDenyBroadcaster redisDenyBroadcaster(RedisClient redisClient,
+                                                     RedisReactiveCommands<String, String> reactiveCommands,
+                                                     DenyCache denyCache) {
+        return new RedisDenyBroadcaster(redisClient.connectPubSub(), reactiveCommands, denyCache, denyChannel);
     }
 }
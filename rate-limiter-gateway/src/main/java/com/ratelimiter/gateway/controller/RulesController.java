@@ -2,16 +2,26 @@ package com.ratelimiter.gateway.controller;
 
 import com.ratelimiter.core.config.RateLimitConfigService;
 import com.ratelimiter.core.model.RateLimitRule;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
+/**
+ * Reads and edits the rules in ZooKeeper. Rule ids may contain slashes to group rules,
+ * e.g. {@code /admin/rules/tenant-a/checkout}. Writes block on ZooKeeper and run off the
+ * event loop.
+ */
 @RestController
 @RequestMapping("/admin/rules")
 public class RulesController {
@@ -30,8 +40,50 @@ public class RulesController {
     @PutMapping
     public Mono<ResponseEntity<String>> updateRules(@RequestBody List<RateLimitRule> rules) {
         return Mono.fromCallable(() -> {
-            configService.updateRules(rules);
-            return ResponseEntity.ok("Rules updated successfully");
-        });
+                    configService.updateRules(rules);
+                    return ResponseEntity.ok("Rules updated successfully");
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())))
+                .onErrorResume(ConcurrentModificationException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage())));
+    }
+
+    @GetMapping("/{*id}")
+    public Mono<ResponseEntity<RateLimitRule>> getRule(@PathVariable String id) {
+        return Mono.just(configService.getRule(ruleId(id))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    @PutMapping("/{*id}")
+    public Mono<ResponseEntity<String>> putRule(@PathVariable String id, @RequestBody RateLimitRule rule) {
+        return Mono.fromCallable(() -> {
+                    rule.setId(ruleId(id));
+                    return configService.putRule(rule)
+                            ? ResponseEntity.status(HttpStatus.CREATED).body("Rule created successfully")
+                            : ResponseEntity.ok("Rule updated successfully");
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    @DeleteMapping("/{*id}")
+    public Mono<ResponseEntity<Void>> deleteRule(@PathVariable String id) {
+        return Mono.fromCallable(() -> configService.deleteRule(ruleId(id))
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build())
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    /**
+     * A captured {@code {*id}} starts with the slash separating it from the prefix.
+     */
+    private static String ruleId(String captured) {
+        return captured.startsWith("/") ? captured.substring(1) : captured;
     }
 }
@@ -0,0 +1,70 @@
+package com.ratelimiter.gateway.filter;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.ratelimiter.core.model.RateLimitRule;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The 429 body for one rule, encoded when the rule is compiled. Only the retry-after
+ * varies between requests; its digits are written between the encoded parts straight
+ * into a buffer of the exact size, so a denial builds no string. The rule id is escaped
+ * as a JSON string once, when the body is encoded.
+ */
+final class DenyResponse {
+
+    private static final byte[] HEAD = ("{\"error\":\"Too Many Requests\","
+            + "\"message\":\"Rate limit exceeded. Please retry after ").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MIDDLE = "ms\",\"retryAfterMs\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RULE = ",\"rule\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] tail;
+
+    private DenyResponse(RateLimitRule rule) {
+        ByteArrayOutputStream tail = new ByteArrayOutputStream();
+        tail.writeBytes(RULE);
+        tail.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(String.valueOf(rule.getId())));
+        tail.writeBytes(END);
+        this.tail = tail.toByteArray();
+    }
+
+    static DenyResponse of(RateLimitRule rule) {
+        return rule.compiled().derive(DenyResponse.class, DenyResponse::new);
+    }
+
+    DataBuffer body(DataBufferFactory factory, long retryAfterMillis) {
+        int digits = digits(retryAfterMillis);
+        DataBuffer buffer = factory.allocateBuffer(HEAD.length + MIDDLE.length + tail.length + 2 * digits);
+        buffer.write(HEAD);
+        writeDigits(buffer, retryAfterMillis, digits);
+        buffer.write(MIDDLE);
+        writeDigits(buffer, retryAfterMillis, digits);
+        return buffer.write(tail);
+    }
+
+    private static int digits(long value) {
+        int digits = value < 0 ? 2 : 1;
+        for (long rest = Math.abs(value / 10); rest > 0; rest /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeDigits(DataBuffer buffer, long value, int digits) {
+        if (value < 0) {
+            buffer.write((byte) '-');
+            digits--;
+        }
+        long divisor = 1;
+        for (int i = 1; i < digits; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + Math.abs(value / divisor % 10)));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.ratelimiter.gateway.filter;
+
+import com.ratelimiter.core.config.RuleSetDiff;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitRule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of {@link RateLimitGlobalFilter}. Besides the untagged allowed and denied
+ * counters, every rule gets timers and outcome counters tagged with its id and algorithm.
+ * Once {@code maxRules} rule ids have meters, further rules share the ones tagged
+ * {@code rule=other}, so a churning rule set cannot grow the series count without bound.
+ * The meters of a deleted rule are removed with it, and those of a rule whose algorithm
+ * changed are replaced.
+ *
+ * <p>Timers publish percentile histograms from 10 µs to 1 s, the range of in-process and
+ * Redis decisions, rather than Micrometer's default that starts at 1 ms.
+ */
+public class FilterMetrics {
+
+    public static final int DEFAULT_MAX_RULES = 100;
+    static final String OTHER = "other";
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(10_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(1);
+
+    private final MeterRegistry registry;
+    private final int maxRules;
+    private final Counter allowed;
+    private final Counter denied;
+    private final Timer ruleMatch;
+    private final Map<String, RuleMeters> rules = new ConcurrentHashMap<>();
+    private final Map<AlgorithmType, RuleMeters> others = new ConcurrentHashMap<>();
+
+    public FilterMetrics(MeterRegistry registry) {
+        this(registry, DEFAULT_MAX_RULES);
+    }
+
+    /**
+     * @param maxRules rule ids that get meters of their own
+     */
+    public FilterMetrics(MeterRegistry registry, int maxRules) {
+        this.registry = registry;
+        this.maxRules = maxRules;
+        this.allowed = Counter.builder("rate_limiter.requests.allowed")
+                .description("Number of allowed requests")
+                .register(registry);
+        this.denied = Counter.builder("rate_limiter.requests.denied")
+                .description("Number of denied requests")
+                .register(registry);
+        this.ruleMatch = timer("rate_limiter.filter.rule_match", "Time to find the rule for a request path")
+                .register(registry);
+    }
+
+    void recordRuleMatch(long nanos) {
+        ruleMatch.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    RuleMeters forRule(RateLimitRule rule) {
+        RuleMeters meters = rules.get(rule.getId());
+        if (meters != null && meters.algorithm == rule.getAlgorithm()) {
+            return meters;
+        }
+        if (meters == null && rules.size() >= maxRules) {
+            return others.computeIfAbsent(rule.getAlgorithm(), algorithm -> new RuleMeters(OTHER, algorithm));
+        }
+        return rules.compute(rule.getId(), (id, current) -> {
+            if (current != null && current.algorithm == rule.getAlgorithm()) {
+                return current;
+            }
+            if (current != null) {
+                current.remove();
+            }
+            return new RuleMeters(id, rule.getAlgorithm());
+        });
+    }
+
+    /**
+     * Counts a failed limiter call of the rule, including one a fallback answered.
+     */
+    public void recordError(RateLimitRule rule) {
+        forRule(rule).error();
+    }
+
+    /**
+     * Removes the meters of the rules the change deleted.
+     */
+    public void onRulesChanged(RuleSetDiff diff) {
+        for (RateLimitRule removed : diff.removed()) {
+            RuleMeters meters = rules.remove(removed.getId());
+            if (meters != null) {
+                meters.remove();
+            }
+        }
+    }
+
+    private static Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED);
+    }
+
+    /**
+     * Meters of one rule; for a layered rule, of the rule itself rather than the layer
+     * that decided.
+     */
+    final class RuleMeters {
+
+        private final AlgorithmType algorithm;
+        private final Timer keyResolution;
+        private final Timer decision;
+        private final Timer overhead;
+        private final Counter ruleAllowed;
+        private final Counter ruleDenied;
+        private final Counter failOpen;
+        private final Counter errors;
+        private final List<Meter> meters;
+
+        private RuleMeters(String rule, AlgorithmType algorithm) {
+            this.algorithm = algorithm;
+            String[] tags = {"rule", rule, "algorithm", algorithm.getValue()};
+            this.keyResolution = timer("rate_limiter.filter.key_resolution",
+                    "Time to resolve the client key and request cost").tags(tags).register(registry);
+            this.decision = timer("rate_limiter.filter.decision",
+                    "Time from calling the limiter to its decision, including any Redis round trip")
+                    .tags(tags).register(registry);
+            this.overhead = timer("rate_limiter.filter.overhead",
+                    "Time the filter adds to a request, from rule matching to the decision being applied")
+                    .tags(tags).register(registry);
+            this.ruleAllowed = outcome(tags, "allowed");
+            this.ruleDenied = outcome(tags, "denied");
+            this.failOpen = outcome(tags, "fail_open");
+            this.errors = Counter.builder("rate_limiter.rule.errors")
+                    .description("Limiter errors per rule")
+                    .tags(tags)
+                    .register(registry);
+            this.meters = List.of(keyResolution, decision, overhead, ruleAllowed, ruleDenied, failOpen, errors);
+        }
+
+        void recordKeyResolution(long nanos) {
+            keyResolution.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void recordDecision(long nanos) {
+            decision.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void allowed(long startNanos) {
+            allowed.increment();
+            ruleAllowed.increment();
+            overhead.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void denied(long startNanos) {
+            denied.increment();
+            ruleDenied.increment();
+            overhead.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void failedOpen(long startNanos) {
+            failOpen.increment();
+            overhead.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void error() {
+            errors.increment();
+        }
+
+        private void remove() {
+            meters.forEach(registry::remove);
+        }
+
+        private Counter outcome(String[] tags, String outcome) {
+            return Counter.builder("rate_limiter.rule.requests")
+                    .description("Requests per rule and outcome")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.ratelimiter.gateway.filter;
 
 import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
 import com.ratelimiter.core.config.RuleMatchService;
 import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.PermitCost;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
-import io.micrometer.core.instrument.Counter;
+import com.ratelimiter.core.redis.ScriptArgs;
+import com.ratelimiter.core.stats.HeavyHitterSketch;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
@@ -16,13 +20,15 @@ import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Component
@@ -32,66 +38,133 @@ public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
 
     private final RuleMatchService ruleMatchService;
     private final RateLimiterFactory rateLimiterFactory;
-    private final Counter allowedCounter;
-    private final Counter deniedCounter;
+    private final FilterMetrics metrics;
+    private final HeavyHitterSketch hotKeys;
 
     public RateLimitGlobalFilter(RuleMatchService ruleMatchService,
                                  RateLimiterFactory rateLimiterFactory,
                                  MeterRegistry meterRegistry) {
+        this(ruleMatchService, rateLimiterFactory, meterRegistry, null);
+    }
+
+    public RateLimitGlobalFilter(RuleMatchService ruleMatchService,
+                                 RateLimiterFactory rateLimiterFactory,
+                                 MeterRegistry meterRegistry,
+                                 HeavyHitterSketch hotKeys) {
+        this(ruleMatchService, rateLimiterFactory, new FilterMetrics(meterRegistry), hotKeys);
+    }
+
+    /**
+     * @param hotKeys counts every decided request per rule and key, if hot key tracking is enabled
+     */
+    @Autowired
+    public RateLimitGlobalFilter(RuleMatchService ruleMatchService,
+                                 RateLimiterFactory rateLimiterFactory,
+                                 FilterMetrics metrics,
+                                 @Nullable HeavyHitterSketch hotKeys) {
         this.ruleMatchService = ruleMatchService;
         this.rateLimiterFactory = rateLimiterFactory;
-        this.allowedCounter = Counter.builder("rate_limiter.requests.allowed")
-                .description("Number of allowed requests")
-                .register(meterRegistry);
-        this.deniedCounter = Counter.builder("rate_limiter.requests.denied")
-                .description("Number of denied requests")
-                .register(meterRegistry);
+        this.metrics = metrics;
+        this.hotKeys = hotKeys;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
         String path = exchange.getRequest().getURI().getPath();
 
         Optional<RateLimitRule> matchingRule = ruleMatchService.findMatchingRule(path);
+        long resolveStart = System.nanoTime();
+        metrics.recordRuleMatch(resolveStart - start);
         if (matchingRule.isEmpty()) {
             return chain.filter(exchange);
         }
 
         RateLimitRule rule = matchingRule.get();
+        FilterMetrics.RuleMeters meters = metrics.forRule(rule);
+        if (!rule.getLayers().isEmpty()) {
+            return filterLayered(exchange, chain, rule, path, meters, start);
+        }
         String key = resolveKey(exchange.getRequest(), rule);
+        long permits = permits(exchange.getRequest(), rule);
+        long decisionStart = System.nanoTime();
+        meters.recordKeyResolution(decisionStart - resolveStart);
+
+        return rateLimiterFactory.getLimiter(rule)
+                .isAllowed(key, rule, permits)
+                .doOnNext(result -> {
+                    meters.recordDecision(System.nanoTime() - decisionStart);
+                    recordHotKey(rule, key, result);
+                })
+                .flatMap(result -> handleResult(exchange, chain, result, rule, meters, start))
+                .onErrorResume(ex -> {
+                    log.error("Rate limiter error, failing open for path: {}", path, ex);
+                    meters.error();
+                    meters.failedOpen(start);
+                    return chain.filter(exchange);
+                });
+    }
 
-        return rateLimiterFactory.getLimiter(rule.getAlgorithm())
-                .isAllowed(key, rule)
-                .flatMap(result -> handleResult(exchange, chain, result, rule))
+    /**
+     * Decides the rule and all of its layers in one call; the response reports the layer
+     * that denied the request, or the one closest to its limit.
+     */
+    private Mono<Void> filterLayered(ServerWebExchange exchange, GatewayFilterChain chain,
+                                     RateLimitRule rule, String path, FilterMetrics.RuleMeters meters, long start) {
+        long resolveStart = System.nanoTime();
+        List<String> keys = new ArrayList<>();
+        for (RateLimitRule layer : RuleSetRateLimiter.layers(rule)) {
+            keys.add(resolveKey(exchange.getRequest(), layer));
+        }
+        long permits = permits(exchange.getRequest(), rule);
+        long decisionStart = System.nanoTime();
+        meters.recordKeyResolution(decisionStart - resolveStart);
+
+        return rateLimiterFactory.getRuleSetLimiter(rule)
+                .isAllowed(keys, rule, permits)
+                .doOnNext(decision -> {
+                    meters.recordDecision(System.nanoTime() - decisionStart);
+                    recordHotKey(rule, keys.get(0), decision.result());
+                })
+                .flatMap(decision -> handleResult(exchange, chain, decision.result(), decision.rule(), meters, start))
                 .onErrorResume(ex -> {
                     log.error("Rate limiter error, failing open for path: {}", path, ex);
+                    meters.error();
+                    meters.failedOpen(start);
                     return chain.filter(exchange);
                 });
     }
 
-    private Mono<Void> handleResult(ServerWebExchange exchange, GatewayFilterChain chain,
-                                     RateLimitResult result, RateLimitRule rule) {
+    private void recordHotKey(RateLimitRule rule, String key, RateLimitResult result) {
+        if (hotKeys != null) {
+            hotKeys.record(rule.getId(), key, !result.allowed());
+        }
+    }
+
+    private Mono<Void> handleResult(ServerWebExchange exchange, GatewayFilterChain chain, RateLimitResult result,
+                                    RateLimitRule rule, FilterMetrics.RuleMeters meters, long start) {
         if (result.allowed()) {
-            allowedCounter.increment();
             ServerHttpResponse response = exchange.getResponse();
-            response.getHeaders().add("X-RateLimit-Remaining", String.valueOf(result.remaining()));
+            response.getHeaders().add("X-RateLimit-Remaining", ScriptArgs.of(result.remaining()));
             response.getHeaders().add("X-RateLimit-Algorithm", rule.getAlgorithm().getValue());
+            meters.allowed(start);
             return chain.filter(exchange);
         } else {
-            deniedCounter.increment();
-            return writeRateLimitResponse(exchange, result);
+            Mono<Void> response = writeRateLimitResponse(exchange, result, rule);
+            meters.denied(start);
+            return response;
         }
     }
 
-    private Mono<Void> writeRateLimitResponse(ServerWebExchange exchange, RateLimitResult result) {
+    private Mono<Void> writeRateLimitResponse(ServerWebExchange exchange, RateLimitResult result,
+                                              RateLimitRule rule) {
         ServerHttpResponse response = exchange.getResponse();
         response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-        response.getHeaders().add("Retry-After", String.valueOf(result.retryAfterMillis() / 1000));
+        response.getHeaders().add("Retry-After", ScriptArgs.of(result.retryAfterMillis() / 1000));
         response.getHeaders().add("X-RateLimit-Remaining", "0");
+        response.getHeaders().add("X-RateLimit-Rule", rule.getId());
 
-        String body = "{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded. Please retry after "
-                + result.retryAfterMillis() + "ms\",\"retryAfterMs\":" + result.retryAfterMillis() + "}";
-        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        DataBuffer buffer = DenyResponse.of(rule).body(response.bufferFactory(), result.retryAfterMillis());
         response.getHeaders().add("Content-Type", "application/json");
         return response.writeWith(Mono.just(buffer));
     }
@@ -106,12 +179,22 @@ public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
             case PATH -> path;
             case USER -> {
                 String user = request.getHeaders().getFirst("X-User-Id");
-                yield user != null ? user : ip;
+                yield user != null && !user.isEmpty() ? user : ip;
             }
             case IP_PATH -> ip + ":" + path;
+            case GLOBAL -> rule.getId();
         };
     }
 
+    private long permits(ServerHttpRequest request, RateLimitRule rule) {
+        PermitCost cost = rule.getCost();
+        if (cost == null) {
+            return 1;
+        }
+        String header = cost.getHeader() != null ? request.getHeaders().getFirst(cost.getHeader()) : null;
+        return cost.permitsFor(request.getMethod().name(), header);
+    }
+
     private String extractIp(ServerHttpRequest request) {
         String xff = request.getHeaders().getFirst("X-Forwarded-For");
         if (xff != null && !xff.isEmpty()) {
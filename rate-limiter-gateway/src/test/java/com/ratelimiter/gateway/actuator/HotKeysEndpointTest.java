@@ -0,0 +1,47 @@
+package com.ratelimiter.gateway.actuator;
+
+import com.ratelimiter.core.stats.HeavyHitterSketch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HotKeysEndpointTest {
+
+    private final HeavyHitterSketch sketch = new HeavyHitterSketch(4, 64, Duration.ofHours(1));
+    private final HotKeysEndpoint endpoint = new HotKeysEndpoint(sketch);
+
+    @AfterEach
+    void tearDown() {
+        sketch.close();
+    }
+
+    @Test
+    void clampsTheLimitToTheSketchCapacity() {
+        for (int i = 0; i < 64; i++) {
+            sketch.record("api", "10.0.0." + i, false);
+        }
+
+        assertEquals(1, endpoint.hotKeys(-5).get("byRequests").size());
+        assertEquals(1, endpoint.hotKeys(0).get("byRequests").size());
+        assertEquals(4, endpoint.hotKeys(100).get("byRequests").size());
+    }
+
+    @Test
+    void listsEachKeyWithTheHashItsGaugesCarry() {
+        sketch.record("api", "10.0.0.1", true);
+
+        Map<String, List<HotKeysEndpoint.Entry>> hotKeys = endpoint.hotKeys(null);
+
+        HotKeysEndpoint.Entry entry = hotKeys.get("byDenials").get(0);
+        assertEquals("10.0.0.1", entry.key());
+        assertEquals(HotKeysEndpoint.keyHash("10.0.0.1"), entry.keyHash());
+        assertEquals(12, entry.keyHash().length());
+        assertNotEquals(HotKeysEndpoint.keyHash("10.0.0.2"), entry.keyHash());
+    }
+}
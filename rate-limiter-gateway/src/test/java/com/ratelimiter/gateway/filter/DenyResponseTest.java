@@ -0,0 +1,57 @@
+package com.ratelimiter.gateway.filter;
+
+import com.ratelimiter.core.model.RateLimitRule;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DenyResponseTest {
+
+    @Test
+    void writesTheBodyForTheRetryAfter() {
+        RateLimitRule rule = rule("api");
+
+        assertEquals("{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded. Please retry after 1500ms\","
+                + "\"retryAfterMs\":1500,\"rule\":\"api\"}", body(rule, 1500));
+        assertEquals("{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded. Please retry after 0ms\","
+                + "\"retryAfterMs\":0,\"rule\":\"api\"}", body(rule, 0));
+    }
+
+    @Test
+    void encodesOncePerRuleVersion() {
+        RateLimitRule rule = rule("api");
+        DenyResponse response = DenyResponse.of(rule);
+        assertSame(response, DenyResponse.of(rule));
+
+        rule.setId("checkout");
+
+        assertNotSame(response, DenyResponse.of(rule));
+        assertEquals("{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded. Please retry after 9ms\","
+                + "\"retryAfterMs\":9,\"rule\":\"checkout\"}", body(rule, 9));
+    }
+
+    @Test
+    void escapesTheRuleId() {
+        RateLimitRule rule = rule("tenant-\"a\"/\\api");
+
+        assertEquals("{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded. Please retry after 1ms\","
+                + "\"retryAfterMs\":1,\"rule\":\"tenant-\\\"a\\\"/\\\\api\"}", body(rule, 1));
+    }
+
+    private static String body(RateLimitRule rule, long retryAfterMillis) {
+        DataBuffer buffer = DenyResponse.of(rule).body(DefaultDataBufferFactory.sharedInstance, retryAfterMillis);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static RateLimitRule rule(String id) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        return rule;
+    }
+}
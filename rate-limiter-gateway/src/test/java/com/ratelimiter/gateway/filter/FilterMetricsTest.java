@@ -0,0 +1,92 @@
+package com.ratelimiter.gateway.filter;
+
+import com.ratelimiter.core.config.RuleSetDiff;
+import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.RateLimitRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FilterMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void countsOutcomesPerRuleAndAlgorithm() {
+        FilterMetrics metrics = new FilterMetrics(registry);
+
+        metrics.forRule(rule("api", AlgorithmType.GCRA)).allowed(System.nanoTime());
+        metrics.forRule(rule("api", AlgorithmType.GCRA)).denied(System.nanoTime());
+        metrics.forRule(rule("api", AlgorithmType.GCRA)).failedOpen(System.nanoTime());
+        metrics.recordError(rule("api", AlgorithmType.GCRA));
+        metrics.recordError(rule("api", AlgorithmType.GCRA));
+
+        assertEquals(1, registry.counter("rate_limiter.rule.requests",
+                "rule", "api", "algorithm", "gcra", "outcome", "denied").count());
+        assertEquals(1, registry.counter("rate_limiter.rule.requests",
+                "rule", "api", "algorithm", "gcra", "outcome", "fail_open").count());
+        assertEquals(2, registry.counter("rate_limiter.rule.errors", "rule", "api", "algorithm", "gcra").count());
+        assertEquals(1, registry.counter("rate_limiter.requests.allowed").count());
+        assertEquals(3, registry.timer("rate_limiter.filter.overhead", "rule", "api", "algorithm", "gcra").count());
+    }
+
+    @Test
+    void sharesMetersBeyondTheRuleLimit() {
+        FilterMetrics metrics = new FilterMetrics(registry, 2);
+        FilterMetrics.RuleMeters first = metrics.forRule(rule("first", AlgorithmType.GCRA));
+        metrics.forRule(rule("second", AlgorithmType.GCRA));
+
+        FilterMetrics.RuleMeters third = metrics.forRule(rule("third", AlgorithmType.GCRA));
+        third.allowed(System.nanoTime());
+
+        assertSame(third, metrics.forRule(rule("fourth", AlgorithmType.GCRA)));
+        assertSame(first, metrics.forRule(rule("first", AlgorithmType.GCRA)));
+        assertEquals(1, registry.counter("rate_limiter.rule.requests",
+                "rule", FilterMetrics.OTHER, "algorithm", "gcra", "outcome", "allowed").count());
+    }
+
+    @Test
+    void replacesMetersWhenTheAlgorithmChanges() {
+        FilterMetrics metrics = new FilterMetrics(registry);
+        FilterMetrics.RuleMeters before = metrics.forRule(rule("api", AlgorithmType.GCRA));
+
+        assertNotSame(before, metrics.forRule(rule("api", AlgorithmType.TOKEN_BUCKET)));
+    }
+
+    @Test
+    void removesTheMetersOfDeletedRules() {
+        FilterMetrics metrics = new FilterMetrics(registry, 1);
+        metrics.forRule(rule("api", AlgorithmType.GCRA)).allowed(System.nanoTime());
+
+        metrics.onRulesChanged(new RuleSetDiff(List.of(), List.of(), List.of(rule("api", AlgorithmType.GCRA))));
+
+        assertNull(registry.find("rate_limiter.rule.requests").tag("rule", "api").meter());
+        FilterMetrics.RuleMeters next = metrics.forRule(rule("web", AlgorithmType.GCRA));
+        next.allowed(System.nanoTime());
+        assertEquals(1, registry.counter("rate_limiter.rule.requests",
+                "rule", "web", "algorithm", "gcra", "outcome", "allowed").count());
+    }
+
+    @Test
+    void removesTheMetersOfTheFormerAlgorithm() {
+        FilterMetrics metrics = new FilterMetrics(registry);
+        metrics.forRule(rule("api", AlgorithmType.GCRA));
+
+        metrics.forRule(rule("api", AlgorithmType.TOKEN_BUCKET));
+
+        assertNull(registry.find("rate_limiter.rule.requests").tag("algorithm", "gcra").meter());
+    }
+
+    private static RateLimitRule rule(String id, AlgorithmType algorithm) {
+        RateLimitRule rule = new RateLimitRule();
+        rule.setId(id);
+        rule.setAlgorithm(algorithm);
+        return rule;
+    }
+}
@@ -2,10 +2,15 @@ package com.ratelimiter.gateway.filter;
 
 import com.ratelimiter.core.algorithm.RateLimiter;
 import com.ratelimiter.core.algorithm.RateLimiterFactory;
+import com.ratelimiter.core.algorithm.RuleSetRateLimiter;
 import com.ratelimiter.core.config.RuleMatchService;
 import com.ratelimiter.core.model.AlgorithmType;
+import com.ratelimiter.core.model.KeyResolverType;
+import com.ratelimiter.core.model.PermitCost;
 import com.ratelimiter.core.model.RateLimitResult;
 import com.ratelimiter.core.model.RateLimitRule;
+import com.ratelimiter.core.model.RuleSetResult;
+import com.ratelimiter.core.stats.HeavyHitterSketch;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,10 +20,13 @@ import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -33,6 +41,7 @@ class RateLimitGlobalFilterTest {
     private RateLimiterFactory rateLimiterFactory;
     private RateLimitGlobalFilter filter;
     private GatewayFilterChain chain;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
@@ -41,7 +50,8 @@ class RateLimitGlobalFilterTest {
         chain = mock(GatewayFilterChain.class);
         when(chain.filter(any())).thenReturn(Mono.empty());
 
-        filter = new RateLimitGlobalFilter(ruleMatchService, rateLimiterFactory, new SimpleMeterRegistry());
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitGlobalFilter(ruleMatchService, rateLimiterFactory, meterRegistry);
     }
 
     @Test
@@ -63,8 +73,8 @@ class RateLimitGlobalFilterTest {
         when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
 
         RateLimiter limiter = mock(RateLimiter.class);
-        when(rateLimiterFactory.getLimiter(AlgorithmType.TOKEN_BUCKET)).thenReturn(limiter);
-        when(limiter.isAllowed(anyString(), eq(rule))).thenReturn(Mono.just(RateLimitResult.allowed(9)));
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(anyString(), eq(rule), eq(1L))).thenReturn(Mono.just(RateLimitResult.allowed(9)));
 
         MockServerHttpRequest request = MockServerHttpRequest.get("/api/resource")
                 .remoteAddress(new java.net.InetSocketAddress("127.0.0.1", 1234))
@@ -83,8 +93,8 @@ class RateLimitGlobalFilterTest {
         when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
 
         RateLimiter limiter = mock(RateLimiter.class);
-        when(rateLimiterFactory.getLimiter(AlgorithmType.TOKEN_BUCKET)).thenReturn(limiter);
-        when(limiter.isAllowed(anyString(), eq(rule))).thenReturn(Mono.just(RateLimitResult.denied(500)));
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(anyString(), eq(rule), eq(1L))).thenReturn(Mono.just(RateLimitResult.denied(500)));
 
         MockServerHttpRequest request = MockServerHttpRequest.get("/api/resource")
                 .remoteAddress(new java.net.InetSocketAddress("127.0.0.1", 1234))
@@ -104,8 +114,8 @@ class RateLimitGlobalFilterTest {
         when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
 
         RateLimiter limiter = mock(RateLimiter.class);
-        when(rateLimiterFactory.getLimiter(AlgorithmType.TOKEN_BUCKET)).thenReturn(limiter);
-        when(limiter.isAllowed(anyString(), eq(rule))).thenReturn(Mono.error(new RuntimeException("Redis down")));
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(anyString(), eq(rule), eq(1L))).thenReturn(Mono.error(new RuntimeException("Redis down")));
 
         MockServerHttpRequest request = MockServerHttpRequest.get("/api/resource")
                 .remoteAddress(new java.net.InetSocketAddress("127.0.0.1", 1234))
@@ -115,6 +125,8 @@ class RateLimitGlobalFilterTest {
         filter.filter(exchange, chain).block();
 
         verify(chain).filter(exchange);
+        assertEquals(1, meterRegistry.counter("rate_limiter.rule.requests",
+                "rule", "test-rule", "algorithm", "token_bucket", "outcome", "fail_open").count());
     }
 
     @Test
@@ -123,8 +135,8 @@ class RateLimitGlobalFilterTest {
         when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
 
         RateLimiter limiter = mock(RateLimiter.class);
-        when(rateLimiterFactory.getLimiter(AlgorithmType.TOKEN_BUCKET)).thenReturn(limiter);
-        when(limiter.isAllowed(eq("10.0.0.1"), eq(rule))).thenReturn(Mono.just(RateLimitResult.allowed(5)));
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(eq("10.0.0.1"), eq(rule), eq(1L))).thenReturn(Mono.just(RateLimitResult.allowed(5)));
 
         MockServerHttpRequest request = MockServerHttpRequest.get("/api/resource")
                 .header("X-Forwarded-For", "10.0.0.1, 192.168.1.1")
@@ -133,7 +145,76 @@ class RateLimitGlobalFilterTest {
 
         filter.filter(exchange, chain).block();
 
-        verify(limiter).isAllowed(eq("10.0.0.1"), eq(rule));
+        verify(limiter).isAllowed(eq("10.0.0.1"), eq(rule), eq(1L));
+    }
+
+    @Test
+    void reportsTheLayerThatDeniedALayeredRule() {
+        RateLimitRule rule = createRule(AlgorithmType.TOKEN_BUCKET);
+        RateLimitRule global = createRule(AlgorithmType.FIXED_WINDOW);
+        global.setId("global-cap");
+        global.setKeyResolver(KeyResolverType.GLOBAL);
+        rule.setLayers(List.of(global));
+        when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
+
+        RuleSetRateLimiter limiter = mock(RuleSetRateLimiter.class);
+        when(rateLimiterFactory.getRuleSetLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(eq(List.of("10.0.0.1", "global-cap")), eq(rule), eq(1L)))
+                .thenReturn(Mono.just(new RuleSetResult(RateLimitResult.denied(2000), global)));
+
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/resource")
+                .header("X-Forwarded-For", "10.0.0.1")
+                .build();
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("global-cap", exchange.getResponse().getHeaders().getFirst("X-RateLimit-Rule"));
+        verify(chain, never()).filter(exchange);
+    }
+
+    @Test
+    void chargesTheRuleCostForTheRequestMethod() {
+        RateLimitRule rule = createRule(AlgorithmType.TOKEN_BUCKET);
+        PermitCost cost = new PermitCost();
+        cost.setMethods(Map.of("POST", 5L));
+        cost.setHeader("X-RateLimit-Cost");
+        rule.setCost(cost);
+        when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
+
+        RateLimiter limiter = mock(RateLimiter.class);
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(anyString(), eq(rule), anyLong())).thenReturn(Mono.just(RateLimitResult.allowed(5)));
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/resource")
+                .header("X-Forwarded-For", "10.0.0.1")
+                .build()), chain).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/resource")
+                .header("X-Forwarded-For", "10.0.0.1")
+                .header("X-RateLimit-Cost", "20")
+                .build()), chain).block();
+
+        verify(limiter).isAllowed("10.0.0.1", rule, 5);
+        verify(limiter).isAllowed("10.0.0.1", rule, 20);
+    }
+
+    @Test
+    void recordsDecidedRequestsAsHotKeys() {
+        HeavyHitterSketch hotKeys = mock(HeavyHitterSketch.class);
+        filter = new RateLimitGlobalFilter(ruleMatchService, rateLimiterFactory, new SimpleMeterRegistry(), hotKeys);
+        RateLimitRule rule = createRule(AlgorithmType.TOKEN_BUCKET);
+        when(ruleMatchService.findMatchingRule("/api/resource")).thenReturn(Optional.of(rule));
+
+        RateLimiter limiter = mock(RateLimiter.class);
+        when(rateLimiterFactory.getLimiter(rule)).thenReturn(limiter);
+        when(limiter.isAllowed(anyString(), eq(rule), eq(1L))).thenReturn(Mono.just(RateLimitResult.denied(1000)));
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/resource")
+                .header("X-Forwarded-For", "10.0.0.1")
+                .build()), chain).block();
+
+        verify(hotKeys).record("test-rule", "10.0.0.1", true);
     }
 
     private RateLimitRule createRule(AlgorithmType algorithm) {
@@ -0,0 +1,62 @@
+package com.ratelimiter.testclient;
+
+import java.time.Duration;
+
+/**
+ * When each request of an open-model run is due. Requests arrive at {@code startRate} per
+ * second, rising or falling linearly to {@code targetRate} over {@code ramp}, and then
+ * at {@code targetRate} for {@code duration}. The times are fixed before the run and do
+ * not depend on how fast earlier requests complete, so a slow gateway cannot hold back
+ * the load it is measured under.
+ */
+final class ArrivalSchedule {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final double startRate;
+    private final double targetRate;
+    private final double rampSeconds;
+    private final double rampRequests;
+    private final long totalRequests;
+
+    ArrivalSchedule(double startRate, double targetRate, Duration ramp, Duration duration) {
+        if (startRate < 0 || targetRate <= 0) {
+            throw new IllegalArgumentException("Rates must be positive, got " + startRate + " and " + targetRate);
+        }
+        this.startRate = startRate;
+        this.targetRate = targetRate;
+        this.rampSeconds = ramp.toNanos() / NANOS_PER_SECOND;
+        this.rampRequests = (startRate + targetRate) / 2 * rampSeconds;
+        this.totalRequests = (long) (rampRequests + targetRate * duration.toNanos() / NANOS_PER_SECOND);
+    }
+
+    /**
+     * A schedule at a constant rate.
+     */
+    static ArrivalSchedule constant(double rate, Duration duration) {
+        return new ArrivalSchedule(rate, rate, Duration.ZERO, duration);
+    }
+
+    long totalRequests() {
+        return totalRequests;
+    }
+
+    /**
+     * Time from the start of the run at which request {@code i}, counted from zero, is due.
+     */
+    long offsetNanos(long i) {
+        if (i == 0) {
+            return 0;
+        }
+        double seconds;
+        if (i < rampRequests) {
+            // The ramp has sent r0 * t + (r1 - r0) * t^2 / (2 * T) requests by time t;
+            // solved for t in the form that stays exact when the rate does not change.
+            double slope = (targetRate - startRate) / (2 * rampSeconds);
+            seconds = 2 * i / (startRate + Math.sqrt(startRate * startRate + 4 * slope * i));
+        } else {
+            seconds = rampSeconds + (i - rampRequests) / targetRate;
+        }
+        return (long) (seconds * NANOS_PER_SECOND);
+    }
+}
@@ -0,0 +1,132 @@
+package com.ratelimiter.testclient;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives the decision service's TCP endpoint at full speed: every connection sends
+ * {@code batches} frames of {@code batch-size} decisions for random keys of one rule,
+ * as fast as the connection accepts them, and the run reports decisions per second.
+ */
+@Component
+@ConditionalOnProperty(name = "test.mode", havingValue = "decision")
+public class DecisionLoadRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionLoadRunner.class);
+    private static final String[] STATUSES = {"Allowed", "Denied", "No rule", "Errors"};
+
+    @Value("${decision.host:localhost}")
+    private String host;
+
+    @Value("${decision.port:7070}")
+    private int port;
+
+    @Value("${decision.rule:api-resource-token-bucket}")
+    private String rule;
+
+    @Value("${decision.connections:4}")
+    private int connections;
+
+    @Value("${decision.batches:10000}")
+    private int batches;
+
+    @Value("${decision.batch-size:100}")
+    private int batchSize;
+
+    @Value("${decision.keys:10000}")
+    private int keys;
+
+    @Override
+    public void run(String... args) {
+        log.info("=== Decision Service Load Test ===");
+        log.info("Target: {}:{}, rule: {}", host, port, rule);
+        log.info("Connections: {}, batches per connection: {}, batch size: {}, keys: {}",
+                connections, batches, batchSize, keys);
+        log.info("==================================");
+
+        AtomicLongArray counts = new AtomicLongArray(STATUSES.length);
+        long startTime = System.nanoTime();
+
+        Flux.range(0, connections)
+                .flatMap(i -> TcpClient.create()
+                        .host(host)
+                        .port(port)
+                        .doOnConnected(connection -> connection.addHandlerLast("decisionFrameDecoder",
+                                new LengthFieldBasedFrameDecoder(1 << 20, 0, 4, 0, 4)))
+                        .connect()
+                        .flatMap(connection -> drive(connection, counts)))
+                .blockLast(Duration.ofMinutes(10));
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        long total = 0;
+        for (int i = 0; i < STATUSES.length; i++) {
+            total += counts.get(i);
+        }
+
+        log.info("==================================");
+        log.info("=== Test Results ===");
+        log.info("Decisions:     {}", total);
+        for (int i = 0; i < STATUSES.length; i++) {
+            log.info("{}: {}", String.format("%-14s", STATUSES[i]), counts.get(i));
+        }
+        log.info("Time elapsed:  {}ms", Duration.ofNanos(elapsedNanos).toMillis());
+        log.info("Throughput:    {} decisions/s", total * 1_000_000_000L / Math.max(1, elapsedNanos));
+        log.info("====================");
+    }
+
+    private Mono<Void> drive(Connection connection, AtomicLongArray counts) {
+        Mono<Void> send = connection.outbound()
+                .send(Flux.range(0, batches).map(id -> batch(connection.outbound().alloc(), id)))
+                .then();
+        Mono<Void> receive = connection.inbound().receive()
+                .take(batches)
+                .doOnNext(frame -> {
+                    frame.skipBytes(4);
+                    int count = frame.readUnsignedShort();
+                    for (int i = 0; i < count; i++) {
+                        counts.incrementAndGet(frame.readByte());
+                        frame.skipBytes(9);
+                    }
+                })
+                .then();
+        return Mono.when(send, receive).doFinally(signal -> connection.dispose());
+    }
+
+    /**
+     * Request frame of the decision protocol, see the decision service's {@code DecisionCodec}.
+     */
+    private ByteBuf batch(ByteBufAllocator allocator, int id) {
+        byte[] ruleBytes = rule.getBytes(StandardCharsets.UTF_8);
+        ByteBuf buffer = allocator.buffer();
+        buffer.writeInt(0);
+        buffer.writeInt(id);
+        buffer.writeShort(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            byte[] key = ("client-" + ThreadLocalRandom.current().nextInt(keys)).getBytes(StandardCharsets.UTF_8);
+            buffer.writeByte(0);
+            buffer.writeShort(ruleBytes.length);
+            buffer.writeBytes(ruleBytes);
+            buffer.writeShort(key.length);
+            buffer.writeBytes(key);
+            buffer.writeInt(1);
+        }
+        buffer.setInt(0, buffer.readableBytes() - 4);
+        return buffer;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ratelimiter.testclient;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks which of {@code keys} client identities sends the next request. Key 0 is the most
+ * popular one wherever popularity differs.
+ */
+interface KeyDistribution {
+
+    int next(RandomGenerator random);
+
+    /**
+     * Every key equally often.
+     */
+    static KeyDistribution uniform(int keys) {
+        checkKeys(keys);
+        return random -> random.nextInt(keys);
+    }
+
+    /**
+     * Key {@code k} with probability proportional to {@code 1 / (k + 1)^exponent}, the
+     * long-tailed popularity of real clients. Keeps a table of {@code keys} doubles.
+     */
+    static KeyDistribution zipf(int keys, double exponent) {
+        checkKeys(keys);
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int k = 0; k < keys; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        double total = sum;
+        return random -> {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            return Math.min(index >= 0 ? index : -index - 1, keys - 1);
+        };
+    }
+
+    /**
+     * A share {@code hotKeys} of the keys sends a share {@code hotTraffic} of the
+     * requests, e.g. 1% of the clients sending 90%; each group is uniform within itself.
+     */
+    static KeyDistribution hotspot(int keys, double hotKeys, double hotTraffic) {
+        checkKeys(keys);
+        int hot = (int) Math.max(1, Math.min(keys, Math.round(keys * hotKeys)));
+        if (hot == keys) {
+            return uniform(keys);
+        }
+        return random -> random.nextDouble() < hotTraffic
+                ? random.nextInt(hot)
+                : hot + random.nextInt(keys - hot);
+    }
+
+    /**
+     * The distribution called {@code name}: {@code uniform}, {@code zipf} or {@code hotspot}.
+     */
+    static KeyDistribution of(String name, int keys, double zipfExponent, double hotKeys, double hotTraffic) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "uniform" -> uniform(keys);
+            case "zipf" -> zipf(keys, zipfExponent);
+            case "hotspot" -> hotspot(keys, hotKeys, hotTraffic);
+            default -> throw new IllegalArgumentException("Unknown key distribution '" + name + "'");
+        };
+    }
+
+    private static void checkKeys(int keys) {
+        if (keys <= 0) {
+            throw new IllegalArgumentException("keys must be positive, got " + keys);
+        }
+    }
+}
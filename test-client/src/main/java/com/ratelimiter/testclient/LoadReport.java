@@ -0,0 +1,97 @@
+package com.ratelimiter.testclient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Files written by an open-model run into its output directory, for comparing gateway
+ * releases: {@code intervals.csv} with one row per target and second, {@code summary.json}
+ * with the totals of the run and {@code latency.hgrm}, the full latency distribution of
+ * all targets in HdrHistogram's percentile format, which its plotter reads.
+ */
+final class LoadReport implements AutoCloseable {
+
+    static final String ALL_TARGETS = "all";
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Path directory;
+    private final PrintWriter intervals;
+
+    LoadReport(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.intervals = new PrintWriter(Files.newBufferedWriter(directory.resolve("intervals.csv")));
+        intervals.println("elapsed_s,target,requests,allowed,denied,errors,throughput_rps,"
+                + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+    }
+
+    void interval(double elapsedSeconds, double intervalSeconds, List<TargetStats.Interval> targets) {
+        for (TargetStats.Interval interval : targets) {
+            intervals.println(String.format(Locale.ROOT, "%.1f,%s,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    elapsedSeconds, interval.target(), interval.requests(), interval.allowed(), interval.denied(),
+                    interval.errors(), interval.requests() / intervalSeconds,
+                    millis(interval.latency(), 50), millis(interval.latency(), 90), millis(interval.latency(), 99),
+                    millis(interval.latency(), 99.9), interval.latency().getMaxValue() / MICROS_PER_MILLI));
+        }
+        intervals.flush();
+    }
+
+    void finish(Summary summary, Histogram latency) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(directory.resolve("summary.json").toFile(), summary);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("latency.hgrm")),
+                false, StandardCharsets.UTF_8)) {
+            latency.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        intervals.close();
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    /**
+     * Totals of a run, with every target and all of them together.
+     */
+    record Summary(String label, String startedAt, double durationSeconds, double startRate, double targetRate,
+                   double rampSeconds, String distribution, int keys, String endpoint,
+                   List<TargetSummary> targets, TargetSummary total) {
+    }
+
+    record TargetSummary(String target, long requests, long allowed, long denied, long errors,
+                         double throughputRps, Latency latencyMs, Latency serviceTimeMs) {
+
+        static TargetSummary of(String target, long allowed, long denied, long errors, double seconds,
+                                Histogram latency, Histogram serviceTime) {
+            long requests = allowed + denied + errors;
+            return new TargetSummary(target, requests, allowed, denied, errors, requests / seconds,
+                    Latency.of(latency), Latency.of(serviceTime));
+        }
+    }
+
+    record Latency(double p50, double p90, double p99, double p999, double max, double mean) {
+
+        static Latency of(Histogram histogram) {
+            return new Latency(millis(histogram, 50), millis(histogram, 90), millis(histogram, 99),
+                    millis(histogram, 99.9), histogram.getMaxValue() / MICROS_PER_MILLI,
+                    histogram.getMean() / MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.ratelimiter.testclient;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load against one or more gateways: requests are sent at the rate of an
+ * {@link ArrivalSchedule}, whether or not earlier ones have completed, round-robin over
+ * {@code load.targets}. Each request comes from one of {@code load.keys} client
+ * identities, chosen by a {@link KeyDistribution} and sent as {@code X-Forwarded-For},
+ * {@code X-User-Id} or both. Latencies are corrected for coordinated omission, see
+ * {@link TargetStats}, and the run is written to a {@link LoadReport}.
+ */
+@Component
+@ConditionalOnProperty(name = "test.mode", havingValue = "load")
+public class OpenModelLoadRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenModelLoadRunner.class);
+
+    /**
+     * Waits longer than this are parked, shorter ones spun, so high rates stay on time.
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Value("${load.targets:${gateway.url:http://localhost:8080}}")
+    private List<String> targets;
+
+    @Value("${load.endpoint:/api/resource}")
+    private String endpoint;
+
+    @Value("${load.rate:100}")
+    private double rate;
+
+    @Value("${load.start-rate:-1}")
+    private double startRate;
+
+    @Value("${load.ramp-seconds:0}")
+    private long rampSeconds;
+
+    @Value("${load.duration-seconds:60}")
+    private long durationSeconds;
+
+    @Value("${load.keys:10000}")
+    private int keys;
+
+    @Value("${load.distribution:uniform}")
+    private String distribution;
+
+    @Value("${load.zipf-exponent:1.0}")
+    private double zipfExponent;
+
+    @Value("${load.hot-keys:0.01}")
+    private double hotKeys;
+
+    @Value("${load.hot-traffic:0.9}")
+    private double hotTraffic;
+
+    @Value("${load.identity:both}")
+    private String identity;
+
+    @Value("${load.max-connections:1000}")
+    private int maxConnections;
+
+    @Value("${load.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${load.output-dir:load-results}")
+    private String outputDir;
+
+    @Value("${load.label:}")
+    private String label;
+
+    @Override
+    public void run(String... args) throws Exception {
+        double firstRate = startRate >= 0 ? startRate : rate;
+        ArrivalSchedule schedule = new ArrivalSchedule(firstRate, rate,
+                Duration.ofSeconds(rampSeconds), Duration.ofSeconds(durationSeconds));
+        KeyDistribution keyDistribution = KeyDistribution.of(distribution, keys, zipfExponent, hotKeys, hotTraffic);
+        boolean sendIp = !identity.equalsIgnoreCase("user");
+        boolean sendUser = !identity.equalsIgnoreCase("ip");
+
+        log.info("=== Open-Model Load Test ===");
+        log.info("Targets: {}, endpoint: {}", targets, endpoint);
+        log.info("Rate: {} -> {} req/s over {}s, then {}s; {} requests", firstRate, rate, rampSeconds,
+                durationSeconds, schedule.totalRequests());
+        log.info("Keys: {}, distribution: {}, identity: {}", keys, distribution, identity);
+        log.info("============================");
+
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        HttpClient httpClient = HttpClient.create(connections).responseTimeout(Duration.ofMillis(timeoutMs));
+        List<WebClient> clients = new ArrayList<>(targets.size());
+        List<TargetStats> stats = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            clients.add(WebClient.builder()
+                    .baseUrl(target)
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .build());
+            stats.add(new TargetStats(target));
+        }
+
+        String startedAt = Instant.now().toString();
+        AtomicLong inFlight = new AtomicLong();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (LoadReport report = new LoadReport(Path.of(outputDir))) {
+            long start = System.nanoTime();
+            long[] lastReport = {start};
+            reporter.scheduleAtFixedRate(() -> reportInterval(report, stats, start, lastReport, inFlight),
+                    1, 1, TimeUnit.SECONDS);
+
+            SplittableRandom random = new SplittableRandom();
+            for (long i = 0; i < schedule.totalRequests(); i++) {
+                long due = start + schedule.offsetNanos(i);
+                waitUntil(due);
+                int target = (int) (i % clients.size());
+                send(clients.get(target), stats.get(target), keyDistribution.next(random), due, sendIp, sendUser,
+                        inFlight);
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) + TimeUnit.SECONDS.toNanos(1);
+            while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            reporter.shutdown();
+            reporter.awaitTermination(10, TimeUnit.SECONDS);
+            reportInterval(report, stats, start, lastReport, inFlight);
+            finish(report, stats, startedAt, firstRate, (System.nanoTime() - start) / 1e9);
+        } finally {
+            reporter.shutdownNow();
+            connections.dispose();
+        }
+    }
+
+    private void send(WebClient client, TargetStats stats, int key, long due, boolean sendIp, boolean sendUser,
+                      AtomicLong inFlight) {
+        inFlight.incrementAndGet();
+        long sent = System.nanoTime();
+        client.get()
+                .uri(endpoint)
+                .headers(headers -> identify(headers, key, sendIp, sendUser))
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(status -> stats.recordResponse(status, due, sent, System.nanoTime()),
+                        error -> stats.recordFailure(due, sent, System.nanoTime()));
+    }
+
+    private static void identify(HttpHeaders headers, int key, boolean sendIp, boolean sendUser) {
+        if (sendIp) {
+            headers.set("X-Forwarded-For",
+                    "10." + ((key >>> 16) & 0xff) + "." + ((key >>> 8) & 0xff) + "." + (key & 0xff));
+        }
+        if (sendUser) {
+            headers.set("X-User-Id", "user-" + key);
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static void reportInterval(LoadReport report, List<TargetStats> stats, long start, long[] lastReport,
+                                       AtomicLong inFlight) {
+        long now = System.nanoTime();
+        double intervalSeconds = Math.max(1e-3, (now - lastReport[0]) / 1e9);
+        lastReport[0] = now;
+        List<TargetStats.Interval> intervals = new ArrayList<>(stats.size() + 1);
+        Histogram all = new Histogram(3);
+        long allowed = 0;
+        long denied = 0;
+        long errors = 0;
+        for (TargetStats target : stats) {
+            TargetStats.Interval interval = target.interval();
+            intervals.add(interval);
+            all.add(interval.latency());
+            allowed += interval.allowed();
+            denied += interval.denied();
+            errors += interval.errors();
+        }
+        TargetStats.Interval total = new TargetStats.Interval(LoadReport.ALL_TARGETS, allowed, denied, errors, all);
+        intervals.add(total);
+        double elapsed = (now - start) / 1e9;
+        report.interval(elapsed, intervalSeconds, intervals);
+        log.info("{}s: {} req/s, p99 {}ms, allowed {}, denied {}, errors {}, in flight {}",
+                String.format(Locale.ROOT, "%.0f", elapsed),
+                String.format(Locale.ROOT, "%.0f", total.requests() / intervalSeconds),
+                String.format(Locale.ROOT, "%.2f", all.getValueAtPercentile(99) / 1000.0),
+                allowed, denied, errors, inFlight.get());
+    }
+
+    private void finish(LoadReport report, List<TargetStats> stats, String startedAt, double firstRate,
+                        double seconds) throws IOException {
+        List<LoadReport.TargetSummary> perTarget = new ArrayList<>(stats.size());
+        Histogram latency = new Histogram(3);
+        Histogram serviceTime = new Histogram(3);
+        long allowed = 0;
+        long denied = 0;
+        long errors = 0;
+        for (TargetStats target : stats) {
+            perTarget.add(LoadReport.TargetSummary.of(target.target(), target.totalAllowed(), target.totalDenied(),
+                    target.totalErrors(), seconds, target.totalLatency(), target.totalServiceTime()));
+            latency.add(target.totalLatency());
+            serviceTime.add(target.totalServiceTime());
+            allowed += target.totalAllowed();
+            denied += target.totalDenied();
+            errors += target.totalErrors();
+        }
+        LoadReport.TargetSummary total = LoadReport.TargetSummary.of(LoadReport.ALL_TARGETS, allowed, denied, errors,
+                seconds, latency, serviceTime);
+        report.finish(new LoadReport.Summary(label, startedAt, seconds, firstRate, rate, rampSeconds,
+                distribution, keys, endpoint, perTarget, total), latency);
+
+        log.info("============================");
+        log.info("=== Test Results ===");
+        log.info("Requests:      {}", total.requests());
+        log.info("Allowed (2xx): {}", allowed);
+        log.info("Denied (429):  {}", denied);
+        log.info("Errors:        {}", errors);
+        log.info("Throughput:    {} req/s", String.format(Locale.ROOT, "%.1f", total.throughputRps()));
+        log.info("Latency (ms):  p50 {}, p99 {}, p99.9 {}, max {}", total.latencyMs().p50(), total.latencyMs().p99(),
+                total.latencyMs().p999(), total.latencyMs().max());
+        log.info("Results:       {}", report.directory().toAbsolutePath());
+        log.info("====================");
+    }
+}
@@ -0,0 +1,112 @@
+package com.ratelimiter.testclient;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latencies of the requests sent to one gateway. Latency runs from the time
+ * a request was due to its response, so time spent waiting to be sent, whether for a
+ * connection or for a load generator that fell behind, counts as well: the correction
+ * for coordinated omission. Service time runs from the actual send. Both are recorded
+ * in microseconds from any thread, and read by one reporting thread in intervals.
+ */
+final class TargetStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String target;
+    private final Recorder latency = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder serviceTime = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private final Histogram totalLatency = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram totalServiceTime = new Histogram(SIGNIFICANT_DIGITS);
+    private long totalAllowed;
+    private long totalDenied;
+    private long totalErrors;
+    private Histogram intervalLatency;
+    private Histogram intervalServiceTime;
+
+    TargetStats(String target) {
+        this.target = target;
+    }
+
+    String target() {
+        return target;
+    }
+
+    void recordResponse(int status, long dueNanos, long sentNanos, long doneNanos) {
+        if (status >= 200 && status < 300) {
+            allowed.increment();
+        } else if (status == 429) {
+            denied.increment();
+        } else {
+            errors.increment();
+        }
+        recordTimes(dueNanos, sentNanos, doneNanos);
+    }
+
+    /**
+     * A request that got no response: refused, reset or timed out. Its latency runs until
+     * the failure surfaced, so a gateway that stops answering shows up as a tail of
+     * timeouts rather than as missing samples.
+     */
+    void recordFailure(long dueNanos, long sentNanos, long doneNanos) {
+        errors.increment();
+        recordTimes(dueNanos, sentNanos, doneNanos);
+    }
+
+    private void recordTimes(long dueNanos, long sentNanos, long doneNanos) {
+        latency.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - dueNanos));
+        serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - sentNanos));
+    }
+
+    /**
+     * Everything recorded since the previous interval, which is also added to the totals.
+     * The interval's histogram is reused by the next call.
+     */
+    Interval interval() {
+        intervalLatency = latency.getIntervalHistogram(intervalLatency);
+        intervalServiceTime = serviceTime.getIntervalHistogram(intervalServiceTime);
+        totalLatency.add(intervalLatency);
+        totalServiceTime.add(intervalServiceTime);
+        Interval interval = new Interval(target, allowed.sumThenReset(), denied.sumThenReset(),
+                errors.sumThenReset(), intervalLatency);
+        totalAllowed += interval.allowed();
+        totalDenied += interval.denied();
+        totalErrors += interval.errors();
+        return interval;
+    }
+
+    long totalAllowed() {
+        return totalAllowed;
+    }
+
+    long totalDenied() {
+        return totalDenied;
+    }
+
+    long totalErrors() {
+        return totalErrors;
+    }
+
+    Histogram totalLatency() {
+        return totalLatency;
+    }
+
+    Histogram totalServiceTime() {
+        return totalServiceTime;
+    }
+
+    record Interval(String target, long allowed, long denied, long errors, Histogram latency) {
+
+        long requests() {
+            return allowed + denied + errors;
+        }
+    }
+}
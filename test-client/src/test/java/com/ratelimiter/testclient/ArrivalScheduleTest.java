@@ -0,0 +1,52 @@
+package com.ratelimiter.testclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrivalScheduleTest {
+
+    @Test
+    void spacesRequestsEvenlyAtAConstantRate() {
+        ArrivalSchedule schedule = ArrivalSchedule.constant(1000, Duration.ofSeconds(10));
+
+        assertEquals(10_000, schedule.totalRequests());
+        assertEquals(0, schedule.offsetNanos(0));
+        assertEquals(1_000_000, schedule.offsetNanos(1), 1);
+        assertEquals(5_000_000_000L, schedule.offsetNanos(5000), 1);
+    }
+
+    @Test
+    void rampsLinearlyToTheTargetRate() {
+        ArrivalSchedule schedule = new ArrivalSchedule(0, 1000, Duration.ofSeconds(10), Duration.ofSeconds(5));
+
+        // 5000 requests during the ramp; the first half of them take 7.07 s of its 10.
+        assertEquals(10_000, schedule.totalRequests());
+        assertEquals(0, schedule.offsetNanos(0));
+        assertEquals(Math.sqrt(0.5) * 10e9, schedule.offsetNanos(2500), 1e6);
+        assertEquals(10e9, schedule.offsetNanos(5000), 1e6);
+        assertEquals(11e9, schedule.offsetNanos(6000), 1e6);
+    }
+
+    @Test
+    void offsetsNeverDecrease() {
+        ArrivalSchedule schedule = new ArrivalSchedule(2000, 500, Duration.ofSeconds(3), Duration.ofSeconds(1));
+
+        long previous = -1;
+        for (long i = 0; i < schedule.totalRequests(); i++) {
+            long offset = schedule.offsetNanos(i);
+            assertTrue(offset >= previous, "request " + i);
+            previous = offset;
+        }
+        assertEquals(4e9, schedule.offsetNanos(schedule.totalRequests() - 1), 3e6);
+    }
+
+    @Test
+    void rejectsNonPositiveRates() {
+        assertThrows(IllegalArgumentException.class, () -> ArrivalSchedule.constant(0, Duration.ofSeconds(1)));
+    }
+}
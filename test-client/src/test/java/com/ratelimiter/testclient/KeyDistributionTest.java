@@ -0,0 +1,60 @@
+package com.ratelimiter.testclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyDistributionTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void uniformSpreadsEvenly() {
+        long[] counts = sample(KeyDistribution.uniform(10));
+
+        for (int k = 0; k < 10; k++) {
+            assertEquals(SAMPLES / 10.0, counts[k], SAMPLES / 100.0);
+        }
+    }
+
+    @Test
+    void zipfFavoursTheFirstKeys() {
+        long[] counts = sample(KeyDistribution.zipf(1000, 1.0));
+
+        // With exponent 1, key 0 is drawn twice as often as key 1 and ten times as often as key 9.
+        assertEquals(2.0, (double) counts[0] / counts[1], 0.1);
+        assertEquals(10.0, (double) counts[0] / counts[9], 1.0);
+        assertTrue(counts[999] > 0);
+    }
+
+    @Test
+    void hotspotSendsMostTrafficFromFewKeys() {
+        long[] counts = sample(KeyDistribution.hotspot(1000, 0.01, 0.9));
+
+        long hot = 0;
+        for (int k = 0; k < 10; k++) {
+            hot += counts[k];
+        }
+        assertEquals(0.9, (double) hot / SAMPLES, 0.01);
+    }
+
+    @Test
+    void resolvesDistributionsByName() {
+        assertTrue(KeyDistribution.of("Zipf", 10, 1.2, 0.1, 0.5).next(new SplittableRandom()) < 10);
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.of("gaussian", 10, 1, 0.1, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.uniform(0));
+    }
+
+    private static long[] sample(KeyDistribution distribution) {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] counts = new long[1000];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[distribution.next(random)]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ratelimiter.testclient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadReportTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesIntervalsAndSummary() throws Exception {
+        TargetStats stats = new TargetStats("http://gateway-1:8080");
+        // Due at 0, sent 4 ms late and answered 1 ms later: 5 ms of latency, 1 ms of service time.
+        stats.recordResponse(200, 0, 4_000_000, 5_000_000);
+        stats.recordResponse(429, 0, 0, 1_000_000);
+        // Timed out 8 ms after it was due and sent.
+        stats.recordFailure(0, 0, 8_000_000);
+
+        try (LoadReport report = new LoadReport(directory)) {
+            TargetStats.Interval interval = stats.interval();
+            assertEquals(3, interval.requests());
+            report.interval(1.0, 1.0, List.of(interval));
+            LoadReport.TargetSummary total = LoadReport.TargetSummary.of(LoadReport.ALL_TARGETS,
+                    stats.totalAllowed(), stats.totalDenied(), stats.totalErrors(), 2.0,
+                    stats.totalLatency(), stats.totalServiceTime());
+            report.finish(new LoadReport.Summary("v1.2.0", "2026-01-01T00:00:00Z", 2.0, 10, 10, 0, "zipf", 100,
+                    "/api/resource", List.of(total), total), stats.totalLatency());
+        }
+
+        List<String> rows = Files.readAllLines(directory.resolve("intervals.csv"));
+        assertEquals(2, rows.size());
+        assertTrue(rows.get(1).startsWith("1.0,http://gateway-1:8080,3,1,1,1,3.0,"));
+
+        JsonNode summary = new ObjectMapper().readTree(directory.resolve("summary.json").toFile());
+        assertEquals("v1.2.0", summary.get("label").asText());
+        assertEquals(3, summary.get("total").get("requests").asLong());
+        assertEquals(1.5, summary.get("total").get("throughputRps").asDouble());
+        assertEquals(8.0, summary.get("total").get("latencyMs").get("max").asDouble(), 0.01);
+        assertEquals(8.0, summary.get("total").get("serviceTimeMs").get("max").asDouble(), 0.01);
+        assertTrue(Files.size(directory.resolve("latency.hgrm")) > 0);
+    }
+}